@@ -1,6 +1,12 @@
 package com.opsapi.common;
 
 import com.opsapi.customers.CustomerNotFoundException;
+import com.opsapi.events.DeadLetterReplayInProgressException;
+import com.opsapi.export.ExportAbortedException;
+import com.opsapi.export.ExportLimitReachedException;
+import com.opsapi.projection.OutboxHistoryIncompleteException;
+import com.opsapi.projection.ProjectionRebuildInProgressException;
+import com.opsapi.projection.TopicHistoryIncompleteException;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.http.HttpStatus;
@@ -8,6 +14,7 @@ import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.context.request.async.AsyncRequestNotUsableException;
 
 import java.time.Instant;
 import java.util.ArrayList;
@@ -89,6 +96,57 @@ public class ApiExceptionHandler {
         return org.springframework.http.ResponseEntity.status(HttpStatus.CONFLICT).body(body);
     }
 
+    @ExceptionHandler({DeadLetterReplayInProgressException.class, ProjectionRebuildInProgressException.class})
+    public org.springframework.http.ResponseEntity<ApiErrorResponse> handleJobInProgress(
+            RuntimeException ex,
+            HttpServletRequest req
+    ) {
+        ApiErrorResponse body = new ApiErrorResponse(
+                Instant.now(),
+                409,
+                "CONFLICT",
+                ex.getMessage(),
+                req.getRequestURI(),
+                List.of()
+        );
+
+        return org.springframework.http.ResponseEntity.status(HttpStatus.CONFLICT).body(body);
+    }
+
+    @ExceptionHandler({OutboxHistoryIncompleteException.class, TopicHistoryIncompleteException.class})
+    public org.springframework.http.ResponseEntity<ApiErrorResponse> handleHistoryIncomplete(
+            RuntimeException ex,
+            HttpServletRequest req
+    ) {
+        ApiErrorResponse body = new ApiErrorResponse(
+                Instant.now(),
+                409,
+                "CONFLICT",
+                ex.getMessage(),
+                req.getRequestURI(),
+                List.of()
+        );
+
+        return org.springframework.http.ResponseEntity.status(HttpStatus.CONFLICT).body(body);
+    }
+
+    @ExceptionHandler(ExportLimitReachedException.class)
+    public org.springframework.http.ResponseEntity<ApiErrorResponse> handleExportLimit(
+            ExportLimitReachedException ex,
+            HttpServletRequest req
+    ) {
+        ApiErrorResponse body = new ApiErrorResponse(
+                Instant.now(),
+                429,
+                "TOO_MANY_REQUESTS",
+                ex.getMessage(),
+                req.getRequestURI(),
+                List.of()
+        );
+
+        return org.springframework.http.ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(body);
+    }
+
     @ExceptionHandler(IllegalArgumentException.class)
     public org.springframework.http.ResponseEntity<ApiErrorResponse> handleIllegalArgument(
             IllegalArgumentException ex,
@@ -106,6 +164,20 @@ public class ApiExceptionHandler {
         return org.springframework.http.ResponseEntity.status(HttpStatus.BAD_REQUEST).body(body);
     }
 
+    /**
+     * Export failed mid-stream: status and rows are out already, an error body would only be appended to them.
+     * Rethrown -> not handled here -> the servlet container breaks the connection off (committed response).
+     */
+    @ExceptionHandler(ExportAbortedException.class)
+    public void handleExportAborted(ExportAbortedException ex) {
+        throw ex;
+    }
+
+    /** Client went away during a streamed response (e.g. an export): there is no one left to answer. */
+    @ExceptionHandler(AsyncRequestNotUsableException.class)
+    public void handleClientGone() {
+    }
+
     @ExceptionHandler(Exception.class)
     public org.springframework.http.ResponseEntity<ApiErrorResponse> handleGeneric(
             Exception ex,
@@ -1,11 +1,19 @@
 package com.opsapi.common;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
 
 @Component
 public class OpsMetrics {
@@ -31,4 +39,127 @@ public class OpsMetrics {
             Timer.builder(name).register(registry).record(durationNs, TimeUnit.NANOSECONDS);
         }
     }
-}
\ No newline at end of file
+
+    /** Record an already-measured duration (when the work doesn't fit in a Supplier). */
+    public void recordNanos(String name, long durationNs) {
+        Timer.builder(name).register(registry).record(durationNs, TimeUnit.NANOSECONDS);
+    }
+
+    /** Monotonic counter, e.g. "events sent" / "events failed". */
+    public void increment(String name, double amount) {
+        if (amount <= 0) return;
+        Counter.builder(name).register(registry).increment(amount);
+    }
+
+    /** Distribution of a plain value (batch sizes, events/sec, ...). */
+    public void record(String name, double value) {
+        DistributionSummary.builder(name).register(registry).record(value);
+    }
+
+    /** Pre-built tagged timer, for hot paths that shouldn't look the meter up on every call. */
+    public Timer timer(String name, String... tags) {
+        return Timer.builder(name).tags(tags).register(registry);
+    }
+
+    /** Tagged counter, incremented once. */
+    public void count(String name, String... tags) {
+        Counter.builder(name).tags(tags).register(registry).increment();
+    }
+
+    /** Gauge sampled at scrape time; {@code state} must stay strongly referenced by the caller. */
+    public <T> void gauge(String name, T state, ToDoubleFunction<T> value, String... tags) {
+        Gauge.builder(name, state, value).tags(tags).register(registry);
+    }
+
+    /**
+     * Caffeine cache stats (the cache must be built with recordStats()):
+     * cache.gets{cache=name, result=hit|miss}, cache.evictions, cache.size, ...
+     * + ops.cache.hit_ratio{cache=name} (hits / requests since start)
+     */
+    public void cache(String name, Cache<?, ?> cache) {
+        CaffeineCacheMetrics.monitor(registry, cache, name);
+        Gauge.builder("ops.cache.hit_ratio", cache, c -> c.stats().hitRate())
+                .tag("cache", name)
+                .register(registry);
+    }
+
+    // ---- Outbox relay (alert on lag: ops.outbox.backlog.oldest.age / ops.outbox.publish.latency) ----
+
+    /**
+     * One relay batch.
+     * - ops.outbox.batch.size = rows claimed per batch (histogram -> "are batches full?")
+     * - ops.outbox.batch.publish = send + ack + mark time of a whole batch
+     */
+    public void outboxBatch(int claimed, int sent, int failed, int parked, long durationNs) {
+        DistributionSummary.builder("ops.outbox.batch.size")
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(claimed);
+        recordNanos("ops.outbox.batch.publish", durationNs);
+        increment("ops.outbox.events.sent", sent);
+        increment("ops.outbox.events.failed", failed);
+        increment("ops.outbox.events.parked", parked);
+        if (durationNs > 0 && sent > 0) {
+            record("ops.outbox.batch.throughput", sent * 1_000_000_000.0 / durationNs);
+        }
+    }
+
+    /** Enqueue (outbox insert) -> broker ack, per event type. */
+    public void outboxPublished(String eventType, Instant enqueuedAt) {
+        Duration latency = Duration.between(enqueuedAt, Instant.now());
+        Timer.builder("ops.outbox.publish.latency")
+                .tag("event_type", eventType)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(latency.isNegative() ? Duration.ZERO : latency);
+    }
+
+    /** Failed sends by exception class (e.g. TimeoutException vs RecordTooLargeException). */
+    public void outboxFailure(Throwable cause) {
+        Counter.builder("ops.outbox.failures")
+                .tag("exception", cause.getClass().getSimpleName())
+                .register(registry)
+                .increment();
+    }
+
+    // ---- customer-events consumer (alert on ops.events.consumer.lag / ops.events.end_to_end.latency) ----
+
+    /**
+     * What happened to consumed events, by schema version.
+     * outcome = processed | duplicate | bad | unknown_version | failed
+     * (bad = unparseable, so its version is "unknown"; a version no handler knows is "other",
+     * see EventHandlerRegistry.versionTag)
+     */
+    public void eventOutcome(String outcome, String schemaVersion, double amount) {
+        if (amount <= 0) return;
+        Counter.builder("ops.events.outcome")
+                .tag("outcome", outcome)
+                .tag("schema_version", schemaVersion)
+                .register(registry)
+                .increment(amount);
+    }
+
+    /** Event ts (publisher enqueue) -> handler done, per topic (main vs retry tiers) and schema version. */
+    public void eventEndToEnd(String topic, String schemaVersion, Instant enqueuedAt, Instant handledAt) {
+        Duration latency = Duration.between(enqueuedAt, handledAt);
+        Timer.builder("ops.events.end_to_end.latency")
+                .tag("topic", topic)
+                .tag("schema_version", schemaVersion)
+                .publishPercentileHistogram()
+                .register(registry)
+                .record(latency.isNegative() ? Duration.ZERO : latency);
+    }
+
+    // ---- exports ----
+
+    /**
+     * One finished export: ops.export.duration{dataset, outcome}, ops.export.rows{dataset}.
+     * outcome = ok | aborted (client went away) | failed (database error, e.g. a timeout)
+     */
+    public void export(String dataset, String outcome, long rows, long durationNs) {
+        timer("ops.export.duration", "dataset", dataset, "outcome", outcome).record(durationNs, TimeUnit.NANOSECONDS);
+        if (rows > 0) {
+            Counter.builder("ops.export.rows").tag("dataset", dataset).register(registry).increment(rows);
+        }
+    }
+}
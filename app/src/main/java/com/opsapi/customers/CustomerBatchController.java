@@ -0,0 +1,39 @@
+package com.opsapi.customers;
+
+import com.opsapi.customers.dto.CustomerBatchGetRequest;
+import com.opsapi.customers.dto.CustomerBatchGetResponse;
+import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Collection-level custom methods (/customers:verb).
+ * Separate from CustomerController: its class-level "/customers" would turn ":batchGet" into "/customers/:batchGet".
+ *
+ * Example:
+ *  - POST /customers:batchGet  {"ids": ["...", "..."]}  -> {"found": [...], "missing": ["..."]}
+ */
+@RestController
+public class CustomerBatchController {
+
+    private final CustomerService service;
+    private final int maxIds;
+
+    public CustomerBatchController(CustomerService service,
+                                   @Value("${ops.customers.batch-get.max-ids:100}") int maxIds) {
+        this.service = service;
+        this.maxIds = Math.max(1, maxIds);
+    }
+
+    /** One round trip instead of one GET /customers/{id} per id. */
+    @PostMapping("/customers:batchGet")
+    public CustomerBatchGetResponse batchGet(@Valid @RequestBody CustomerBatchGetRequest req) {
+        if (req.getIds().size() > maxIds) {
+            throw new IllegalArgumentException("ids must contain at most " + maxIds + " entries");
+        }
+        if (req.getIds().contains(null)) {
+            throw new IllegalArgumentException("ids must not contain null");
+        }
+        return service.batchGet(req.getIds());
+    }
+}
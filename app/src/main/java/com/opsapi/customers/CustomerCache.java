@@ -0,0 +1,109 @@
+package com.opsapi.customers;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.opsapi.common.OpsMetrics;
+import com.opsapi.customers.dto.CustomerResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Read-through, in-process cache of customer snapshots (GET /customers/{id} + "does it exist?" guards).
+ *
+ * Mental model:
+ * - bounded: max-size entries (least recently/frequently used go first) and ttl-ms after the load
+ * - only customers that exist are cached (no "not found" entries): a customer created on another
+ *   node is visible right away, and there is nothing to invalidate on create
+ * - a change on this node drops the entry after its transaction commits; other nodes drop it when
+ *   the CUSTOMER_UPDATED / CUSTOMER_DELETED event reaches them (CustomerCacheInvalidator)
+ * - ttl-ms bounds how stale a node can be if it missed an event (e.g. cut off from Kafka)
+ * - a load racing an invalidation can't win: Caffeine runs invalidate() after the in-flight load
+ *   of that key, so an old row loaded just before the commit is dropped, not kept
+ *
+ * Stats: cache.gets{cache=customers, result=hit|miss}, cache.evictions, ops.cache.hit_ratio.
+ * enabled=false -> every call goes to the database.
+ */
+@Component
+public class CustomerCache {
+
+    private final CustomerRepository repo;
+    private final CustomerQueryRepository queryRepo;
+    private final boolean enabled;
+    private final Cache<UUID, CustomerResponse> snapshots;
+
+    public CustomerCache(CustomerRepository repo, CustomerQueryRepository queryRepo, OpsMetrics metrics,
+                         @Value("${ops.customers.cache.enabled:true}") boolean enabled,
+                         @Value("${ops.customers.cache.max-size:10000}") long maxSize,
+                         @Value("${ops.customers.cache.ttl-ms:60000}") long ttlMs) {
+        this.repo = repo;
+        this.queryRepo = queryRepo;
+        this.enabled = enabled;
+        this.snapshots = Caffeine.newBuilder()
+                .maximumSize(Math.max(1, maxSize))
+                .expireAfterWrite(Duration.ofMillis(Math.max(1, ttlMs)))
+                .recordStats()
+                .build();
+        metrics.cache("customers", snapshots);
+    }
+
+    public Optional<CustomerResponse> get(UUID id) {
+        if (!enabled) return repo.findById(id).map(CustomerService::toResponse);
+        // null from the loader = not cached
+        return Optional.ofNullable(snapshots.get(id, k -> repo.findById(k).map(CustomerService::toResponse).orElse(null)));
+    }
+
+    /**
+     * Cached snapshots from memory, all the others with ONE query. The queried ones are not written back:
+     * a bulk load isn't ordered against invalidations the way get()'s per-key load is, so it could put
+     * back a row that was changed while it ran. Single GETs warm the cache.
+     */
+    public Map<UUID, CustomerResponse> getAll(Collection<UUID> ids) {
+        if (!enabled) return queryRepo.findSnapshots(ids);
+        Map<UUID, CustomerResponse> found = new HashMap<>(snapshots.getAllPresent(ids));
+        if (found.size() < ids.size()) {
+            List<UUID> missing = new ArrayList<>(ids.size() - found.size());
+            for (UUID id : ids) {
+                if (!found.containsKey(id)) missing.add(id);
+            }
+            found.putAll(queryRepo.findSnapshots(missing));
+        }
+        return found;
+    }
+
+    public boolean exists(UUID id) {
+        return get(id).isPresent();
+    }
+
+    public void invalidate(UUID id) {
+        snapshots.invalidate(id);
+    }
+
+    public void invalidateAll(Collection<UUID> ids) {
+        snapshots.invalidateAll(ids);
+    }
+
+    /** Drop the entry once the surrounding transaction commits (right away if there is none). */
+    public void invalidateAfterCommit(UUID id) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidate(id);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                invalidate(id);
+            }
+        });
+    }
+}
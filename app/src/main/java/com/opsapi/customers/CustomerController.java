@@ -1,15 +1,18 @@
 package com.opsapi.customers;
 
 import com.opsapi.customers.dto.CustomerCreateRequest;
+import com.opsapi.customers.dto.CustomerImportResponse;
 import com.opsapi.customers.dto.CustomerListResponse;
 import com.opsapi.customers.dto.CustomerResponse;
 import com.opsapi.customers.dto.CustomerUpdateRequest;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.util.UUID;
 
 @RestController
@@ -18,10 +21,13 @@ public class CustomerController {
 
     private final CustomerService service;
     private final CustomerDependencyService dependencyService;
+    private final CustomerImporter importer;
 
-    public CustomerController(CustomerService service, CustomerDependencyService dependencyService) {
+    public CustomerController(CustomerService service, CustomerDependencyService dependencyService,
+                              CustomerImporter importer) {
         this.service = service;
         this.dependencyService = dependencyService;
+        this.importer = importer;
     }
 
     @PostMapping
@@ -30,6 +36,19 @@ public class CustomerController {
         return service.create(req);
     }
 
+    /**
+     * Bulk create: one customer per line, NDJSON ({"name":..,"email":..}) or CSV (header with name,email).
+     * The body is streamed (not a @RequestBody): see CustomerImporter.
+     */
+    @PostMapping(path = "/import", consumes = {MediaType.APPLICATION_NDJSON_VALUE, "text/csv"})
+    public CustomerImportResponse importCustomers(HttpServletRequest request) throws IOException {
+        CustomerImporter.Format format = MediaType.parseMediaType(request.getContentType())
+                .isCompatibleWith(MediaType.APPLICATION_NDJSON)
+                ? CustomerImporter.Format.NDJSON
+                : CustomerImporter.Format.CSV;
+        return importer.importFrom(request.getInputStream(), format);
+    }
+
     @GetMapping("/{id}")
     public CustomerResponse getById(@PathVariable UUID id) {
         return service.getById(id);
@@ -38,7 +57,8 @@ public class CustomerController {
     @GetMapping
     public CustomerListResponse list(
             @RequestParam(defaultValue = "20") int limit,
-            @RequestParam(defaultValue = "0") int offset
+            @RequestParam(defaultValue = "0") int offset,
+            @RequestParam(required = false) String cursor
     ) {
         if (limit < 1 || limit > 100) {
             throw new IllegalArgumentException("limit must be between 1 and 100");
@@ -47,6 +67,13 @@ public class CustomerController {
             throw new IllegalArgumentException("offset must be >= 0");
         }
 
+        // cursor = nextCursor of the previous page (same cost for every page); offset stays for old clients
+        if (cursor != null && !cursor.isBlank()) {
+            if (offset != 0) {
+                throw new IllegalArgumentException("use either cursor or offset, not both");
+            }
+            return service.listAfter(limit, cursor);
+        }
         return service.list(limit, offset);
     }
 
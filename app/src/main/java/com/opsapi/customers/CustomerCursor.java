@@ -0,0 +1,42 @@
+package com.opsapi.customers;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Position in the newest-first customer list: the (createdAt, id) of the last row a page returned.
+ *
+ * Mental model:
+ * - the next page = rows strictly "older" than this pair, in (created_at DESC, id DESC) order
+ * - clients get it as an opaque token (base64url) and hand it back unchanged;
+ *   what's inside may change without breaking them
+ * - a row inserted or deleted meanwhile doesn't shift the pages (unlike offset)
+ */
+record CustomerCursor(Instant createdAt, UUID id) {
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    static CustomerCursor of(CustomerEntity last) {
+        return new CustomerCursor(last.getCreatedAt(), last.getId());
+    }
+
+    String encode() {
+        return ENCODER.encodeToString((createdAt + "|" + id).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** @throws IllegalArgumentException for anything we didn't hand out (-> 400) */
+    static CustomerCursor decode(String token) {
+        try {
+            String raw = new String(DECODER.decode(token.trim()), StandardCharsets.UTF_8);
+            int sep = raw.indexOf('|');
+            if (sep < 0) throw new IllegalArgumentException("no separator");
+            return new CustomerCursor(Instant.parse(raw.substring(0, sep)), UUID.fromString(raw.substring(sep + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException ex) {
+            throw new IllegalArgumentException("cursor is not valid (use nextCursor of a previous page)");
+        }
+    }
+}
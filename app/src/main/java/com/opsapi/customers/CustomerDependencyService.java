@@ -13,17 +13,17 @@ import java.util.UUID;
 @Service
 public class CustomerDependencyService {
 
-    private final CustomerRepository customerRepository;
+    private final CustomerCache customers;
     private final DependencyStubClient stubClient;
 
     private final String configuredBaseUrl;
 
     public CustomerDependencyService(
-            CustomerRepository customerRepository,
+            CustomerCache customers,
             DependencyStubClient stubClient,
             @Value("${ops.dependency.base-url:}") String configuredBaseUrl
     ) {
-        this.customerRepository = customerRepository;
+        this.customers = customers;
         this.stubClient = stubClient;
         this.configuredBaseUrl = configuredBaseUrl;
     }
@@ -34,7 +34,7 @@ public class CustomerDependencyService {
             Integer delayMs,
             HttpServletRequest request
     ) {
-        boolean exists = customerRepository.existsById(customerId);
+        boolean exists = customers.exists(customerId);
         if (!exists) {
             throw new CustomerNotFoundException(customerId);
         }
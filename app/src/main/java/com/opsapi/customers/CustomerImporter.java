@@ -0,0 +1,358 @@
+package com.opsapi.customers;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.opsapi.common.CorrelationIdFilter;
+import com.opsapi.common.OpsMetrics;
+import com.opsapi.customers.dto.CustomerCreateRequest;
+import com.opsapi.customers.dto.CustomerImportResponse;
+import com.opsapi.events.CustomerEventPublisher;
+import com.opsapi.outbox.OutboxNotificationListener;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * Bulk customer import (POST /customers/import): NDJSON or CSV in, one transaction.
+ *
+ * Mental model:
+ * - the body is read line by line and streamed into a TEMP staging table via COPY
+ *   (only the current line + one 64KB COPY chunk are in memory, whatever the file size)
+ * - each line is validated like POST /customers (same bean validation, same trim/lower-case);
+ *   bad lines are reported, not fatal
+ * - staging already carries the new id and the encoded CUSTOMER_CREATED payload of every line
+ *   (CustomerEventPublisher's codec -> the relay can't tell imported events from single creates)
+ * - merge = ONE statement: first line per email -> INSERT ... ON CONFLICT (email) DO NOTHING,
+ *   an outbox row for exactly the rows that went in, staging rows marked as imported
+ * - whatever was not imported is a conflict: an earlier line had the email, or a customer has it already
+ * - ONE NOTIFY for the whole import (the relay batches from there)
+ *
+ * All or nothing for the valid lines: a failure (client gone, too many lines, ...) rolls everything back.
+ */
+@Service
+public class CustomerImporter {
+
+    private static final Logger log = LoggerFactory.getLogger(CustomerImporter.class);
+
+    public enum Format { NDJSON, CSV }
+
+    private static final HexFormat HEX = HexFormat.of();
+    private static final int COPY_CHUNK_CHARS = 64 * 1024;
+    private static final int NAME_MAX = 200;   // customers.name
+    private static final int EMAIL_MAX = 320;  // customers.email
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final CustomerEventPublisher eventPublisher;
+    private final OpsMetrics metrics;
+    private final long maxLines;
+    private final int maxProblems;
+    private final String workMem;
+
+    public CustomerImporter(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper, Validator validator,
+                            CustomerEventPublisher eventPublisher, OpsMetrics metrics,
+                            @Value("${ops.customers.import.max-lines:1000000}") long maxLines,
+                            @Value("${ops.customers.import.max-problems:100}") int maxProblems,
+                            @Value("${ops.customers.import.work-mem:64MB}") String workMem) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.eventPublisher = eventPublisher;
+        this.metrics = metrics;
+        this.maxLines = Math.max(1, maxLines);
+        this.maxProblems = Math.max(0, maxProblems);
+        if (!workMem.matches("\\d+\\s*(kB|MB|GB)")) {
+            throw new IllegalArgumentException("ops.customers.import.work-mem must look like 64MB, was " + workMem);
+        }
+        this.workMem = workMem;
+    }
+
+    @Transactional
+    public CustomerImportResponse importFrom(InputStream body, Format format) {
+        return metrics.time("ops.customers.import", () -> {
+            long started = System.nanoTime();
+
+            // sorts/hashes over the whole file (DISTINCT ON email, joins on id) stay in memory
+            jdbcTemplate.execute("SET LOCAL work_mem = '" + workMem + "'");
+            jdbcTemplate.execute("""
+                    CREATE TEMP TABLE customer_import (
+                      line_no  BIGINT       NOT NULL,
+                      id       UUID         NOT NULL,
+                      name     VARCHAR(200) NOT NULL,
+                      email    VARCHAR(320) NOT NULL,
+                      payload  BYTEA        NOT NULL,
+                      imported BOOLEAN      NOT NULL DEFAULT false
+                    ) ON COMMIT DROP
+                    """);
+            Staged staged = jdbcTemplate.execute((ConnectionCallback<Staged>) con -> stage(con.unwrap(PGConnection.class), body, format));
+            // temp tables are never auto-analyzed; the merge below plans on real row counts
+            jdbcTemplate.execute("ANALYZE customer_import");
+
+            long imported = merge();
+            if (imported > 0) {
+                jdbcTemplate.execute("NOTIFY " + OutboxNotificationListener.CHANNEL);
+            }
+
+            long conflicts = staged.valid() - imported;
+            List<CustomerImportResponse.Problem> problems = new ArrayList<>(staged.invalid());
+            if (conflicts > 0) problems.addAll(conflicts());
+            problems.sort(Comparator.comparingLong(CustomerImportResponse.Problem::line));
+            long problemCount = staged.invalidCount() + conflicts;
+            if (problems.size() > maxProblems) problems = new ArrayList<>(problems.subList(0, maxProblems));
+
+            log.info("CUSTOMER_IMPORT_DONE format={} received={} imported={} invalid={} conflicts={} durationMs={}",
+                    format, staged.received(), imported, staged.invalidCount(), conflicts,
+                    (System.nanoTime() - started) / 1_000_000);
+
+            return new CustomerImportResponse(staged.received(), imported, staged.invalidCount(), conflicts,
+                    problems, problemCount > problems.size());
+        });
+    }
+
+    private Staged stage(PGConnection con, InputStream body, Format format) throws SQLException {
+        CopyIn copy = con.getCopyAPI().copyIn(
+                "COPY customer_import (line_no, id, name, email, payload) FROM STDIN (FORMAT csv)");
+        try {
+            Staged staged = new Staged();
+            StringBuilder chunk = new StringBuilder(COPY_CHUNK_CHARS + 1024);
+            BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+
+            int[] columns = null; // CSV: index of name, email
+            long lineNo = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNo++;
+                if (lineNo == 1 && line.startsWith("\uFEFF")) line = line.substring(1);
+                if (line.isBlank()) continue;
+
+                if (format == Format.CSV && columns == null) {
+                    columns = csvHeader(line);
+                    continue;
+                }
+                if (++staged.received > maxLines) {
+                    throw new IllegalArgumentException("import is limited to " + maxLines + " lines; split the file");
+                }
+
+                String[] fields = format == Format.CSV ? csvRow(line, columns) : jsonRow(line);
+                if (fields == null) {
+                    staged.invalid(lineNo, null, "line is not a valid " + format.name().toLowerCase(Locale.ROOT) + " row",
+                            maxProblems);
+                    continue;
+                }
+                // normalized like create(); padded CSV fields are fine
+                String name = fields[0] == null ? null : fields[0].trim();
+                String email = fields[1] == null ? null : fields[1].trim().toLowerCase(Locale.ROOT);
+                String problem = validate(name, email);
+                if (problem != null) {
+                    staged.invalid(lineNo, fields[1], problem, maxProblems);
+                    continue;
+                }
+
+                UUID id = UUID.randomUUID();
+                chunk.append(lineNo).append(',')
+                        .append(id).append(',');
+                csvQuoted(chunk, name).append(',');
+                csvQuoted(chunk, email).append(',')
+                        .append("\\x").append(HEX.formatHex(eventPublisher.customerCreatedPayload(id, name, email)))
+                        .append('\n');
+                staged.valid++;
+
+                if (chunk.length() >= COPY_CHUNK_CHARS) flush(copy, chunk);
+            }
+            if (format == Format.CSV && columns == null && lineNo > 0) {
+                throw new IllegalArgumentException("CSV needs a header line naming the columns name and email");
+            }
+            flush(copy, chunk);
+            copy.endCopy();
+            return staged;
+        } catch (IOException ex) {
+            throw new UncheckedIOException("import body could not be read", ex);
+        } finally {
+            if (copy.isActive()) copy.cancelCopy();
+        }
+    }
+
+    private long merge() {
+        return jdbcTemplate.update("""
+                WITH firsts AS (
+                    SELECT DISTINCT ON (email) id, name, email
+                    FROM customer_import
+                    ORDER BY email, line_no
+                ), inserted AS (
+                    INSERT INTO customers (id, name, email, created_at, updated_at)
+                    SELECT id, name, email, now(), now() FROM firsts
+                    ON CONFLICT (email) DO NOTHING
+                    RETURNING id
+                ), outbox AS (
+                    INSERT INTO outbox_events (id, aggregate_type, aggregate_id, event_type, schema_version, codec,
+                                               payload, correlation_id, created_at, next_attempt_at)
+                    SELECT gen_random_uuid(), 'CUSTOMER', s.id, 'CUSTOMER_CREATED', ?, ?, s.payload, ?, now(), now()
+                    FROM customer_import s JOIN inserted i ON i.id = s.id
+                )
+                UPDATE customer_import s SET imported = true
+                FROM inserted i
+                WHERE s.id = i.id
+                """,
+                eventPublisher.schemaVersion(), eventPublisher.codecId(), MDC.get(CorrelationIdFilter.MDC_KEY));
+    }
+
+    /** The first maxProblems lines that were valid but not imported, with the reason. */
+    private List<CustomerImportResponse.Problem> conflicts() {
+        return jdbcTemplate.query("""
+                SELECT line_no, email, dup FROM (
+                    SELECT line_no, email, imported,
+                           row_number() OVER (PARTITION BY email ORDER BY line_no) > 1 AS dup
+                    FROM customer_import
+                ) s
+                WHERE NOT imported
+                ORDER BY line_no
+                LIMIT ?
+                """,
+                (rs, i) -> rs.getBoolean(3)
+                        ? new CustomerImportResponse.Problem(rs.getLong(1), rs.getString(2), "DUPLICATE_IN_FILE",
+                                "an earlier line has this email")
+                        : new CustomerImportResponse.Problem(rs.getLong(1), rs.getString(2), "EMAIL_EXISTS",
+                                "a customer with this email exists"),
+                maxProblems);
+    }
+
+    /** @return null if the row can be imported, else why not (same rules as POST /customers + column sizes) */
+    private String validate(String name, String email) {
+        if (name != null && name.indexOf('\0') >= 0 || email != null && email.indexOf('\0') >= 0) {
+            return "name and email must not contain NUL characters";
+        }
+        var violations = validator.validate(new CustomerCreateRequest(name, email));
+        if (!violations.isEmpty()) {
+            return violations.stream().map(ConstraintViolation::getMessage).sorted().reduce((a, b) -> a + "; " + b).get();
+        }
+        if (name.length() > NAME_MAX) return "name must be at most " + NAME_MAX + " characters";
+        if (email.length() > EMAIL_MAX) return "email must be at most " + EMAIL_MAX + " characters";
+        return null;
+    }
+
+    /** {"name": ..., "email": ...}; other fields are ignored. @return null if the line is not a JSON object */
+    private String[] jsonRow(String line) {
+        try {
+            JsonNode node = objectMapper.readTree(line);
+            if (node == null || !node.isObject()) return null;
+            return new String[]{text(node.get("name")), text(node.get("email"))};
+        } catch (IOException ex) {
+            return null;
+        }
+    }
+
+    private static String text(JsonNode node) {
+        return node != null && node.isTextual() ? node.asText() : null;
+    }
+
+    private static int[] csvHeader(String line) {
+        List<String> header = csvFields(line);
+        int name = -1, email = -1;
+        for (int i = 0; header != null && i < header.size(); i++) {
+            String column = header.get(i).trim().toLowerCase(Locale.ROOT);
+            if (column.equals("name")) name = i;
+            if (column.equals("email")) email = i;
+        }
+        if (name < 0 || email < 0) {
+            throw new IllegalArgumentException("CSV needs a header line naming the columns name and email");
+        }
+        return new int[]{name, email};
+    }
+
+    private static String[] csvRow(String line, int[] columns) {
+        List<String> fields = csvFields(line);
+        if (fields == null) return null;
+        return new String[]{
+                columns[0] < fields.size() ? fields.get(columns[0]) : null,
+                columns[1] < fields.size() ? fields.get(columns[1]) : null
+        };
+    }
+
+    /**
+     * RFC 4180 fields of one line: "quoted", with "" for a quote inside.
+     * Quoted fields spanning lines are not supported (@return null, like an unterminated quote).
+     */
+    static List<String> csvFields(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) return null;
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static StringBuilder csvQuoted(StringBuilder out, String value) {
+        return out.append('"').append(value.replace("\"", "\"\"")).append('"');
+    }
+
+    private static void flush(CopyIn copy, StringBuilder chunk) throws SQLException {
+        if (chunk.isEmpty()) return;
+        byte[] bytes = chunk.toString().getBytes(StandardCharsets.UTF_8);
+        copy.writeToCopy(bytes, 0, bytes.length);
+        chunk.setLength(0);
+    }
+
+    /** Counters of the staging pass; keeps only the first maxProblems invalid lines. */
+    private static final class Staged {
+        long received;
+        long valid;
+        long invalidCount;
+        final List<CustomerImportResponse.Problem> invalid = new ArrayList<>();
+
+        void invalid(long line, String email, String message, int keep) {
+            invalidCount++;
+            if (invalid.size() < keep) {
+                invalid.add(new CustomerImportResponse.Problem(line, email, "INVALID", message));
+            }
+        }
+
+        long received() { return received; }
+        long valid() { return valid; }
+        long invalidCount() { return invalidCount; }
+        List<CustomerImportResponse.Problem> invalid() { return invalid; }
+    }
+}
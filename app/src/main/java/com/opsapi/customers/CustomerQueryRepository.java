@@ -1,32 +1,85 @@
 package com.opsapi.customers;
 
+import com.opsapi.customers.dto.CustomerResponse;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.TypedQuery;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 
 @Repository
 public class CustomerQueryRepository {
 
     private final EntityManager em;
+    private final JdbcTemplate jdbcTemplate;
 
-    public CustomerQueryRepository(EntityManager em) {
+    public CustomerQueryRepository(EntityManager em, JdbcTemplate jdbcTemplate) {
         this.em = em;
+        this.jdbcTemplate = jdbcTemplate;
     }
 
     public List<CustomerEntity> listNewestFirst(int limit, int offset) {
         // JPQL (JPA Query Language): query CustomerEntity objects, not table rows directly.
-        // We order by createdAt so pagination is stable/predictable.
+        // We order by createdAt (+ id as tie-breaker) so pagination is stable/predictable,
+        // and it matches idx_customers_created_at_id (V14) -> no sort.
         TypedQuery<CustomerEntity> q = em.createQuery(
-                "SELECT c FROM CustomerEntity c ORDER BY c.createdAt DESC",
+                "SELECT c FROM CustomerEntity c ORDER BY c.createdAt DESC, c.id DESC",
                 CustomerEntity.class
         );
 
         // The key to real offset/limit pagination:
-        q.setFirstResult(offset); // skip 'offset' rows
+        q.setFirstResult(offset); // skip 'offset' rows (the DB still reads them: deep pages get slower)
         q.setMaxResults(limit);   // return up to 'limit' rows
 
         return q.getResultList();
     }
-}
\ No newline at end of file
+
+    /**
+     * Keyset page: the next {@code limit} rows after {@code cursor}, same order as listNewestFirst.
+     *
+     * Mental model:
+     * - the row-value comparison (createdAt, id) < (cursor) is ONE index range condition on
+     *   idx_customers_created_at_id -> the DB seeks to the cursor and reads just 'limit' rows
+     * - (a < x OR (a = x AND b < y)) would mean the same, but Postgres only uses it as a filter
+     */
+    public List<CustomerEntity> listNewestFirstAfter(CustomerCursor cursor, int limit) {
+        TypedQuery<CustomerEntity> q = em.createQuery("""
+                SELECT c FROM CustomerEntity c
+                WHERE (c.createdAt, c.id) < (:createdAt, :id)
+                ORDER BY c.createdAt DESC, c.id DESC
+                """,
+                CustomerEntity.class
+        );
+        q.setParameter("createdAt", cursor.createdAt());
+        q.setParameter("id", cursor.id());
+        q.setMaxResults(limit);
+
+        return q.getResultList();
+    }
+
+    /**
+     * Snapshots of the given customers, ONE statement however many ids: {@code id = ANY(?)} with a uuid[]
+     * (an IN list would be a different statement - and plan - per list length). Unknown ids are simply absent.
+     */
+    public Map<UUID, CustomerResponse> findSnapshots(Collection<UUID> ids) {
+        Map<UUID, CustomerResponse> found = new HashMap<>(ids.size() * 2);
+        if (ids.isEmpty()) return found;
+        jdbcTemplate.query("""
+                SELECT id, name, email, created_at, updated_at
+                FROM customers
+                WHERE id = ANY(?::uuid[])
+                """,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("uuid", ids.toArray())),
+                rs -> {
+                    UUID id = rs.getObject(1, UUID.class);
+                    found.put(id, new CustomerResponse(id, rs.getString(2), rs.getString(3),
+                            rs.getTimestamp(4).toInstant(), rs.getTimestamp(5).toInstant()));
+                });
+        return found;
+    }
+}
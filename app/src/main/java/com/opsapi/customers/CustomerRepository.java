@@ -1,7 +1,16 @@
 package com.opsapi.customers;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
 import java.util.UUID;
 
 public interface CustomerRepository extends JpaRepository<CustomerEntity, UUID> {
-}
\ No newline at end of file
+
+    /** Single statement delete (no load first); tasks/notes go with it (ON DELETE CASCADE). */
+    @Modifying(clearAutomatically = true)
+    @Query("DELETE FROM CustomerEntity c WHERE c.id = :id")
+    int deleteByIdReturningCount(@Param("id") UUID id);
+}
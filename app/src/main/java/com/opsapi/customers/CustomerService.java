@@ -1,6 +1,7 @@
 package com.opsapi.customers;
 
 import com.opsapi.common.OpsMetrics;
+import com.opsapi.customers.dto.CustomerBatchGetResponse;
 import com.opsapi.customers.dto.CustomerCreateRequest;
 import com.opsapi.customers.dto.CustomerListResponse;
 import com.opsapi.customers.dto.CustomerResponse;
@@ -9,7 +10,11 @@ import org.springframework.stereotype.Service;
 import com.opsapi.events.CustomerEventPublisher;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 @Service
@@ -19,12 +24,15 @@ public class CustomerService {
     private final CustomerQueryRepository queryRepo;
     private final OpsMetrics metrics;
     private final CustomerEventPublisher eventPublisher;
+    private final CustomerCache cache;
 
-    public CustomerService(CustomerRepository repo, CustomerQueryRepository queryRepo, OpsMetrics metrics, CustomerEventPublisher eventPublisher) {
+    public CustomerService(CustomerRepository repo, CustomerQueryRepository queryRepo, OpsMetrics metrics,
+                           CustomerEventPublisher eventPublisher, CustomerCache cache) {
         this.repo = repo;
         this.queryRepo = queryRepo;
         this.metrics = metrics;
         this.eventPublisher = eventPublisher;
+        this.cache = cache;
     }
 
     /**
@@ -54,23 +62,58 @@ public class CustomerService {
         });
     }
 
+    /** Served from CustomerCache (read-through); misses and unknown ids go to the database. */
     public CustomerResponse getById(UUID id) {
-        CustomerEntity entity = repo.findById(id)
+        return cache.get(id)
                 .orElseThrow(() -> new CustomerNotFoundException(id));
+    }
 
-        return toResponse(entity);
+    /**
+     * Many ids in one call: cached snapshots + ONE query for the rest (CustomerCache.getAll).
+     * found/missing keep the request order; a repeated id is answered once.
+     */
+    public CustomerBatchGetResponse batchGet(List<UUID> ids) {
+        Set<UUID> unique = new LinkedHashSet<>(ids);
+        Map<UUID, CustomerResponse> snapshots = cache.getAll(unique);
+        metrics.record("ops.customers.batch_get.size", unique.size());
+
+        List<CustomerResponse> found = new ArrayList<>(snapshots.size());
+        List<UUID> missing = new ArrayList<>(unique.size() - snapshots.size());
+        for (UUID id : unique) {
+            CustomerResponse customer = snapshots.get(id);
+            if (customer != null) found.add(customer); else missing.add(id);
+        }
+        return new CustomerBatchGetResponse(found, missing);
     }
 
+    /** Offset page; nextCursor lets a client switch to cursor pages from here on. */
     public CustomerListResponse list(int limit, int offset) {
-        List<CustomerEntity> entities = queryRepo.listNewestFirst(limit, offset);
+        // one extra row: tells whether there is a next page without a count(*)
+        return toPage(queryRepo.listNewestFirst(limit + 1, offset), limit, offset);
+    }
 
-        List<CustomerResponse> items = entities.stream()
-                .map(this::toResponse)
+    /** Cursor page: costs the same however deep it is (see CustomerQueryRepository). */
+    public CustomerListResponse listAfter(int limit, String cursor) {
+        return toPage(queryRepo.listNewestFirstAfter(CustomerCursor.decode(cursor), limit + 1), limit, 0);
+    }
+
+    private CustomerListResponse toPage(List<CustomerEntity> entities, int limit, int offset) {
+        boolean more = entities.size() > limit;
+        List<CustomerEntity> page = more ? entities.subList(0, limit) : entities;
+
+        List<CustomerResponse> items = page.stream()
+                .map(CustomerService::toResponse)
                 .toList();
+        String nextCursor = more ? CustomerCursor.of(page.get(page.size() - 1)).encode() : null;
 
-        return new CustomerListResponse(limit, offset, items.size(), items);
+        return new CustomerListResponse(limit, offset, items.size(), items, nextCursor);
     }
 
+    /**
+     * Row + CUSTOMER_UPDATED outbox event in one transaction; the cached snapshot is dropped
+     * here after commit and on the other nodes when the event reaches them.
+     */
+    @Transactional
     public CustomerResponse update(UUID id, CustomerUpdateRequest req) {
         CustomerEntity entity = repo.findById(id)
                 .orElseThrow(() -> new CustomerNotFoundException(id));
@@ -79,19 +122,24 @@ public class CustomerService {
         entity.setName(req.getName().trim());
         entity.setEmail(req.getEmail().trim().toLowerCase());
 
-        CustomerEntity saved = repo.save(entity);
+        // flush: updated_at (@PreUpdate) in the response + a unique-email conflict fails before the event
+        CustomerEntity saved = repo.saveAndFlush(entity);
+        eventPublisher.publishCustomerUpdated(saved);
+        cache.invalidateAfterCommit(id);
         return toResponse(saved);
     }
 
+    /** One DELETE (0 rows = not found) + CUSTOMER_DELETED, same transaction; cache as in update(). */
+    @Transactional
     public void delete(UUID id) {
-        boolean exists = repo.existsById(id);
-        if (!exists) {
+        if (repo.deleteByIdReturningCount(id) == 0) {
             throw new CustomerNotFoundException(id);
         }
-        repo.deleteById(id);
+        eventPublisher.publishCustomerDeleted(id);
+        cache.invalidateAfterCommit(id);
     }
 
-    private CustomerResponse toResponse(CustomerEntity entity) {
+    static CustomerResponse toResponse(CustomerEntity entity) {
         return new CustomerResponse(
                 entity.getId(),
                 entity.getName(),
@@ -0,0 +1,23 @@
+package com.opsapi.customers.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+
+import java.util.List;
+import java.util.UUID;
+
+public class CustomerBatchGetRequest {
+
+    @NotEmpty(message = "ids is required")
+    private List<UUID> ids;
+
+    public CustomerBatchGetRequest() {
+    }
+
+    public CustomerBatchGetRequest(List<UUID> ids) {
+        this.ids = ids;
+    }
+
+    public List<UUID> getIds() {
+        return ids;
+    }
+}
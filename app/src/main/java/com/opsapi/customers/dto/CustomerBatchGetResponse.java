@@ -0,0 +1,23 @@
+package com.opsapi.customers.dto;
+
+import java.util.List;
+import java.util.UUID;
+
+public class CustomerBatchGetResponse {
+    private final List<CustomerResponse> found;
+    private final List<UUID> missing;
+
+    /** Both in request order, each id once. */
+    public CustomerBatchGetResponse(List<CustomerResponse> found, List<UUID> missing) {
+        this.found = found;
+        this.missing = missing;
+    }
+
+    public List<CustomerResponse> getFound() {
+        return found;
+    }
+
+    public List<UUID> getMissing() {
+        return missing;
+    }
+}
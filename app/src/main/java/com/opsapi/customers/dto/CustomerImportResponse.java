@@ -0,0 +1,22 @@
+package com.opsapi.customers.dto;
+
+import java.util.List;
+
+/**
+ * Result of POST /customers/import.
+ *
+ * received = data lines read; imported + invalid + conflicts = received.
+ * problems lists the first lines that were not imported (see problemsTruncated), by line number of the file.
+ */
+public record CustomerImportResponse(
+        long received,
+        long imported,
+        long invalid,
+        long conflicts,
+        List<Problem> problems,
+        boolean problemsTruncated
+) {
+
+    /** reason: INVALID (message says why), DUPLICATE_IN_FILE (an earlier line has the email), EMAIL_EXISTS */
+    public record Problem(long line, String email, String reason, String message) {}
+}
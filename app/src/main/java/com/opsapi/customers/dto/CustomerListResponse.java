@@ -7,12 +7,19 @@ public class CustomerListResponse {
     private final int offset;
     private final int count;
     private final List<CustomerResponse> items;
+    private final String nextCursor;
 
     public CustomerListResponse(int limit, int offset, int count, List<CustomerResponse> items) {
+        this(limit, offset, count, items, null);
+    }
+
+    /** @param nextCursor pass as ?cursor= for the next page; null = this was the last page */
+    public CustomerListResponse(int limit, int offset, int count, List<CustomerResponse> items, String nextCursor) {
         this.limit = limit;
         this.offset = offset;
         this.count = count;
         this.items = items;
+        this.nextCursor = nextCursor;
     }
 
     public int getLimit() {
@@ -30,4 +37,8 @@ public class CustomerListResponse {
     public List<CustomerResponse> getItems() {
         return items;
     }
-}
\ No newline at end of file
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
@@ -0,0 +1,64 @@
+package com.opsapi.events;
+
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * ops.events.consumer.processing=concurrent: the new events of a poll run on virtual threads grouped by
+ * record key (KeyOrderedDispatcher) -> per-customer order, keys overlap.
+ *
+ * Each handler runs in its own transaction (REQUIRES_NEW, bounded by handler-timeout-ms) that also inserts
+ * its processed_events row: handler writes + dedup row commit or roll back together -> a failed or timed-out
+ * handler leaves nothing behind, a handled event is recorded even if the poll later rolls back.
+ * The same timeout is the grace KeyOrderedDispatcher gives a handler still running at the poll's deadline
+ * -> the listener is back within 2 x handler-timeout-ms.
+ */
+class ConcurrentEventProcessor implements EventProcessor {
+
+    private final KeyOrderedDispatcher keyDispatcher;
+    private final EventDedup dedup;
+    private final TransactionTemplate handlerTx;
+    private final long handlerTimeoutMs;
+
+    ConcurrentEventProcessor(KeyOrderedDispatcher keyDispatcher, EventDedup dedup,
+                             PlatformTransactionManager transactionManager, long handlerTimeoutMs) {
+        this.keyDispatcher = keyDispatcher;
+        this.dedup = dedup;
+        this.handlerTimeoutMs = Math.max(1, handlerTimeoutMs);
+        this.handlerTx = new TransactionTemplate(transactionManager);
+        this.handlerTx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.handlerTx.setTimeout((int) Math.max(1, (this.handlerTimeoutMs + 999) / 1000));
+    }
+
+    /** Outcomes are final on return: a handler still running past deadline + grace was abandoned as failed. */
+    @Override
+    public List<FailedEvent> process(List<ParsedEvent> events, Consumer<ParsedEvent> handler,
+                                     Set<ParsedEvent> recordedMeanwhile) {
+        List<KeyOrderedDispatcher.Outcome> outcomes = keyDispatcher.run(events, ParsedEvent::key, e -> {
+            boolean ran = Boolean.TRUE.equals(handlerTx.execute(status -> {
+                if (!dedup.record(e)) return false;
+                handler.accept(e);
+                return true;
+            }));
+            if (!ran) recordedMeanwhile.add(e);
+        }, handlerTimeoutMs, handlerTimeoutMs);
+
+        List<FailedEvent> failed = new ArrayList<>();
+        for (int i = 0; i < events.size(); i++) {
+            KeyOrderedDispatcher.Outcome o = outcomes.get(i);
+            if (!o.ok()) failed.add(new FailedEvent(events.get(i), o.error(), o.skipped()));
+        }
+        return failed;
+    }
+
+    @Override
+    public boolean rowsPerHandler() {
+        return true;
+    }
+}
@@ -0,0 +1,129 @@
+package com.opsapi.events;
+
+import com.opsapi.common.OpsMetrics;
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.ListConsumerGroupOffsetsSpec;
+import org.apache.kafka.clients.admin.ListOffsetsOptions;
+import org.apache.kafka.clients.admin.ListOffsetsResult;
+import org.apache.kafka.clients.admin.OffsetSpec;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.IsolationLevel;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Consumer lag gauges (ops.events.consumer.lag{topic, partition}).
+ *
+ * Mental model:
+ * - lag = records the group hasn't committed yet = end offset - committed offset
+ * - both come from the broker (Admin client), not from our listener threads -> a consumer that is
+ *   stuck or dead shows a growing lag instead of a frozen one
+ * - one group per topic: <group-id> on customer-events, <group-id>-retry-<n> on tier n (a retry tier
+ *   waiting for its due time counts as lag too); offsets a group once committed on another topic are ignored
+ * - end offsets are read_committed (like our consumer): records of open relay transactions don't count
+ *
+ * A scrape never talks to Kafka: two Admin calls refresh the cached values on a fixed schedule.
+ * A failed refresh keeps the last values.
+ */
+@Component
+public class ConsumerLagMonitor implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(ConsumerLagMonitor.class);
+
+    private final KafkaAdmin kafkaAdmin;
+    private final OpsMetrics metrics;
+    private final String groupId;
+    private final Map<String, String> topicByGroup = new HashMap<>();
+    private final long timeoutMs;
+
+    private final Map<TopicPartition, AtomicLong> lag = new ConcurrentHashMap<>();
+    private volatile Admin admin;
+
+    public ConsumerLagMonitor(KafkaAdmin kafkaAdmin, OpsMetrics metrics, EventRetryRouter router,
+                              @Value("${spring.kafka.consumer.group-id:ops-api}") String groupId,
+                              @Value("${ops.events.metrics.lag-timeout-ms:5000}") long timeoutMs) {
+        this.kafkaAdmin = kafkaAdmin;
+        this.metrics = metrics;
+        this.groupId = groupId;
+        this.timeoutMs = Math.max(100, timeoutMs);
+        topicByGroup.put(groupId, EventRetryRouter.MAIN_TOPIC);
+        for (int tier = 1; tier <= router.tiers(); tier++) {
+            topicByGroup.put(EventRetryListeners.tierGroupId(groupId, tier), EventRetryRouter.retryTopic(tier));
+        }
+    }
+
+    @Scheduled(
+            initialDelayString = "${ops.events.metrics.lag-initial-delay-ms:10000}",
+            fixedDelayString = "${ops.events.metrics.lag-refresh-ms:15000}"
+    )
+    public void refresh() {
+        try {
+            Admin client = admin();
+            Map<String, ListConsumerGroupOffsetsSpec> groups = new HashMap<>();
+            topicByGroup.keySet().forEach(g -> groups.put(g, new ListConsumerGroupOffsetsSpec()));
+            Map<TopicPartition, OffsetAndMetadata> committed = new HashMap<>();
+            Map<TopicPartition, String> groupOf = new HashMap<>();
+            client.listConsumerGroupOffsets(groups).all().get(timeoutMs, TimeUnit.MILLISECONDS)
+                    .forEach((group, offsets) -> offsets.forEach((tp, om) -> {
+                        if (om == null || !tp.topic().equals(topicByGroup.get(group))) return;
+                        committed.put(tp, om);
+                        groupOf.put(tp, group);
+                    }));
+            if (committed.isEmpty()) return;
+
+            Map<TopicPartition, OffsetSpec> latest = new HashMap<>();
+            committed.keySet().forEach(tp -> latest.put(tp, OffsetSpec.latest()));
+            Map<TopicPartition, ListOffsetsResult.ListOffsetsResultInfo> end = client
+                    .listOffsets(latest, new ListOffsetsOptions(IsolationLevel.READ_COMMITTED))
+                    .all().get(timeoutMs, TimeUnit.MILLISECONDS);
+
+            committed.forEach((tp, om) -> {
+                ListOffsetsResult.ListOffsetsResultInfo info = end.get(tp);
+                if (info == null) return;
+                gaugeFor(groupOf.get(tp), tp).set(Math.max(0, info.offset() - om.offset()));
+            });
+        } catch (Exception ex) {
+            if (ex instanceof InterruptedException) Thread.currentThread().interrupt();
+            log.warn("EVENT_LAG_REFRESH_FAILED group={} err={}", groupId, ex.toString());
+        }
+    }
+
+    private AtomicLong gaugeFor(String group, TopicPartition tp) {
+        return lag.computeIfAbsent(tp, k -> {
+            AtomicLong value = new AtomicLong();
+            metrics.gauge("ops.events.consumer.lag", value, AtomicLong::get,
+                    "group", group, "topic", k.topic(), "partition", Integer.toString(k.partition()));
+            return value;
+        });
+    }
+
+    private Admin admin() {
+        Admin a = admin;
+        if (a == null) {
+            synchronized (this) {
+                if (admin == null) admin = Admin.create(kafkaAdmin.getConfigurationProperties());
+                a = admin;
+            }
+        }
+        return a;
+    }
+
+    @Override
+    public void destroy() {
+        Admin a = admin;
+        if (a != null) a.close(Duration.ofSeconds(5));
+    }
+}
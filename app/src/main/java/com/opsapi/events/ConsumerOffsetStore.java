@@ -0,0 +1,125 @@
+package com.opsapi.events;
+
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Kafka offsets kept in Postgres (consumer_offsets, see V13), for the offset-watermark dedup strategy.
+ *
+ * Mental model:
+ * - next_offset per (group, topic, partition) = everything below it has been applied
+ * - lock(): every poll reads its partitions' rows FOR UPDATE -> a second consumer that still thinks
+ *   it owns the partition (rebalance in flight) waits, then sees the advanced offset and skips
+ * - advance(): ONE upsert per poll, in the listener's transaction, never moves backwards
+ * - seed(): on assignment, rows for new partitions start at Kafka's position
+ *
+ * lock() and advance() use the caller's transaction.
+ */
+@Repository
+public class ConsumerOffsetStore {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ConsumerOffsetStore(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /** Makes sure every partition has a row (starting at {@code current}); @return the stored offsets */
+    public Map<TopicPartition, Long> seed(String groupId, Map<TopicPartition, Long> current) {
+        if (current.isEmpty()) return Map.of();
+        Columns c = Columns.of(current);
+        jdbcTemplate.update("""
+                INSERT INTO consumer_offsets (group_id, topic, partition_id, next_offset)
+                SELECT ?, * FROM unnest(?::varchar[], ?::int[], ?::bigint[])
+                ON CONFLICT (group_id, topic, partition_id) DO NOTHING
+                """,
+                ps -> {
+                    var con = ps.getConnection();
+                    ps.setString(1, groupId);
+                    ps.setArray(2, con.createArrayOf("varchar", c.topics()));
+                    ps.setArray(3, con.createArrayOf("integer", c.partitions()));
+                    ps.setArray(4, con.createArrayOf("bigint", c.offsets()));
+                });
+        return select(groupId, current.keySet(), false);
+    }
+
+    /** Stored offsets of these partitions, row-locked until the caller's transaction ends. */
+    public Map<TopicPartition, Long> lock(String groupId, Collection<TopicPartition> partitions) {
+        return select(groupId, partitions, true);
+    }
+
+    /** Moves the stored offsets forward (rows that are already further stay as they are). */
+    public void advance(String groupId, Map<TopicPartition, Long> nextOffsets) {
+        if (nextOffsets.isEmpty()) return;
+        Columns c = Columns.of(nextOffsets);
+        jdbcTemplate.update("""
+                INSERT INTO consumer_offsets (group_id, topic, partition_id, next_offset)
+                SELECT ?, * FROM unnest(?::varchar[], ?::int[], ?::bigint[])
+                ON CONFLICT (group_id, topic, partition_id) DO UPDATE SET
+                    next_offset = EXCLUDED.next_offset,
+                    updated_at  = now()
+                WHERE consumer_offsets.next_offset < EXCLUDED.next_offset
+                """,
+                ps -> {
+                    var con = ps.getConnection();
+                    ps.setString(1, groupId);
+                    ps.setArray(2, con.createArrayOf("varchar", c.topics()));
+                    ps.setArray(3, con.createArrayOf("integer", c.partitions()));
+                    ps.setArray(4, con.createArrayOf("bigint", c.offsets()));
+                });
+    }
+
+    private Map<TopicPartition, Long> select(String groupId, Collection<TopicPartition> partitions, boolean forUpdate) {
+        if (partitions.isEmpty()) return Map.of();
+        String[] topics = new String[partitions.size()];
+        Integer[] ids = new Integer[partitions.size()];
+        int i = 0;
+        for (TopicPartition tp : partitions) {
+            topics[i] = tp.topic();
+            ids[i] = tp.partition();
+            i++;
+        }
+
+        Map<TopicPartition, Long> stored = new HashMap<>(partitions.size() * 2);
+        // exact (topic, partition) pairs: never lock a partition another consumer owns;
+        // fixed lock order -> two consumers can't deadlock on overlapping sets
+        jdbcTemplate.query("""
+                SELECT o.topic, o.partition_id, o.next_offset
+                FROM consumer_offsets o
+                JOIN unnest(?::varchar[], ?::int[]) AS p(topic, partition_id)
+                  ON o.topic = p.topic AND o.partition_id = p.partition_id
+                WHERE o.group_id = ?
+                ORDER BY o.topic, o.partition_id
+                """ + (forUpdate ? "FOR UPDATE OF o" : ""),
+                ps -> {
+                    var con = ps.getConnection();
+                    ps.setArray(1, con.createArrayOf("varchar", topics));
+                    ps.setArray(2, con.createArrayOf("integer", ids));
+                    ps.setString(3, groupId);
+                },
+                rs -> {
+                    stored.put(new TopicPartition(rs.getString(1), rs.getInt(2)), rs.getLong(3));
+                });
+        return stored;
+    }
+
+    private record Columns(String[] topics, Integer[] partitions, Long[] offsets) {
+        static Columns of(Map<TopicPartition, Long> offsets) {
+            int n = offsets.size();
+            Columns c = new Columns(new String[n], new Integer[n], new Long[n]);
+            int i = 0;
+            for (Map.Entry<TopicPartition, Long> e : offsets.entrySet()) {
+                c.topics[i] = e.getKey().topic();
+                c.partitions[i] = e.getKey().partition();
+                c.offsets[i] = e.getValue();
+                i++;
+            }
+            return c;
+        }
+    }
+}
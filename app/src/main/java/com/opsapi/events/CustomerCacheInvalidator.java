@@ -0,0 +1,176 @@
+package com.opsapi.events;
+
+import com.opsapi.customers.CustomerCache;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Keeps every node's CustomerCache coherent with changes made on the other nodes.
+ *
+ * Mental model:
+ * - every node reads ALL of customer-events: its own consumer, assigned every partition by hand
+ *   (assign(), no group management) -> no consumer group per node on the broker, nothing to rebalance,
+ *   nothing committed (the shared ops-api group would hand each event to one node only)
+ * - starts at the end of every partition: a fresh node has an empty cache, so older events have
+ *   nothing to invalidate
+ * - partitions added to the topic later are picked up within PARTITION_CHECK (seeked to their end)
+ * - the record key is the customerId -> drop that entry; the value isn't even decoded
+ *   (any customer event invalidates, which is also right for types added later)
+ * - never throws: a record without a usable key is skipped; Kafka unavailable -> retried,
+ *   ttl-ms bounds how stale the cache gets meanwhile
+ */
+@Component
+public class CustomerCacheInvalidator implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(CustomerCacheInvalidator.class);
+
+    private static final String TOPIC = "customer-events";
+    private static final Duration POLL = Duration.ofSeconds(1);
+    private static final Duration PARTITION_CHECK = Duration.ofMinutes(1);
+    private static final Duration RETRY = Duration.ofSeconds(5);
+
+    private final CustomerCache cache;
+    private final ConsumerFactory<String, byte[]> consumerFactory;
+    private final boolean enabled;
+
+    private volatile boolean running;
+    private volatile Consumer<String, byte[]> consumer;
+    private Thread thread;
+
+    public CustomerCacheInvalidator(CustomerCache cache, ConsumerFactory<String, byte[]> consumerFactory,
+                                    @Value("${ops.customers.cache.enabled:true}") boolean enabled) {
+        this.cache = cache;
+        this.consumerFactory = consumerFactory;
+        this.enabled = enabled;
+    }
+
+    public void onEvents(List<ConsumerRecord<String, byte[]>> records) {
+        Set<UUID> ids = new HashSet<>();
+        for (ConsumerRecord<String, byte[]> r : records) {
+            UUID id = customerId(r.key());
+            if (id != null) ids.add(id);
+        }
+        if (ids.isEmpty()) return;
+        cache.invalidateAll(ids);
+        log.debug("CUSTOMER_CACHE_INVALIDATED records={} customers={}", records.size(), ids.size());
+    }
+
+    @Override
+    public synchronized void start() {
+        if (!enabled || running) return;
+        running = true;
+        thread = Thread.ofPlatform().name("customer-cache-invalidation").daemon().start(this::run);
+    }
+
+    private void run() {
+        while (running) {
+            // nothing is committed, so the configured group.id is never used (no coordinator, no group)
+            Properties overrides = new Properties();
+            overrides.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+            try (Consumer<String, byte[]> c = consumerFactory.createConsumer(null, "cache-invalidation", null, overrides)) {
+                consumer = c;
+                if (!running) return; // stop() came before the consumer existed: nobody woke it
+                Set<TopicPartition> assigned = new HashSet<>();
+                long nextCheck = 0;
+                while (running) {
+                    if (System.nanoTime() - nextCheck >= 0) {
+                        assignNewPartitions(c, assigned);
+                        nextCheck = System.nanoTime() + PARTITION_CHECK.toNanos();
+                    }
+                    if (assigned.isEmpty()) { // topic not created yet
+                        sleep(POLL);
+                        continue;
+                    }
+                    ConsumerRecords<String, byte[]> records = c.poll(POLL);
+                    if (records.isEmpty()) continue;
+                    List<ConsumerRecord<String, byte[]>> batch = new ArrayList<>(records.count());
+                    records.forEach(batch::add);
+                    onEvents(batch);
+                }
+            } catch (WakeupException ignored) {
+                // stop()
+            } catch (RuntimeException ex) {
+                if (!running) return; // interrupted by stop()
+                log.warn("CUSTOMER_CACHE_INVALIDATION_FAILED err={} (retrying in {}s)", ex.toString(), RETRY.toSeconds());
+                sleep(RETRY);
+            } finally {
+                consumer = null;
+            }
+        }
+    }
+
+    private static void assignNewPartitions(Consumer<String, byte[]> c, Set<TopicPartition> assigned) {
+        List<TopicPartition> added = new ArrayList<>();
+        for (PartitionInfo p : c.partitionsFor(TOPIC)) {
+            TopicPartition tp = new TopicPartition(p.topic(), p.partition());
+            if (!assigned.contains(tp)) added.add(tp);
+        }
+        if (added.isEmpty()) return;
+        assigned.addAll(added);
+        c.assign(assigned);
+        c.seekToEnd(added);
+        log.info("CUSTOMER_CACHE_INVALIDATION_ASSIGNED topic={} partitions={}", TOPIC, assigned.size());
+    }
+
+    private void sleep(Duration d) {
+        try {
+            Thread.sleep(d);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (!running) return;
+        running = false;
+        Consumer<String, byte[]> c = consumer;
+        if (c != null) c.wakeup();
+        thread.interrupt();
+        try {
+            thread.join(Duration.ofSeconds(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public synchronized boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        // same phase as the @KafkaListener containers
+        return Integer.MAX_VALUE - 100;
+    }
+
+    private static UUID customerId(String key) {
+        if (key == null) return null;
+        try {
+            return UUID.fromString(key);
+        } catch (IllegalArgumentException ignored) {
+            return null;
+        }
+    }
+}
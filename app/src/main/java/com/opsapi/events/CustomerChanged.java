@@ -0,0 +1,17 @@
+package com.opsapi.events;
+
+import java.util.UUID;
+
+/**
+ * CUSTOMER_UPDATED / CUSTOMER_DELETED, schemaVersion 2.
+ * Deleted events carry no name/email.
+ */
+public record CustomerChanged(
+        String eventId,
+        String ts,
+        UUID customerId,
+        String name,
+        String email,
+        String correlationId,
+        String source
+) {}
@@ -0,0 +1,13 @@
+package com.opsapi.events;
+
+import java.util.UUID;
+
+/** CUSTOMER_CREATED, schemaVersion 1. */
+public record CustomerCreatedV1(
+        String eventId,
+        String ts,
+        UUID customerId,
+        String name,
+        String email,
+        String correlationId
+) {}
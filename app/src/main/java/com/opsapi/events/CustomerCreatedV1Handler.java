@@ -0,0 +1,20 @@
+package com.opsapi.events;
+
+import com.opsapi.projection.CustomerProjectionWriter;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+
+@Component
+public class CustomerCreatedV1Handler extends CustomerProjectionHandler<CustomerCreatedV1> {
+
+    public CustomerCreatedV1Handler(CustomerProjectionWriter projection) {
+        super(projection, "CUSTOMER_CREATED", Set.of(1), CustomerCreatedV1.class);
+    }
+
+    @Override
+    protected CustomerProjectionWriter.Row row(EventEnvelope envelope, CustomerCreatedV1 e) {
+        // v1 has no "source"
+        return new CustomerProjectionWriter.Row(e.customerId(), e.name(), e.email(), null, e.eventId(), envelope.ts());
+    }
+}
@@ -0,0 +1,14 @@
+package com.opsapi.events;
+
+import java.util.UUID;
+
+/** CUSTOMER_CREATED, schemaVersion 2. Adds optional "source". */
+public record CustomerCreatedV2(
+        String eventId,
+        String ts,
+        UUID customerId,
+        String name,
+        String email,
+        String correlationId,
+        String source
+) {}
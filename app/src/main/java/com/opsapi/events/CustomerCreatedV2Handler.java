@@ -0,0 +1,19 @@
+package com.opsapi.events;
+
+import com.opsapi.projection.CustomerProjectionWriter;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+
+@Component
+public class CustomerCreatedV2Handler extends CustomerProjectionHandler<CustomerCreatedV2> {
+
+    public CustomerCreatedV2Handler(CustomerProjectionWriter projection) {
+        super(projection, "CUSTOMER_CREATED", Set.of(2), CustomerCreatedV2.class);
+    }
+
+    @Override
+    protected CustomerProjectionWriter.Row row(EventEnvelope envelope, CustomerCreatedV2 e) {
+        return new CustomerProjectionWriter.Row(e.customerId(), e.name(), e.email(), e.source(), e.eventId(), envelope.ts());
+    }
+}
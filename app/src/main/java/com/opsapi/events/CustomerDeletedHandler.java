@@ -0,0 +1,20 @@
+package com.opsapi.events;
+
+import com.opsapi.projection.CustomerProjectionWriter;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+
+@Component
+public class CustomerDeletedHandler extends CustomerProjectionHandler<CustomerChanged> {
+
+    public CustomerDeletedHandler(CustomerProjectionWriter projection) {
+        super(projection, "CUSTOMER_DELETED", Set.of(2), CustomerChanged.class);
+    }
+
+    @Override
+    protected CustomerProjectionWriter.Row row(EventEnvelope envelope, CustomerChanged e) {
+        // tombstone, so an older CREATED/UPDATED arriving later can't bring the customer back
+        return CustomerProjectionWriter.Row.deleted(e.customerId(), e.eventId(), envelope.ts());
+    }
+}
@@ -0,0 +1,351 @@
+package com.opsapi.events;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Schema-based binary form of the customer events (CUSTOMER_CREATED / _UPDATED / _DELETED, v1 and v2).
+ *
+ * Mental model:
+ * - one schema per event type (SCHEMAS): field name -> field number. The envelope fields (1-6) are numbered
+ *   the same in every type, the body fields (7+) per type
+ * - each field is a tag (number + wire kind) and its value, in the order of the JSON -> ids are 16 raw bytes,
+ *   ts is epoch seconds + nanos, the type is a byte in the header, text is length + UTF-8
+ * - a ~300 byte v2 JSON event is stored in ~130 bytes (the text fields are most of what is left)
+ * - decode() gives back the JSON the publisher built, same field order -> handlers and
+ *   EventEnvelopeReader never see the binary form
+ *
+ * Layout: format (1 byte) | type (varint: 0 = no schema, else SCHEMAS index + 1) | fields...
+ * Field:  tag (varint: number << 3 | kind) | [name (text), number 0 only] | value (by kind)
+ *
+ * Evolving it (rolling deploys): the wire kind says how long every value is, so
+ * - decode skips a field number its schema doesn't have: an older consumer reads a newer producer's events,
+ *   minus the new field (which its handlers don't know either)
+ * - encode carries a field its schema doesn't have by name (number 0): a producer never fails on a new field,
+ *   it only costs the name's bytes until the field gets a number
+ * - a new field gets the next free number of its type; a new type is appended to SCHEMAS (its events decode
+ *   without a type on older nodes -> counted as unhandled, like an unknown type in JSON). Numbers never move.
+ */
+@Component
+public class CustomerEventBinaryCodec implements PayloadCodec {
+
+    public static final String ID = "customer-bin1";
+
+    private static final int FORMAT = 1;
+
+    // wire kinds (3 bits); append only, an unknown kind can't be skipped
+    private static final int VARINT = 0;
+    private static final int UUID16 = 1;
+    private static final int TEXT = 2;
+    private static final int NULL = 3;
+    private static final int INSTANT = 4;
+    private static final int JSON = 5;   // anything else (boolean, decimal, object, array) as JSON text
+    private static final int TYPE = 6;   // the header's type; no value
+
+    private enum Hint { NONE, UUID, INSTANT }
+
+    private record Field(int number, String name, Hint hint) {}
+
+    private record Schema(String type, List<Field> fields) {
+        Field byName(String name) {
+            for (Field f : fields) if (f.name().equals(name)) return f;
+            return null;
+        }
+
+        Field byNumber(int number) {
+            for (Field f : fields) if (f.number() == number) return f;
+            return null;
+        }
+    }
+
+    // same number in every type; "type" is only a TYPE tag when the type has a schema (the header says which)
+    private static final List<Field> ENVELOPE = List.of(
+            new Field(1, "eventId", Hint.UUID),
+            new Field(2, "type", Hint.NONE),
+            new Field(3, "ts", Hint.INSTANT),
+            new Field(4, "correlationId", Hint.NONE),
+            new Field(5, "schemaVersion", Hint.NONE),
+            new Field(6, "source", Hint.NONE)
+    );
+    private static final Schema NO_SCHEMA = new Schema(null, ENVELOPE);
+
+    // index + 1 = the type byte; append only
+    private static final List<Schema> SCHEMAS = List.of(
+            schema("CUSTOMER_CREATED",
+                    new Field(7, "customerId", Hint.UUID),
+                    new Field(8, "name", Hint.NONE),
+                    new Field(9, "email", Hint.NONE)),
+            schema("CUSTOMER_UPDATED",
+                    new Field(7, "customerId", Hint.UUID),
+                    new Field(8, "name", Hint.NONE),
+                    new Field(9, "email", Hint.NONE)),
+            schema("CUSTOMER_DELETED",
+                    new Field(7, "customerId", Hint.UUID))
+    );
+
+    private final ObjectMapper objectMapper;
+
+    public CustomerEventBinaryCodec(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public String id() {
+        return ID;
+    }
+
+    @Override
+    public byte[] encode(byte[] json) {
+        JsonNode event;
+        try {
+            event = objectMapper.readTree(json);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (event == null || !event.isObject()) throw new IllegalArgumentException("event is not a JSON object");
+
+        int typeIndex = typeIndex(event.get("type"));
+        Schema schema = typeIndex == 0 ? NO_SCHEMA : SCHEMAS.get(typeIndex - 1);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(160);
+        out.write(FORMAT);
+        writeVarLong(out, typeIndex);
+        for (Iterator<Map.Entry<String, JsonNode>> it = event.fields(); it.hasNext(); ) {
+            Map.Entry<String, JsonNode> e = it.next();
+            Field field = schema.byName(e.getKey());
+            JsonNode value = e.getValue();
+            if (field != null && field.number() == 2 && typeIndex != 0) {
+                writeVarLong(out, (2 << 3) | TYPE);
+                continue;
+            }
+            int kind = kindOf(value, field == null ? Hint.NONE : field.hint());
+            writeVarLong(out, ((long) (field == null ? 0 : field.number()) << 3) | kind);
+            if (field == null) writeText(out, e.getKey());
+            writeValue(out, kind, value);
+        }
+        return out.toByteArray();
+    }
+
+    @Override
+    public byte[] decode(byte[] payload) {
+        Reader in = new Reader(payload);
+        int format = in.readByte();
+        if (format != FORMAT) throw new IllegalArgumentException(ID + ": unknown format " + format);
+        long typeIndex = in.readVarLong();
+        // a type added after this build: only the envelope fields are known
+        Schema schema = typeIndex >= 1 && typeIndex <= SCHEMAS.size() ? SCHEMAS.get((int) typeIndex - 1) : NO_SCHEMA;
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(payload.length * 3);
+        try (JsonGenerator g = objectMapper.getFactory().createGenerator(out)) {
+            g.writeStartObject();
+            while (in.hasMore()) {
+                long tag = in.readVarLong();
+                int kind = (int) (tag & 7);
+                long number = tag >>> 3;
+                String name = number == 0 ? in.readText() : nameOf(schema, number);
+                if (kind == TYPE) {
+                    if (schema.type() != null && name != null) g.writeStringField(name, schema.type());
+                    continue;
+                }
+                if (name == null) {
+                    in.skip(kind); // written by a newer producer
+                    continue;
+                }
+                g.writeFieldName(name);
+                switch (kind) {
+                    case VARINT -> g.writeNumber(unZigZag(in.readVarLong()));
+                    case UUID16 -> g.writeString(in.readUuid().toString());
+                    case TEXT -> g.writeString(in.readText());
+                    case NULL -> g.writeNull();
+                    case INSTANT -> g.writeString(Instant.ofEpochSecond(unZigZag(in.readVarLong()), in.readVarLong()).toString());
+                    case JSON -> g.writeRawValue(in.readText());
+                    default -> throw new IllegalArgumentException(ID + ": unknown wire kind " + kind + " (newer format?)");
+                }
+            }
+            g.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    private static Schema schema(String type, Field... body) {
+        List<Field> fields = new ArrayList<>(ENVELOPE);
+        fields.addAll(List.of(body));
+        return new Schema(type, List.copyOf(fields));
+    }
+
+    private static String nameOf(Schema schema, long number) {
+        Field f = number > Integer.MAX_VALUE ? null : schema.byNumber((int) number);
+        return f == null ? null : f.name();
+    }
+
+    private static int typeIndex(JsonNode type) {
+        if (type == null || !type.isTextual()) return 0;
+        for (int i = 0; i < SCHEMAS.size(); i++) {
+            if (SCHEMAS.get(i).type().equals(type.textValue())) return i + 1;
+        }
+        return 0;
+    }
+
+    /** The compact kind only if decode() gives back exactly the same text; else the generic one. */
+    private static int kindOf(JsonNode value, Hint hint) {
+        if (value.isNull()) return NULL;
+        if (value.isTextual()) {
+            String s = value.textValue();
+            if (hint == Hint.UUID && isCanonicalUuid(s)) return UUID16;
+            if (hint == Hint.INSTANT && isCanonicalInstant(s)) return INSTANT;
+            return TEXT;
+        }
+        if (value.isIntegralNumber() && value.canConvertToLong()) return VARINT;
+        return JSON;
+    }
+
+    private void writeValue(ByteArrayOutputStream out, int kind, JsonNode value) {
+        switch (kind) {
+            case NULL -> { }
+            case UUID16 -> writeUuid(out, UUID.fromString(value.textValue()));
+            case INSTANT -> {
+                Instant ts = Instant.parse(value.textValue());
+                writeVarLong(out, zigZag(ts.getEpochSecond()));
+                writeVarLong(out, ts.getNano());
+            }
+            case TEXT -> writeText(out, value.textValue());
+            case VARINT -> writeVarLong(out, zigZag(value.longValue()));
+            case JSON -> {
+                try {
+                    writeText(out, objectMapper.writeValueAsString(value));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            default -> throw new IllegalStateException("kind " + kind);
+        }
+    }
+
+    private static boolean isCanonicalUuid(String s) {
+        try {
+            return UUID.fromString(s).toString().equals(s);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static boolean isCanonicalInstant(String s) {
+        try {
+            return Instant.parse(s).toString().equals(s);
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    private static long zigZag(long v) {
+        return (v << 1) ^ (v >> 63);
+    }
+
+    private static long unZigZag(long v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long v) {
+        while ((v & ~0x7FL) != 0) {
+            out.write((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.write((int) v);
+    }
+
+    private static void writeUuid(ByteArrayOutputStream out, UUID id) {
+        long msb = id.getMostSignificantBits();
+        long lsb = id.getLeastSignificantBits();
+        for (int shift = 56; shift >= 0; shift -= 8) out.write((int) (msb >>> shift));
+        for (int shift = 56; shift >= 0; shift -= 8) out.write((int) (lsb >>> shift));
+    }
+
+    private static void writeText(ByteArrayOutputStream out, String s) {
+        byte[] utf8 = s.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, utf8.length);
+        out.write(utf8, 0, utf8.length);
+    }
+
+    /** Cursor over a payload; running off the end is a malformed payload, not an IOException. */
+    private static final class Reader {
+        private final byte[] buf;
+        private int pos;
+
+        private Reader(byte[] buf) {
+            this.buf = buf;
+        }
+
+        boolean hasMore() {
+            return pos < buf.length;
+        }
+
+        int readByte() {
+            if (pos >= buf.length) throw new IllegalArgumentException(ID + ": payload truncated");
+            return buf[pos++] & 0xFF;
+        }
+
+        long readVarLong() {
+            long v = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                v |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return v;
+            }
+            throw new IllegalArgumentException(ID + ": varint too long");
+        }
+
+        UUID readUuid() {
+            long msb = 0;
+            long lsb = 0;
+            for (int i = 0; i < 8; i++) msb = (msb << 8) | readByte();
+            for (int i = 0; i < 8; i++) lsb = (lsb << 8) | readByte();
+            return new UUID(msb, lsb);
+        }
+
+        String readText() {
+            int len = length();
+            String s = new String(buf, pos, len, StandardCharsets.UTF_8);
+            pos += len;
+            return s;
+        }
+
+        /** Steps over one value of {@code kind} without decoding it. */
+        void skip(int kind) {
+            switch (kind) {
+                case VARINT -> readVarLong();
+                case UUID16 -> advance(16);
+                case TEXT, JSON -> advance(length());
+                case NULL, TYPE -> { }
+                case INSTANT -> { readVarLong(); readVarLong(); }
+                default -> throw new IllegalArgumentException(ID + ": unknown wire kind " + kind + " (newer format?)");
+            }
+        }
+
+        private int length() {
+            long len = readVarLong();
+            if (len < 0 || len > buf.length - pos) throw new IllegalArgumentException(ID + ": payload truncated");
+            return (int) len;
+        }
+
+        private void advance(int n) {
+            if (n > buf.length - pos) throw new IllegalArgumentException(ID + ": payload truncated");
+            pos += n;
+        }
+    }
+}
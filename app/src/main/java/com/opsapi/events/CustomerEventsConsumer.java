@@ -1,91 +1,261 @@
 package com.opsapi.events;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.opsapi.common.OpsMetrics;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Header;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.listener.ConsumerSeekAware;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.sql.DataSource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * customer-events consumer.
+ *
+ * Mental model (ops.events.consumer.mode):
+ * - batch (default): one listener call per poll -> parse all records, ONE set-based
+ *   insert into processed_events finds the new ones, process only those, one DB commit,
+ *   then the container commits the offsets of the whole poll (ack-mode: batch)
+ * - record: one listener call + one DB transaction per record (same dedup statement)
+ *
+ * A crash mid-batch replays the whole poll; the processed_events rows rolled back with it,
+ * so every event is still processed exactly once.
+ *
+ * This class is the pipeline of a poll; each step is its own collaborator:
+ * - which events are new: EventDedup (ops.events.dedup.strategy: watermark, dedup cache, event rows)
+ * - how the new ones run: an EventProcessor (ops.events.consumer.processing: SerialEventProcessor under
+ *   savepoints in the poll's transaction, ConcurrentEventProcessor one transaction per handler);
+ *   EventProcessingMode refuses the pairings that can't work together at startup
+ * - where the rest goes: EventRerouter (DLT for unprocessable records, retry tiers for failed handlers)
+ *
+ * Failures never drop an event and never hold the partition; the whole poll failing (DB down) goes to
+ * the container error handler, see EventRetryConfig.
+ *
+ * Metrics: ops.events.outcome{outcome, schema_version} per event, ops.events.end_to_end.latency
+ * (event ts -> handled) and, from ConsumerLagMonitor, ops.events.consumer.lag per partition.
+ */
 @Component
-public class CustomerEventsConsumer {
+public class CustomerEventsConsumer implements ConsumerSeekAware {
 
     private static final Logger log = LoggerFactory.getLogger(CustomerEventsConsumer.class);
 
-    private final ObjectMapper objectMapper;
-    private final ProcessedEventRepository processedRepo;
+    private final EventEnvelopeReader envelopeReader;
+    private final EventHandlerRegistry handlers;
+    private final PayloadCodecRegistry codecs;
+    private final EventDedup dedup;
+    private final EventRerouter rerouter;
+    private final OpsMetrics metrics;
+    private final EventProcessor batchProcessor;
+    private final EventProcessor recordProcessor;
+    private final int payloadLogEvery;
+    private final AtomicLong payloadLogCounter = new AtomicLong();
 
-    public CustomerEventsConsumer(ObjectMapper objectMapper, ProcessedEventRepository processedRepo) {
-        this.objectMapper = objectMapper;
-        this.processedRepo = processedRepo;
+    public CustomerEventsConsumer(EventEnvelopeReader envelopeReader, EventHandlerRegistry handlers,
+                                  PayloadCodecRegistry codecs, EventDedup dedup, EventRerouter rerouter,
+                                  OpsMetrics metrics, KeyOrderedDispatcher keyDispatcher,
+                                  DataSource dataSource, PlatformTransactionManager transactionManager,
+                                  @Value("${ops.events.consumer.processing:serial}") String processing,
+                                  @Value("${ops.events.consumer.handler-timeout-ms:30000}") long handlerTimeoutMs,
+                                  @Value("${ops.events.payload-logging.sample-every:0}") int payloadLogEvery) {
+        this.envelopeReader = envelopeReader;
+        this.handlers = handlers;
+        this.codecs = codecs;
+        this.dedup = dedup;
+        this.rerouter = rerouter;
+        this.metrics = metrics;
+        EventProcessingMode mode = EventProcessingMode.of(processing);
+        mode.requireCompatible(dedup.strategy());
+        this.recordProcessor = new SerialEventProcessor(dataSource);
+        this.batchProcessor = mode == EventProcessingMode.CONCURRENT
+                ? new ConcurrentEventProcessor(keyDispatcher, dedup, transactionManager, handlerTimeoutMs)
+                : recordProcessor;
+        this.payloadLogEvery = Math.max(0, payloadLogEvery);
     }
 
-    @KafkaListener(topics = "customer-events")
+    @KafkaListener(
+            id = "customer-events-batch",
+            idIsGroup = false, // keep spring.kafka.consumer.group-id, same group in both modes
+            topics = "customer-events",
+            batch = "true",
+            autoStartup = "#{'${ops.events.consumer.mode:batch}' == 'batch'}"
+    )
     @Transactional
-    public void onMessage(String payload) {
-        try {
-            JsonNode root = objectMapper.readTree(payload);
+    public void onBatch(List<ConsumerRecord<String, byte[]>> records) {
+        process(records, batchProcessor);
+    }
 
-            String eventId = text(root, "eventId");
-            String type = text(root, "type");
-            String corr = text(root, "correlationId");
+    @KafkaListener(
+            id = "customer-events-record",
+            idIsGroup = false,
+            topics = "customer-events",
+            autoStartup = "#{'${ops.events.consumer.mode:batch}' == 'record'}"
+    )
+    @Transactional
+    public void onMessage(ConsumerRecord<String, byte[]> record) {
+        process(List.of(record), recordProcessor);
+    }
 
-            // Level 4: schema versioning (default to v1 if missing)
-            int schemaVersion = intOrDefault(root, "schemaVersion", 1);
+    private void process(List<ConsumerRecord<String, byte[]>> records, EventProcessor processor) {
+        long startNs = System.nanoTime();
 
-            if (eventId == null || eventId.isBlank()) {
-                log.warn("EVENT_BAD payload_missing_eventId payload={}", payload);
-                return;
-            }
+        // ---- 0) offset watermark: below the stored offset = applied already (row-locked till commit) ----
+        Map<TopicPartition, Long> applied = dedup.lockWatermarks(records);
 
-            try {
-                processedRepo.save(new ProcessedEventEntity(eventId, (type == null ? "UNKNOWN" : type), corr));
-            } catch (DataIntegrityViolationException dup) {
-                log.info("EVENT_DUPLICATE_IGNORED eventId={} type={} schemaVersion={} corr={}",
-                        eventId, type, schemaVersion, corr);
-                return;
+        // ---- 1) parse (bad records go to the DLT, they can't be processed however often we retry) ----
+        List<ParsedEvent> parsed = new ArrayList<>(records.size());
+        int belowWatermark = 0;
+        for (int i = 0; i < records.size(); i++) {
+            ConsumerRecord<String, byte[]> record = records.get(i);
+            if (EventDedup.isApplied(record, applied)) {
+                // not even parsed: a bad one was dead-lettered the first time
+                belowWatermark++;
+                metrics.eventOutcome("duplicate", headerVersion(record), 1);
+                continue;
             }
+            ParsedEvent e = parse(record, i);
+            if (e != null) parsed.add(e);
+        }
 
-            // ---- Version-aware handling (for now: just log the parsed fields) ----
-            if (schemaVersion == 1) {
-                // v1 has no "source"
-                log.info("EVENT_PROCESSED topic=customer-events eventId={} type={} schemaVersion=1 corr={} payload={}",
-                        eventId, type, corr, payload);
-
-            } else if (schemaVersion == 2) {
-                // v2 optional field example
-                String source = text(root, "source"); // optional
-                log.info("EVENT_PROCESSED topic=customer-events eventId={} type={} schemaVersion=2 corr={} source={} payload={}",
-                        eventId, type, corr, source, payload);
-
-            } else {
-                // Unknown future version: don't crash; log + proceed conservatively
-                log.warn("EVENT_UNKNOWN_VERSION eventId={} type={} schemaVersion={} corr={} payload={}",
-                        eventId, type, schemaVersion, corr, payload);
-            }
+        // ---- 2) which are new (dedup cache, then event rows) ----
+        EventDedup.Claim claim = dedup.claim(parsed, processor.rowsPerHandler());
+        claim.duplicates().forEach(e -> metrics.eventOutcome("duplicate", versionTag(e), 1));
+        int duplicates = claim.duplicates().size();
+
+        // ---- 3) run them ----
+        List<ParsedEvent> toHandle = new ArrayList<>(claim.fresh());
+        Set<ParsedEvent> recordedMeanwhile = ConcurrentHashMap.newKeySet();
+        List<FailedEvent> failed = processor.process(toHandle, this::handle, recordedMeanwhile);
+        if (!recordedMeanwhile.isEmpty()) {
+            // concurrent: another delivery (or an earlier copy in this poll) got there first
+            toHandle.removeAll(recordedMeanwhile);
+            duplicates += recordedMeanwhile.size();
+            recordedMeanwhile.forEach(e -> metrics.eventOutcome("duplicate", versionTag(e), 1));
+        }
+        Set<String> incomplete = new HashSet<>();
+        failed.forEach(f -> incomplete.add(f.event().eventId()));
+        countHandled(toHandle, incomplete);
+
+        // ---- 4) the rest: remembered once we commit, failed ones to their retry tier ----
+        dedup.rememberAfterCommit(parsed.stream().map(ParsedEvent::eventId).filter(id -> !incomplete.contains(id)).toList());
+        if (!failed.isEmpty()) {
+            dedup.forget(incomplete, processor.rowsPerHandler());
+            rerouter.reroute(failed);
+        }
+
+        // every record of the poll is done now: handled, duplicate, dead-lettered or on a retry tier
+        dedup.advanceWatermarks(records);
 
-        } catch (Exception e) {
-            log.warn("EVENT_PARSE_FAILED err={} payload={}", e.toString(), payload);
+        int bad = records.size() - belowWatermark - parsed.size();
+        duplicates += belowWatermark;
+        metrics.record("ops.events.batch.size", records.size());
+        metrics.increment("ops.events.duplicates", duplicates);
+        metrics.increment("ops.events.bad", bad);
+        metrics.eventOutcome("bad", "unknown", bad);
+        if (records.size() > 1 || duplicates > 0) {
+            log.info("EVENT_BATCH_DONE records={} processed={} duplicates={} bad={} latency_ms={}",
+                    records.size(), records.size() - duplicates - bad, duplicates, bad,
+                    (System.nanoTime() - startNs) / 1_000_000);
         }
     }
 
-    private static String text(JsonNode root, String field) {
-        return root.hasNonNull(field) ? root.get(field).asText() : null;
+    /**
+     * processed / unknown_version outcomes + end-to-end latency (event ts -> handler done) of the
+     * events that went through; a failed one is counted when it finally makes it (or by EventRerouter).
+     */
+    private void countHandled(List<ParsedEvent> toHandle, Set<String> incomplete) {
+        Instant handledAt = Instant.now();
+        for (ParsedEvent e : toHandle) {
+            if (incomplete.contains(e.eventId())) continue;
+            if (!handlers.handles(e.type(), e.schemaVersion())) {
+                metrics.eventOutcome("unknown_version", versionTag(e), 1);
+                continue;
+            }
+            metrics.eventOutcome("processed", versionTag(e), 1);
+            metrics.eventEndToEnd(e.record().topic(), versionTag(e), e.envelope().ts(), handledAt);
+        }
     }
 
-    private static int intOrDefault(JsonNode root, String field, int defaultValue) {
-        if (!root.has(field) || root.get(field).isNull()) return defaultValue;
-        JsonNode n = root.get(field);
-        if (n.isInt()) return n.asInt();
-        if (n.isTextual()) {
-            try {
-                return Integer.parseInt(n.asText());
-            } catch (Exception ignored) {
-                return defaultValue;
+    /**
+     * schema_version tag of a record we don't parse (ops-schema-version header, set by the relay):
+     * a version with a handler, "other", or "unknown" without the header.
+     */
+    private String headerVersion(ConsumerRecord<String, byte[]> record) {
+        Header h = record.headers().lastHeader(PayloadCodecRegistry.HEADER_SCHEMA_VERSION);
+        return h == null ? "unknown" : handlers.versionTag(new String(h.value(), StandardCharsets.UTF_8));
+    }
+
+    /** schema_version tag: the event's version if a handler knows it, else "other". */
+    private String versionTag(ParsedEvent e) {
+        return handlers.versionTag(e.schemaVersion());
+    }
+
+    /** Watermark strategies: a newly assigned partition starts at the stored offset if that is ahead. */
+    @Override
+    public void onPartitionsAssigned(Map<TopicPartition, Long> assignments, ConsumerSeekCallback callback) {
+        dedup.storedOffsetsAhead(assignments).forEach((tp, offset) -> callback.seek(tp.topic(), tp.partition(), offset));
+    }
+
+    private ParsedEvent parse(ConsumerRecord<String, byte[]> record, int index) {
+        byte[] json = null;
+        try {
+            // the ops-codec header says how the value was encoded (absent = plain JSON)
+            json = codecs.forHeaders(record.headers()).decode(record.value());
+            EventEnvelope envelope = envelopeReader.read(json);
+
+            if (envelope.eventId() == null || envelope.eventId().isBlank()) {
+                log.warn("EVENT_BAD payload_missing_eventId topic={} partition={} offset={} payload={}",
+                        record.topic(), record.partition(), record.offset(), preview(json));
+                rerouter.unprocessable(record, new UnprocessableEventException("payload has no eventId"));
+                return null;
             }
+            return new ParsedEvent(envelope, record, index);
+
+        } catch (UnprocessableEventException e) {
+            log.warn("EVENT_BAD {} topic={} partition={} offset={} payload={}",
+                    e.getMessage(), record.topic(), record.partition(), record.offset(), preview(json));
+            rerouter.unprocessable(record, e);
+            return null;
+        } catch (IOException | RuntimeException e) {
+            log.warn("EVENT_PARSE_FAILED err={} topic={} partition={} offset={} payload={}",
+                    e.toString(), record.topic(), record.partition(), record.offset(), preview(json));
+            rerouter.unprocessable(record, new UnprocessableEventException("cannot parse event: " + e, e));
+            return null;
         }
-        return defaultValue;
+    }
+
+    private void handle(ParsedEvent pe) {
+        // (type, schemaVersion) -> handler; unknown pairs are logged + counted by the registry
+        handlers.dispatch(pe.envelope());
+        logPayloadSampled(pe.envelope());
+    }
+
+    /** Full payloads only at DEBUG and only for every Nth event (0 = never). */
+    private void logPayloadSampled(EventEnvelope e) {
+        if (payloadLogEvery <= 0 || !log.isDebugEnabled()) return;
+        if (payloadLogCounter.incrementAndGet() % payloadLogEvery != 0) return;
+        log.debug("EVENT_PAYLOAD eventId={} payload={}", e.eventId(), e.payloadText());
+    }
+
+    private static String preview(byte[] json) {
+        if (json == null) return null;
+        int n = Math.min(json.length, 1024);
+        return new String(json, 0, n, StandardCharsets.UTF_8) + (json.length > n ? "...(truncated)" : "");
     }
 }
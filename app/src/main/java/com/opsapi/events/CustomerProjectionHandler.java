@@ -0,0 +1,73 @@
+package com.opsapi.events;
+
+import com.opsapi.projection.CustomerProjectionWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Base for the handlers that fold a customer event into the customers projection.
+ *
+ * Mental model:
+ * - a subclass only says which (type, schemaVersions, payload record) it owns and how that record
+ *   becomes a CustomerProjectionWriter.Row
+ * - handle() = one-row upsert + EVENT_PROCESSED log line; handleBatch() = one upsert, no log lines
+ * - eventAt is the envelope's ts (EventEnvelopeReader already refused events without a valid one)
+ */
+public abstract class CustomerProjectionHandler<T> implements EventHandler<T> {
+
+    private static final Logger log = LoggerFactory.getLogger(CustomerProjectionHandler.class);
+
+    private final CustomerProjectionWriter projection;
+    private final String type;
+    private final Set<Integer> schemaVersions;
+    private final Class<T> payloadType;
+
+    protected CustomerProjectionHandler(CustomerProjectionWriter projection, String type,
+                                        Set<Integer> schemaVersions, Class<T> payloadType) {
+        this.projection = projection;
+        this.type = type;
+        this.schemaVersions = schemaVersions;
+        this.payloadType = payloadType;
+    }
+
+    /** The projection row this event writes; newer-wins is up to CustomerProjectionWriter. */
+    protected abstract CustomerProjectionWriter.Row row(EventEnvelope envelope, T event);
+
+    @Override
+    public String type() {
+        return type;
+    }
+
+    @Override
+    public Set<Integer> schemaVersions() {
+        return schemaVersions;
+    }
+
+    @Override
+    public Class<T> payloadType() {
+        return payloadType;
+    }
+
+    @Override
+    public void handle(EventEnvelope envelope, T event) {
+        CustomerProjectionWriter.Row row = row(envelope, event);
+        projection.upsert(List.of(row));
+        log.info("EVENT_PROCESSED topic=customer-events eventId={} type={} schemaVersion={} customerId={} corr={} source={}",
+                envelope.eventId(), envelope.type(), envelope.schemaVersion(), row.customerId(),
+                envelope.correlationId(), envelope.source());
+    }
+
+    @Override
+    public void handleBatch(List<EventEnvelope> envelopes, List<T> events) {
+        // bulk path: one upsert, no per-event log line
+        List<CustomerProjectionWriter.Row> rows = new ArrayList<>(events.size());
+        for (int i = 0; i < events.size(); i++) {
+            rows.add(row(envelopes.get(i), events.get(i)));
+        }
+        projection.upsert(rows);
+    }
+}
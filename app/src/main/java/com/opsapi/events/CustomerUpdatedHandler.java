@@ -0,0 +1,20 @@
+package com.opsapi.events;
+
+import com.opsapi.projection.CustomerProjectionWriter;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+
+@Component
+public class CustomerUpdatedHandler extends CustomerProjectionHandler<CustomerChanged> {
+
+    public CustomerUpdatedHandler(CustomerProjectionWriter projection) {
+        super(projection, "CUSTOMER_UPDATED", Set.of(2), CustomerChanged.class);
+    }
+
+    @Override
+    protected CustomerProjectionWriter.Row row(EventEnvelope envelope, CustomerChanged e) {
+        // newer than what the projection has -> replaces name/email; older -> no-op
+        return new CustomerProjectionWriter.Row(e.customerId(), e.name(), e.email(), e.source(), e.eventId(), envelope.ts());
+    }
+}
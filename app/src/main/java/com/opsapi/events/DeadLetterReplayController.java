@@ -0,0 +1,38 @@
+package com.opsapi.events;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Ops endpoint: re-inject dead-lettered customer events.
+ *
+ * Examples:
+ *  - POST /admin/events/dlt/replay?max=1000&ratePerSecond=50   -> 202, runs in the background
+ *  - POST /admin/events/dlt/replay?includePoison=true          -> also unparseable records (skipped by default)
+ *  - GET  /admin/events/dlt/replay                              -> progress of the current/last run
+ */
+@RestController
+@RequestMapping("/admin/events/dlt")
+public class DeadLetterReplayController {
+
+    private final DeadLetterReplayer replayer;
+
+    public DeadLetterReplayController(DeadLetterReplayer replayer) {
+        this.replayer = replayer;
+    }
+
+    @PostMapping("/replay")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public DeadLetterReplayer.Status replay(
+            @RequestParam(defaultValue = "1000") int max,
+            @RequestParam(defaultValue = "100") int ratePerSecond,
+            @RequestParam(defaultValue = "false") boolean includePoison
+    ) {
+        return replayer.start(max, ratePerSecond, includePoison);
+    }
+
+    @GetMapping("/replay")
+    public DeadLetterReplayer.Status status() {
+        return replayer.status();
+    }
+}
@@ -0,0 +1,7 @@
+package com.opsapi.events;
+
+public class DeadLetterReplayInProgressException extends RuntimeException {
+    public DeadLetterReplayInProgressException() {
+        super("A DLT replay is already running on this node");
+    }
+}
@@ -0,0 +1,233 @@
+package com.opsapi.events;
+
+import com.opsapi.common.OpsMetrics;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Puts dead-lettered events back on customer-events, in bulk, at a controlled rate.
+ *
+ * Mental model:
+ * - reads customer-events.dlt with its own consumer group (ops-api-dlt-replay): the group's
+ *   committed offsets = "replayed up to here", so a second run continues where the last stopped
+ * - stops at the DLT's end as of the start (records dead-lettered meanwhile wait for the next run)
+ *   or after max records, whichever comes first
+ * - paced: one send every 1/ratePerSecond (the main consumer + its DB see a steady trickle, not a burst)
+ * - re-published with the same key (same partition, per-customer order) and the original headers,
+ *   minus the retry/DLT bookkeeping -> it starts over as a fresh event (attempt 0)
+ * - offsets are committed per poll, only after the broker acked every replayed send;
+ *   "replayed" in the status counts committed sends only
+ * - poison records (dead-lettered as UnprocessableEventException: can't be parsed) are skipped unless
+ *   includePoison=true: replayed, they'd go straight back to the DLT on every run. They stay in the DLT
+ *   for inspection; the replay group moves past them
+ *
+ * A replayed event that is already in processed_events is skipped as a duplicate, so replaying
+ * too much (or twice, from two nodes) is harmless.
+ */
+@Component
+public class DeadLetterReplayer {
+
+    private static final Logger log = LoggerFactory.getLogger(DeadLetterReplayer.class);
+
+    static final String GROUP_ID = "ops-api-dlt-replay";
+    static final String HEADER_REPLAYED_AT = "ops-dlt-replayed-at";
+
+    private final ConsumerFactory<String, byte[]> consumerFactory;
+    private final KafkaTemplate<String, byte[]> kafkaTemplate;
+    private final OpsMetrics metrics;
+    private final int maxRatePerSecond;
+    private final long ackTimeoutMs;
+
+    private final AtomicLong replayed = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private volatile Status last = Status.idle();
+
+    public DeadLetterReplayer(ConsumerFactory<String, byte[]> consumerFactory,
+                              KafkaTemplate<String, byte[]> kafkaTemplate,
+                              OpsMetrics metrics,
+                              @Value("${ops.events.dlt.replay.max-rate-per-second:500}") int maxRatePerSecond,
+                              @Value("${ops.events.dlt.replay.ack-timeout-ms:30000}") long ackTimeoutMs) {
+        this.consumerFactory = consumerFactory;
+        this.kafkaTemplate = kafkaTemplate;
+        this.metrics = metrics;
+        this.maxRatePerSecond = Math.max(1, maxRatePerSecond);
+        this.ackTimeoutMs = Math.max(1000, ackTimeoutMs);
+    }
+
+    /** Starts a replay in the background; one at a time per node. */
+    public synchronized Status start(int max, int ratePerSecond, boolean includePoison) {
+        if (max < 1 || max > 100_000) {
+            throw new IllegalArgumentException("max must be between 1 and 100000");
+        }
+        if (ratePerSecond < 1 || ratePerSecond > maxRatePerSecond) {
+            throw new IllegalArgumentException("ratePerSecond must be between 1 and " + maxRatePerSecond);
+        }
+        if (last.state() == State.RUNNING) {
+            throw new DeadLetterReplayInProgressException();
+        }
+
+        replayed.set(0);
+        skipped.set(0);
+        last = new Status(State.RUNNING, max, ratePerSecond, includePoison, 0, 0, Instant.now(), null, null);
+        Status started = last;
+        Thread.ofVirtual().name("dlt-replay").start(() -> run(started));
+        return started;
+    }
+
+    public Status status() {
+        Status s = last;
+        return s.state() == State.RUNNING ? s.withProgress(replayed.get(), skipped.get()) : s;
+    }
+
+    private void run(Status started) {
+        String dlt = EventRetryRouter.deadLetterTopic();
+        log.info("DLT_REPLAY_STARTED topic={} max={} rate_per_s={} include_poison={}",
+                dlt, started.max(), started.ratePerSecond(), started.includePoison());
+
+        Properties overrides = new Properties();
+        overrides.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        overrides.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, Math.min(started.max(), 500));
+
+        try (Consumer<String, byte[]> consumer = consumerFactory.createConsumer(GROUP_ID, "dlt-replay", null, overrides)) {
+            List<TopicPartition> partitions = new ArrayList<>();
+            consumer.partitionsFor(dlt).forEach(p -> partitions.add(new TopicPartition(p.topic(), p.partition())));
+            consumer.assign(partitions);
+
+            Map<TopicPartition, OffsetAndMetadata> committed = consumer.committed(new HashSet<>(partitions));
+            for (TopicPartition tp : partitions) {
+                OffsetAndMetadata om = committed.get(tp);
+                if (om == null) consumer.seekToBeginning(List.of(tp));
+                else consumer.seek(tp, om.offset());
+            }
+            Map<TopicPartition, Long> end = consumer.endOffsets(partitions);
+
+            long intervalNs = TimeUnit.SECONDS.toNanos(1) / started.ratePerSecond();
+            long nextSendNs = System.nanoTime();
+
+            while (replayed.get() < started.max() && !caughtUp(consumer, partitions, end)) {
+                List<CompletableFuture<SendResult<String, byte[]>>> sends = new ArrayList<>();
+                Map<TopicPartition, OffsetAndMetadata> done = new HashMap<>();
+
+                int poisonSkipped = 0;
+
+                for (ConsumerRecord<String, byte[]> record : consumer.poll(Duration.ofSeconds(1))) {
+                    TopicPartition tp = new TopicPartition(record.topic(), record.partition());
+                    if (replayed.get() + sends.size() >= started.max()) break;
+                    if (record.offset() >= end.get(tp)) continue; // arrived after we started: next run
+
+                    done.put(tp, new OffsetAndMetadata(record.offset() + 1));
+                    if (!started.includePoison() && isPoison(record)) {
+                        poisonSkipped++;
+                        log.debug("DLT_REPLAY_POISON_SKIPPED key={} partition={} offset={}",
+                                record.key(), record.partition(), record.offset());
+                        continue;
+                    }
+
+                    long waitNs = nextSendNs - System.nanoTime();
+                    if (waitNs > 0) LockSupport.parkNanos(waitNs);
+                    nextSendNs = Math.max(nextSendNs, System.nanoTime()) + intervalNs;
+
+                    sends.add(kafkaTemplate.send(toMainTopic(record)));
+                }
+                if (done.isEmpty()) continue;
+
+                // committed = replayed: only once the broker has all of them
+                if (!sends.isEmpty()) {
+                    CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new)).get(ackTimeoutMs, TimeUnit.MILLISECONDS);
+                }
+                consumer.commitSync(done);
+                replayed.addAndGet(sends.size());
+                skipped.addAndGet(poisonSkipped);
+                metrics.increment("ops.events.dlt.replayed", sends.size());
+                metrics.increment("ops.events.dlt.replay.poison_skipped", poisonSkipped);
+            }
+
+            last = started.finished(State.DONE, replayed.get(), skipped.get(), null);
+            log.info("DLT_REPLAY_DONE replayed={} poison_skipped={} latency_ms={}", replayed.get(), skipped.get(),
+                    Duration.between(started.startedAt(), Instant.now()).toMillis());
+
+        } catch (Exception ex) {
+            if (ex instanceof InterruptedException) Thread.currentThread().interrupt();
+            // nothing beyond the last commit counts as replayed; re-running resends at most one poll
+            last = started.finished(State.FAILED, replayed.get(), skipped.get(), ex.toString());
+            log.warn("DLT_REPLAY_FAILED replayed={} err={}", replayed.get(), ex.toString());
+        }
+    }
+
+    private static boolean caughtUp(Consumer<?, ?> consumer, List<TopicPartition> partitions, Map<TopicPartition, Long> end) {
+        for (TopicPartition tp : partitions) {
+            if (consumer.position(tp) < end.get(tp)) return false;
+        }
+        return true;
+    }
+
+    /** Dead-lettered by EventRetryRouter as unparseable (the recoverer records the exception class). */
+    static boolean isPoison(ConsumerRecord<?, ?> record) {
+        String poison = UnprocessableEventException.class.getName();
+        for (String name : new String[]{KafkaHeaders.DLT_EXCEPTION_FQCN, KafkaHeaders.DLT_EXCEPTION_CAUSE_FQCN}) {
+            Header h = record.headers().lastHeader(name);
+            if (h != null && poison.equals(new String(h.value(), StandardCharsets.UTF_8))) return true;
+        }
+        return false;
+    }
+
+    private static ProducerRecord<String, byte[]> toMainTopic(ConsumerRecord<String, byte[]> record) {
+        RecordHeaders headers = new RecordHeaders();
+        for (Header h : record.headers()) {
+            String name = h.key();
+            // drop the previous journey (kafka_dlt-* from the recoverer, ops-retry-* from the tiers)
+            if (name.startsWith("kafka_dlt-") || name.startsWith("ops-retry-")) continue;
+            headers.add(h);
+        }
+        headers.add(HEADER_REPLAYED_AT, String.valueOf(System.currentTimeMillis()).getBytes(StandardCharsets.UTF_8));
+        // null partition -> the key decides, same as the original send
+        return new ProducerRecord<>(EventRetryRouter.MAIN_TOPIC, null, record.key(), record.value(), headers);
+    }
+
+    public enum State { IDLE, RUNNING, DONE, FAILED }
+
+    /** replayed = sends the broker acked and whose DLT offsets were committed; skippedPoison likewise. */
+    public record Status(State state, int max, int ratePerSecond, boolean includePoison, long replayed,
+                         long skippedPoison, Instant startedAt, Instant finishedAt, String error) {
+
+        static Status idle() {
+            return new Status(State.IDLE, 0, 0, false, 0, 0, null, null, null);
+        }
+
+        Status withProgress(long replayed, long skippedPoison) {
+            return new Status(state, max, ratePerSecond, includePoison, replayed, skippedPoison, startedAt, finishedAt, error);
+        }
+
+        Status finished(State end, long replayed, long skippedPoison, String error) {
+            return new Status(end, max, ratePerSecond, includePoison, replayed, skippedPoison, startedAt, Instant.now(), error);
+        }
+    }
+}
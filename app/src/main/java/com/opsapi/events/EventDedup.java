@@ -0,0 +1,207 @@
+package com.opsapi.events;
+
+import com.opsapi.common.OpsMetrics;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Which events of a poll are new, per ops.events.dedup.strategy (see {@link EventDedupStrategy}).
+ *
+ * Mental model, in the order CustomerEventsConsumer asks:
+ * 1) watermark: lock the poll's partitions in consumer_offsets -> records below the stored offset are
+ *    applied already (skipped unparsed); advance() moves it once the whole poll is done
+ * 2) event rows: known-recent eventIds are answered from RecentEventIdCache and never reach the DB;
+ *    every Nth cache hit is double-checked against processed_events (false-positive metric)
+ * 3) event rows: one round trip tells which of the rest are new. Serial processing inserts their
+ *    processed_events rows right here, in the poll's transaction; concurrent processing only reads
+ *    here and each handler records its own row in its own transaction (record())
+ *
+ * Everything uses the caller's transaction except record(), which runs in the handler's.
+ */
+@Component
+public class EventDedup {
+
+    private static final Logger log = LoggerFactory.getLogger(EventDedup.class);
+
+    private final ProcessedEventWriter processedWriter;
+    private final RecentEventIdCache cache;
+    private final ConsumerOffsetStore offsetStore;
+    private final OpsMetrics metrics;
+    private final EventDedupStrategy strategy;
+    private final String groupId;
+    private final int verifyEvery;
+    private final AtomicLong cacheHits = new AtomicLong();
+
+    public EventDedup(ProcessedEventWriter processedWriter, RecentEventIdCache cache,
+                      ConsumerOffsetStore offsetStore, OpsMetrics metrics,
+                      @Value("${ops.events.dedup.strategy:event-rows}") String strategy,
+                      @Value("${spring.kafka.consumer.group-id:ops-api}") String groupId,
+                      @Value("${ops.events.dedup-cache.verify-every:100}") int verifyEvery) {
+        this.processedWriter = processedWriter;
+        this.cache = cache;
+        this.offsetStore = offsetStore;
+        this.metrics = metrics;
+        this.strategy = EventDedupStrategy.of(strategy);
+        this.groupId = groupId;
+        this.verifyEvery = Math.max(1, verifyEvery);
+    }
+
+    EventDedupStrategy strategy() {
+        return strategy;
+    }
+
+    // ---- 1) offset watermark ----
+
+    /** Stored next offsets of the poll's partitions, row-locked till commit (empty without a watermark). */
+    Map<TopicPartition, Long> lockWatermarks(List<ConsumerRecord<String, byte[]>> records) {
+        if (!strategy.watermark()) return Map.of();
+        Set<TopicPartition> partitions = new HashSet<>();
+        for (ConsumerRecord<String, byte[]> r : records) partitions.add(new TopicPartition(r.topic(), r.partition()));
+        return offsetStore.lock(groupId, partitions);
+    }
+
+    static boolean isApplied(ConsumerRecord<String, byte[]> record, Map<TopicPartition, Long> applied) {
+        if (applied.isEmpty()) return false;
+        Long next = applied.get(new TopicPartition(record.topic(), record.partition()));
+        return next != null && record.offset() < next;
+    }
+
+    /** Every record of the poll is done (handled, duplicate, dead-lettered or on a retry tier): move past it. */
+    void advanceWatermarks(List<ConsumerRecord<String, byte[]>> records) {
+        if (!strategy.watermark()) return;
+        Map<TopicPartition, Long> next = new HashMap<>();
+        for (ConsumerRecord<String, byte[]> r : records) {
+            next.merge(new TopicPartition(r.topic(), r.partition()), r.offset() + 1, Math::max);
+        }
+        offsetStore.advance(groupId, next);
+    }
+
+    /**
+     * A newly assigned partition starts at the stored offset if that is ahead of Kafka's committed one
+     * (the DB commit went through, the Kafka commit didn't). Never seeks backwards: a stale row (strategy
+     * switched off and on again) must not replay what event rows no longer cover.
+     *
+     * @return partition -> offset to seek to (empty without a watermark, or when the DB is unavailable)
+     */
+    Map<TopicPartition, Long> storedOffsetsAhead(Map<TopicPartition, Long> current) {
+        if (!strategy.watermark() || current.isEmpty()) return Map.of();
+        try {
+            Map<TopicPartition, Long> stored = offsetStore.seed(groupId, current);
+            Map<TopicPartition, Long> ahead = new HashMap<>();
+            stored.forEach((tp, offset) -> {
+                Long position = current.get(tp);
+                if (position != null && offset > position) ahead.put(tp, offset);
+            });
+            if (!ahead.isEmpty()) log.info("EVENT_OFFSETS_RESTORED group={} seek={}", groupId, ahead);
+            return ahead;
+        } catch (RuntimeException ex) {
+            // no seek: the per-poll lock still skips whatever was applied
+            log.warn("EVENT_OFFSETS_RESTORE_FAILED group={} err={}", groupId, ex.toString());
+            return Map.of();
+        }
+    }
+
+    // ---- 2) + 3) event rows ----
+
+    /**
+     * Splits the parsed events of a poll into new ones (in poll order, each eventId once) and duplicates.
+     *
+     * @param rowsPerHandler true = concurrent processing: read-only check, record() inserts the rows
+     */
+    Claim claim(List<ParsedEvent> parsed, boolean rowsPerHandler) {
+        if (!strategy.eventRows()) return new Claim(parsed, List.of());
+
+        List<ParsedEvent> rest = new ArrayList<>(parsed.size());
+        List<ParsedEvent> duplicates = new ArrayList<>();
+        List<String> toVerify = new ArrayList<>();
+        for (ParsedEvent e : parsed) {
+            if (cache.contains(e.eventId())) {
+                duplicates.add(e);
+                if (cacheHits.incrementAndGet() % verifyEvery == 0) toVerify.add(e.eventId());
+            } else {
+                rest.add(e);
+            }
+        }
+        metrics.increment("ops.events.dedup.cache.hits", duplicates.size());
+        metrics.increment("ops.events.dedup.cache.misses", rest.size());
+
+        // sampled check of cache hits (should never find anything)
+        if (!toVerify.isEmpty()) {
+            Set<String> existing = processedWriter.findExisting(toVerify);
+            duplicates.removeIf(e -> {
+                if (!toVerify.contains(e.eventId()) || existing.contains(e.eventId())) return false;
+                log.warn("EVENT_DEDUP_CACHE_FALSE_POSITIVE eventId={} (processing it anyway)", e.eventId());
+                metrics.increment("ops.events.dedup.cache.false_positives", 1);
+                rest.add(e);
+                return true;
+            });
+            rest.sort((a, b) -> Integer.compare(a.index(), b.index()));
+        }
+
+        List<ParsedEvent> fresh = new ArrayList<>(rest.size());
+        if (rowsPerHandler) {
+            Set<String> known = processedWriter.findExisting(rest.stream().map(ParsedEvent::eventId).toList());
+            for (ParsedEvent e : rest) {
+                if (known.contains(e.eventId())) duplicates.add(e);
+                else fresh.add(e);
+            }
+            return new Claim(fresh, duplicates);
+        }
+
+        Set<String> inserted = processedWriter.insertNew(rest.stream().map(EventDedup::row).toList());
+        for (ParsedEvent e : rest) {
+            // each id once, even if it repeats inside the poll
+            if (inserted.remove(e.eventId())) {
+                fresh.add(e);
+                continue;
+            }
+            duplicates.add(e);
+            log.debug("EVENT_DUPLICATE_IGNORED eventId={} type={} schemaVersion={} corr={}",
+                    e.eventId(), e.type(), e.schemaVersion(), e.corr());
+        }
+        return new Claim(fresh, duplicates);
+    }
+
+    /**
+     * Concurrent processing, inside the handler's own transaction: the row commits or rolls back with
+     * the handler's writes. No-op without event rows.
+     *
+     * @return false if the event was recorded already (by another delivery, or an earlier copy in the poll)
+     */
+    boolean record(ParsedEvent e) {
+        return !strategy.eventRows() || !processedWriter.insertNew(List.of(row(e))).isEmpty();
+    }
+
+    /**
+     * Events claimed by this poll but not handled: serial processing inserted their rows in the poll's
+     * transaction, so they go again; concurrent ones rolled back with each handler's own transaction.
+     */
+    void forget(Collection<String> eventIds, boolean rowsPerHandler) {
+        if (strategy.eventRows() && !rowsPerHandler) processedWriter.delete(eventIds);
+    }
+
+    /** These are in processed_events once the poll commits (new or not). */
+    void rememberAfterCommit(Collection<String> eventIds) {
+        if (strategy.eventRows()) cache.addAfterCommit(eventIds);
+    }
+
+    private static ProcessedEventWriter.Row row(ParsedEvent e) {
+        return new ProcessedEventWriter.Row(e.eventId(), e.type() == null ? "UNKNOWN" : e.type(), e.corr());
+    }
+
+    /** fresh = to handle, in poll order; duplicates = cache hits and events recorded before. */
+    record Claim(List<ParsedEvent> fresh, List<ParsedEvent> duplicates) {}
+}
@@ -0,0 +1,49 @@
+package com.opsapi.events;
+
+/**
+ * ops.events.dedup.strategy
+ *
+ * Mental model:
+ * - event-rows (default): one processed_events row per event -> also catches the same event published
+ *   twice (relay retry), at the cost of one row per event (+ pruning)
+ * - offset-watermark: per partition, the next offset to apply lives in consumer_offsets and moves in the
+ *   same transaction as the handlers' writes -> ONE row update per poll. Covers redelivery (crash,
+ *   rebalance), NOT an event published twice at two offsets
+ * - both: watermark first, then event rows for the rest
+ */
+enum EventDedupStrategy {
+    EVENT_ROWS(true, false),
+    OFFSET_WATERMARK(false, true),
+    BOTH(true, true);
+
+    private final boolean eventRows;
+    private final boolean watermark;
+
+    EventDedupStrategy(boolean eventRows, boolean watermark) {
+        this.eventRows = eventRows;
+        this.watermark = watermark;
+    }
+
+    boolean eventRows() {
+        return eventRows;
+    }
+
+    boolean watermark() {
+        return watermark;
+    }
+
+    static EventDedupStrategy of(String value) {
+        return switch (value.trim().toLowerCase()) {
+            case "event-rows" -> EVENT_ROWS;
+            case "offset-watermark" -> OFFSET_WATERMARK;
+            case "both" -> BOTH;
+            default -> throw new IllegalArgumentException(
+                    "ops.events.dedup.strategy must be event-rows, offset-watermark or both: " + value);
+        };
+    }
+
+    @Override
+    public String toString() {
+        return name().toLowerCase().replace('_', '-');
+    }
+}
@@ -0,0 +1,69 @@
+package com.opsapi.events;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+/**
+ * The routing fields of an event + its raw JSON bytes.
+ *
+ * Mental model:
+ * - eventId / type / schemaVersion / correlationId / source / ts are read by EventEnvelopeReader
+ *   in one streaming pass (no tree, no String copy of the whole payload)
+ * - the rest of the event (the "body") stays bytes until a handler asks for it
+ * - body() parses once and keeps the tree; payloadText() is only for logging
+ */
+public final class EventEnvelope {
+
+    private final String eventId;
+    private final String type;
+    private final int schemaVersion;
+    private final String correlationId;
+    private final String source;
+    private final Instant ts;
+    private final byte[] json;
+    private final ObjectMapper objectMapper;
+
+    private JsonNode body;
+
+    EventEnvelope(String eventId, String type, int schemaVersion, String correlationId, String source, Instant ts,
+                  byte[] json, ObjectMapper objectMapper) {
+        this.eventId = eventId;
+        this.type = type;
+        this.schemaVersion = schemaVersion;
+        this.correlationId = correlationId;
+        this.source = source;
+        this.ts = ts;
+        this.json = json;
+        this.objectMapper = objectMapper;
+    }
+
+    public String eventId() { return eventId; }
+    public String type() { return type; }
+    public int schemaVersion() { return schemaVersion; }
+    public String correlationId() { return correlationId; }
+    public String source() { return source; }
+    /** Enqueue time set by CustomerEventPublisher; EventEnvelopeReader refuses events without one. */
+    public Instant ts() { return ts; }
+    public byte[] json() { return json; }
+
+    /** Full event as a tree, parsed on first use. */
+    public JsonNode body() {
+        if (body == null) {
+            try {
+                body = objectMapper.readTree(json);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return body;
+    }
+
+    public String payloadText() {
+        return new String(json, StandardCharsets.UTF_8);
+    }
+}
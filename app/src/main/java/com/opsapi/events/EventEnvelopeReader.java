@@ -0,0 +1,98 @@
+package com.opsapi.events;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Streaming reader for the envelope fields of an event.
+ *
+ * Mental model:
+ * - walk the top-level object token by token, straight from the byte[]
+ * - keep the 6 envelope fields (routing + ts), skip nested objects/arrays without building them
+ * - stop as soon as all 6 were seen
+ * - ts is required and parsed here: a missing or malformed ts can never be handled, so it fails
+ *   as UnprocessableEventException (straight to the DLT) instead of in a handler (retry tiers)
+ *
+ * Field names come from Jackson's symbol table (interned) -> the only allocations per event
+ * are the parser itself and the kept field values.
+ */
+@Component
+public class EventEnvelopeReader {
+
+    private static final int FIELDS = 6;
+
+    private final ObjectMapper objectMapper;
+
+    public EventEnvelopeReader(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * @throws IOException if the bytes are not a JSON object
+     * @throws UnprocessableEventException if ts is missing or not an ISO-8601 instant
+     */
+    public EventEnvelope read(byte[] json) throws IOException {
+        String eventId = null;
+        String type = null;
+        String corr = null;
+        String source = null;
+        String ts = null;
+        int schemaVersion = 1; // Level 4: missing = v1
+        int seen = 0;
+
+        try (JsonParser p = objectMapper.getFactory().createParser(json)) {
+            if (p.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("event is not a JSON object");
+            }
+            while (seen < FIELDS && p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.currentName();
+                JsonToken value = p.nextToken();
+                switch (field) {
+                    case "eventId" -> { eventId = text(p, value); seen++; }
+                    case "type" -> { type = text(p, value); seen++; }
+                    case "correlationId" -> { corr = text(p, value); seen++; }
+                    case "source" -> { source = text(p, value); seen++; }
+                    case "ts" -> { ts = text(p, value); seen++; }
+                    case "schemaVersion" -> { schemaVersion = version(p, value, schemaVersion); seen++; }
+                    default -> p.skipChildren(); // no-op for scalars
+                }
+            }
+        }
+        return new EventEnvelope(eventId, type, schemaVersion, corr, source, timestamp(ts), json, objectMapper);
+    }
+
+    private static Instant timestamp(String ts) {
+        if (ts == null) throw new UnprocessableEventException("event has no ts");
+        try {
+            return Instant.parse(ts);
+        } catch (DateTimeParseException e) {
+            throw new UnprocessableEventException("event ts is not an ISO-8601 instant: " + ts, e);
+        }
+    }
+
+    private static String text(JsonParser p, JsonToken value) throws IOException {
+        if (value == JsonToken.VALUE_NULL) return null;
+        if (value.isScalarValue()) return p.getText();
+        p.skipChildren();
+        return null;
+    }
+
+    private static int version(JsonParser p, JsonToken value, int defaultValue) throws IOException {
+        if (value == JsonToken.VALUE_NUMBER_INT) return p.getIntValue();
+        if (value == JsonToken.VALUE_STRING) {
+            try {
+                return Integer.parseInt(p.getText().trim());
+            } catch (NumberFormatException ignored) {
+                return defaultValue;
+            }
+        }
+        p.skipChildren();
+        return defaultValue;
+    }
+}
@@ -0,0 +1,35 @@
+package com.opsapi.events;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Handles one event type for a set of schema versions.
+ *
+ * Mental model:
+ * - type() + schemaVersions() = which (type, schemaVersion) pairs this handler owns
+ * - payloadType() = record the event JSON is bound to (EventHandlerRegistry prebuilds the reader)
+ * - a new schema version = a new handler bean (or one more version in the set), never a new branch
+ *
+ * Throwing = the event is not handled (it will be redelivered).
+ *
+ * handleBatch() is the bulk path (projection rebuild): same effect as handle() per event,
+ * overridden by handlers that can write a whole batch in one statement.
+ */
+public interface EventHandler<T> {
+
+    String type();
+
+    Set<Integer> schemaVersions();
+
+    Class<T> payloadType();
+
+    void handle(EventEnvelope envelope, T event);
+
+    /** {@code envelopes.get(i)} belongs to {@code events.get(i)}; order is not meaningful. */
+    default void handleBatch(List<EventEnvelope> envelopes, List<T> events) {
+        for (int i = 0; i < events.size(); i++) {
+            handle(envelopes.get(i), events.get(i));
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package com.opsapi.events;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.opsapi.common.OpsMetrics;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * (type, schemaVersion) -> handler, built once at startup.
+ *
+ * Mental model:
+ * - per type: an array indexed by schemaVersion -> lookup = one HashMap get + one array read
+ * - per entry: a Jackson ObjectReader bound to the handler's record (no reflection per message)
+ *   and a pre-registered timer ops.events.handler{handler,type,schema_version}
+ * - no entry = EVENT_UNHANDLED + ops.events.unhandled counter (the event is acknowledged, not retried)
+ * - metric tags from event data go through typeTag()/versionTag(): a registered value or "other",
+ *   so a producer sending garbage can't create a time series per value
+ * - two handlers claiming the same pair = startup failure, not a silent override
+ */
+@Component
+public class EventHandlerRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(EventHandlerRegistry.class);
+
+    static final String OTHER = "other";
+
+    private final Map<String, Entry[]> byType = new HashMap<>();
+    private final Set<String> versions = new HashSet<>();
+    private final OpsMetrics metrics;
+
+    public EventHandlerRegistry(List<EventHandler<?>> handlers, ObjectMapper objectMapper, OpsMetrics metrics) {
+        this.metrics = metrics;
+
+        ObjectReader base = objectMapper.reader().without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        for (EventHandler<?> h : handlers) {
+            ObjectReader reader = base.forType(h.payloadType());
+            String handlerName = h.getClass().getSimpleName();
+            for (int version : h.schemaVersions()) {
+                if (version < 1) throw new IllegalStateException(handlerName + ": schemaVersion must be >= 1");
+                Entry[] entries = byType.computeIfAbsent(h.type(), t -> new Entry[0]);
+                if (entries.length <= version) {
+                    entries = Arrays.copyOf(entries, version + 1);
+                    byType.put(h.type(), entries);
+                }
+                if (entries[version] != null) {
+                    throw new IllegalStateException("two handlers for " + h.type() + " v" + version + ": "
+                            + entries[version].handlerName() + ", " + handlerName);
+                }
+                Timer timer = metrics.timer("ops.events.handler",
+                        "handler", handlerName, "type", h.type(), "schema_version", Integer.toString(version));
+                entries[version] = new Entry(h, reader, timer, handlerName);
+                versions.add(Integer.toString(version));
+            }
+        }
+        log.info("EVENT_HANDLERS_REGISTERED types={}", byType.keySet());
+    }
+
+    /** @return false if nothing is registered for this (type, schemaVersion) */
+    public boolean dispatch(EventEnvelope envelope) {
+        Entry entry = lookup(envelope.type(), envelope.schemaVersion());
+        if (entry == null) {
+            metrics.count("ops.events.unhandled",
+                    "type", typeTag(envelope.type()), "schema_version", versionTag(envelope.schemaVersion()));
+            log.warn("EVENT_UNHANDLED eventId={} type={} schemaVersion={} corr={} (no handler registered)",
+                    envelope.eventId(), envelope.type(), envelope.schemaVersion(), envelope.correlationId());
+            return false;
+        }
+
+        Object event;
+        try {
+            event = entry.reader().readValue(envelope.json());
+        } catch (IOException e) {
+            throw new UncheckedIOException("event " + envelope.eventId() + " does not match "
+                    + entry.handler().payloadType().getSimpleName(), e);
+        }
+
+        long startNs = System.nanoTime();
+        try {
+            entry.invoke(envelope, event);
+        } finally {
+            entry.timer().record(System.nanoTime() - startNs, TimeUnit.NANOSECONDS);
+        }
+        return true;
+    }
+
+    /**
+     * Bulk path: bind every event, then one handleBatch() per handler.
+     * Unknown and unbindable events are counted and skipped (a rebuild must not stop on one bad event);
+     * a handleBatch() that throws is retried event by event, so only the bad ones are lost.
+     */
+    public BatchResult dispatchBatch(List<EventEnvelope> envelopes) {
+        Map<Entry, List<EventEnvelope>> envelopesByEntry = new IdentityHashMap<>();
+        Map<Entry, List<Object>> eventsByEntry = new IdentityHashMap<>();
+        int unhandled = 0;
+        int unbindable = 0;
+
+        for (EventEnvelope envelope : envelopes) {
+            Entry entry = lookup(envelope.type(), envelope.schemaVersion());
+            if (entry == null) {
+                unhandled++;
+                continue;
+            }
+            try {
+                Object event = entry.reader().readValue(envelope.json());
+                envelopesByEntry.computeIfAbsent(entry, e -> new ArrayList<>()).add(envelope);
+                eventsByEntry.computeIfAbsent(entry, e -> new ArrayList<>()).add(event);
+            } catch (IOException e) {
+                unbindable++;
+                log.debug("EVENT_UNBINDABLE eventId={} type={} schemaVersion={} err={}",
+                        envelope.eventId(), envelope.type(), envelope.schemaVersion(), e.toString());
+            }
+        }
+
+        int handled = 0;
+        int failed = 0;
+        for (Map.Entry<Entry, List<EventEnvelope>> group : envelopesByEntry.entrySet()) {
+            Entry entry = group.getKey();
+            List<EventEnvelope> groupEnvelopes = group.getValue();
+            List<Object> events = eventsByEntry.get(entry);
+            try {
+                entry.invokeBatch(groupEnvelopes, events);
+                handled += events.size();
+            } catch (RuntimeException batchFailed) {
+                for (int i = 0; i < events.size(); i++) {
+                    try {
+                        entry.invoke(groupEnvelopes.get(i), events.get(i));
+                        handled++;
+                    } catch (RuntimeException ex) {
+                        failed++;
+                        log.debug("EVENT_BATCH_ITEM_FAILED eventId={} handler={} err={}",
+                                groupEnvelopes.get(i).eventId(), entry.handlerName(), ex.toString());
+                    }
+                }
+            }
+        }
+        return new BatchResult(handled, unhandled, unbindable, failed);
+    }
+
+    public record BatchResult(int handled, int unhandled, int unbindable, int failed) {}
+
+    /** Is there a handler for this pair? (dispatch() would return true, barring a handler failure) */
+    public boolean handles(String type, int schemaVersion) {
+        return lookup(type, schemaVersion) != null;
+    }
+
+    /** A type some handler is registered for, else "other" (safe as a metric tag). */
+    public String typeTag(String type) {
+        return type != null && byType.containsKey(type) ? type : OTHER;
+    }
+
+    /** A schema version some handler is registered for, else "other" (safe as a metric tag). */
+    public String versionTag(int schemaVersion) {
+        return versionTag(Integer.toString(schemaVersion));
+    }
+
+    /** Same, for a version read from a header (not parsed). */
+    public String versionTag(String schemaVersion) {
+        return schemaVersion != null && versions.contains(schemaVersion) ? schemaVersion : OTHER;
+    }
+
+    private Entry lookup(String type, int schemaVersion) {
+        if (type == null) return null;
+        Entry[] entries = byType.get(type);
+        if (entries == null || schemaVersion < 0 || schemaVersion >= entries.length) return null;
+        return entries[schemaVersion];
+    }
+
+    private record Entry(EventHandler<?> handler, ObjectReader reader, Timer timer, String handlerName) {
+        @SuppressWarnings("unchecked")
+        void invoke(EventEnvelope envelope, Object event) {
+            ((EventHandler<Object>) handler).handle(envelope, event);
+        }
+
+        @SuppressWarnings("unchecked")
+        void invokeBatch(List<EventEnvelope> envelopes, List<Object> events) {
+            ((EventHandler<Object>) handler).handleBatch(envelopes, events);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.opsapi.events;
+
+/**
+ * ops.events.consumer.processing (batch mode; the record listener is always serial)
+ *
+ * Mental model:
+ * - serial: one event after another on the listener thread, all in the poll's transaction,
+ *   each handler under a savepoint (SerialEventProcessor)
+ * - concurrent: the new events of a poll on virtual threads grouped by record key, each handler in its
+ *   own transaction together with its processed_events row (ConcurrentEventProcessor)
+ *
+ * Concurrent handlers commit before the poll's transaction moves the offset watermark, so concurrent
+ * needs event rows: a poll that rolls back after its handlers committed would apply them again on
+ * redelivery, with nothing to dedup them. {@link #requireCompatible} refuses that pairing at startup.
+ */
+enum EventProcessingMode {
+    SERIAL,
+    CONCURRENT;
+
+    static EventProcessingMode of(String value) {
+        return switch (value.trim().toLowerCase()) {
+            case "serial" -> SERIAL;
+            case "concurrent" -> CONCURRENT;
+            default -> throw new IllegalArgumentException(
+                    "ops.events.consumer.processing must be serial or concurrent: " + value);
+        };
+    }
+
+    void requireCompatible(EventDedupStrategy dedup) {
+        if (this == CONCURRENT && !dedup.eventRows()) {
+            throw new IllegalArgumentException("ops.events.consumer.processing=concurrent needs event rows: "
+                    + "use ops.events.dedup.strategy=event-rows or both, not " + dedup);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.opsapi.events;
+
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Runs the handlers of a poll's new events (ops.events.consumer.processing, see {@link EventProcessingMode}).
+ *
+ * Per key, an event never runs after an earlier one of the same key failed: it is returned as skipped
+ * and follows the failed one to the retry tier.
+ */
+interface EventProcessor {
+
+    /**
+     * @param handler           runs one event's handler (throws = failed)
+     * @param recordedMeanwhile events found recorded by someone else when their turn came (not run)
+     * @return the events that failed or were skipped behind a failure; final on return
+     */
+    List<FailedEvent> process(List<ParsedEvent> events, Consumer<ParsedEvent> handler, Set<ParsedEvent> recordedMeanwhile);
+
+    /** true = each handler records its own processed_events row (EventDedup.record), in its own transaction. */
+    boolean rowsPerHandler();
+}
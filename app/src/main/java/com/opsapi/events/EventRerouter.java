@@ -0,0 +1,57 @@
+package com.opsapi.events;
+
+import com.opsapi.common.OpsMetrics;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Where the consumer's events go when they can't be handled now (EventRetryRouter does the publishing).
+ *
+ * Mental model:
+ * - unprocessable record (unparseable, no eventId, no ts) -> straight to customer-events.dlt
+ * - handler failed, or skipped behind a failed event of the same key -> next retry tier, in poll order
+ *   (the skipped ones land behind the failure they wait for); the rest of the poll commits
+ * - a send failure throws: the whole poll rolls back and is redelivered
+ *
+ * Forgetting the failed events' processed_events rows is EventDedup's part (EventDedup.forget).
+ */
+@Component
+public class EventRerouter {
+
+    private static final Logger log = LoggerFactory.getLogger(EventRerouter.class);
+
+    private final EventRetryRouter retryRouter;
+    private final EventHandlerRegistry handlers;
+    private final OpsMetrics metrics;
+
+    public EventRerouter(EventRetryRouter retryRouter, EventHandlerRegistry handlers, OpsMetrics metrics) {
+        this.retryRouter = retryRouter;
+        this.handlers = handlers;
+        this.metrics = metrics;
+    }
+
+    /** Never gets better however often it is retried; counted as "bad" by the consumer. */
+    void unprocessable(ConsumerRecord<String, byte[]> record, UnprocessableEventException cause) {
+        retryRouter.route(record, cause);
+    }
+
+    /** Re-publishes to the next tier in poll order and counts the "failed" outcomes. */
+    void reroute(List<FailedEvent> failed) {
+        metrics.increment("ops.events.handler.failed", failed.size());
+        failed.forEach(f -> metrics.eventOutcome("failed", handlers.versionTag(f.event().schemaVersion()), 1));
+
+        List<FailedEvent> inPollOrder = failed.stream().sorted(Comparator.comparingInt(f -> f.event().index())).toList();
+        for (FailedEvent f : inPollOrder) {
+            ParsedEvent e = f.event();
+            Exception cause = f.error() instanceof Exception ex ? ex : new IllegalStateException(String.valueOf(f.error()));
+            log.warn("EVENT_HANDLER_FAILED eventId={} key={} topic={} partition={} offset={} skipped={} err={}",
+                    e.eventId(), e.key(), e.record().topic(), e.partition(), e.offset(), f.skipped(), cause.toString());
+            retryRouter.route(e.record(), cause);
+        }
+    }
+}
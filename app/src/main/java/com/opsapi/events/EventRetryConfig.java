@@ -0,0 +1,64 @@
+package com.opsapi.events;
+
+import org.apache.kafka.clients.admin.NewTopic;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.KafkaAdmin;
+import org.springframework.kafka.listener.CommonErrorHandler;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.util.backoff.FixedBackOff;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Last resort for a poll that failed as a whole (e.g. the DB is down: the dedup insert throws).
+ *
+ * Mental model:
+ * - retry the same poll in place a couple of times, briefly (a connection blip shouldn't
+ *   send 500 events on a detour)
+ * - still failing -> every record of the poll goes to its next retry tier, offsets are committed,
+ *   the partition moves on (no event dropped, no partition stalled for minutes)
+ *
+ * Spring Boot applies the single CommonErrorHandler bean to the default listener container factory.
+ *
+ * The retry tiers and the DLT are declared here (KafkaAdmin creates missing ones at startup) instead of
+ * being left to broker auto-create, which production brokers usually have off.
+ */
+@Configuration
+public class EventRetryConfig {
+
+    @Bean
+    public CommonErrorHandler eventsErrorHandler(
+            EventRetryRouter router,
+            @Value("${ops.events.retry.in-memory-attempts:2}") long inMemoryAttempts,
+            @Value("${ops.events.retry.in-memory-backoff-ms:500}") long inMemoryBackoffMs
+    ) {
+        DefaultErrorHandler handler = new DefaultErrorHandler(
+                router.recoverer(), new FixedBackOff(Math.max(0, inMemoryBackoffMs), Math.max(0, inMemoryAttempts)));
+        // a poison record never gets better: route it right away
+        handler.addNotRetryableExceptions(UnprocessableEventException.class);
+        return handler;
+    }
+
+    /** 0 partitions / replicas = the broker's default (num.partitions, default.replication.factor). */
+    @Bean
+    public KafkaAdmin.NewTopics eventRetryTopics(
+            EventRetryRouter router,
+            @Value("${ops.events.retry.topic-partitions:0}") int partitions,
+            @Value("${ops.events.retry.topic-replicas:0}") short replicas
+    ) {
+        List<String> names = new ArrayList<>(router.retryTopics());
+        names.add(EventRetryRouter.deadLetterTopic());
+        List<NewTopic> topics = new ArrayList<>(names.size());
+        for (String name : names) {
+            TopicBuilder topic = TopicBuilder.name(name);
+            if (partitions > 0) topic.partitions(partitions);
+            if (replicas > 0) topic.replicas(replicas);
+            topics.add(topic.build());
+        }
+        return new KafkaAdmin.NewTopics(topics.toArray(NewTopic[]::new));
+    }
+}
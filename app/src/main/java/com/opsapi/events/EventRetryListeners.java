@@ -0,0 +1,136 @@
+package com.opsapi.events;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.listener.AcknowledgingMessageListener;
+import org.springframework.kafka.listener.CommonErrorHandler;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Consumers of the retry tiers (customer-events.retry-1..N).
+ *
+ * Mental model:
+ * - one listener container per tier: every record of a tier has the same delay, so the head of
+ *   the partition is always the next one due -> "not due yet" = pause just this tier until it is
+ *   (Acknowledgment.nack(sleep): the partition is paused + re-fetched, the consumer keeps polling)
+ * - due -> the normal record path (CustomerEventsConsumer.onMessage: dedup, handler, routing);
+ *   failing again moves it one tier further, after the last tier it lands in the DLT
+ * - a tier never blocks another tier or the main topic: each tier consumes in its own group
+ *   (<group-id>-retry-<n>), so its joins and leaves never rebalance the main group
+ */
+@Component
+public class EventRetryListeners implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(EventRetryListeners.class);
+
+    private final ConsumerFactory<String, byte[]> consumerFactory;
+    private final CommonErrorHandler errorHandler;
+    private final EventRetryRouter router;
+    private final CustomerEventsConsumer consumer;
+    private final EventDedup dedup;
+    private final boolean enabled;
+    private final String groupId;
+
+    private final List<ConcurrentMessageListenerContainer<String, byte[]>> containers = new ArrayList<>();
+
+    public EventRetryListeners(ConsumerFactory<String, byte[]> consumerFactory,
+                               CommonErrorHandler errorHandler,
+                               EventRetryRouter router,
+                               CustomerEventsConsumer consumer,
+                               EventDedup dedup,
+                               @Value("${ops.events.retry.enabled:true}") boolean enabled,
+                               @Value("${spring.kafka.consumer.group-id:ops-api}") String groupId) {
+        this.consumerFactory = consumerFactory;
+        this.errorHandler = errorHandler;
+        this.router = router;
+        this.consumer = consumer;
+        this.dedup = dedup;
+        this.enabled = enabled;
+        this.groupId = groupId;
+    }
+
+    @Override
+    public synchronized void start() {
+        if (!enabled || !containers.isEmpty()) return;
+        List<String> topics = router.retryTopics();
+        for (int tier = 1; tier <= topics.size(); tier++) {
+            String topic = topics.get(tier - 1);
+            ContainerProperties props = new ContainerProperties(topic);
+            // a group of its own per tier: a tier container starting, stopping or pausing for a long nack
+            // must not rebalance the main customer-events group (or the other tiers)
+            props.setGroupId(tierGroupId(groupId, tier));
+            props.setAckMode(ContainerProperties.AckMode.MANUAL_IMMEDIATE);
+            props.setConsumerRebalanceListener(new ConsumerAwareRebalanceListener() {
+                @Override
+                public void onPartitionsAssigned(Consumer<?, ?> kafkaConsumer, Collection<TopicPartition> partitions) {
+                    // offset-watermark dedup: continue from the offsets stored with the DB writes
+                    Map<TopicPartition, Long> current = new HashMap<>();
+                    partitions.forEach(tp -> current.put(tp, kafkaConsumer.position(tp)));
+                    dedup.storedOffsetsAhead(current).forEach(kafkaConsumer::seek);
+                }
+            });
+            props.setMessageListener((AcknowledgingMessageListener<String, byte[]>) (record, ack) -> {
+                long waitMs = EventRetryRouter.dueAtOf(record) - System.currentTimeMillis();
+                if (waitMs > 0) {
+                    // re-seek to this record and pause the tier until it is due
+                    ack.nack(Duration.ofMillis(waitMs));
+                    return;
+                }
+                onDue(record);
+                ack.acknowledge();
+            });
+
+            ConcurrentMessageListenerContainer<String, byte[]> container =
+                    new ConcurrentMessageListenerContainer<>(consumerFactory, props);
+            container.setBeanName("customer-events-" + topic.substring(topic.lastIndexOf('.') + 1));
+            container.setCommonErrorHandler(errorHandler);
+            container.start();
+            containers.add(container);
+        }
+        log.info("EVENT_RETRY_LISTENERS_STARTED tiers={}", containers.size());
+    }
+
+    static String tierGroupId(String groupId, int tier) {
+        return groupId + "-retry-" + tier;
+    }
+
+    private void onDue(ConsumerRecord<String, byte[]> record) {
+        log.debug("EVENT_RETRY_DUE topic={} partition={} offset={} attempt={}",
+                record.topic(), record.partition(), record.offset(), EventRetryRouter.attemptOf(record));
+        // a whole-record failure (DB down) throws -> container error handler -> next tier
+        consumer.onMessage(record);
+    }
+
+    @Override
+    public synchronized void stop() {
+        containers.forEach(ConcurrentMessageListenerContainer::stop);
+        containers.clear();
+    }
+
+    @Override
+    public synchronized boolean isRunning() {
+        return !containers.isEmpty();
+    }
+
+    @Override
+    public int getPhase() {
+        // same phase as the @KafkaListener containers (start after the dedup cache warmed up)
+        return Integer.MAX_VALUE - 100;
+    }
+}
@@ -0,0 +1,163 @@
+package com.opsapi.events;
+
+import com.opsapi.common.OpsMetrics;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.DeadLetterPublishingRecoverer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Where a customer-events record goes when it could not be processed.
+ *
+ * Mental model:
+ * - tiers: customer-events -> .retry-1 -> .retry-2 -> ... -> .dlt, each tier with its own delay
+ *   (ops.events.retry.delays-ms); the record is re-published as-is (same key, value, headers)
+ * - the main partition never waits: the failed record leaves, its offset is committed,
+ *   and the tier's consumer holds it back until ops-retry-due-at (EventRetryListeners)
+ * - poison (UnprocessableEventException: can't be parsed) skips the tiers, straight to the DLT
+ * - Spring's DeadLetterPublishingRecoverer does the publishing + adds kafka_dlt-* headers
+ *   (original topic/partition/offset, exception class + message); we add attempt + due time
+ *
+ * Ordering: a retried event can be overtaken by later events of the same customer.
+ * Retried events of one key stay in order among themselves (same key -> same retry partition).
+ */
+@Component
+public class EventRetryRouter {
+
+    private static final Logger log = LoggerFactory.getLogger(EventRetryRouter.class);
+
+    public static final String MAIN_TOPIC = "customer-events";
+
+    /** How many tiers this record has been through already (absent = 0, fresh from the main topic). */
+    public static final String HEADER_ATTEMPT = "ops-retry-attempt";
+    /** Epoch millis before which the tier's consumer must not process the record. */
+    public static final String HEADER_DUE_AT = "ops-retry-due-at";
+
+    private final long[] delaysMs;
+    private final DeadLetterPublishingRecoverer recoverer;
+    private final OpsMetrics metrics;
+
+    public EventRetryRouter(
+            KafkaTemplate<String, byte[]> kafkaTemplate,
+            OpsMetrics metrics,
+            @Value("${ops.events.retry.delays-ms:1000,10000,60000,300000}") long[] delaysMs
+    ) {
+        this.metrics = metrics;
+        this.delaysMs = Arrays.stream(delaysMs).map(d -> Math.max(0, d)).toArray();
+
+        this.recoverer = new DeadLetterPublishingRecoverer(kafkaTemplate, this::destination);
+        // keep the FIRST original-topic/offset headers across hops (= where the event really came from)
+        this.recoverer.setAppendOriginalHeaders(false);
+        this.recoverer.addHeadersFunction(this::retryHeaders);
+    }
+
+    /** Same recoverer for the listeners (per-event failures) and the container error handler (whole polls). */
+    public DeadLetterPublishingRecoverer recoverer() {
+        return recoverer;
+    }
+
+    /**
+     * Re-publish the record to its next tier (or the DLT) and wait for the broker ack.
+     * Throws if the send fails -> the caller's poll fails and is redelivered, nothing is lost.
+     */
+    public void route(ConsumerRecord<?, ?> record, Exception cause) {
+        recoverer.accept(record, null, cause);
+    }
+
+    public int tiers() {
+        return delaysMs.length;
+    }
+
+    public static String retryTopic(int tier) {
+        return MAIN_TOPIC + ".retry-" + tier;
+    }
+
+    public static String deadLetterTopic() {
+        return MAIN_TOPIC + ".dlt";
+    }
+
+    public List<String> retryTopics() {
+        List<String> topics = new ArrayList<>(delaysMs.length);
+        for (int tier = 1; tier <= delaysMs.length; tier++) {
+            topics.add(retryTopic(tier));
+        }
+        return topics;
+    }
+
+    public static int attemptOf(ConsumerRecord<?, ?> record) {
+        long v = longHeader(record.headers(), HEADER_ATTEMPT);
+        return v < 0 ? 0 : (int) v;
+    }
+
+    /** @return epoch millis, or -1 if the record carries no due time (process right away) */
+    public static long dueAtOf(ConsumerRecord<?, ?> record) {
+        return longHeader(record.headers(), HEADER_DUE_AT);
+    }
+
+    private TopicPartition destination(ConsumerRecord<?, ?> record, Exception cause) {
+        int next = attemptOf(record) + 1;
+        boolean poison = isPoison(cause);
+        String topic = poison || next > delaysMs.length ? deadLetterTopic() : retryTopic(next);
+        Throwable reason = rootCause(cause);
+
+        if (topic.equals(deadLetterTopic())) {
+            log.warn("EVENT_DEAD_LETTERED key={} from={}-{}@{} attempts={} poison={} err={}",
+                    record.key(), record.topic(), record.partition(), record.offset(), next - 1, poison, reason.toString());
+            metrics.count("ops.events.dead_lettered", "poison", String.valueOf(poison));
+        } else {
+            log.info("EVENT_RETRY_SCHEDULED key={} from={}-{}@{} tier={} delay_ms={} err={}",
+                    record.key(), record.topic(), record.partition(), record.offset(), next, delaysMs[next - 1], reason.toString());
+            metrics.count("ops.events.retry.scheduled", "tier", String.valueOf(next));
+        }
+        // -1 = let the key pick the partition (tiers don't need the main topic's partition count)
+        return new TopicPartition(topic, -1);
+    }
+
+    private Headers retryHeaders(ConsumerRecord<?, ?> record, Exception cause) {
+        int next = attemptOf(record) + 1;
+        Headers headers = new RecordHeaders();
+        headers.add(HEADER_ATTEMPT, String.valueOf(next).getBytes(StandardCharsets.UTF_8));
+        if (!isPoison(cause) && next <= delaysMs.length) {
+            long dueAt = System.currentTimeMillis() + delaysMs[next - 1];
+            headers.add(HEADER_DUE_AT, String.valueOf(dueAt).getBytes(StandardCharsets.UTF_8));
+        }
+        return headers;
+    }
+
+    private static boolean isPoison(Throwable t) {
+        for (Throwable c = t; c != null; c = c.getCause()) {
+            if (c instanceof UnprocessableEventException) return true;
+        }
+        return false;
+    }
+
+    private static Throwable rootCause(Throwable t) {
+        Throwable c = t;
+        // listener exceptions wrap the real one; the innermost says what actually broke
+        while (c.getCause() != null && c.getCause() != c) c = c.getCause();
+        return c;
+    }
+
+    private static long longHeader(Headers headers, String name) {
+        // the newest value wins: every hop appends its own attempt/due headers
+        Header h = headers.lastHeader(name);
+        if (h == null || h.value() == null) return -1;
+        try {
+            return Long.parseLong(new String(h.value(), StandardCharsets.UTF_8).trim());
+        } catch (NumberFormatException bad) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,4 @@
+package com.opsapi.events;
+
+/** skipped -> not run because an earlier event of the same key failed (error = that failure). */
+record FailedEvent(ParsedEvent event, Throwable error, boolean skipped) {}
@@ -0,0 +1,28 @@
+package com.opsapi.events;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Plain UTF-8 JSON: what every row looked like before CustomerEventBinaryCodec, and what a record
+ * without an ops-codec header is.
+ */
+@Component
+public class JsonPayloadCodec implements PayloadCodec {
+
+    public static final String ID = "json";
+
+    @Override
+    public String id() {
+        return ID;
+    }
+
+    @Override
+    public byte[] encode(byte[] json) {
+        return json;
+    }
+
+    @Override
+    public byte[] decode(byte[] payload) {
+        return payload;
+    }
+}
@@ -0,0 +1,185 @@
+package com.opsapi.events;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Runs one poll's events concurrently while keeping per-key order.
+ *
+ * Mental model:
+ * - group the items by key (= Kafka record key = customerId), keeping poll order inside a group
+ * - one virtual thread per group: items of a key run strictly one after another,
+ *   different keys overlap (a slow handler only delays its own customer)
+ * - a failure stops its group: later items of that key are NOT run (they'd overtake the failed one)
+ * - at most max-concurrency handlers run at once, across all runs: each one holds a pool connection
+ *   (its own transaction), and the listener's transaction holds another -> kept below the pool size
+ * - timeout: items that haven't started are not started anymore; run() then waits up to graceMs for
+ *   the ones already running (their DB work is bounded by the handler transaction's timeout)
+ * - still running after the grace: interrupted and reported failed ("abandoned"); run() returns anyway,
+ *   so the listener thread is back within timeoutMs + graceMs (keep that below max.poll.interval.ms).
+ *   An abandoned handler that still commits later is harmless with event rows: the rerouted copy finds
+ *   its processed_events row and is a duplicate. Its permit is only freed when it really ends.
+ */
+@Component
+public class KeyOrderedDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(KeyOrderedDispatcher.class);
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore permits;
+    private final int maxConcurrency;
+
+    public KeyOrderedDispatcher(
+            @Value("${ops.events.consumer.max-concurrency:4}") int maxConcurrency,
+            @Value("${spring.datasource.hikari.maximum-pool-size:10}") int poolSize
+    ) {
+        // the listener's transaction + at least one connection left for everything else (HTTP, relay, ...)
+        int limit = Math.max(1, poolSize - 2);
+        if (maxConcurrency > limit) {
+            log.warn("EVENT_CONCURRENCY_CAPPED configured={} pool_size={} using={}", maxConcurrency, poolSize, limit);
+        }
+        this.maxConcurrency = Math.max(1, Math.min(maxConcurrency, limit));
+        this.permits = new Semaphore(this.maxConcurrency);
+    }
+
+    /**
+     * @return one outcome per item, same order as {@code items}; final: a handler still running past
+     *         timeoutMs + graceMs was interrupted and counts as failed, whatever it does afterwards
+     */
+    public <T> List<Outcome> run(List<T> items, Function<T, String> keyOf, Consumer<T> handler,
+                                 long timeoutMs, long graceMs) {
+        AtomicReferenceArray<Outcome> outcomes = new AtomicReferenceArray<>(items.size());
+        long deadlineNs = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        TimeoutException timedOut = new TimeoutException("handler did not start within " + timeoutMs + "ms");
+        Set<Thread> inHandler = ConcurrentHashMap.newKeySet();
+
+        Map<String, List<Integer>> groups = new LinkedHashMap<>();
+        for (int i = 0; i < items.size(); i++) {
+            groups.computeIfAbsent(keyOf.apply(items.get(i)), k -> new ArrayList<>()).add(i);
+        }
+
+        List<CompletableFuture<Void>> running = new ArrayList<>(groups.size());
+        for (List<Integer> group : groups.values()) {
+            running.add(CompletableFuture.runAsync(() -> {
+                Throwable failed = null;
+                for (int i : group) {
+                    if (failed != null) {
+                        outcomes.compareAndSet(i, null, Outcome.skipped(failed));
+                        continue;
+                    }
+                    if (!acquire(deadlineNs)) {
+                        failed = timedOut;
+                        outcomes.compareAndSet(i, null, Outcome.failed(timedOut));
+                        continue;
+                    }
+                    inHandler.add(Thread.currentThread());
+                    try {
+                        handler.accept(items.get(i));
+                        outcomes.compareAndSet(i, null, Outcome.OK);
+                    } catch (Exception ex) {
+                        failed = ex;
+                        outcomes.compareAndSet(i, null, Outcome.failed(ex));
+                    } finally {
+                        inHandler.remove(Thread.currentThread());
+                        permits.release();
+                    }
+                }
+            }, executor));
+        }
+
+        // completes normally even if a group died (Error): its missing outcomes are filled in below
+        CompletableFuture<Void> all = CompletableFuture.allOf(running.toArray(CompletableFuture[]::new))
+                .handle((r, ex) -> null);
+        boolean finished = await(all, timeoutMs);
+        if (!finished) {
+            // groups stop at their next item (acquire() sees the deadline); give the handlers still running
+            // the grace, then stop waiting for them
+            log.warn("EVENT_HANDLERS_TIMED_OUT timeout_ms={} grace_ms={} items={} (waiting for running handlers)",
+                    timeoutMs, graceMs, items.size());
+            finished = await(all, graceMs);
+        }
+        if (!finished) {
+            TimeoutException abandoned = new TimeoutException(
+                    "handler still running " + graceMs + "ms after the " + timeoutMs + "ms deadline (abandoned)");
+            log.warn("EVENT_HANDLERS_ABANDONED running={} grace_ms={}", inHandler.size(), graceMs);
+            inHandler.forEach(Thread::interrupt);
+            // claimed here, so a late finish can't turn them into OK behind the caller's back
+            for (int i = 0; i < outcomes.length(); i++) outcomes.compareAndSet(i, null, Outcome.failed(abandoned));
+        }
+
+        List<Outcome> result = new ArrayList<>(outcomes.length());
+        for (int i = 0; i < outcomes.length(); i++) {
+            Outcome o = outcomes.get(i);
+            result.add(o != null ? o : Outcome.failed(new IllegalStateException("handler group died")));
+        }
+        return result;
+    }
+
+    /** @return true if {@code all} completed within {@code ms} */
+    private static boolean await(CompletableFuture<Void> all, long ms) {
+        try {
+            all.get(Math.max(0, ms), TimeUnit.MILLISECONDS);
+            return true;
+        } catch (TimeoutException ex) {
+            return false;
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            return all.isDone();
+        } catch (ExecutionException ignored) {
+            return true; // never: see handle() above
+        }
+    }
+
+    private boolean acquire(long deadlineNs) {
+        // past the deadline nothing new starts, even with a permit free
+        if (System.nanoTime() - deadlineNs >= 0) return false;
+        try {
+            return permits.tryAcquire(Math.max(0, deadlineNs - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /** error == null -> handled. */
+    public record Outcome(Throwable error, boolean skipped) {
+        static final Outcome OK = new Outcome(null, false);
+
+        static Outcome failed(Throwable error) {
+            return new Outcome(error, false);
+        }
+
+        static Outcome skipped(Throwable causeOfGroup) {
+            return new Outcome(causeOfGroup, true);
+        }
+
+        public boolean ok() {
+            return error == null;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.opsapi.events;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+
+/** A consumed record that parsed into an envelope; index = its position in the poll. */
+record ParsedEvent(EventEnvelope envelope, ConsumerRecord<String, byte[]> record, int index) {
+    String key() { return record.key(); }
+    int partition() { return record.partition(); }
+    long offset() { return record.offset(); }
+    String eventId() { return envelope.eventId(); }
+    String type() { return envelope.type(); }
+    String corr() { return envelope.correlationId(); }
+    int schemaVersion() { return envelope.schemaVersion(); }
+}
@@ -0,0 +1,20 @@
+package com.opsapi.events;
+
+/**
+ * How an event's JSON is turned into the bytes we store (outbox_events.payload) and ship (Kafka value).
+ *
+ * Mental model:
+ * - the publisher always builds JSON; the codec only decides the wire/storage form
+ * - the codec is not part of the schema: each outbox row records its own (outbox_events.codec),
+ *   so rows keep relaying as they were stored whatever the publisher writes today
+ * - the id travels in the ops-codec Kafka header -> consumers never have to sniff bytes
+ */
+public interface PayloadCodec {
+
+    /** Header value, e.g. "json". Never change it once records are out there. */
+    String id();
+
+    byte[] encode(byte[] json);
+
+    byte[] decode(byte[] payload);
+}
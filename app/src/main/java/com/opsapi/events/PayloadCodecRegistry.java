@@ -0,0 +1,52 @@
+package com.opsapi.events;
+
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Picks the payload codec by id.
+ *
+ * - outbox side: the row's codec column (the relay copies it into the ops-codec header)
+ * - consumer side: by the ops-codec header (no header = a record from before codecs = JSON)
+ *
+ * New codec = new PayloadCodec bean; the schemaVersion stays what it is (handlers bind fields, not bytes).
+ */
+@Component
+public class PayloadCodecRegistry {
+
+    public static final String HEADER_CODEC = "ops-codec";
+    public static final String HEADER_SCHEMA_VERSION = "ops-schema-version";
+
+    private final Map<String, PayloadCodec> byId = new HashMap<>();
+    private final PayloadCodec json;
+
+    public PayloadCodecRegistry(List<PayloadCodec> codecs) {
+        for (PayloadCodec c : codecs) {
+            if (byId.put(c.id(), c) != null) {
+                throw new IllegalStateException("duplicate payload codec id: " + c.id());
+            }
+        }
+        this.json = byId.get(JsonPayloadCodec.ID);
+        if (json == null) throw new IllegalStateException("json payload codec missing");
+    }
+
+    /** Codec with this id (outbox_events.codec). */
+    public PayloadCodec forId(String id) {
+        PayloadCodec c = byId.get(id);
+        if (c == null) throw new IllegalArgumentException("unknown payload codec: " + id);
+        return c;
+    }
+
+    /** Codec named by the record's ops-codec header. */
+    public PayloadCodec forHeaders(Headers headers) {
+        Header h = headers.lastHeader(HEADER_CODEC);
+        if (h == null) return json;
+        return forId(new String(h.value(), StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,88 @@
+package com.opsapi.events;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Array;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Set-based idempotency check for consumed events.
+ *
+ * Mental model:
+ * - old way: save() per event, a duplicate = PK violation -> exception + rollback of that record
+ * - here: ONE insert for the whole poll; ON CONFLICT DO NOTHING skips ids we already have
+ *   and RETURNING tells us which ids were new -> only those get processed
+ *
+ * Uses the caller's transaction: if processing fails, the inserted ids roll back with it.
+ */
+@Repository
+public class ProcessedEventWriter {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ProcessedEventWriter(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /** @return the event ids that were NOT seen before (duplicates within the list count once) */
+    public Set<String> insertNew(List<Row> rows) {
+        if (rows.isEmpty()) return Set.of();
+
+        String[] ids = new String[rows.size()];
+        String[] types = new String[rows.size()];
+        String[] corrs = new String[rows.size()];
+        for (int i = 0; i < rows.size(); i++) {
+            Row r = rows.get(i);
+            ids[i] = r.eventId();
+            types[i] = r.eventType();
+            corrs[i] = r.correlationId();
+        }
+
+        Set<String> inserted = new HashSet<>(rows.size() * 2);
+        jdbcTemplate.query("""
+                INSERT INTO processed_events (event_id, event_type, correlation_id)
+                SELECT * FROM unnest(?::varchar[], ?::varchar[], ?::varchar[])
+                ON CONFLICT (event_id) DO NOTHING
+                RETURNING event_id
+                """,
+                ps -> {
+                    Array idArray = ps.getConnection().createArrayOf("varchar", ids);
+                    Array typeArray = ps.getConnection().createArrayOf("varchar", types);
+                    Array corrArray = ps.getConnection().createArrayOf("varchar", corrs);
+                    ps.setArray(1, idArray);
+                    ps.setArray(2, typeArray);
+                    ps.setArray(3, corrArray);
+                },
+                rs -> {
+                    inserted.add(rs.getString(1));
+                });
+        return inserted;
+    }
+
+    /** Which of these ids are already recorded (read-only check, used to verify cache hits). */
+    public Set<String> findExisting(Collection<String> eventIds) {
+        if (eventIds.isEmpty()) return Set.of();
+        Set<String> existing = new HashSet<>(eventIds.size() * 2);
+        jdbcTemplate.query(
+                "SELECT event_id FROM processed_events WHERE event_id = ANY(?)",
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("varchar", eventIds.toArray())),
+                rs -> {
+                    existing.add(rs.getString(1));
+                });
+        return existing;
+    }
+
+    /** Forget ids again (events that were claimed in this transaction but not handled). */
+    public int delete(Collection<String> eventIds) {
+        if (eventIds.isEmpty()) return 0;
+        return jdbcTemplate.update(
+                "DELETE FROM processed_events WHERE event_id = ANY(?)",
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("varchar", eventIds.toArray())));
+    }
+
+    public record Row(String eventId, String eventType, String correlationId) {}
+}
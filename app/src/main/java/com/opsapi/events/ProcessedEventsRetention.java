@@ -0,0 +1,99 @@
+package com.opsapi.events;
+
+import com.opsapi.common.OpsMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Deletes processed_events rows older than the topic retention.
+ *
+ * Mental model:
+ * - a dedup row only matters while Kafka can still redeliver that event
+ *   -> keep it for (at least) the topic's retention.ms, then it's dead weight
+ * - delete in small chunks, each its own short transaction (autocommit):
+ *   row locks on chunk-size rows for milliseconds, never a table-wide lock
+ * - chunks are picked via idx_processed_events_processed_at, FOR UPDATE SKIP LOCKED
+ *   -> several nodes can run this at once without waiting on each other
+ *
+ * Not partitioned on purpose: event_id must stay unique across ALL rows for ON CONFLICT dedup,
+ * and a partitioned table's unique key would have to include processed_at.
+ */
+@Component
+public class ProcessedEventsRetention {
+
+    private static final Logger log = LoggerFactory.getLogger(ProcessedEventsRetention.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final OpsMetrics metrics;
+    private final boolean enabled;
+    private final Duration retention;
+    private final int chunkSize;
+    private final long pauseMs;
+
+    public ProcessedEventsRetention(
+            JdbcTemplate jdbcTemplate,
+            OpsMetrics metrics,
+            @Value("${ops.events.processed.retention.enabled:true}") boolean enabled,
+            @Value("${ops.events.processed.retention.days:7}") int retentionDays,
+            @Value("${ops.events.processed.retention.chunk-size:5000}") int chunkSize,
+            @Value("${ops.events.processed.retention.pause-ms:50}") long pauseMs
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.metrics = metrics;
+        this.enabled = enabled;
+        this.retention = Duration.ofDays(Math.max(1, retentionDays));
+        this.chunkSize = Math.max(1, chunkSize);
+        this.pauseMs = Math.max(0, pauseMs);
+    }
+
+    @Scheduled(
+            initialDelayString = "${ops.events.processed.retention.initial-delay-ms:60000}",
+            fixedDelayString = "${ops.events.processed.retention.delay-ms:600000}"
+    )
+    public void prune() {
+        if (!enabled) return;
+        long startNs = System.nanoTime();
+        Timestamp cutoff = Timestamp.from(Instant.now().minus(retention));
+        long total = 0;
+        int chunks = 0;
+
+        try {
+            while (true) {
+                int deleted = jdbcTemplate.update("""
+                        DELETE FROM processed_events
+                        WHERE ctid = ANY(ARRAY(
+                            SELECT ctid FROM processed_events
+                            WHERE processed_at < ?
+                            ORDER BY processed_at
+                            LIMIT ?
+                            FOR UPDATE SKIP LOCKED
+                        ))
+                        """, cutoff, chunkSize);
+                total += deleted;
+                chunks++;
+                if (deleted < chunkSize) break;
+                // give autovacuum / the consumer some air between chunks
+                if (pauseMs > 0) Thread.sleep(pauseMs);
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        } catch (Exception ex) {
+            // do NOT throw -> next run continues where this one stopped
+            log.warn("PROCESSED_EVENTS_PRUNE_FAILED deleted={} err={}", total, ex.toString());
+        }
+
+        metrics.increment("ops.events.processed.pruned", total);
+        if (total > 0) {
+            log.info("PROCESSED_EVENTS_PRUNED deleted={} chunks={} cutoff={} latency_ms={}",
+                    total, chunks, cutoff.toInstant(), (System.nanoTime() - startNs) / 1_000_000);
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.opsapi.events;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Recently processed eventIds, kept in memory so redeliveries never reach processed_events.
+ *
+ * Mental model:
+ * - eventIds are UUIDs -> stored as two longs (msb/lsb) in open-addressing long[] tables,
+ *   no String/UUID objects retained (~32 bytes per id incl. free slots)
+ * - exact, not a Bloom filter: a hit is a real duplicate, so skipping it can never lose an event
+ * - two generations (current + previous): current rotates out when full or older than window-ms,
+ *   so memory is bounded and "recent" means roughly the last 1-2 windows
+ * - ids are only added AFTER the DB transaction committed (a rolled-back batch must be re-processed)
+ * - warmed from processed_events on startup (before the Kafka listeners start)
+ *
+ * Non-UUID ids are simply never cached (they always take the DB path).
+ */
+@Component
+public class RecentEventIdCache implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(RecentEventIdCache.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final int capacity;
+    private final long windowMs;
+
+    private Generation current;
+    private Generation previous;
+    private volatile boolean running;
+
+    public RecentEventIdCache(
+            JdbcTemplate jdbcTemplate,
+            @Value("${ops.events.dedup-cache.enabled:true}") boolean enabled,
+            @Value("${ops.events.dedup-cache.capacity:100000}") int capacity,
+            @Value("${ops.events.dedup-cache.window-ms:600000}") long windowMs
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.capacity = Math.max(16, capacity);
+        this.windowMs = Math.max(1000, windowMs);
+        this.current = new Generation(this.capacity);
+        this.previous = new Generation(this.capacity);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public synchronized boolean contains(String eventId) {
+        if (!enabled) return false;
+        UUID id = parse(eventId);
+        if (id == null) return false;
+        long msb = id.getMostSignificantBits();
+        long lsb = id.getLeastSignificantBits();
+        return current.contains(msb, lsb) || previous.contains(msb, lsb);
+    }
+
+    /** Remember these ids once the surrounding transaction commits (right away if there is none). */
+    public void addAfterCommit(Collection<String> eventIds) {
+        if (!enabled || eventIds.isEmpty()) return;
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            addAll(eventIds);
+            return;
+        }
+        List<String> ids = List.copyOf(eventIds);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                addAll(ids);
+            }
+        });
+    }
+
+    synchronized void addAll(Collection<String> eventIds) {
+        for (String eventId : eventIds) {
+            UUID id = parse(eventId);
+            if (id == null) continue;
+            long msb = id.getMostSignificantBits();
+            long lsb = id.getLeastSignificantBits();
+            if (previous.contains(msb, lsb)) continue;
+            rotateIfNeeded();
+            current.add(msb, lsb);
+        }
+    }
+
+    private void rotateIfNeeded() {
+        if (current.size < capacity && System.currentTimeMillis() - current.startedAtMs < windowMs) return;
+        Generation recycled = previous;
+        previous = current;
+        recycled.clear();
+        current = recycled;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        if (!enabled) return;
+        long startNs = System.nanoTime();
+        try {
+            String[] batch = new String[1024];
+            int[] n = {0};
+            int[] total = {0};
+            // newest first, at most one generation's worth (idx_processed_events_processed_at)
+            jdbcTemplate.query("""
+                    SELECT event_id FROM processed_events
+                    WHERE processed_at > now() - ? * interval '1 millisecond'
+                    ORDER BY processed_at DESC
+                    LIMIT ?
+                    """,
+                    ps -> {
+                        ps.setLong(1, windowMs);
+                        ps.setInt(2, capacity);
+                        ps.setFetchSize(batch.length);
+                    },
+                    rs -> {
+                        batch[n[0]++] = rs.getString(1);
+                        if (n[0] == batch.length) {
+                            addAll(Arrays.asList(batch));
+                            total[0] += n[0];
+                            n[0] = 0;
+                        }
+                    });
+            addAll(Arrays.asList(batch).subList(0, n[0]));
+            total[0] += n[0];
+            log.info("EVENT_DEDUP_CACHE_WARMED ids={} latency_ms={}", total[0], (System.nanoTime() - startNs) / 1_000_000);
+        } catch (Exception ex) {
+            // cold cache = every event takes the DB path, still correct
+            log.warn("EVENT_DEDUP_CACHE_WARM_FAILED err={}", ex.toString());
+        }
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        // before the Kafka listener containers start consuming
+        return 0;
+    }
+
+    private static UUID parse(String eventId) {
+        if (eventId == null || eventId.length() != 36) return null;
+        try {
+            return UUID.fromString(eventId);
+        } catch (IllegalArgumentException notAUuid) {
+            return null;
+        }
+    }
+
+    /** One open-addressing (linear probing) hash set of 128-bit keys; (0,0) marks a free slot. */
+    private static final class Generation {
+        private final long[] msbs;
+        private final long[] lsbs;
+        private final int mask;
+        private int size;
+        private long startedAtMs = System.currentTimeMillis();
+
+        private Generation(int capacity) {
+            // load factor <= 0.5 keeps probe chains short
+            int slots = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1) << 1;
+            this.msbs = new long[slots];
+            this.lsbs = new long[slots];
+            this.mask = slots - 1;
+        }
+
+        private boolean contains(long msb, long lsb) {
+            if ((msb | lsb) == 0) return false;
+            for (int i = slot(msb, lsb); ; i = (i + 1) & mask) {
+                if (msbs[i] == msb && lsbs[i] == lsb) return true;
+                if ((msbs[i] | lsbs[i]) == 0) return false;
+            }
+        }
+
+        private void add(long msb, long lsb) {
+            if ((msb | lsb) == 0) return;
+            for (int i = slot(msb, lsb); ; i = (i + 1) & mask) {
+                if (msbs[i] == msb && lsbs[i] == lsb) return;
+                if ((msbs[i] | lsbs[i]) == 0) {
+                    msbs[i] = msb;
+                    lsbs[i] = lsb;
+                    size++;
+                    return;
+                }
+            }
+        }
+
+        private int slot(long msb, long lsb) {
+            long h = (msb ^ lsb) * 0x9E3779B97F4A7C15L;
+            return (int) (h >>> 32) & mask;
+        }
+
+        private void clear() {
+            Arrays.fill(msbs, 0L);
+            Arrays.fill(lsbs, 0L);
+            size = 0;
+            startedAtMs = System.currentTimeMillis();
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.opsapi.events;
+
+import org.springframework.jdbc.datasource.DataSourceUtils;
+
+import javax.sql.DataSource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * ops.events.consumer.processing=serial (and the record listener): one event after another, all in the
+ * poll's transaction. Each handler runs under a JDBC savepoint on the poll's connection (the JPA
+ * transaction manager can't nest): a failing handler's writes are undone, the poll's transaction carries on.
+ */
+class SerialEventProcessor implements EventProcessor {
+
+    private final DataSource dataSource;
+
+    SerialEventProcessor(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    @Override
+    public List<FailedEvent> process(List<ParsedEvent> events, Consumer<ParsedEvent> handler,
+                                     Set<ParsedEvent> recordedMeanwhile) {
+        List<FailedEvent> failed = new ArrayList<>();
+        Map<String, Exception> failedKeys = new HashMap<>();
+        for (ParsedEvent e : events) {
+            Exception earlier = failedKeys.get(e.key());
+            if (earlier != null) {
+                // keep per-key order: it follows the failed one to the retry tier
+                failed.add(new FailedEvent(e, earlier, true));
+                continue;
+            }
+            try {
+                handleUnderSavepoint(e, handler);
+            } catch (Exception ex) {
+                failed.add(new FailedEvent(e, ex, false));
+                failedKeys.put(e.key(), ex);
+            }
+        }
+        return failed;
+    }
+
+    @Override
+    public boolean rowsPerHandler() {
+        return false;
+    }
+
+    private void handleUnderSavepoint(ParsedEvent e, Consumer<ParsedEvent> handler) throws SQLException {
+        Connection con = DataSourceUtils.getConnection(dataSource);
+        Savepoint sp = con.setSavepoint();
+        try {
+            handler.accept(e);
+        } catch (RuntimeException ex) {
+            con.rollback(sp);
+            throw ex;
+        }
+        con.releaseSavepoint(sp);
+    }
+}
@@ -0,0 +1,16 @@
+package com.opsapi.events;
+
+/**
+ * A record that can never be processed, no matter how often it is retried
+ * (undecodable payload, missing eventId, missing or malformed ts). EventRetryRouter sends it straight to the DLT.
+ */
+public class UnprocessableEventException extends RuntimeException {
+
+    public UnprocessableEventException(String message) {
+        super(message);
+    }
+
+    public UnprocessableEventException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,8 @@
+package com.opsapi.export;
+
+/** A database error after the response started: the connection is broken off (see ApiExceptionHandler). */
+public class ExportAbortedException extends RuntimeException {
+    public ExportAbortedException(String dataset, long rows, Throwable cause) {
+        super("export of " + dataset + " aborted after " + rows + " rows", cause);
+    }
+}
@@ -0,0 +1,58 @@
+package com.opsapi.export;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.time.Instant;
+
+/**
+ * Full / incremental dataset exports as NDJSON.
+ *
+ * Examples:
+ *  - GET /export/customers                                   -> every customer, one JSON object per line
+ *  - GET /export/tasks?since=2026-10-01T00:00:00Z            -> tasks changed at/after since
+ *  - GET /export/notes?gzip=true  (curl --compressed ...)    -> Content-Encoding: gzip
+ */
+@RestController
+@RequestMapping("/export")
+public class ExportController {
+
+    private final NdjsonExporter exporter;
+
+    public ExportController(NdjsonExporter exporter) {
+        this.exporter = exporter;
+    }
+
+    @GetMapping("/{dataset}")
+    public ResponseEntity<StreamingResponseBody> export(
+            @PathVariable String dataset,
+            @RequestParam(required = false) String since,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            HttpServletRequest request
+    ) {
+        NdjsonExporter.Dataset d = NdjsonExporter.Dataset.of(dataset);
+        Instant from = instant(since);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + d.id() + ".ndjson\"");
+        if (gzip) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(exporter.stream(d, from, gzip, WebAsyncUtils.getAsyncManager(request)));
+    }
+
+    private static Instant instant(String value) {
+        if (value == null || value.isBlank()) return null;
+        try {
+            return Instant.parse(value.trim());
+        } catch (RuntimeException ex) {
+            throw new IllegalArgumentException("since must be an ISO-8601 instant, e.g. 2026-10-01T00:00:00Z");
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.opsapi.export;
+
+public class ExportLimitReachedException extends RuntimeException {
+    public ExportLimitReachedException(int maxConcurrent) {
+        super("At most " + maxConcurrent + " exports run at once on this node; retry later");
+    }
+}
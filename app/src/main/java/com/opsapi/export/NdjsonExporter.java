@@ -0,0 +1,310 @@
+package com.opsapi.export;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.opsapi.common.OpsMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncManager;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * NDJSON exports of customers / tasks / notes (GET /export/{dataset}), one JSON object per line.
+ *
+ * Mental model:
+ * - ONE query per export, read through a server-side cursor (autocommit off + fetchSize):
+ *   the driver holds fetch-size rows at a time, each row goes to the response as soon as it is read
+ * - row -> JsonGenerator -> (gzip) -> response; nothing collects rows -> heap use doesn't grow with the table
+ * - ORDER BY updated_at, id (notes: created_at, id; V16 indexes): rows come in change order, from the first fetch
+ * - ?since= keeps rows changed at/after it (>=: the boundary rows repeat; an importer upserts by id)
+ * - a slow client holds a pool connection for the whole export -> at most max-concurrent exports per node
+ * - the export transaction has its own limits (SET LOCAL): statement-timeout-ms per fetch, and
+ *   idle-timeout-ms between fetches (= how long a client may stall) -> a stuck export can't hold
+ *   the connection and its snapshot forever
+ * - the whole export may take request-timeout-ms (async timeout of this request only; the 30s
+ *   default stays for every other async request)
+ * - a database error mid-stream (the 200 is out already): the connection is broken off, no clean end of
+ *   the body -> curl & co. report an incomplete transfer instead of handing over a truncated file
+ *
+ * Field names are the JSON names of the API (created_at -> createdAt, ...).
+ */
+@Component
+public class NdjsonExporter {
+
+    private static final Logger log = LoggerFactory.getLogger(NdjsonExporter.class);
+
+    public enum Dataset {
+        CUSTOMERS("SELECT id, name, email, created_at, updated_at FROM customers", "updated_at"),
+        TASKS("SELECT id, customer_id, title, status, created_at, updated_at FROM tasks", "updated_at"),
+        NOTES("SELECT id, task_id, body, created_at FROM notes", "created_at");
+
+        private final String select;
+        private final String changedAt;
+
+        Dataset(String select, String changedAt) {
+            this.select = select;
+            this.changedAt = changedAt;
+        }
+
+        String sql(boolean since) {
+            return select
+                    + (since ? " WHERE " + changedAt + " >= ?" : "")
+                    + " ORDER BY " + changedAt + ", id";
+        }
+
+        public String id() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+
+        public static Dataset of(String name) {
+            for (Dataset d : values()) {
+                if (d.id().equals(name)) return d;
+            }
+            throw new IllegalArgumentException("dataset must be customers, tasks or notes");
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final OpsMetrics metrics;
+    private final int fetchSize;
+    private final int maxConcurrent;
+    private final long statementTimeoutMs;
+    private final long idleTimeoutMs;
+    private final long requestTimeoutMs;
+    private final Semaphore running;
+
+    public NdjsonExporter(JdbcTemplate jdbcTemplate, ObjectMapper objectMapper, OpsMetrics metrics,
+                          @Value("${ops.export.fetch-size:1000}") int fetchSize,
+                          @Value("${ops.export.max-concurrent:2}") int maxConcurrent,
+                          @Value("${ops.export.statement-timeout-ms:60000}") long statementTimeoutMs,
+                          @Value("${ops.export.idle-timeout-ms:300000}") long idleTimeoutMs,
+                          @Value("${ops.export.request-timeout-ms:3600000}") long requestTimeoutMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.metrics = metrics;
+        this.fetchSize = Math.max(1, fetchSize);
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        this.statementTimeoutMs = Math.max(1, statementTimeoutMs);
+        this.idleTimeoutMs = Math.max(1, idleTimeoutMs);
+        this.requestTimeoutMs = Math.max(1, requestTimeoutMs);
+        this.running = new Semaphore(this.maxConcurrent);
+    }
+
+    /**
+     * Takes an export slot now (ExportLimitReachedException -> the caller still gets a normal error response).
+     * The body runs later on the MVC async executor and gives the slot back when it ends; if it never runs
+     * (async request timed out / failed before it started), the request's completion gives it back.
+     */
+    public StreamingResponseBody stream(Dataset dataset, Instant since, boolean gzip, WebAsyncManager async) {
+        if (!running.tryAcquire()) {
+            throw new ExportLimitReachedException(maxConcurrent);
+        }
+        Slot slot = new Slot(running);
+        async.registerCallableInterceptor(Slot.class.getName(), new CallableProcessingInterceptor() {
+            @Override
+            public <T> void beforeConcurrentHandling(NativeWebRequest request, Callable<T> task) {
+                // runs before the async request starts -> the timeout still applies to it
+                if (request instanceof AsyncWebRequest asyncRequest) asyncRequest.setTimeout(requestTimeoutMs);
+            }
+
+            @Override
+            public <T> void afterCompletion(NativeWebRequest request, Callable<T> task) {
+                slot.releaseIfUnused();
+            }
+        });
+        return out -> {
+            if (!slot.use()) return; // the request is over already: nobody to write to
+            try {
+                export(dataset, since, gzip, out);
+            } finally {
+                slot.release();
+            }
+        };
+    }
+
+    private void export(Dataset dataset, Instant since, boolean gzip, OutputStream out) {
+        long started = System.nanoTime();
+        long[] rows = {0};
+        String outcome = "aborted";
+        try {
+            OutputStream target = gzip ? new GZIPOutputStream(out, 64 * 1024) : out;
+            JsonGenerator json = objectMapper.getFactory().createGenerator(target);
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            json.setRootValueSeparator(null);
+
+            try {
+                query(dataset, since, (rs, fields) -> {
+                    write(json, rs, fields);
+                    rows[0]++;
+                });
+            } catch (DataAccessException ex) {
+                // status and part of the body may be out already: no clean end (no gzip trailer either),
+                // the container breaks the connection off -> the client sees an incomplete transfer
+                outcome = "failed";
+                log.warn("EXPORT_FAILED dataset={} rows={} err={}", dataset.id(), rows[0], ex.toString());
+                throw new ExportAbortedException(dataset.id(), rows[0], ex);
+            }
+
+            json.flush();
+            if (target instanceof GZIPOutputStream z) z.finish();
+            outcome = "ok";
+        } catch (IOException | UncheckedIOException ex) {
+            // client went away mid-export (or the network did): the response is gone, nothing left to answer
+            // (rethrowing only ends in an error page that can't be written either)
+            log.debug("EXPORT_CLIENT_GONE dataset={} err={}", dataset.id(), ex.toString());
+        } finally {
+            long durationNs = System.nanoTime() - started;
+            metrics.export(dataset.id(), outcome, rows[0], durationNs);
+            log.info("EXPORT_DONE dataset={} since={} gzip={} rows={} outcome={} durationMs={}",
+                    dataset.id(), since, gzip, rows[0], outcome, durationNs / 1_000_000);
+        }
+    }
+
+    private void query(Dataset dataset, Instant since, RowWriter writer) {
+        jdbcTemplate.execute((ConnectionCallback<Void>) conn -> {
+            boolean autoCommit = conn.getAutoCommit();
+            // a cursor (fetchSize) needs a transaction; without one the driver reads the whole result first
+            conn.setAutoCommit(false);
+            try (Statement limits = conn.createStatement()) {
+                // transaction-scoped: gone with the commit/rollback, the pooled connection keeps its defaults
+                limits.execute("SET LOCAL statement_timeout = " + statementTimeoutMs);
+                limits.execute("SET LOCAL idle_in_transaction_session_timeout = " + idleTimeoutMs);
+            }
+            try (PreparedStatement ps = conn.prepareStatement(dataset.sql(since != null))) {
+                ps.setFetchSize(fetchSize);
+                if (since != null) ps.setTimestamp(1, Timestamp.from(since));
+                try (ResultSet rs = ps.executeQuery()) {
+                    Fields fields = Fields.of(rs.getMetaData());
+                    while (rs.next()) {
+                        writer.write(rs, fields);
+                    }
+                }
+                conn.commit();
+            } catch (SQLException | RuntimeException ex) {
+                rollbackQuietly(conn, ex);
+                throw ex;
+            } finally {
+                try {
+                    conn.setAutoCommit(autoCommit);
+                } catch (SQLException ignored) {
+                    // connection is gone (e.g. idle timeout): the pool drops it, the first error is what counts
+                }
+            }
+            return null;
+        });
+    }
+
+    private static void rollbackQuietly(Connection conn, Exception cause) {
+        try {
+            conn.rollback();
+        } catch (SQLException ex) {
+            cause.addSuppressed(ex);
+        }
+    }
+
+    private static void write(JsonGenerator json, ResultSet rs, Fields fields) throws SQLException {
+        try {
+            json.writeStartObject();
+            for (int i = 0; i < fields.names().length; i++) {
+                json.writeFieldName(fields.names()[i]);
+                String value = fields.instants()[i] ? instant(rs.getTimestamp(i + 1)) : rs.getString(i + 1);
+                if (value == null) json.writeNull(); else json.writeString(value);
+            }
+            json.writeEndObject();
+            json.writeRaw('\n');
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static String instant(Timestamp ts) {
+        return ts == null ? null : ts.toInstant().toString();
+    }
+
+    /** customer_id -> customerId */
+    static String fieldName(String column) {
+        StringBuilder name = new StringBuilder(column.length());
+        boolean upper = false;
+        for (char c : column.toCharArray()) {
+            if (c == '_') {
+                upper = true;
+            } else {
+                name.append(upper ? Character.toUpperCase(c) : c);
+                upper = false;
+            }
+        }
+        return name.toString();
+    }
+
+    /** JSON field names of the selected columns; *_at columns are written as ISO-8601 instants. */
+    private record Fields(String[] names, boolean[] instants) {
+        static Fields of(ResultSetMetaData meta) throws SQLException {
+            int n = meta.getColumnCount();
+            Fields f = new Fields(new String[n], new boolean[n]);
+            for (int i = 0; i < n; i++) {
+                String column = meta.getColumnLabel(i + 1);
+                f.names[i] = fieldName(column);
+                f.instants[i] = column.endsWith("_at");
+            }
+            return f;
+        }
+    }
+
+    /**
+     * One export slot (a Semaphore permit), given back exactly once: by the body when it ends, or by the
+     * request's completion if the body never started. Never while the body runs (it holds a connection).
+     */
+    private static final class Slot {
+        private static final int RESERVED = 0, IN_USE = 1, RELEASED = 2;
+
+        private final Semaphore permits;
+        private final AtomicInteger state = new AtomicInteger(RESERVED);
+
+        Slot(Semaphore permits) {
+            this.permits = permits;
+        }
+
+        boolean use() {
+            return state.compareAndSet(RESERVED, IN_USE);
+        }
+
+        void release() {
+            if (state.getAndSet(RELEASED) != RELEASED) permits.release();
+        }
+
+        void releaseIfUnused() {
+            if (state.compareAndSet(RESERVED, RELEASED)) permits.release();
+        }
+    }
+
+    @FunctionalInterface
+    private interface RowWriter {
+        void write(ResultSet rs, Fields fields) throws SQLException;
+    }
+}
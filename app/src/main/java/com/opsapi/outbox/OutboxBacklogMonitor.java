@@ -0,0 +1,102 @@
+package com.opsapi.outbox;
+
+import com.opsapi.common.OpsMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Relay lag gauges.
+ *
+ * Mental model:
+ * - ops.outbox.backlog.unsent     = rows waiting to be sent (not parked), capped at backlog-count-cap
+ *   (the cap itself means "at least that many")
+ * - ops.outbox.backlog.oldest.age = seconds since the oldest of those rows was enqueued
+ *   -> alert when this keeps growing: the relay is stuck or can't keep up
+ *
+ * A scrape never touches the database, and the outbox is measured by one node per interval, not by each:
+ * - the measurement lives in the outbox_backlog_stats row (V19); every node's refresh reads that row
+ * - a refresh that finds the row older than the refresh interval measures again, under
+ *   pg_try_advisory_xact_lock -> a node that loses the lock skips instead of waiting or counting too
+ * - the count stops at the cap (LIMIT), min(created_at) is one seek on idx_outbox_pending_created
+ * The age is computed at scrape time from the cached created_at, so it keeps growing
+ * between refreshes when nothing moves.
+ */
+@Component
+public class OutboxBacklogMonitor {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxBacklogMonitor.class);
+
+    private static final long NONE = -1L;
+    // any stable number works; it just has to be the same on every node
+    private static final long ADVISORY_LOCK_KEY = 0x0B0C_0E7E_0002L;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long refreshMs;
+    private final int countCap;
+
+    private final AtomicLong unsent = new AtomicLong();
+    private final AtomicLong oldestCreatedAtMs = new AtomicLong(NONE);
+
+    public OutboxBacklogMonitor(
+            JdbcTemplate jdbcTemplate,
+            OpsMetrics metrics,
+            @Value("${ops.outbox.metrics.backlog-refresh-ms:15000}") long refreshMs,
+            @Value("${ops.outbox.metrics.backlog-count-cap:100000}") int countCap
+    ) {
+        if (countCap < 1) {
+            throw new IllegalArgumentException("ops.outbox.metrics.backlog-count-cap must be >= 1");
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.refreshMs = refreshMs;
+        this.countCap = countCap;
+        metrics.gauge("ops.outbox.backlog.unsent", unsent, AtomicLong::get);
+        metrics.gauge("ops.outbox.backlog.oldest.age", oldestCreatedAtMs, OutboxBacklogMonitor::ageSeconds);
+    }
+
+    @Scheduled(
+            initialDelayString = "${ops.outbox.metrics.backlog-initial-delay-ms:5000}",
+            fixedDelayString = "${ops.outbox.metrics.backlog-refresh-ms:15000}"
+    )
+    public void refresh() {
+        try {
+            // one statement = one transaction: the xact lock is gone again when it returns.
+            // Stale after half an interval, not a whole one: with the nodes' schedules offset,
+            // a whole one could leave the row up to two intervals old.
+            jdbcTemplate.update("""
+                    UPDATE outbox_backlog_stats
+                    SET unsent = (SELECT count(*) FROM (
+                                      SELECT 1 FROM outbox_events
+                                      WHERE sent_at IS NULL AND parked_at IS NULL
+                                      LIMIT ?) pending),
+                        oldest_created_at = (SELECT min(created_at) FROM outbox_events
+                                             WHERE sent_at IS NULL AND parked_at IS NULL),
+                        refreshed_at = now()
+                    WHERE id = 1
+                      AND refreshed_at <= now() - make_interval(secs => ?)
+                      AND pg_try_advisory_xact_lock(?)
+                    """, countCap, refreshMs / 2 / 1000.0, ADVISORY_LOCK_KEY);
+
+            jdbcTemplate.query("SELECT unsent, oldest_created_at FROM outbox_backlog_stats WHERE id = 1", rs -> {
+                unsent.set(rs.getLong(1));
+                Timestamp oldest = rs.getTimestamp(2);
+                oldestCreatedAtMs.set(oldest == null ? NONE : oldest.getTime());
+            });
+        } catch (Exception ex) {
+            // keep the last values; a failing refresh shows up as a flat line, not a gap
+            log.warn("OUTBOX_BACKLOG_REFRESH_FAILED err={}", ex.toString());
+        }
+    }
+
+    private static double ageSeconds(AtomicLong createdAtMs) {
+        long ms = createdAtMs.get();
+        if (ms == NONE) return 0;
+        return Math.max(0, System.currentTimeMillis() - ms) / 1000.0;
+    }
+}
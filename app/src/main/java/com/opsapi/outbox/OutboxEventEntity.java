@@ -20,8 +20,16 @@ public class OutboxEventEntity {
     @Column(name = "event_type", nullable = false, length = 100)
     private String eventType;
 
-    @Column(name = "payload", nullable = false, columnDefinition = "text")
-    private String payload;
+    @Column(name = "schema_version", nullable = false)
+    private int schemaVersion;
+
+    // PayloadCodec id the payload was encoded with; goes out as the ops-codec header
+    @Column(name = "codec", nullable = false, length = 32)
+    private String codec;
+
+    // already encoded by that codec (relayed byte-for-byte)
+    @Column(name = "payload", nullable = false, columnDefinition = "bytea")
+    private byte[] payload;
 
     @Column(name = "correlation_id", length = 100)
     private String correlationId;
@@ -38,36 +46,46 @@ public class OutboxEventEntity {
     @Column(name = "last_error", columnDefinition = "text")
     private String lastError;
 
+    @Column(name = "next_attempt_at", nullable = false)
+    private Instant nextAttemptAt;
+
+    @Column(name = "parked_at")
+    private Instant parkedAt;
+
     protected OutboxEventEntity() {}
 
     public OutboxEventEntity(UUID id, String aggregateType, UUID aggregateId, String eventType,
-                             String payload, String correlationId) {
+                             int schemaVersion, String codec, byte[] payload, String correlationId) {
         this.id = id;
         this.aggregateType = aggregateType;
         this.aggregateId = aggregateId;
         this.eventType = eventType;
+        this.schemaVersion = schemaVersion;
+        this.codec = codec;
         this.payload = payload;
         this.correlationId = correlationId;
         this.createdAt = Instant.now();
         this.sentAt = null;
         this.attempts = 0;
         this.lastError = null;
+        this.nextAttemptAt = this.createdAt;
+        this.parkedAt = null;
     }
 
     public UUID getId() { return id; }
     public String getAggregateType() { return aggregateType; }
     public UUID getAggregateId() { return aggregateId; }
     public String getEventType() { return eventType; }
-    public String getPayload() { return payload; }
+    public int getSchemaVersion() { return schemaVersion; }
+    public String getCodec() { return codec; }
+    public byte[] getPayload() { return payload; }
     public String getCorrelationId() { return correlationId; }
     public Instant getCreatedAt() { return createdAt; }
     public Instant getSentAt() { return sentAt; }
     public int getAttempts() { return attempts; }
     public String getLastError() { return lastError; }
+    public Instant getNextAttemptAt() { return nextAttemptAt; }
+    public Instant getParkedAt() { return parkedAt; }
 
-    public void markSent() { this.sentAt = Instant.now(); }
-    public void markFailed(String err) {
-        this.attempts += 1;
-        this.lastError = err;
-    }
+    // state transitions (sent / failed) are written set-based by OutboxStateWriter
 }
@@ -2,13 +2,73 @@ package com.opsapi.outbox;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 import java.util.UUID;
 
 public interface OutboxEventRepository extends JpaRepository<OutboxEventEntity, UUID> {
 
-    // simple: read oldest unsent rows
-    @Query("select e from OutboxEventEntity e where e.sentAt is null order by e.createdAt asc")
-    List<OutboxEventEntity> findUnsentOrdered();
+    /**
+     * Claim up to {@code limit} due rows for this relay, each aggregate's rows in (created_at, id) order.
+     *
+     * Mental model:
+     * - LIMIT keeps the fetch bounded (a big backlog is never loaded in one go)
+     * - FOR UPDATE locks the claimed rows until our transaction commits
+     * - SKIP LOCKED makes other relay instances skip rows we already hold,
+     *   so several nodes can drain the table in parallel without sending the same row twice
+     * - parked rows and rows still backing off (next_attempt_at in the future) are skipped;
+     *   idx_outbox_due covers exactly this WHERE + ORDER BY
+     * - heads first: an aggregate is claimed through its OLDEST unsent row, and only while that row is due
+     *   and not held by another relay. One idx_outbox_unsent_aggregate seek per candidate (V17).
+     *   Every row backs off on its own, so without this a later CUSTOMER_DELETED could be sent before
+     *   the UPDATED it follows; a parked row blocks its aggregate until it is requeued.
+     * - then the due rows queued behind each claimed head come along in the same batch, up to the first one
+     *   that backs off or is parked. Nobody else can claim those: for any other relay our head is still an
+     *   older unsent row, so plain FOR UPDATE never waits here.
+     *
+     * A customer with N queued events therefore goes out in one batch, not N. The relay sends a batch in
+     * (created_at, id) order and holds back the rest of an aggregate once one of its rows fails.
+     * "Older" is (created_at, id) everywhere, never created_at alone: rows written in one transaction share
+     * created_at, and with a tie both would be heads -> two relays could each lock one and send them concurrently.
+     *
+     * Must be called inside a transaction (the locks live as long as the transaction).
+     */
+    @Query(value = """
+        with heads as (
+          select o.aggregate_id
+          from outbox_events o
+          where o.sent_at is null
+            and o.parked_at is null
+            and o.next_attempt_at <= now()
+            and not exists (
+              select 1
+              from outbox_events older
+              where older.aggregate_id = o.aggregate_id
+                and (older.created_at, older.id) < (o.created_at, o.id)
+                and older.sent_at is null
+            )
+          order by o.next_attempt_at asc
+          limit :limit
+          for update skip locked
+        )
+        select *
+        from outbox_events o
+        where o.aggregate_id in (select aggregate_id from heads)
+          and o.sent_at is null
+          and o.parked_at is null
+          and o.next_attempt_at <= now()
+          and not exists (
+            select 1
+            from outbox_events older
+            where older.aggregate_id = o.aggregate_id
+              and (older.created_at, older.id) < (o.created_at, o.id)
+              and older.sent_at is null
+              and (older.parked_at is not null or older.next_attempt_at > now())
+          )
+        order by o.created_at asc, o.id asc
+        limit :limit
+        for update
+        """, nativeQuery = true)
+    List<OutboxEventEntity> claimUnsentBatch(@Param("limit") int limit);
 }
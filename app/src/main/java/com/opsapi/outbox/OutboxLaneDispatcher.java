@@ -0,0 +1,211 @@
+package com.opsapi.outbox;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * Ordered parallel dispatch: events are sharded by aggregateId onto N worker lanes.
+ *
+ * Mental model:
+ * - Ordering only matters per aggregate (= per customer = the Kafka key)
+ * - hash(aggregateId) -> lane, so one aggregate always lands on the same lane
+ * - each lane sends strictly FIFO but does not wait for each ack: up to lane-max-in-flight sends are open,
+ *   the producer keeps them in order on the partition, acks complete the results in order;
+ *   different lanes run in parallel
+ * - if an event fails, later events of the SAME aggregate in that batch that are not out yet are not sent
+ *   (they fail fast and retry with it), so a retry can never overtake a newer event
+ * - the relay cancels the futures it stopped waiting for (batch deadline); a lane skips those
+ *
+ * A batch can hold several events of one aggregate (the claim takes the rows queued behind its head),
+ * so the FIFO is what keeps them in (created_at, id) order.
+ *
+ * Each lane has a bounded queue; a full queue blocks the submitting relay thread (back-pressure).
+ */
+@Component
+public class OutboxLaneDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxLaneDispatcher.class);
+
+    private final int laneCount;
+    private final int queueDepth;
+    private final int laneMaxInFlight;
+    private final long ackTimeoutMs;
+
+    private volatile Lane[] lanes;
+
+    public OutboxLaneDispatcher(
+            @Value("${ops.outbox.dispatch.lanes:8}") int laneCount,
+            @Value("${ops.outbox.dispatch.lane-queue-depth:256}") int queueDepth,
+            @Value("${ops.outbox.dispatch.lane-max-in-flight:32}") int laneMaxInFlight,
+            @Value("${ops.outbox.publish.ack-timeout-ms:10000}") long ackTimeoutMs
+    ) {
+        this.laneCount = Math.max(1, laneCount);
+        this.queueDepth = Math.max(1, queueDepth);
+        this.laneMaxInFlight = Math.max(1, laneMaxInFlight);
+        this.ackTimeoutMs = Math.max(1, ackTimeoutMs);
+    }
+
+    /**
+     * Queue every event on its lane and return one future per event, in input order.
+     * A future completes once that event's send was acked (or failed / was skipped).
+     * Cancelling a future before its lane reaches it keeps the event from being sent.
+     */
+    public List<CompletableFuture<?>> dispatch(List<OutboxEventEntity> events,
+                                               Function<OutboxEventEntity, CompletableFuture<?>> sender) {
+        Lane[] ls = lanes();
+        Set<UUID> failedAggregates = ConcurrentHashMap.newKeySet();
+        List<CompletableFuture<?>> results = new ArrayList<>(events.size());
+
+        for (OutboxEventEntity e : events) {
+            CompletableFuture<Void> result = new CompletableFuture<>();
+            results.add(result);
+            Lane lane = ls[laneFor(e.getAggregateId())];
+            try {
+                lane.queue.put(new Item(e, sender, failedAggregates, result));
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                result.completeExceptionally(ie);
+            }
+        }
+        return results;
+    }
+
+    public int getLaneCount() {
+        return laneCount;
+    }
+
+    int laneFor(UUID aggregateId) {
+        // spread the hash bits before the modulo (UUID.hashCode is xor-folded)
+        int h = aggregateId.hashCode();
+        h ^= (h >>> 16);
+        return Math.floorMod(h, laneCount);
+    }
+
+    private Lane[] lanes() {
+        Lane[] ls = lanes;
+        if (ls != null) return ls;
+        synchronized (this) {
+            if (lanes == null) {
+                Lane[] created = new Lane[laneCount];
+                for (int i = 0; i < laneCount; i++) {
+                    created[i] = new Lane(i, new ArrayBlockingQueue<>(queueDepth), new Semaphore(laneMaxInFlight));
+                    created[i].start();
+                }
+                lanes = created;
+                log.info("OUTBOX_LANES_STARTED lanes={} queueDepth={} maxInFlight={}", laneCount, queueDepth, laneMaxInFlight);
+            }
+            return lanes;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        Lane[] ls = lanes;
+        if (ls == null) return;
+        for (Lane lane : ls) {
+            lane.thread.interrupt();
+        }
+    }
+
+    private void process(Lane lane, Item item) {
+        OutboxEventEntity e = item.event();
+        UUID aggregateId = e.getAggregateId();
+
+        if (item.result().isDone()) {
+            // cancelled: the relay's batch deadline passed before this lane got here, the row retries later
+            return;
+        }
+        if (item.failedAggregates().contains(aggregateId)) {
+            item.result().completeExceptionally(
+                    new IllegalStateException("skipped: earlier event of aggregate " + aggregateId + " failed in this batch"));
+            return;
+        }
+
+        // in-flight window: back-pressure on the lane, not a wait for this event's own ack
+        try {
+            if (!lane.window.tryAcquire(ackTimeoutMs, TimeUnit.MILLISECONDS)) {
+                item.failedAggregates().add(aggregateId);
+                item.result().completeExceptionally(new TimeoutException("no broker ack for the lane's in-flight sends"));
+                return;
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            item.failedAggregates().add(aggregateId);
+            item.result().completeExceptionally(ie);
+            return;
+        }
+        if (item.result().isDone()) {
+            // cancelled while waiting for the window
+            lane.window.release();
+            return;
+        }
+
+        CompletableFuture<?> ack;
+        try {
+            ack = item.sender().apply(e);
+        } catch (RuntimeException ex) {
+            ack = CompletableFuture.failedFuture(ex);
+        }
+        // rejected by the client already (too large, ...): the next event of this aggregate is not sent
+        if (ack.isCompletedExceptionally()) item.failedAggregates().add(aggregateId);
+
+        ack.whenComplete((r, ex) -> {
+            lane.window.release();
+            if (ex == null) {
+                item.result().complete(null);
+                return;
+            }
+            item.failedAggregates().add(aggregateId);
+            Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+            item.result().completeExceptionally(cause);
+        });
+    }
+
+    private final class Lane {
+        private final BlockingQueue<Item> queue;
+        private final Semaphore window;
+        private final Thread thread;
+
+        private Lane(int index, BlockingQueue<Item> queue, Semaphore window) {
+            this.queue = queue;
+            this.window = window;
+            this.thread = Thread.ofPlatform().daemon().name("outbox-lane-" + index).unstarted(this::run);
+        }
+
+        private void start() {
+            thread.start();
+        }
+
+        private void run() {
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    process(this, queue.take());
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    private record Item(OutboxEventEntity event,
+                        Function<OutboxEventEntity, CompletableFuture<?>> sender,
+                        Set<UUID> failedAggregates,
+                        CompletableFuture<Void> result) {}
+}
@@ -0,0 +1,126 @@
+package com.opsapi.outbox;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Wakes the outbox relay as soon as an outbox insert commits.
+ *
+ * Mental model:
+ * - Writers run NOTIFY outbox_events in the SAME transaction as the outbox insert
+ *   -> Postgres only delivers it on commit (never for rolled-back rows)
+ * - This component keeps one dedicated connection that LISTENs and blocks on getNotifications()
+ *   -> zero queries while idle, immediate wakeup when something is queued
+ * - That connection is opened with DriverManager, NOT borrowed from the pool: a LISTEN outlives
+ *   close() on a pooled connection, so the next borrower would collect notifications nobody reads
+ * - Every node listens; SKIP LOCKED claiming makes sure they don't send the same rows twice
+ */
+@Component
+public class OutboxNotificationListener implements SmartLifecycle {
+
+    public static final String CHANNEL = "outbox_events";
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxNotificationListener.class);
+
+    private final DataSourceProperties dataSourceProperties;
+    private final OutboxPoller poller;
+    private final boolean enabled;
+    private final int waitTimeoutMs;
+    private final long reconnectBackoffMs;
+
+    private volatile boolean running;
+    private volatile Thread worker;
+
+    public OutboxNotificationListener(
+            DataSourceProperties dataSourceProperties,
+            OutboxPoller poller,
+            @Value("${ops.outbox.notify.enabled:true}") boolean enabled,
+            @Value("${ops.outbox.notify.wait-timeout-ms:10000}") int waitTimeoutMs,
+            @Value("${ops.outbox.notify.reconnect-backoff-ms:2000}") long reconnectBackoffMs
+    ) {
+        this.dataSourceProperties = dataSourceProperties;
+        this.poller = poller;
+        this.enabled = enabled;
+        this.waitTimeoutMs = Math.max(1, waitTimeoutMs);
+        this.reconnectBackoffMs = Math.max(0, reconnectBackoffMs);
+    }
+
+    @Override
+    public void start() {
+        if (!enabled || running) return;
+        running = true;
+        worker = Thread.ofPlatform().daemon().name("outbox-listen").start(this::runLoop);
+    }
+
+    @Override
+    public void stop() {
+        // the worker notices within wait-timeout-ms and closes its connection
+        running = false;
+        Thread t = worker;
+        if (t != null) t.interrupt();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void runLoop() {
+        while (running) {
+            try (Connection conn = openConnection()) {
+                conn.setAutoCommit(true);
+                try (Statement st = conn.createStatement()) {
+                    st.execute("LISTEN " + CHANNEL);
+                }
+                PGConnection pg = conn.unwrap(PGConnection.class);
+                log.info("OUTBOX_LISTEN_STARTED channel={}", CHANNEL);
+
+                // anything committed while we were not listening
+                poller.drain("listen-start");
+
+                while (running) {
+                    // blocks on the socket; returns early as soon as a NOTIFY arrives
+                    PGNotification[] notifications = pg.getNotifications(waitTimeoutMs);
+                    if (notifications != null && notifications.length > 0) {
+                        poller.drain("notify");
+                    }
+                }
+
+            } catch (Exception ex) {
+                if (!running) break;
+                log.warn("OUTBOX_LISTEN_FAILED channel={} err={} (reconnecting in {}ms)",
+                        CHANNEL, ex.toString(), reconnectBackoffMs);
+                sleepBackoff();
+            }
+        }
+        log.info("OUTBOX_LISTEN_STOPPED channel={}", CHANNEL);
+    }
+
+    /** Same url/credentials as the pool, but a physical connection: closing it ends the session and its LISTEN. */
+    private Connection openConnection() throws SQLException {
+        return DriverManager.getConnection(
+                dataSourceProperties.determineUrl(),
+                dataSourceProperties.determineUsername(),
+                dataSourceProperties.determinePassword());
+    }
+
+    private void sleepBackoff() {
+        if (reconnectBackoffMs <= 0) return;
+        try {
+            Thread.sleep(reconnectBackoffMs);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
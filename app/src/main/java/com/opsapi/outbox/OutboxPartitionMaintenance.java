@@ -0,0 +1,215 @@
+package com.opsapi.outbox;
+
+import org.postgresql.PGConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps the daily outbox_events partitions in shape (see V8).
+ *
+ * Every run:
+ * 1) create the next N daily partitions ahead of time (so inserts never land in the DEFAULT partition)
+ * 2) for partitions older than the retention window whose rows are ALL sent:
+ *    optionally export them to a gzip CSV file, then DETACH (and DROP) them
+ *
+ * Dropping a partition is O(1) and leaves no dead tuples behind -> poll cost and vacuum load stay flat.
+ * Partitions still holding unsent/parked rows are never touched.
+ */
+@Component
+public class OutboxPartitionMaintenance {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxPartitionMaintenance.class);
+
+    // any stable number works; it just has to be the same on every node
+    private static final long ADVISORY_LOCK_KEY = 0x0B0C_0E7E_0001L;
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final int precreateDays;
+    private final Duration retention;
+    private final boolean dropDetached;
+    private final String archiveDir;
+
+    public OutboxPartitionMaintenance(
+            JdbcTemplate jdbcTemplate,
+            @Value("${ops.outbox.partitions.enabled:true}") boolean enabled,
+            @Value("${ops.outbox.partitions.precreate-days:7}") int precreateDays,
+            @Value("${ops.outbox.retention.days:7}") int retentionDays,
+            @Value("${ops.outbox.retention.action:drop}") String action,
+            @Value("${ops.outbox.retention.archive-dir:}") String archiveDir
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.precreateDays = Math.max(1, precreateDays);
+        this.retention = Duration.ofDays(Math.max(1, retentionDays));
+        this.dropDetached = !"detach".equalsIgnoreCase(action.trim());
+        this.archiveDir = archiveDir == null ? "" : archiveDir.trim();
+    }
+
+    @Scheduled(
+            initialDelayString = "${ops.outbox.partitions.initial-delay-ms:10000}",
+            fixedDelayString = "${ops.outbox.partitions.delay-ms:3600000}"
+    )
+    public void maintain() {
+        if (!enabled) return;
+        try {
+            jdbcTemplate.execute((ConnectionCallback<Void>) conn -> {
+                // only one node does DDL at a time; the others simply skip this run
+                if (!tryLock(conn)) return null;
+                try {
+                    // don't queue behind long transactions while holding up the relay
+                    execute(conn, "SET lock_timeout = '5s'");
+                    createUpcomingPartitions(conn);
+                    retireOldPartitions(conn);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                } finally {
+                    execute(conn, "RESET lock_timeout");
+                    unlock(conn);
+                }
+                return null;
+            });
+        } catch (Exception ex) {
+            // do NOT throw -> retried on the next run
+            log.warn("OUTBOX_PARTITION_MAINTENANCE_FAILED err={}", ex.toString());
+        }
+    }
+
+    private void createUpcomingPartitions(Connection conn) throws SQLException {
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        for (int i = 0; i <= precreateDays; i++) {
+            LocalDate day = today.plusDays(i);
+            String name = "outbox_events_p" + day.format(PARTITION_SUFFIX);
+            String sql = "CREATE TABLE IF NOT EXISTS " + name
+                    + " PARTITION OF outbox_events FOR VALUES FROM ('" + day.atStartOfDay(ZoneOffset.UTC).toInstant()
+                    + "') TO ('" + day.plusDays(1).atStartOfDay(ZoneOffset.UTC).toInstant() + "')";
+            try {
+                execute(conn, sql);
+            } catch (SQLException ex) {
+                // e.g. the DEFAULT partition already holds rows for that day -> needs a manual move
+                log.warn("OUTBOX_PARTITION_CREATE_FAILED partition={} err={}", name, ex.getMessage());
+            }
+        }
+    }
+
+    private void retireOldPartitions(Connection conn) throws SQLException, IOException {
+        Instant cutoff = Instant.now().minus(retention);
+
+        for (Partition p : listBoundedPartitions(conn)) {
+            if (!p.upperBound().isBefore(cutoff)) continue;
+
+            if (hasUnsentRows(conn, p.name())) {
+                log.info("OUTBOX_PARTITION_RETAINED partition={} reason=unsent_rows", p.name());
+                continue;
+            }
+
+            if (!archiveDir.isEmpty()) {
+                Path file = archive(conn, p.name());
+                log.info("OUTBOX_PARTITION_ARCHIVED partition={} file={}", p.name(), file);
+            }
+
+            execute(conn, "ALTER TABLE outbox_events DETACH PARTITION " + p.name());
+            if (dropDetached) {
+                execute(conn, "DROP TABLE " + p.name());
+            }
+            log.info("OUTBOX_PARTITION_RETIRED partition={} upper_bound={} action={}",
+                    p.name(), p.upperBound(), dropDetached ? "drop" : "detach");
+        }
+    }
+
+    private List<Partition> listBoundedPartitions(Connection conn) throws SQLException {
+        // pg_get_expr gives "FOR VALUES FROM (...) TO ('...')"; the DEFAULT partition has no TO bound
+        String sql = """
+                SELECT c.relname,
+                       (regexp_match(pg_get_expr(c.relpartbound, c.oid), 'TO \\(''([^'']+)''\\)'))[1]::timestamptz
+                FROM pg_inherits i
+                JOIN pg_class c ON c.oid = i.inhrelid
+                WHERE i.inhparent = 'outbox_events'::regclass
+                ORDER BY 2
+                """;
+        List<Partition> result = new ArrayList<>();
+        try (Statement st = conn.createStatement(); ResultSet rs = st.executeQuery(sql)) {
+            while (rs.next()) {
+                Timestamp upper = rs.getTimestamp(2);
+                if (upper != null) {
+                    result.add(new Partition(rs.getString(1), upper.toInstant()));
+                }
+            }
+        }
+        return result;
+    }
+
+    private static boolean hasUnsentRows(Connection conn, String partition) throws SQLException {
+        // partition names come from pg_class, not from user input
+        try (PreparedStatement ps = conn.prepareStatement(
+                "SELECT EXISTS (SELECT 1 FROM " + partition + " WHERE sent_at IS NULL)");
+             ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            return rs.getBoolean(1);
+        }
+    }
+
+    private Path archive(Connection conn, String partition) throws SQLException, IOException {
+        Path dir = Path.of(archiveDir);
+        Files.createDirectories(dir);
+        Path file = dir.resolve(partition + ".csv.gz");
+
+        PGConnection pg = conn.unwrap(PGConnection.class);
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(file))) {
+            // COPY streams rows straight from the server into the gzip file (no row objects in heap)
+            pg.getCopyAPI().copyOut("COPY " + partition + " TO STDOUT WITH (FORMAT csv, HEADER true)", out);
+        }
+        return file;
+    }
+
+    private static boolean tryLock(Connection conn) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT pg_try_advisory_lock(?)")) {
+            ps.setLong(1, ADVISORY_LOCK_KEY);
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                return rs.getBoolean(1);
+            }
+        }
+    }
+
+    private static void unlock(Connection conn) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT pg_advisory_unlock(?)")) {
+            ps.setLong(1, ADVISORY_LOCK_KEY);
+            ps.execute();
+        }
+    }
+
+    private static void execute(Connection conn, String sql) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            st.execute(sql);
+        }
+    }
+
+    private record Partition(String name, Instant upperBound) {}
+}
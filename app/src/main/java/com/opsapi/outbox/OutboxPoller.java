@@ -2,71 +2,56 @@ package com.opsapi.outbox;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
-import java.util.concurrent.atomic.AtomicBoolean;
-import org.springframework.beans.factory.annotation.Value;
-
-import java.util.List;
 
+/**
+ * Drives the relay.
+ *
+ * Mental model:
+ * - Normal path: OutboxNotificationListener wakes us up right after an outbox insert commits (LISTEN/NOTIFY)
+ * - Safety net: this slow fixed-delay poll picks up anything a missed notification left behind
+ *   (listener reconnecting, NOTIFY lost on failover, retries that became due, ...)
+ */
 @Component
 public class OutboxPoller {
 
     private static final Logger log = LoggerFactory.getLogger(OutboxPoller.class);
-    private static final String TOPIC = "customer-events";
 
-    private final OutboxEventRepository outboxRepo;
-    private final KafkaTemplate<String, String> kafkaTemplate;
-    private final boolean simulateCrashAfterSendOnce;
-    private final AtomicBoolean crashFired = new AtomicBoolean(false);
+    private final OutboxRelay relay;
 
-    public OutboxPoller(OutboxEventRepository outboxRepo,
-        KafkaTemplate<String, String> kafkaTemplate,
-        @Value("${ops.outbox.simulate-crash-after-send-once:false}") boolean simulateCrashAfterSendOnce) {
-        this.outboxRepo = outboxRepo;
-        this.kafkaTemplate = kafkaTemplate;
-        this.simulateCrashAfterSendOnce = simulateCrashAfterSendOnce;
+    public OutboxPoller(OutboxRelay relay) {
+        this.relay = relay;
     }
 
-    @Scheduled(fixedDelayString = "${ops.outbox.poller.delay-ms:1000}")
-    @Transactional
+    @Scheduled(fixedDelayString = "${ops.outbox.poller.delay-ms:30000}")
     public void poll() {
-        List<OutboxEventEntity> unsent = outboxRepo.findUnsentOrdered();
-        if (unsent.isEmpty()) return;
-
-        int batchSize = Integer.parseInt(System.getProperty("ops.outbox.batchSize", "50"));
-        int sentCount = 0;
-
-        for (OutboxEventEntity e : unsent.stream().limit(batchSize).toList()) {
-            try {
-                // key = aggregateId for per-customer ordering
-                String key = e.getAggregateId().toString();
-
-                kafkaTemplate.send(TOPIC, key, e.getPayload());
-                if (simulateCrashAfterSendOnce && crashFired.compareAndSet(false, true)) {
-                    log.error("OUTBOX_SIMULATED_CRASH_AFTER_SEND id={} (Kafka sent, DB not marked sent yet)", e.getId());
-                    throw new RuntimeException("SIMULATED_CRASH_AFTER_SEND");
-                }
-                e.markSent();
-                sentCount++;
-
-                log.info("OUTBOX_SENT id={} eventType={} key={} attempts={} corr={}",
-                        e.getId(), e.getEventType(), key, e.getAttempts(), e.getCorrelationId());
-
-            } catch (Exception ex) {
-                e.markFailed(ex.toString());
-                log.warn("OUTBOX_SEND_FAILED id={} eventType={} attempts={} corr={} err={}",
-                        e.getId(), e.getEventType(), e.getAttempts(), e.getCorrelationId(), ex.toString());
+        drain("poll");
+    }
 
-                // do NOT throw -> keep poller alive
-            }
+    /**
+     * Relay batches until one claims nothing (= nothing more to claim right now).
+     * Each batch is its own transaction, so locks are released between batches.
+     *
+     * A batch is bounded (batch-size), so a backlog takes several. Failed rows back off
+     * (next_attempt_at), so they don't keep the loop going.
+     */
+    public int drain(String trigger) {
+        int total = 0;
+        try {
+            int claimed;
+            do {
+                claimed = relay.relayBatch();
+                total += claimed;
+            } while (claimed > 0);
+        } catch (Exception ex) {
+            // do NOT throw -> keep the scheduler / listener thread alive
+            log.warn("OUTBOX_DRAIN_FAILED trigger={} err={}", trigger, ex.toString());
         }
 
-        // entity updates will flush at transaction end
-        if (sentCount > 0) {
-            log.info("OUTBOX_BATCH_DONE sent={}", sentCount);
+        if (total > 0) {
+            log.debug("OUTBOX_DRAIN_DONE trigger={} claimed={}", trigger, total);
         }
+        return total;
     }
 }
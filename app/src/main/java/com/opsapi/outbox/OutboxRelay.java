@@ -0,0 +1,380 @@
+package com.opsapi.outbox;
+
+import com.opsapi.common.OpsMetrics;
+import com.opsapi.events.PayloadCodecRegistry;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.KafkaException;
+import org.springframework.kafka.core.KafkaOperations;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@Component
+public class OutboxRelay {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxRelay.class);
+    private static final String TOPIC = "customer-events";
+
+    // stamped on records sent in transactional mode
+    public static final String HEADER_OUTBOX_ID = "ops-outbox-id";
+    public static final String HEADER_RELAY_EPOCH = "ops-relay-epoch";
+    public static final String HEADER_RELAY_SEQ = "ops-relay-seq";
+
+    private final OutboxEventRepository outboxRepo;
+    private final OutboxStateWriter stateWriter;
+    private final OutboxRetryPolicy retryPolicy;
+    private final OutboxLaneDispatcher laneDispatcher;
+    private final KafkaTemplate<String, byte[]> kafkaTemplate;
+    private final OutboxTransactionalProducer txProducer;
+    private final OutboxRelayState relayState;
+    private final OpsMetrics metrics;
+    private final boolean simulateCrashAfterSendOnce;
+    private final int batchSize;
+    private final int maxInFlight;
+    private final long ackTimeoutMs;
+    private final boolean laneMode;
+    private final boolean transactional;
+    private final AtomicBoolean crashFired = new AtomicBoolean(false);
+
+    public OutboxRelay(OutboxEventRepository outboxRepo,
+        OutboxStateWriter stateWriter,
+        OutboxRetryPolicy retryPolicy,
+        OutboxLaneDispatcher laneDispatcher,
+        KafkaTemplate<String, byte[]> kafkaTemplate,
+        OutboxTransactionalProducer txProducer,
+        OutboxRelayState relayState,
+        OpsMetrics metrics,
+        @Value("${ops.outbox.simulate-crash-after-send-once:false}") boolean simulateCrashAfterSendOnce,
+        @Value("${ops.outbox.poller.batch-size:50}") int batchSize,
+        @Value("${ops.outbox.publish.max-in-flight:100}") int maxInFlight,
+        @Value("${ops.outbox.publish.ack-timeout-ms:10000}") long ackTimeoutMs,
+        @Value("${ops.outbox.dispatch.mode:pipelined}") String dispatchMode,
+        @Value("${ops.outbox.publish.transactional:false}") boolean transactional) {
+        this.outboxRepo = outboxRepo;
+        this.stateWriter = stateWriter;
+        this.retryPolicy = retryPolicy;
+        this.laneDispatcher = laneDispatcher;
+        this.kafkaTemplate = kafkaTemplate;
+        this.txProducer = txProducer;
+        this.relayState = relayState;
+        this.metrics = metrics;
+        this.simulateCrashAfterSendOnce = simulateCrashAfterSendOnce;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.ackTimeoutMs = Math.max(1, ackTimeoutMs);
+        this.laneMode = "lanes".equalsIgnoreCase(dispatchMode.trim());
+        this.transactional = transactional;
+        if (transactional && laneMode) {
+            // lane threads can't join the relay thread's Kafka transaction
+            log.warn("OUTBOX_DISPATCH_MODE_IGNORED mode=lanes reason=transactional_publish");
+        }
+    }
+
+    /**
+     * Pipelined publish:
+     * 1) fire every send of the batch without waiting (at most max-in-flight un-acked at once)
+     * 2) wait for all broker acks together (bounded by ack-timeout-ms)
+     * 3) record results set-based: one UPDATE for all acked rows, one for all failed rows
+     *    (failed rows back off exponentially and get parked after max-attempts)
+     *
+     * Throughput is then driven by the producer (linger/compression/batching), not by a send-wait loop.
+     *
+     * A batch can hold several rows of one aggregate (see claimUnsentBatch). They are sent in (created_at, id) order,
+     * which the idempotent producer keeps on the partition. Once one of them fails, the rows after it are held
+     * back: not sent (if the failure was known in time) or not counted, and they retry together with it.
+     *
+     * With ops.outbox.dispatch.mode=lanes, step 1 goes through OutboxLaneDispatcher instead
+     * (per-aggregate FIFO lanes in parallel, each pipelining its sends).
+     * Both modes share the batch deadline, so a batch holds its row locks for at most ~ack-timeout-ms.
+     *
+     * With ops.outbox.publish.transactional=true the whole batch is one Kafka transaction instead,
+     * see {@link #relayTransactional(List)}.
+     *
+     * Returns how many rows were claimed, so callers can keep draining until a batch claims nothing.
+     */
+    @Transactional
+    public int relayBatch() {
+        // bounded claim: rows stay locked (and invisible to other relays) until commit
+        List<OutboxEventEntity> claimed = outboxRepo.claimUnsentBatch(batchSize);
+        if (claimed.isEmpty()) return 0;
+        if (transactional) return relayTransactional(claimed);
+
+        long startNs = System.nanoTime();
+        List<PendingSend> pending = new ArrayList<>(claimed.size());
+
+        // ---- 1) send phase (no waiting for acks, except for in-flight / lane back-pressure) ----
+        if (laneMode) {
+            List<CompletableFuture<?>> futures = laneDispatcher.dispatch(claimed, e -> sendToKafka(kafkaTemplate, e, null));
+            for (int i = 0; i < claimed.size(); i++) {
+                pending.add(new PendingSend(claimed.get(i), futures.get(i)));
+            }
+        } else {
+            // a batch holds several rows per aggregate, in (created_at, id) order: the producer keeps them in that
+            // order on the partition; a row the client already rejected (too large, ...) stops the rest of its aggregate
+            Semaphore inFlight = new Semaphore(maxInFlight);
+            Set<UUID> failedAggregates = new HashSet<>();
+            for (OutboxEventEntity e : claimed) {
+                if (failedAggregates.contains(e.getAggregateId())) {
+                    pending.add(new PendingSend(e, CompletableFuture.failedFuture(new IllegalStateException(
+                            "skipped: earlier event of aggregate " + e.getAggregateId() + " failed in this batch"))));
+                    continue;
+                }
+                CompletableFuture<?> future = send(e, inFlight);
+                if (future.isCompletedExceptionally()) failedAggregates.add(e.getAggregateId());
+                pending.add(new PendingSend(e, future));
+            }
+        }
+
+        // ---- 2) ack phase: one shared deadline for the whole batch (lanes too) ----
+        // a row behind a failed row of the same aggregate is held back: it retries together with
+        // the blocker (same next_attempt_at, no attempt counted) and can never be sent before it.
+        // (a row that was acked anyway, behind a failure only the broker reported, is out and stays sent)
+        long deadlineNs = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ackTimeoutMs);
+        List<UUID> acked = new ArrayList<>(pending.size());
+        List<OutboxStateWriter.Failure> failed = new ArrayList<>();
+        Map<UUID, OutboxStateWriter.Failure> blockers = new HashMap<>();
+        int parkedCount = 0;
+
+        for (PendingSend p : pending) {
+            OutboxEventEntity e = p.event();
+            try {
+                long remainingNs = Math.max(0, deadlineNs - System.nanoTime());
+                p.future().get(remainingNs, TimeUnit.NANOSECONDS);
+                acked.add(e.getId());
+
+                log.info("OUTBOX_SENT id={} eventType={} key={} attempts={} corr={}",
+                        e.getId(), e.getEventType(), e.getAggregateId(), e.getAttempts(), e.getCorrelationId());
+
+            } catch (Exception ex) {
+                // past the deadline: a lane that has not reached this row yet must not send it anymore
+                p.future().cancel(false);
+                OutboxStateWriter.Failure blocker = blockers.get(e.getAggregateId());
+                if (blocker != null) {
+                    failed.add(OutboxStateWriter.Failure.heldBehind(e.getId(), blocker));
+                    log.info("OUTBOX_SEND_HELD id={} eventType={} key={} blocked_by={} corr={}",
+                            e.getId(), e.getEventType(), e.getAggregateId(), blocker.id(), e.getCorrelationId());
+                    continue;
+                }
+                OutboxStateWriter.Failure f = failure(e, unwrap(ex));
+                failed.add(f);
+                blockers.put(e.getAggregateId(), f);
+                if (f.park()) parkedCount++;
+                // do NOT throw -> keep poller alive
+            }
+        }
+
+        // ---- 3) two set-based statements, no per-entity UPDATEs ----
+        stateWriter.markSent(acked);
+        stateWriter.markFailed(failed);
+
+        long durationNs = System.nanoTime() - startNs;
+        metrics.outboxBatch(claimed.size(), acked.size(), failed.size(), parkedCount, durationNs);
+
+        log.info("OUTBOX_BATCH_DONE claimed={} sent={} failed={} latency_ms={}",
+                claimed.size(), acked.size(), failed.size(), durationNs / 1_000_000);
+        return claimed.size();
+    }
+
+    /**
+     * Transactional publish (ops.outbox.publish.transactional=true):
+     * 1) next batch seq for our producer epoch (fails if another relay took over our relay id)
+     * 2) begin Kafka tx, send the batch (headers: outbox id, epoch, seq), wait for all acks
+     * 3) mark the rows sent in the DB (statement executed, NOT committed yet)
+     * 4) commit the Kafka tx, then the DB tx (when this method returns)
+     *
+     * Any failure before 4) aborts the Kafka tx -> read_committed consumers never see those records.
+     * A duplicate is only possible if the process dies between the Kafka commit and the DB commit
+     * (one commit round trip), not on every send failure.
+     *
+     * Who pays for an abort:
+     * - one send failed (e.g. a record over max.request.size): only that row counts an attempt and backs off;
+     *   the rest of the batch was fine -> released uncounted, claimable again right away (the drain's next
+     *   batch goes without the failed row), so one poison row can't park its batch-mates
+     * - no single row to blame (ack timeout, commit failed, fenced): every row counts an attempt and backs off
+     *
+     * ops.outbox.simulate-crash-after-send-once fails the first batch right in that window (after the Kafka
+     * commit, before the DB one), so the duplicate path can be tested.
+     *
+     * Step 3 runs under a savepoint: a failed UPDATE would otherwise leave the DB transaction aborted,
+     * and the backoff UPDATE after it would fail too (it can't go to a separate transaction either:
+     * ours still holds the claim locks on those rows).
+     */
+    private int relayTransactional(List<OutboxEventEntity> claimed) {
+        long startNs = System.nanoTime();
+        // claimed once at startup; claimEpoch() only if we run before OutboxRelayState.start()
+        long epoch = relayState.epoch() >= 0 ? relayState.epoch() : relayState.claimEpoch();
+        long seq = relayState.nextSeq(epoch);
+
+        List<UUID> ids = claimed.stream().map(OutboxEventEntity::getId).toList();
+        try {
+            txProducer.template().executeInTransaction(ops -> {
+                List<PendingSend> pending = new ArrayList<>(claimed.size());
+                for (OutboxEventEntity e : claimed) {
+                    pending.add(new PendingSend(e, sendToKafka(ops, e, new RelayStamp(epoch, seq))));
+                }
+                long deadlineNs = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ackTimeoutMs);
+                for (PendingSend p : pending) {
+                    long remainingNs = Math.max(0, deadlineNs - System.nanoTime());
+                    try {
+                        p.future().get(remainingNs, TimeUnit.NANOSECONDS);
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                        throw new IllegalStateException(ie);
+                    } catch (ExecutionException | TimeoutException ex) {
+                        // throwing out of the callback aborts the Kafka transaction
+                        throw new OutboxTransactionAbort(p.event(), unwrap(ex));
+                    }
+                }
+                stateWriter.markSentOrRollBack(ids);
+                return null;
+            });
+        } catch (Exception ex) {
+            OutboxTransactionAbort abort = ex instanceof OutboxTransactionAbort a ? a : null;
+            Throwable cause = abort != null ? abort.getCause() : ex;
+            UUID culprit = abort != null && !(cause instanceof TimeoutException) ? abort.eventId : null;
+            log.warn("OUTBOX_TX_ABORTED epoch={} seq={} events={} failed_id={} err={}",
+                    epoch, seq, claimed.size(), culprit, cause.toString());
+
+            List<OutboxStateWriter.Failure> failed = new ArrayList<>(claimed.size());
+            int parkedCount = 0;
+            for (OutboxEventEntity e : claimed) {
+                if (culprit != null && !culprit.equals(e.getId())) {
+                    failed.add(OutboxStateWriter.Failure.abortedBy(e.getId(), culprit));
+                    continue;
+                }
+                OutboxStateWriter.Failure f = failure(e, cause);
+                failed.add(f);
+                if (f.park()) parkedCount++;
+            }
+            // also clears sent_at in case the commit itself failed after step 3
+            stateWriter.markFailed(failed);
+            metrics.outboxBatch(claimed.size(), 0, failed.size(), parkedCount, System.nanoTime() - startNs);
+            return claimed.size();
+        }
+
+        if (simulateCrashAfterSendOnce && crashFired.compareAndSet(false, true)) {
+            // the one window that can duplicate: Kafka committed, the DB rolls back (rows stay unsent, seq unused)
+            // -> the next batch sends the same rows again, same outbox id / eventId, for consumers to dedup
+            log.error("OUTBOX_SIMULATED_CRASH_AFTER_KAFKA_COMMIT epoch={} seq={} events={} (DB not committed)",
+                    epoch, seq, claimed.size());
+            throw new IllegalStateException("SIMULATED_CRASH_AFTER_KAFKA_COMMIT");
+        }
+
+        for (OutboxEventEntity e : claimed) {
+            log.info("OUTBOX_SENT id={} eventType={} key={} attempts={} epoch={} seq={} corr={}",
+                    e.getId(), e.getEventType(), e.getAggregateId(), e.getAttempts(), epoch, seq, e.getCorrelationId());
+        }
+        long durationNs = System.nanoTime() - startNs;
+        metrics.outboxBatch(claimed.size(), claimed.size(), 0, 0, durationNs);
+        log.info("OUTBOX_BATCH_DONE claimed={} sent={} failed=0 epoch={} seq={} latency_ms={}",
+                claimed.size(), claimed.size(), epoch, seq, durationNs / 1_000_000);
+        return claimed.size();
+    }
+
+    /** Backoff (or park) decision + log line for one failed event. */
+    private OutboxStateWriter.Failure failure(OutboxEventEntity e, Throwable cause) {
+        int attempts = e.getAttempts() + 1;
+        boolean park = retryPolicy.shouldPark(attempts);
+        long retryDelayMs = retryPolicy.nextDelayMs(attempts);
+        metrics.outboxFailure(cause);
+
+        if (park) {
+            log.error("OUTBOX_PARKED id={} eventType={} attempts={} corr={} err={} (max attempts reached, needs manual requeue)",
+                    e.getId(), e.getEventType(), attempts, e.getCorrelationId(), cause.toString());
+        } else {
+            log.warn("OUTBOX_SEND_FAILED id={} eventType={} attempts={} retry_in_ms={} corr={} err={}",
+                    e.getId(), e.getEventType(), attempts, retryDelayMs, e.getCorrelationId(), cause.toString());
+        }
+        return new OutboxStateWriter.Failure(e.getId(), cause.toString(), retryDelayMs, park);
+    }
+
+    private CompletableFuture<?> send(OutboxEventEntity e, Semaphore inFlight) {
+        try {
+            inFlight.acquire();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(ie);
+        }
+
+        CompletableFuture<?> future = sendToKafka(kafkaTemplate, e, null);
+        future.whenComplete((r, ex) -> inFlight.release());
+        return future;
+    }
+
+    private CompletableFuture<?> sendToKafka(KafkaOperations<String, byte[]> ops, OutboxEventEntity e, RelayStamp stamp) {
+        CompletableFuture<?> future;
+        try {
+            // key = aggregateId for per-customer ordering
+            String key = e.getAggregateId().toString();
+            ProducerRecord<String, byte[]> record = new ProducerRecord<>(TOPIC, key, e.getPayload());
+            // payload bytes are relayed as stored; the header says how to decode them
+            record.headers()
+                    .add(PayloadCodecRegistry.HEADER_CODEC, e.getCodec().getBytes(StandardCharsets.UTF_8))
+                    .add(PayloadCodecRegistry.HEADER_SCHEMA_VERSION,
+                            Integer.toString(e.getSchemaVersion()).getBytes(StandardCharsets.UTF_8));
+            if (stamp != null) {
+                record.headers()
+                        .add(HEADER_OUTBOX_ID, e.getId().toString().getBytes(StandardCharsets.UTF_8))
+                        .add(HEADER_RELAY_EPOCH, Long.toString(stamp.epoch()).getBytes(StandardCharsets.UTF_8))
+                        .add(HEADER_RELAY_SEQ, Long.toString(stamp.seq()).getBytes(StandardCharsets.UTF_8));
+            }
+            future = ops.send(record);
+        } catch (Exception ex) {
+            return CompletableFuture.failedFuture(ex);
+        }
+
+        // measured at the ack itself, not when the relay gets around to checking the future
+        future.whenComplete((r, ex) -> {
+            if (ex == null) metrics.outboxPublished(e.getEventType(), e.getCreatedAt());
+        });
+
+        if (simulateCrashAfterSendOnce && !transactional && crashFired.compareAndSet(false, true)) {
+            // pipelined/lanes: the record is out -> it WILL be re-sent (duplicate)
+            // (transactional: fires between the Kafka and the DB commit instead, see relayTransactional)
+            log.error("OUTBOX_SIMULATED_CRASH_AFTER_SEND id={} (Kafka sent, DB not marked sent yet)", e.getId());
+            return CompletableFuture.failedFuture(new RuntimeException("SIMULATED_CRASH_AFTER_SEND"));
+        }
+        return future;
+    }
+
+    private static Throwable unwrap(Throwable ex) {
+        if (ex instanceof TimeoutException) return new TimeoutException("broker ack not received in time");
+        Throwable t = ex instanceof ExecutionException && ex.getCause() != null ? ex.getCause() : ex;
+        // KafkaTemplate wraps the client's exception: the failures counter and last_error want the client's
+        // (RecordTooLargeException, NotLeaderOrFollowerException, ...), not "KafkaException: Send failed"
+        if (t instanceof KafkaException && t.getCause() != null) return t.getCause();
+        return t;
+    }
+
+    private record PendingSend(OutboxEventEntity event, CompletableFuture<?> future) {}
+
+    private record RelayStamp(long epoch, long seq) {}
+
+    /** Carries the first failed send out of the Kafka transaction callback (-> abort). */
+    private static final class OutboxTransactionAbort extends RuntimeException {
+        private final UUID eventId;
+
+        private OutboxTransactionAbort(OutboxEventEntity event, Throwable cause) {
+            super("send of outbox event " + event.getId() + " failed", cause);
+            this.eventId = event.getId();
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.opsapi.outbox;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Stored producer epoch + batch sequence of this relay (outbox_relay_state, see V9).
+ *
+ * Mental model:
+ * - claimEpoch() once per process start (lifecycle start, before the relay can run): epoch + 1,
+ *   committed right away -> a zombie relay with the same relay id is fenced as soon as we are up,
+ *   not only once we send our first batch
+ * - nextSeq() once per Kafka transaction, inside the relay's DB transaction:
+ *   only succeeds while our epoch is still the current one -> a zombie relay that
+ *   reuses the same relay id is fenced instead of publishing next to the new one
+ * - the row stays locked until the batch commits, so batches of one relay are strictly sequential
+ */
+@Repository
+public class OutboxRelayState implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxRelayState.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String relayId;
+    private final boolean transactional;
+
+    private volatile long epoch = -1;
+    private volatile boolean running;
+
+    public OutboxRelayState(
+            JdbcTemplate jdbcTemplate,
+            @Value("${ops.outbox.publish.relay-id:${HOSTNAME:local}}") String relayId,
+            @Value("${ops.outbox.publish.transactional:false}") boolean transactional
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.relayId = relayId;
+        this.transactional = transactional;
+    }
+
+    @Override
+    public void start() {
+        // a failure here fails the startup: a relay that can't fence its predecessor must not publish
+        if (transactional) {
+            long claimed = claimEpoch();
+            log.info("OUTBOX_RELAY_EPOCH_CLAIMED relay_id={} epoch={}", relayId, claimed);
+        }
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        // before OutboxNotificationListener (default phase), which can trigger a relay run
+        return 0;
+    }
+
+    /** The epoch claimed by start(), -1 before that. A plain field read: the relay asks once per batch. */
+    public long epoch() {
+        return epoch;
+    }
+
+    /** Idempotent per process; the relay only calls it if it runs before start() (epoch() still -1). */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public synchronized long claimEpoch() {
+        if (epoch >= 0) return epoch;
+        epoch = jdbcTemplate.queryForObject("""
+                INSERT INTO outbox_relay_state (relay_id, producer_epoch)
+                VALUES (?, 0)
+                ON CONFLICT (relay_id) DO UPDATE
+                SET producer_epoch = outbox_relay_state.producer_epoch + 1,
+                    updated_at = now()
+                RETURNING producer_epoch
+                """, Long.class, relayId);
+        return epoch;
+    }
+
+    /**
+     * Next batch sequence for the current epoch (joins the caller's transaction).
+     *
+     * @throws IllegalStateException if another relay with the same id has claimed a newer epoch
+     */
+    public long nextSeq(long expectedEpoch) {
+        List<Long> seq = jdbcTemplate.queryForList("""
+                UPDATE outbox_relay_state
+                SET last_seq = last_seq + 1, updated_at = now()
+                WHERE relay_id = ? AND producer_epoch = ?
+                RETURNING last_seq
+                """, Long.class, relayId, expectedEpoch);
+        if (seq.isEmpty()) {
+            throw new IllegalStateException("relay " + relayId + " fenced: epoch " + expectedEpoch + " is no longer current");
+        }
+        return seq.get(0);
+    }
+
+    public String getRelayId() {
+        return relayId;
+    }
+}
@@ -0,0 +1,46 @@
+package com.opsapi.outbox;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Backoff for failed outbox sends.
+ *
+ * Mental model:
+ * - delay doubles per attempt: base, 2*base, 4*base, ... capped at max-delay
+ * - "equal jitter": wait half the delay + a random part of the other half,
+ *   so rows that failed together (broker outage) don't all retry in the same tick
+ * - after max-attempts the row is parked (dead-letter) instead of retried forever
+ */
+@Component
+public class OutboxRetryPolicy {
+
+    private final long baseDelayMs;
+    private final long maxDelayMs;
+    private final int maxAttempts;
+
+    public OutboxRetryPolicy(
+            @Value("${ops.outbox.retry.base-delay-ms:1000}") long baseDelayMs,
+            @Value("${ops.outbox.retry.max-delay-ms:300000}") long maxDelayMs,
+            @Value("${ops.outbox.retry.max-attempts:10}") int maxAttempts
+    ) {
+        this.baseDelayMs = Math.max(1, baseDelayMs);
+        this.maxDelayMs = Math.max(this.baseDelayMs, maxDelayMs);
+        this.maxAttempts = Math.max(1, maxAttempts);
+    }
+
+    /** @param attempts attempts made so far, including the one that just failed */
+    public boolean shouldPark(int attempts) {
+        return attempts >= maxAttempts;
+    }
+
+    /** @param attempts attempts made so far, including the one that just failed */
+    public long nextDelayMs(int attempts) {
+        int exponent = Math.min(Math.max(attempts - 1, 0), 30);
+        long delay = Math.min(maxDelayMs, baseDelayMs << exponent);
+        long half = delay / 2;
+        return half + ThreadLocalRandom.current().nextLong(delay - half + 1);
+    }
+}
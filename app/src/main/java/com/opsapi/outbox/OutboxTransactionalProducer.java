@@ -0,0 +1,64 @@
+package com.opsapi.outbox;
+
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * Transactional KafkaTemplate for ops.outbox.publish.transactional=true.
+ *
+ * Built next to (not instead of) the auto-configured template: setting
+ * spring.kafka.producer.transaction-id-prefix globally would force EVERY send in the app into a transaction.
+ *
+ * transactional.id = "ops-outbox-<relay-id>-<n>" -> stable across restarts, so the broker fences
+ * a zombie producer of the previous process and aborts its open transaction.
+ * Created lazily: nothing connects to Kafka unless the mode is on.
+ */
+@Component
+public class OutboxTransactionalProducer implements DisposableBean {
+
+    private final ProducerFactory<String, byte[]> producerFactory;
+    private final String transactionIdPrefix;
+
+    private volatile ProducerFactory<String, byte[]> txFactory;
+    private volatile KafkaTemplate<String, byte[]> template;
+
+    public OutboxTransactionalProducer(ProducerFactory<String, byte[]> producerFactory,
+                                       OutboxRelayState relayState) {
+        this.producerFactory = producerFactory;
+        this.transactionIdPrefix = "ops-outbox-" + relayState.getRelayId() + "-";
+    }
+
+    public KafkaTemplate<String, byte[]> template() {
+        KafkaTemplate<String, byte[]> t = template;
+        if (t != null) return t;
+        synchronized (this) {
+            if (template == null) {
+                ProducerFactory<String, byte[]> f = producerFactory.copyWithConfigurationOverride(
+                        Map.of(ProducerConfig.TRANSACTIONAL_ID_CONFIG, transactionIdPrefix));
+                if (f instanceof DefaultKafkaProducerFactory<String, byte[]> d) {
+                    d.setTransactionIdPrefix(transactionIdPrefix);
+                }
+                txFactory = f;
+                template = new KafkaTemplate<>(f);
+            }
+            return template;
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (txFactory instanceof DisposableBean d) {
+            try {
+                d.destroy();
+            } catch (Exception ignored) {
+                // shutting down anyway
+            }
+        }
+    }
+}
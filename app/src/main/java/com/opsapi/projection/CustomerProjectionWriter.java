@@ -0,0 +1,172 @@
+package com.opsapi.projection;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Batched upserts into customer_projection (see V12).
+ *
+ * Mental model:
+ * - ONE statement per batch: unnest() the columns as arrays, ON CONFLICT DO UPDATE
+ * - the update only applies if the incoming event is newer than the stored one
+ *   ((ts, eventId) order; the same event again = no write at all)
+ *   -> idempotent, order doesn't matter (live consumer and a rebuild can overlap)
+ * - several events of one customer in the same batch are collapsed to the newest first
+ *   (Postgres refuses to update the same row twice in one INSERT ... ON CONFLICT)
+ * - deletes are tombstones (deleted_at, see V15); a delete keeps the last known name/email
+ * - a reset rebuild writes into a staging copy (intoStaging) and swaps it in at the end, so readers keep
+ *   the old projection meanwhile instead of an empty one
+ *
+ * Uses the caller's transaction if there is one.
+ */
+@Repository
+public class CustomerProjectionWriter {
+
+    static final String TABLE = "customer_projection";
+    static final String STAGING = "customer_projection_rebuild";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // the rebuild thread's upserts go to STAGING while it runs intoStaging(); everyone else writes TABLE
+    private final ThreadLocal<String> target = ThreadLocal.withInitial(() -> TABLE);
+
+    public CustomerProjectionWriter(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /** @return rows inserted or changed (older events are no-ops) */
+    public int upsert(Collection<Row> rows) {
+        if (rows.isEmpty()) return 0;
+
+        Map<UUID, Row> newest = new HashMap<>(rows.size() * 2);
+        for (Row r : rows) {
+            newest.merge(r.customerId(), r, (a, b) -> newer(b, a) ? b : a);
+        }
+
+        int n = newest.size();
+        String[] ids = new String[n];
+        String[] names = new String[n];
+        String[] emails = new String[n];
+        String[] sources = new String[n];
+        String[] eventIds = new String[n];
+        String[] eventAts = new String[n];
+        String[] deletedAts = new String[n];
+        int i = 0;
+        for (Row r : newest.values()) {
+            ids[i] = r.customerId().toString();
+            names[i] = r.name();
+            emails[i] = r.email();
+            sources[i] = r.source();
+            eventIds[i] = r.eventId();
+            eventAts[i] = r.eventAt().toString();
+            deletedAts[i] = r.deleted() ? eventAts[i] : null;
+            i++;
+        }
+
+        return jdbcTemplate.update("""
+                INSERT INTO %s AS p (customer_id, name, email, source, last_event_id, last_event_at, deleted_at)
+                SELECT * FROM unnest(?::uuid[], ?::varchar[], ?::varchar[], ?::varchar[], ?::varchar[], ?::timestamptz[],
+                                     ?::timestamptz[])
+                ON CONFLICT (customer_id) DO UPDATE SET
+                    name          = COALESCE(EXCLUDED.name, p.name),
+                    email         = COALESCE(EXCLUDED.email, p.email),
+                    source        = COALESCE(EXCLUDED.source, p.source),
+                    last_event_id = EXCLUDED.last_event_id,
+                    last_event_at = EXCLUDED.last_event_at,
+                    deleted_at    = EXCLUDED.deleted_at,
+                    projected_at  = now()
+                WHERE (p.last_event_at, p.last_event_id)
+                    < (EXCLUDED.last_event_at, EXCLUDED.last_event_id)
+                """.formatted(target.get()),
+                ps -> {
+                    var con = ps.getConnection();
+                    ps.setArray(1, con.createArrayOf("varchar", ids));
+                    ps.setArray(2, con.createArrayOf("varchar", names));
+                    ps.setArray(3, con.createArrayOf("varchar", emails));
+                    ps.setArray(4, con.createArrayOf("varchar", sources));
+                    ps.setArray(5, con.createArrayOf("varchar", eventIds));
+                    ps.setArray(6, con.createArrayOf("varchar", eventAts));
+                    ps.setArray(7, con.createArrayOf("varchar", deletedAts));
+                });
+    }
+
+    private static boolean newer(Row a, Row b) {
+        int c = a.eventAt().compareTo(b.eventAt());
+        return c > 0 || (c == 0 && a.eventId().compareTo(b.eventId()) > 0);
+    }
+
+    /** Start over (rebuild with reset=true): an empty staging copy, same columns, defaults and indexes. */
+    public void createStaging() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + STAGING);
+        jdbcTemplate.execute("CREATE TABLE " + STAGING + " (LIKE " + TABLE + " INCLUDING ALL)");
+    }
+
+    /** Runs {@code work} with this thread's upserts going to the staging copy. */
+    public <T> T intoStaging(Supplier<T> work) {
+        target.set(STAGING);
+        try {
+            return work.get();
+        } finally {
+            target.remove();
+        }
+    }
+
+    /**
+     * Makes the staging copy the projection, in one transaction:
+     * 1) lock the live table (readers and the live consumer wait for the commit, which is short)
+     * 2) carry over what the live consumer projected since {@code since}: events the rebuild did not read
+     *    (newest still wins)
+     * 3) rename staging into place, drop the old table, give the primary key its usual name back
+     */
+    @Transactional
+    public int swapInStaging(Instant since) {
+        jdbcTemplate.execute("LOCK TABLE " + TABLE + " IN ACCESS EXCLUSIVE MODE");
+        int carried = jdbcTemplate.update("""
+                INSERT INTO %1$s AS p (customer_id, name, email, source, last_event_id, last_event_at, deleted_at, projected_at)
+                SELECT customer_id, name, email, source, last_event_id, last_event_at, deleted_at, projected_at
+                FROM %2$s
+                WHERE projected_at >= ?
+                ON CONFLICT (customer_id) DO UPDATE SET
+                    name          = EXCLUDED.name,
+                    email         = EXCLUDED.email,
+                    source        = EXCLUDED.source,
+                    last_event_id = EXCLUDED.last_event_id,
+                    last_event_at = EXCLUDED.last_event_at,
+                    deleted_at    = EXCLUDED.deleted_at,
+                    projected_at  = EXCLUDED.projected_at
+                WHERE (p.last_event_at, p.last_event_id)
+                    < (EXCLUDED.last_event_at, EXCLUDED.last_event_id)
+                """.formatted(STAGING, TABLE), Timestamp.from(since));
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " RENAME TO " + TABLE + "_replaced");
+        jdbcTemplate.execute("ALTER TABLE " + STAGING + " RENAME TO " + TABLE);
+        jdbcTemplate.execute("DROP TABLE " + TABLE + "_replaced");
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " RENAME CONSTRAINT " + STAGING + "_pkey TO " + TABLE + "_pkey");
+        return carried;
+    }
+
+    /** A failed reset rebuild leaves the live projection as it was. */
+    public void dropStaging() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + STAGING);
+    }
+
+    public record Row(UUID customerId, String name, String email, String source, String eventId, Instant eventAt,
+                      boolean deleted) {
+
+        public Row(UUID customerId, String name, String email, String source, String eventId, Instant eventAt) {
+            this(customerId, name, email, source, eventId, eventAt, false);
+        }
+
+        public static Row deleted(UUID customerId, String eventId, Instant eventAt) {
+            return new Row(customerId, null, null, null, eventId, eventAt, true);
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.opsapi.projection;
+
+import java.time.Instant;
+
+public class OutboxHistoryIncompleteException extends RuntimeException {
+    public OutboxHistoryIncompleteException(Instant coveredFrom) {
+        super("outbox_events only covers events since " + coveredFrom + " (older partitions were retired): "
+                + "reset=true would drop every customer with older events; use source=topic, reset=false, or force=true");
+    }
+}
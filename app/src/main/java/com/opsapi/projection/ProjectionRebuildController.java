@@ -0,0 +1,63 @@
+package com.opsapi.projection;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.Instant;
+import java.util.Locale;
+
+/**
+ * Ops endpoint: rebuild the customer projection from history.
+ *
+ * Examples:
+ *  - POST /admin/projections/rebuild?source=outbox&reset=true
+ *  - POST /admin/projections/rebuild?source=topic&from=2026-10-01T00:00:00Z&to=2026-10-02T00:00:00Z
+ *  - GET  /admin/projections/rebuild    -> progress (read, handled, eventsPerSecond, position, coveredFrom)
+ *
+ * reset=true replays the whole history (no from/to) into a staging copy that replaces the projection
+ * when the rebuild is done; until then reads see the old projection. It is refused (409) once retention
+ * trimmed the source: outbox partitions dropped (see coveredFrom), or topic partitions no longer starting
+ * at offset 0. force=true rebuilds anyway (customers whose events are gone disappear from the projection).
+ */
+@RestController
+@RequestMapping("/admin/projections")
+public class ProjectionRebuildController {
+
+    private final ProjectionRebuilder rebuilder;
+
+    public ProjectionRebuildController(ProjectionRebuilder rebuilder) {
+        this.rebuilder = rebuilder;
+    }
+
+    @PostMapping("/rebuild")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    public ProjectionRebuilder.Status rebuild(
+            @RequestParam(defaultValue = "outbox") String source,
+            @RequestParam(defaultValue = "customer-events") String topic,
+            @RequestParam(required = false) String from,
+            @RequestParam(required = false) String to,
+            @RequestParam(defaultValue = "false") boolean reset,
+            @RequestParam(defaultValue = "false") boolean force
+    ) {
+        ProjectionRebuilder.Source s = switch (source.trim().toLowerCase(Locale.ROOT)) {
+            case "outbox" -> ProjectionRebuilder.Source.OUTBOX;
+            case "topic" -> ProjectionRebuilder.Source.TOPIC;
+            default -> throw new IllegalArgumentException("source must be outbox or topic");
+        };
+        return rebuilder.start(s, topic, instant("from", from), instant("to", to), reset, force);
+    }
+
+    @GetMapping("/rebuild")
+    public ProjectionRebuilder.Status status() {
+        return rebuilder.status();
+    }
+
+    private static Instant instant(String name, String value) {
+        if (value == null || value.isBlank()) return null;
+        try {
+            return Instant.parse(value.trim());
+        } catch (RuntimeException ex) {
+            throw new IllegalArgumentException(name + " must be an ISO-8601 instant, e.g. 2026-10-01T00:00:00Z");
+        }
+    }
+}
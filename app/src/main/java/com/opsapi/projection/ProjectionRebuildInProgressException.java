@@ -0,0 +1,7 @@
+package com.opsapi.projection;
+
+public class ProjectionRebuildInProgressException extends RuntimeException {
+    public ProjectionRebuildInProgressException() {
+        super("A projection rebuild is already running on this node");
+    }
+}
@@ -0,0 +1,425 @@
+package com.opsapi.projection;
+
+import com.opsapi.common.OpsMetrics;
+import com.opsapi.events.EventEnvelope;
+import com.opsapi.events.EventEnvelopeReader;
+import com.opsapi.events.EventHandlerRegistry;
+import com.opsapi.events.PayloadCodecRegistry;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndTimestamp;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rebuilds the projections from history in bulk, without the per-message consumer path.
+ *
+ * Mental model:
+ * - source=outbox: stream outbox_events partition by partition (server-side cursor, fetchSize = batch);
+ *   each partition is one short read transaction, partitions outside [from, to) are skipped.
+ *   Retention (OutboxPartitionMaintenance) drops old partitions: status.coveredFrom says since when the
+ *   outbox is complete, and reset=true is refused once anything was retired (it would drop
+ *   customers whose events are gone and still end DONE)
+ * - source=topic:  a throwaway consumer assigned to every partition of the topic, from the offsets
+ *   at "from" up to the offsets at "to" (default: the end as of the start); nothing is committed.
+ *   reset=true is refused once topic retention deleted anything (a partition no longer starts at offset 0)
+ * - reset=true replays the whole history (from/to must be empty) into a staging copy of the projection,
+ *   swapped in when it is done; readers see the old projection until then. force=true skips the history checks.
+ *   A handler failure (e.g. a DB error on one batch) means staging misses those customers: the run ends FAILED,
+ *   staging is dropped and the live projection stays as it was
+ * - every batch: decode (codec by the codec column / ops-codec header) -> EventHandlerRegistry.dispatchBatch
+ *   -> one upsert statement per handler (e.g. CustomerProjectionWriter)
+ * - no processed_events, no per-event logs or transactions: the projections' upserts are idempotent
+ *   and order-independent (newest event wins), so a rebuild can run next to the live consumer
+ *   and can simply be re-run
+ *
+ * Progress (read / handled / skipped / failed / events/sec / position) is logged every progress-log-ms
+ * and returned by status(). skipped = events no handler can take (unknown, undecodable, unbindable);
+ * failed = a handler threw (worth a re-run).
+ */
+@Component
+public class ProjectionRebuilder {
+
+    private static final Logger log = LoggerFactory.getLogger(ProjectionRebuilder.class);
+
+    static final String GROUP_ID = "ops-api-projection-rebuild";
+
+    // startedAt is our clock, projected_at the DB's: carry over a little more than the rebuild's run time
+    private static final Duration CLOCK_SKEW = Duration.ofMinutes(1);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ConsumerFactory<String, byte[]> consumerFactory;
+    private final EventEnvelopeReader envelopeReader;
+    private final PayloadCodecRegistry codecs;
+    private final EventHandlerRegistry handlers;
+    private final CustomerProjectionWriter customerProjection;
+    private final OpsMetrics metrics;
+    private final int batchSize;
+    private final long progressLogMs;
+
+    private final AtomicLong read = new AtomicLong();
+    private final AtomicLong handled = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private volatile String position = "";
+    private volatile Status last = Status.idle();
+
+    public ProjectionRebuilder(JdbcTemplate jdbcTemplate,
+                               ConsumerFactory<String, byte[]> consumerFactory,
+                               EventEnvelopeReader envelopeReader,
+                               PayloadCodecRegistry codecs,
+                               EventHandlerRegistry handlers,
+                               CustomerProjectionWriter customerProjection,
+                               OpsMetrics metrics,
+                               @Value("${ops.projection.rebuild.batch-size:5000}") int batchSize,
+                               @Value("${ops.projection.rebuild.progress-log-ms:5000}") long progressLogMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.consumerFactory = consumerFactory;
+        this.envelopeReader = envelopeReader;
+        this.codecs = codecs;
+        this.handlers = handlers;
+        this.customerProjection = customerProjection;
+        this.metrics = metrics;
+        this.batchSize = Math.max(100, batchSize);
+        this.progressLogMs = Math.max(1000, progressLogMs);
+    }
+
+    /** Starts a rebuild in the background; one at a time per node. */
+    public synchronized Status start(Source source, String topic, Instant from, Instant to, boolean reset, boolean force) {
+        if (from != null && to != null && !from.isBefore(to)) {
+            throw new IllegalArgumentException("from must be before to");
+        }
+        if (reset && (from != null || to != null)) {
+            // everything outside [from, to) would be dropped with the old projection
+            throw new IllegalArgumentException("reset=true replays the whole history: leave from and to empty");
+        }
+        if (last.state() == State.RUNNING) {
+            throw new ProjectionRebuildInProgressException();
+        }
+        Instant coveredFrom = source == Source.OUTBOX ? coveredFrom(outboxPartitions(), Instant.now()) : null;
+        if (reset && !force) {
+            if (coveredFrom != null) throw new OutboxHistoryIncompleteException(coveredFrom);
+            if (source == Source.TOPIC) {
+                Map<Integer, Long> trimmed = trimmedPartitions(topic);
+                if (!trimmed.isEmpty()) throw new TopicHistoryIncompleteException(topic, trimmed);
+            }
+        }
+
+        read.set(0);
+        handled.set(0);
+        skipped.set(0);
+        failed.set(0);
+        position = "";
+        Instant upTo = to != null ? to : Instant.now();
+        last = new Status(State.RUNNING, source, source == Source.TOPIC ? topic : "outbox_events", from, upTo, reset,
+                coveredFrom, 0, 0, 0, 0, 0, "", Instant.now(), null, null);
+        Status started = last;
+        Thread.ofVirtual().name("projection-rebuild").start(() -> run(started));
+        return started;
+    }
+
+    public Status status() {
+        Status s = last;
+        return s.state() == State.RUNNING ? progress(s, State.RUNNING, null, null) : s;
+    }
+
+    private void run(Status started) {
+        log.info("PROJECTION_REBUILD_STARTED source={} from={} to={} reset={} covered_from={} batch_size={}",
+                started.origin(), started.from(), started.to(), started.reset(), started.coveredFrom(), batchSize);
+        if (started.coveredFrom() != null && (started.from() == null || started.from().isBefore(started.coveredFrom()))) {
+            log.warn("PROJECTION_REBUILD_PARTIAL_HISTORY covered_from={} (events before it were retired from the outbox)",
+                    started.coveredFrom());
+        }
+        try {
+            // reset: a fresh staging copy; the live projection stays readable until the swap
+            if (started.reset()) customerProjection.createStaging();
+
+            Batch batch = new Batch(started);
+            if (started.source() == Source.OUTBOX) {
+                fromOutbox(started.from(), started.to(), batch);
+            } else {
+                fromTopic(started.origin(), started.from(), started.to(), batch);
+            }
+            batch.flush();
+            if (started.reset() && failed.get() > 0) {
+                // staging misses the customers of the failed events: swapping it in would drop them
+                customerProjection.dropStaging();
+                last = progress(started, State.FAILED, Instant.now(),
+                        failed.get() + " events failed in their handler; staging dropped, live projection kept");
+                log.warn("PROJECTION_REBUILD_FAILED read={} handled={} failed={} (reset: staging dropped, nothing swapped)",
+                        last.read(), last.handled(), last.failed());
+                return;
+            }
+            if (started.reset()) {
+                int carried = customerProjection.swapInStaging(started.startedAt().minus(CLOCK_SKEW));
+                log.info("PROJECTION_REBUILD_SWAPPED carried_from_live={}", carried);
+            }
+
+            last = progress(started, State.DONE, Instant.now(), null);
+            metrics.record("ops.projection.rebuild.throughput", last.eventsPerSecond());
+            log.info("PROJECTION_REBUILD_DONE read={} handled={} skipped={} failed={} events_per_s={} latency_ms={}",
+                    last.read(), last.handled(), last.skipped(), last.failed(), Math.round(last.eventsPerSecond()),
+                    Duration.between(started.startedAt(), last.finishedAt()).toMillis());
+
+        } catch (Exception ex) {
+            // the projections are idempotent: fix the cause and start again (e.g. from=<position's time>)
+            last = progress(started, State.FAILED, Instant.now(), ex.toString());
+            log.warn("PROJECTION_REBUILD_FAILED read={} position={} err={}", last.read(), last.position(), ex.toString());
+            if (started.reset()) customerProjection.dropStaging();
+        }
+    }
+
+    // ---- source: outbox_events ----
+
+    private void fromOutbox(Instant from, Instant to, Batch batch) {
+        for (OutboxPartition p : outboxPartitions()) {
+            if (p.upper() != null && from != null && !p.upper().isAfter(from)) continue;
+            if (p.lower() != null && !p.lower().isBefore(to)) continue;
+            position = p.name();
+            streamPartition(p.name(), from != null ? from : Instant.EPOCH, to, batch);
+        }
+    }
+
+    /**
+     * Since when the outbox still holds every event: null if nothing was retired (the partitions reach back
+     * to MINVALUE without a gap), else the start of the newest gap-free run of partitions.
+     * Partitions that start in the future (pre-created) and the DEFAULT partition don't count.
+     */
+    static Instant coveredFrom(List<OutboxPartition> partitions, Instant now) {
+        boolean fromMinValue = false;
+        Instant runStart = null;
+        Instant reach = null;
+        for (OutboxPartition p : partitions) { // ordered by lower bound, MINVALUE first
+            if (p.upper() == null || (p.lower() != null && !p.lower().isBefore(now))) continue;
+            if (p.lower() == null) {
+                fromMinValue = true;
+            } else if (reach == null || p.lower().isAfter(reach)) {
+                // first bounded partition, or a gap before it: older events are gone
+                fromMinValue = false;
+                runStart = p.lower();
+            }
+            if (reach == null || p.upper().isAfter(reach)) reach = p.upper();
+        }
+        if (reach == null) return now;
+        return fromMinValue ? null : runStart;
+    }
+
+    private List<OutboxPartition> outboxPartitions() {
+        // bounds from pg_get_expr: "FOR VALUES FROM ('..') TO ('..')"; MINVALUE / DEFAULT -> null
+        return jdbcTemplate.query("""
+                SELECT c.relname,
+                       (regexp_match(pg_get_expr(c.relpartbound, c.oid), 'FROM \\(''([^'']+)''\\)'))[1]::timestamptz,
+                       (regexp_match(pg_get_expr(c.relpartbound, c.oid), 'TO \\(''([^'']+)''\\)'))[1]::timestamptz
+                FROM pg_inherits i
+                JOIN pg_class c ON c.oid = i.inhrelid
+                WHERE i.inhparent = 'outbox_events'::regclass
+                ORDER BY 2 NULLS FIRST
+                """,
+                (rs, n) -> new OutboxPartition(rs.getString(1), instant(rs.getTimestamp(2)), instant(rs.getTimestamp(3))));
+    }
+
+    private void streamPartition(String partition, Instant from, Instant to, Batch batch) {
+        jdbcTemplate.execute((ConnectionCallback<Void>) conn -> {
+            boolean autoCommit = conn.getAutoCommit();
+            // a cursor (fetchSize) needs a transaction; one per partition keeps it short
+            conn.setAutoCommit(false);
+            try (PreparedStatement ps = conn.prepareStatement(
+                    // partition names come from pg_class, not from user input
+                    "SELECT codec, payload FROM " + partition + " WHERE created_at >= ? AND created_at < ?")) {
+                ps.setFetchSize(batchSize);
+                ps.setTimestamp(1, Timestamp.from(from));
+                ps.setTimestamp(2, Timestamp.from(to));
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        String codec = rs.getString(1);
+                        byte[] payload = rs.getBytes(2);
+                        batch.add(() -> codecs.forId(codec).decode(payload));
+                    }
+                }
+                conn.commit();
+            } catch (SQLException | RuntimeException ex) {
+                conn.rollback();
+                throw ex;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+            return null;
+        });
+    }
+
+    // ---- source: a topic ----
+
+    private void fromTopic(String topic, Instant from, Instant to, Batch batch) {
+        Properties overrides = new Properties();
+        overrides.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        overrides.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, batchSize);
+        // big fetches: we want throughput, not latency
+        overrides.put(ConsumerConfig.MAX_PARTITION_FETCH_BYTES_CONFIG, 8 * 1024 * 1024);
+        overrides.put(ConsumerConfig.FETCH_MIN_BYTES_CONFIG, 1024 * 1024);
+        overrides.put(ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG, 100);
+
+        try (Consumer<String, byte[]> consumer = consumerFactory.createConsumer(GROUP_ID, "projection-rebuild", null, overrides)) {
+            List<TopicPartition> partitions = new ArrayList<>();
+            consumer.partitionsFor(topic).forEach(p -> partitions.add(new TopicPartition(p.topic(), p.partition())));
+            if (partitions.isEmpty()) return;
+            consumer.assign(partitions);
+
+            Map<TopicPartition, Long> end = offsetsAt(consumer, partitions, to);
+            if (from == null) {
+                consumer.seekToBeginning(partitions);
+            } else {
+                offsetsAt(consumer, partitions, from).forEach(consumer::seek);
+            }
+
+            while (!reached(consumer, partitions, end)) {
+                for (ConsumerRecord<String, byte[]> record : consumer.poll(Duration.ofSeconds(1))) {
+                    if (record.offset() >= end.get(new TopicPartition(record.topic(), record.partition()))) continue;
+                    batch.add(() -> codecs.forHeaders(record.headers()).decode(record.value()));
+                }
+                position = positions(consumer, partitions);
+            }
+        }
+    }
+
+    /** Partitions (-> first retained offset) that retention already trimmed: their oldest events are gone. */
+    private Map<Integer, Long> trimmedPartitions(String topic) {
+        try (Consumer<String, byte[]> consumer = consumerFactory.createConsumer(GROUP_ID, "projection-rebuild-check", null)) {
+            List<TopicPartition> partitions = new ArrayList<>();
+            consumer.partitionsFor(topic).forEach(p -> partitions.add(new TopicPartition(p.topic(), p.partition())));
+            Map<Integer, Long> trimmed = new TreeMap<>();
+            consumer.beginningOffsets(partitions).forEach((tp, offset) -> {
+                if (offset > 0) trimmed.put(tp.partition(), offset);
+            });
+            return trimmed;
+        }
+    }
+
+    /** First offset at/after {@code at} per partition (the end offset if there is none). */
+    private static Map<TopicPartition, Long> offsetsAt(Consumer<?, ?> consumer, List<TopicPartition> partitions, Instant at) {
+        Map<TopicPartition, Long> end = consumer.endOffsets(partitions);
+        Map<TopicPartition, Long> query = new HashMap<>();
+        partitions.forEach(tp -> query.put(tp, at.toEpochMilli()));
+        Map<TopicPartition, Long> result = new HashMap<>(end);
+        for (Map.Entry<TopicPartition, OffsetAndTimestamp> e : consumer.offsetsForTimes(query).entrySet()) {
+            if (e.getValue() != null) result.put(e.getKey(), e.getValue().offset());
+        }
+        return result;
+    }
+
+    private static boolean reached(Consumer<?, ?> consumer, List<TopicPartition> partitions, Map<TopicPartition, Long> end) {
+        for (TopicPartition tp : partitions) {
+            if (consumer.position(tp) < end.get(tp)) return false;
+        }
+        return true;
+    }
+
+    private static String positions(Consumer<?, ?> consumer, List<TopicPartition> partitions) {
+        StringJoiner j = new StringJoiner(",");
+        partitions.forEach(tp -> j.add(tp.partition() + "@" + consumer.position(tp)));
+        return j.toString();
+    }
+
+    // ---- batching + progress ----
+
+    @FunctionalInterface
+    private interface JsonSource {
+        byte[] json();
+    }
+
+    /** Collects decoded envelopes; every batchSize of them go to the handlers in one call. */
+    private final class Batch {
+        private final Status started;
+        private final List<EventEnvelope> envelopes = new ArrayList<>(batchSize);
+        private long lastLogMs = System.currentTimeMillis();
+
+        private Batch(Status started) {
+            this.started = started;
+        }
+
+        void add(JsonSource source) {
+            read.incrementAndGet();
+            try {
+                EventEnvelope e = envelopeReader.read(source.json());
+                envelopes.add(e);
+            } catch (IOException | RuntimeException undecodable) {
+                // the live path dead-letters these; a rebuild just counts them
+                skipped.incrementAndGet();
+            }
+            if (envelopes.size() >= batchSize) flush();
+        }
+
+        void flush() {
+            if (!envelopes.isEmpty()) {
+                EventHandlerRegistry.BatchResult r = started.reset()
+                        ? customerProjection.intoStaging(() -> handlers.dispatchBatch(envelopes))
+                        : handlers.dispatchBatch(envelopes);
+                handled.addAndGet(r.handled());
+                skipped.addAndGet(r.unhandled() + r.unbindable());
+                if (r.failed() > 0) {
+                    failed.addAndGet(r.failed());
+                    log.warn("PROJECTION_REBUILD_BATCH_FAILURES failed={} of={} (EVENT_BATCH_ITEM_FAILED at debug has the causes)",
+                            r.failed(), envelopes.size());
+                }
+                metrics.increment("ops.projection.rebuild.events", envelopes.size());
+                envelopes.clear();
+            }
+            long now = System.currentTimeMillis();
+            if (now - lastLogMs >= progressLogMs) {
+                lastLogMs = now;
+                Status s = progress(started, State.RUNNING, null, null);
+                log.info("PROJECTION_REBUILD_PROGRESS read={} handled={} skipped={} failed={} events_per_s={} position={}",
+                        s.read(), s.handled(), s.skipped(), s.failed(), Math.round(s.eventsPerSecond()), s.position());
+            }
+        }
+    }
+
+    private Status progress(Status started, State state, Instant finishedAt, String error) {
+        long n = read.get();
+        double seconds = Math.max(1, Duration.between(started.startedAt(), finishedAt != null ? finishedAt : Instant.now()).toMillis()) / 1000.0;
+        return new Status(state, started.source(), started.origin(), started.from(), started.to(), started.reset(),
+                started.coveredFrom(), n, handled.get(), skipped.get(), failed.get(), n / seconds, position, started.startedAt(), finishedAt, error);
+    }
+
+    private static Instant instant(Timestamp ts) {
+        return ts == null ? null : ts.toInstant();
+    }
+
+    record OutboxPartition(String name, Instant lower, Instant upper) {}
+
+    public enum Source { OUTBOX, TOPIC }
+
+    public enum State { IDLE, RUNNING, DONE, FAILED }
+
+    /** coveredFrom: source=outbox only, null = the outbox still has the full history. */
+    public record Status(State state, Source source, String origin, Instant from, Instant to, boolean reset,
+                         Instant coveredFrom, long read, long handled, long skipped, long failed, double eventsPerSecond,
+                         String position, Instant startedAt, Instant finishedAt, String error) {
+
+        static Status idle() {
+            return new Status(State.IDLE, null, null, null, null, false, null, 0, 0, 0, 0, 0, "", null, null, null);
+        }
+    }
+}
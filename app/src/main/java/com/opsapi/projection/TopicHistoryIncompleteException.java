@@ -0,0 +1,10 @@
+package com.opsapi.projection;
+
+import java.util.Map;
+
+public class TopicHistoryIncompleteException extends RuntimeException {
+    public TopicHistoryIncompleteException(String topic, Map<Integer, Long> firstRetainedOffsets) {
+        super(topic + " no longer starts at offset 0 (partition -> first retained offset: " + firstRetainedOffsets + "): "
+                + "reset=true would drop every customer whose events expired; use reset=false, or force=true");
+    }
+}
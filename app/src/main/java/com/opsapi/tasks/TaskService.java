@@ -1,7 +1,7 @@
 package com.opsapi.tasks;
 
 import com.opsapi.customers.CustomerNotFoundException;
-import com.opsapi.customers.CustomerRepository;
+import com.opsapi.customers.CustomerCache;
 import com.opsapi.notes.NoteEntity;
 import com.opsapi.notes.NoteRepository;
 import com.opsapi.tasks.dto.TaskCreateRequest;
@@ -19,19 +19,20 @@ import java.util.UUID;
 @Service
 public class TaskService {
 
-    private final CustomerRepository customerRepo;
+    private final CustomerCache customers;
     private final TaskRepository taskRepo;
     private final NoteRepository noteRepo;
 
-    public TaskService(CustomerRepository customerRepo, TaskRepository taskRepo, NoteRepository noteRepo) {
-        this.customerRepo = customerRepo;
+    public TaskService(CustomerCache customers, TaskRepository taskRepo, NoteRepository noteRepo) {
+        this.customers = customers;
         this.taskRepo = taskRepo;
         this.noteRepo = noteRepo;
     }
 
     @Transactional
     public TaskResponse createTaskForCustomer(UUID customerId, TaskCreateRequest req) {
-        if (!customerRepo.existsById(customerId)) {
+        // cached check; a customer deleted a moment ago on another node still fails on fk_tasks_customer (409)
+        if (!customers.exists(customerId)) {
             throw new CustomerNotFoundException(customerId);
         }
 
@@ -62,7 +63,7 @@ public class TaskService {
     }
 
     public TaskListResponse listTasksForCustomer(UUID customerId) {
-        if (!customerRepo.existsById(customerId)) {
+        if (!customers.exists(customerId)) {
             throw new CustomerNotFoundException(customerId);
         }
 
@@ -76,7 +77,7 @@ public class TaskService {
     }
 
     public TaskSummaryResponse listTaskSummaries(UUID customerId) {
-        if (!customerRepo.existsById(customerId)) {
+        if (!customers.exists(customerId)) {
             throw new CustomerNotFoundException(customerId);
         }
 
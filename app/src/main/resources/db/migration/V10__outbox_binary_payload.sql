@@ -0,0 +1,21 @@
+-- V10: outbox payload becomes bytes, relayed as stored
+-- Mental model:
+-- 1) schema_version = which fields the event has (what a handler binds to)
+-- 2) payload        = the exact bytes that go out as the Kafka record value
+-- 3) Existing rows are UTF-8 JSON -> they keep relaying unchanged under their old version.
+--    How the bytes are encoded is recorded per row in outbox_events.codec (V18).
+
+ALTER TABLE outbox_events
+    ADD COLUMN IF NOT EXISTS schema_version INT;
+
+-- rows written before this migration carry their version inside the JSON (missing = v1)
+UPDATE outbox_events
+SET    schema_version = COALESCE((payload::jsonb ->> 'schemaVersion')::int, 1)
+WHERE  schema_version IS NULL;
+
+ALTER TABLE outbox_events
+    ALTER COLUMN schema_version SET NOT NULL;
+
+-- text -> bytea: same bytes (UTF-8); rewrites every partition once
+ALTER TABLE outbox_events
+    ALTER COLUMN payload TYPE BYTEA USING convert_to(payload, 'UTF8');
@@ -0,0 +1,10 @@
+-- V11: processed_events is now pruned continuously (ProcessedEventsRetention)
+-- Mental model:
+-- 1) every run deletes old rows in small chunks -> a steady trickle of dead tuples
+-- 2) vacuum them early (2% instead of the default 20%) so freed space is reused by new inserts
+--    -> the table and its indexes stay about "retention window" big, insert latency stays flat
+
+ALTER TABLE processed_events SET (
+    autovacuum_vacuum_scale_factor = 0.02,
+    autovacuum_analyze_scale_factor = 0.02
+);
@@ -0,0 +1,17 @@
+-- V12: read-side projection of customer-events (what the consumer has seen, per customer)
+-- Mental model:
+-- 1) one row per customer, written by the event handlers (live) and by ProjectionRebuilder (bulk)
+-- 2) last_event_at/last_event_id = the event that produced the row; an upsert only wins if its
+--    event is newer (ts, then eventId) -> replays, duplicates and out-of-order deliveries can't
+--    roll a row back, and re-applying the same event writes nothing
+-- 3) so a rebuild can stream events in any order, in big batches, while the live consumer runs
+
+CREATE TABLE IF NOT EXISTS customer_projection (
+    customer_id    UUID         PRIMARY KEY,
+    name           VARCHAR(200) NOT NULL,
+    email          VARCHAR(320) NOT NULL,
+    source         VARCHAR(100),
+    last_event_id  VARCHAR(100) NOT NULL,
+    last_event_at  TIMESTAMPTZ  NOT NULL,
+    projected_at   TIMESTAMPTZ  NOT NULL DEFAULT now()
+);
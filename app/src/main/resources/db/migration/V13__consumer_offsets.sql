@@ -0,0 +1,23 @@
+-- V13: consumed Kafka offsets, stored with the consumer's side effects (ops.events.dedup.strategy)
+-- Mental model:
+-- 1) one row per (group, topic, partition): next_offset = first offset NOT yet applied
+-- 2) advanced in the listener's DB transaction -> "applied" and "offset moved" commit together
+-- 3) on partition assignment the consumer seeks here (if ahead of Kafka's committed offset),
+--    and every poll re-reads it under a row lock -> records below it are duplicates
+--    (one row update per poll instead of one processed_events row per event)
+
+CREATE TABLE IF NOT EXISTS consumer_offsets (
+    group_id     VARCHAR(200) NOT NULL,
+    topic        VARCHAR(250) NOT NULL,
+    partition_id INT          NOT NULL,
+    next_offset  BIGINT       NOT NULL,
+    updated_at   TIMESTAMPTZ  NOT NULL DEFAULT now(),
+    PRIMARY KEY (group_id, topic, partition_id)
+);
+
+-- a handful of rows updated on every poll: leave room for HOT updates, vacuum early
+ALTER TABLE consumer_offsets SET (
+    fillfactor = 50,
+    autovacuum_vacuum_scale_factor = 0.0,
+    autovacuum_vacuum_threshold = 1000
+);
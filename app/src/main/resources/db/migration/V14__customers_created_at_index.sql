@@ -0,0 +1,18 @@
+-- V14: index for GET /customers (newest first, offset and cursor pages)
+-- Mental model:
+-- 1) ORDER BY created_at DESC, id DESC LIMIT n = walk this index from the top, stop after n rows
+--    (no sort of the whole table)
+-- 2) cursor pages start with WHERE (created_at, id) < (cursor) = one index seek, then n rows
+--    -> page 1000 costs the same as page 1
+-- 3) id is the tie-breaker: two customers created in the same microsecond still have one order
+--
+-- Built CONCURRENTLY: writes to customers go on while it builds. Flyway runs this file outside a
+-- transaction, and its own lock must not be a transaction either (the build waits for every open
+-- one): spring.flyway.postgresql.transactional-lock=false in application.yml.
+-- A build that failed half-way leaves an INVALID index that IF NOT EXISTS would keep
+-- -> drop whatever is there first; the re-run then builds it properly.
+
+DROP INDEX CONCURRENTLY IF EXISTS idx_customers_created_at_id;
+
+CREATE INDEX CONCURRENTLY idx_customers_created_at_id
+    ON customers (created_at DESC, id DESC);
@@ -0,0 +1,11 @@
+-- V15: CUSTOMER_UPDATED / CUSTOMER_DELETED in customer_projection
+-- Mental model:
+-- 1) a delete is a tombstone (deleted_at set), not a DELETE: an older event arriving later
+--    (rebuild, redelivery) loses against it instead of bringing the customer back
+-- 2) a newer event clears it again (same newest-(ts, eventId)-wins rule as V12)
+-- 3) name/email may be NULL: a customer we only ever saw deleted (events carry just the id)
+
+ALTER TABLE customer_projection
+    ADD COLUMN IF NOT EXISTS deleted_at TIMESTAMPTZ,
+    ALTER COLUMN name DROP NOT NULL,
+    ALTER COLUMN email DROP NOT NULL;
@@ -0,0 +1,22 @@
+-- V16: indexes for the NDJSON exports (GET /export/{customers|tasks|notes})
+-- Mental model:
+-- 1) an export is ORDER BY updated_at, id (notes: created_at, id - they are never updated)
+--    -> walk the index; rows stream out from the first fetch, no sort of the whole table
+-- 2) ?since= is one index seek, then only the changed rows (incremental exports stay cheap)
+--
+-- Built CONCURRENTLY, like V14 (drop first: a half-built index is INVALID and IF NOT EXISTS would keep it).
+
+DROP INDEX CONCURRENTLY IF EXISTS idx_customers_updated_at_id;
+
+CREATE INDEX CONCURRENTLY idx_customers_updated_at_id
+    ON customers (updated_at, id);
+
+DROP INDEX CONCURRENTLY IF EXISTS idx_tasks_updated_at_id;
+
+CREATE INDEX CONCURRENTLY idx_tasks_updated_at_id
+    ON tasks (updated_at, id);
+
+DROP INDEX CONCURRENTLY IF EXISTS idx_notes_created_at_id;
+
+CREATE INDEX CONCURRENTLY idx_notes_created_at_id
+    ON notes (created_at, id);
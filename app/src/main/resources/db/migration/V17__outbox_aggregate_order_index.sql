@@ -0,0 +1,14 @@
+-- V17: index for the per-aggregate ordering check of the relay claim
+-- Mental model:
+-- 1) a row is only claimable while no OLDER unsent row of the same aggregate exists
+--    (NOT EXISTS (same aggregate_id, earlier created_at, sent_at IS NULL)), so a retry that backs off
+--    or gets parked holds back everything after it for that customer instead of being overtaken
+-- 2) this index answers that probe with one seek per candidate row
+-- 3) partial (sent_at IS NULL) -> only pending rows are indexed, like idx_outbox_due
+--
+-- Not CONCURRENTLY: PostgreSQL can't build an index on a partitioned parent concurrently.
+-- The build only scans the retained partitions (retention drops the rest) and keeps only unsent rows.
+
+CREATE INDEX IF NOT EXISTS idx_outbox_unsent_aggregate
+    ON outbox_events (aggregate_id, created_at)
+    WHERE sent_at IS NULL;
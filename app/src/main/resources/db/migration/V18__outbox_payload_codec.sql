@@ -0,0 +1,9 @@
+-- V18: the payload codec gets its own column
+-- Mental model:
+-- 1) schema_version = the event's fields (what a handler binds to)
+-- 2) codec          = how payload is encoded (PayloadCodec id, sent as the ops-codec header)
+-- 3) Every row written before this is plain JSON -> the default covers them.
+
+-- constant default: no table rewrite
+ALTER TABLE outbox_events
+    ADD COLUMN IF NOT EXISTS codec VARCHAR(32) NOT NULL DEFAULT 'json';
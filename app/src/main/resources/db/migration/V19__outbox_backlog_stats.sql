@@ -0,0 +1,26 @@
+-- V19: backlog gauges measured by one node for all of them (OutboxBacklogMonitor)
+-- Mental model:
+-- 1) one row: the last measurement of the pending (unsent, not parked) rows
+-- 2) whichever node finds it older than the refresh interval (and wins the advisory lock) measures again;
+--    every node's gauges read this row -> N nodes cost one measurement per interval, not N
+-- 3) unsent is a LIMIT-bounded count (ops.outbox.metrics.backlog-count-cap): a huge backlog costs the cap, not the table
+-- 4) the partial index gives min(created_at) over pending rows as one seek per partition
+--    (pending rows only, like idx_outbox_due -> stays small however much sent history is kept)
+
+CREATE TABLE IF NOT EXISTS outbox_backlog_stats (
+    id                SMALLINT    PRIMARY KEY CHECK (id = 1),
+    unsent            BIGINT      NOT NULL,
+    oldest_created_at TIMESTAMPTZ,
+    refreshed_at      TIMESTAMPTZ NOT NULL
+);
+
+INSERT INTO outbox_backlog_stats (id, unsent, oldest_created_at, refreshed_at)
+VALUES (1, 0, NULL, '-infinity')
+ON CONFLICT (id) DO NOTHING;
+
+-- rewritten every refresh interval: leave room for HOT updates
+ALTER TABLE outbox_backlog_stats SET (fillfactor = 50);
+
+CREATE INDEX IF NOT EXISTS idx_outbox_pending_created
+    ON outbox_events (created_at)
+    WHERE sent_at IS NULL AND parked_at IS NULL;
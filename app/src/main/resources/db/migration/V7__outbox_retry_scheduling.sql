@@ -0,0 +1,22 @@
+-- V7: outbox retry scheduling
+-- Mental model:
+-- 1) next_attempt_at = "don't touch this row before ..." (exponential backoff after each failure)
+-- 2) parked_at       = "gave up after max attempts" (dead-letter state, needs a human)
+-- 3) The relay only claims rows that are unsent, not parked and due -> a poison event
+--    can no longer sit at the head of the queue and be re-sent every tick.
+
+ALTER TABLE outbox_events
+    ADD COLUMN IF NOT EXISTS next_attempt_at TIMESTAMPTZ NOT NULL DEFAULT now(),
+    ADD COLUMN IF NOT EXISTS parked_at       TIMESTAMPTZ NULL;
+
+-- Existing unsent rows keep their original (created_at) order
+UPDATE outbox_events
+SET    next_attempt_at = created_at
+WHERE  sent_at IS NULL;
+
+-- Index supports the relay claim query:
+-- WHERE sent_at IS NULL AND parked_at IS NULL AND next_attempt_at <= now() ORDER BY next_attempt_at
+-- Partial -> only pending rows are indexed, so it stays small however much history piles up.
+CREATE INDEX IF NOT EXISTS idx_outbox_due
+    ON outbox_events (next_attempt_at)
+    WHERE sent_at IS NULL AND parked_at IS NULL;
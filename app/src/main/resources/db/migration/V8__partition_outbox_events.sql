@@ -0,0 +1,72 @@
+-- V8: range-partition outbox_events by created_at (one partition per day)
+-- Mental model:
+-- 1) History piles up in old daily partitions; the relay only touches today's/recent ones
+-- 2) Retention = DETACH/DROP a whole partition (no big DELETE, no vacuum storm)
+-- 3) Partitioned tables need the partition key in the PK -> PRIMARY KEY (id, created_at)
+--
+-- Layout created here:
+-- - outbox_events_p_legacy : everything before today (existing rows)
+-- - outbox_events_pYYYYMMDD: today + next 7 days (OutboxPartitionMaintenance keeps creating ahead)
+-- - outbox_events_p_default: safety net, should stay empty
+
+ALTER TABLE outbox_events RENAME TO outbox_events_old;
+ALTER TABLE outbox_events_old RENAME CONSTRAINT outbox_events_pkey TO outbox_events_old_pkey;
+
+CREATE TABLE outbox_events (
+  id              UUID         NOT NULL,
+  aggregate_type  VARCHAR(100) NOT NULL,
+  aggregate_id    UUID         NOT NULL,
+  event_type      VARCHAR(100) NOT NULL,
+  payload         TEXT         NOT NULL,
+  correlation_id  VARCHAR(100),
+  created_at      TIMESTAMPTZ  NOT NULL DEFAULT now(),
+  sent_at         TIMESTAMPTZ  NULL,
+  attempts        INT          NOT NULL DEFAULT 0,
+  last_error      TEXT         NULL,
+  next_attempt_at TIMESTAMPTZ  NOT NULL DEFAULT now(),
+  parked_at       TIMESTAMPTZ  NULL,
+  CONSTRAINT outbox_events_pkey PRIMARY KEY (id, created_at)
+) PARTITION BY RANGE (created_at);
+
+DO $$
+DECLARE
+    today DATE := (now() AT TIME ZONE 'UTC')::date;
+    d     DATE;
+BEGIN
+    EXECUTE format(
+        'CREATE TABLE outbox_events_p_legacy PARTITION OF outbox_events FOR VALUES FROM (MINVALUE) TO (%L)',
+        today::timestamp AT TIME ZONE 'UTC');
+
+    FOR i IN 0..7 LOOP
+        d := today + i;
+        EXECUTE format(
+            'CREATE TABLE outbox_events_p%s PARTITION OF outbox_events FOR VALUES FROM (%L) TO (%L)',
+            to_char(d, 'YYYYMMDD'),
+            d::timestamp AT TIME ZONE 'UTC',
+            (d + 1)::timestamp AT TIME ZONE 'UTC');
+    END LOOP;
+END $$;
+
+CREATE TABLE outbox_events_p_default PARTITION OF outbox_events DEFAULT;
+
+INSERT INTO outbox_events (
+  id, aggregate_type, aggregate_id, event_type, payload, correlation_id,
+  created_at, sent_at, attempts, last_error, next_attempt_at, parked_at
+)
+SELECT
+  id, aggregate_type, aggregate_id, event_type, payload, correlation_id,
+  created_at, sent_at, attempts, last_error, next_attempt_at, parked_at
+FROM outbox_events_old;
+
+-- drops the old table's indexes too (idx_outbox_unsent_created, idx_outbox_aggregate, idx_outbox_due)
+DROP TABLE outbox_events_old;
+
+-- Indexes on the parent are created on every partition (current and future).
+-- idx_outbox_unsent_created (sent_at, created_at) is not recreated: the partial idx_outbox_due
+-- only holds pending rows, so it stays small no matter how much sent history exists.
+CREATE INDEX idx_outbox_due
+    ON outbox_events (next_attempt_at)
+    WHERE sent_at IS NULL AND parked_at IS NULL;
+
+CREATE INDEX idx_outbox_aggregate
+    ON outbox_events (aggregate_type, aggregate_id);
@@ -0,0 +1,14 @@
+-- V9: producer epoch / batch sequence for the transactional outbox relay
+-- Mental model:
+-- 1) relay_id       = one row per relay process (same id = same Kafka transactional.id)
+-- 2) producer_epoch = bumped every time a relay (re)starts -> an older instance with the same id
+--                     can no longer advance last_seq and stops (fenced), like Kafka fences its producer
+-- 3) last_seq       = sequence of the last Kafka transaction; stamped into every record header,
+--                     so consumers can tell batches apart without looking up each event id
+
+CREATE TABLE IF NOT EXISTS outbox_relay_state (
+    relay_id        VARCHAR(100) PRIMARY KEY,
+    producer_epoch  BIGINT       NOT NULL,
+    last_seq        BIGINT       NOT NULL DEFAULT 0,
+    updated_at      TIMESTAMPTZ  NOT NULL DEFAULT now()
+);
@@ -0,0 +1,87 @@
+package com.opsapi.customers;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.opsapi.customers.dto.CustomerBatchGetRequest;
+import com.opsapi.customers.dto.CustomerCreateRequest;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Testcontainers
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class CustomerBatchGetIntegrationTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withDatabaseName("opsdb")
+            .withUsername("ops")
+            .withPassword("ops");
+
+    @DynamicPropertySource
+    static void datasourceProps(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+
+        registry.add("spring.flyway.enabled", () -> true);
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "validate");
+        registry.add("spring.jpa.open-in-view", () -> "false");
+    }
+
+    @LocalServerPort
+    int port;
+
+    private final TestRestTemplate rest = new TestRestTemplate();
+
+    @Test
+    void batchGet_returnsFoundAndMissing_inRequestOrder_cachedOrNot() {
+        String baseUrl = "http://localhost:" + port;
+        UUID a = create(baseUrl, "Batch A", "batch-a@example.com");
+        UUID b = create(baseUrl, "Batch B", "batch-b@example.com");
+        UUID unknown = UUID.randomUUID();
+        rest.getForEntity(baseUrl + "/customers/" + a, String.class); // a is cached now, b is not
+
+        ResponseEntity<JsonNode> resp = rest.postForEntity(baseUrl + "/customers:batchGet",
+                new CustomerBatchGetRequest(List.of(b, unknown, a, b)), JsonNode.class);
+
+        assertThat(resp.getStatusCode().value()).isEqualTo(200);
+        List<String> found = new ArrayList<>();
+        resp.getBody().get("found").forEach(c -> found.add(c.get("name").asText()));
+        assertThat(found).containsExactly("Batch B", "Batch A");
+        assertThat(resp.getBody().get("missing")).hasSize(1);
+        assertThat(resp.getBody().get("missing").get(0).asText()).isEqualTo(unknown.toString());
+    }
+
+    @Test
+    void emptyOrTooManyIds_is400() {
+        String baseUrl = "http://localhost:" + port;
+
+        ResponseEntity<String> empty = rest.postForEntity(baseUrl + "/customers:batchGet",
+                new CustomerBatchGetRequest(List.of()), String.class);
+        assertThat(empty.getStatusCode().value()).isEqualTo(400);
+
+        List<UUID> tooMany = new ArrayList<>(Collections.nCopies(101, UUID.randomUUID()));
+        ResponseEntity<String> big = rest.postForEntity(baseUrl + "/customers:batchGet",
+                new CustomerBatchGetRequest(tooMany), String.class);
+        assertThat(big.getStatusCode().value()).isEqualTo(400);
+    }
+
+    private UUID create(String baseUrl, String name, String email) {
+        JsonNode created = rest.postForEntity(baseUrl + "/customers", new CustomerCreateRequest(name, email), JsonNode.class).getBody();
+        return UUID.fromString(created.get("id").asText());
+    }
+}
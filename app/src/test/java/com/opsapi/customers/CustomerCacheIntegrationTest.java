@@ -0,0 +1,163 @@
+package com.opsapi.customers;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.opsapi.customers.dto.CustomerCreateRequest;
+import com.opsapi.customers.dto.CustomerUpdateRequest;
+import com.opsapi.events.CustomerCacheInvalidator;
+import com.opsapi.events.PayloadCodecRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Testcontainers
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class CustomerCacheIntegrationTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withDatabaseName("opsdb")
+            .withUsername("ops")
+            .withPassword("ops");
+
+    @DynamicPropertySource
+    static void datasourceProps(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+
+        registry.add("spring.flyway.enabled", () -> true);
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "validate");
+        registry.add("spring.jpa.open-in-view", () -> "false");
+
+        // long enough that only an invalidation can make a GET see a change
+        registry.add("ops.customers.cache.ttl-ms", () -> 600_000);
+    }
+
+    @LocalServerPort
+    int port;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    CustomerCacheInvalidator invalidator;
+
+    @Autowired
+    PayloadCodecRegistry codecs;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    private final TestRestTemplate rest = new TestRestTemplate();
+
+    @Test
+    void cachedCustomer_isServedFromTheCache_untilAnUpdateThroughTheApi() {
+        String baseUrl = "http://localhost:" + port;
+        UUID id = create(baseUrl, "Cache Before", "cache-update@example.com");
+        assertThat(name(baseUrl, id)).isEqualTo("Cache Before");
+
+        // behind the cache's back: the next GET is a hit and still shows the cached snapshot
+        jdbcTemplate.update("UPDATE customers SET name = 'Changed In DB' WHERE id = ?", id);
+        assertThat(name(baseUrl, id)).isEqualTo("Cache Before");
+
+        ResponseEntity<JsonNode> updated = rest.exchange(baseUrl + "/customers/" + id, HttpMethod.PUT,
+                new HttpEntity<>(new CustomerUpdateRequest("Cache After", "cache-update@example.com")), JsonNode.class);
+        assertThat(updated.getStatusCode().value()).isEqualTo(200);
+
+        assertThat(name(baseUrl, id)).isEqualTo("Cache After");
+    }
+
+    @Test
+    void cachedCustomer_isGoneRightAfterADelete() {
+        String baseUrl = "http://localhost:" + port;
+        UUID id = create(baseUrl, "Cache Deleted", "cache-delete@example.com");
+        assertThat(rest.getForEntity(baseUrl + "/customers/" + id, JsonNode.class).getStatusCode().value()).isEqualTo(200);
+
+        rest.delete(baseUrl + "/customers/" + id);
+
+        assertThat(rest.getForEntity(baseUrl + "/customers/" + id, JsonNode.class).getStatusCode().value()).isEqualTo(404);
+    }
+
+    @Test
+    void updateAndDelete_enqueueOneOutboxEventEach_inOrder() throws IOException {
+        String baseUrl = "http://localhost:" + port;
+        UUID id = create(baseUrl, "Outbox Customer", "cache-outbox@example.com");
+        rest.put(baseUrl + "/customers/" + id, new CustomerUpdateRequest("Outbox Renamed", "cache-outbox@example.com"));
+        rest.delete(baseUrl + "/customers/" + id);
+
+        List<JsonNode> events = outboxEvents(id);
+        assertThat(events).extracting(e -> e.get("type").asText())
+                .containsExactly("CUSTOMER_CREATED", "CUSTOMER_UPDATED", "CUSTOMER_DELETED");
+        assertThat(events).allSatisfy(e -> assertThat(e.get("customerId").asText()).isEqualTo(id.toString()));
+        assertThat(events.get(1).get("name").asText()).isEqualTo("Outbox Renamed");
+    }
+
+    @Test
+    void invalidator_dropsTheEntryOfTheRecordKey_andIgnoresBadKeys() {
+        String baseUrl = "http://localhost:" + port;
+        UUID changed = create(baseUrl, "Other Node Before", "cache-invalidator@example.com");
+        UUID untouched = create(baseUrl, "Untouched", "cache-untouched@example.com");
+        name(baseUrl, changed);
+        name(baseUrl, untouched);
+
+        // another node changed both rows; only changed's event has arrived so far
+        jdbcTemplate.update("UPDATE customers SET name = 'Other Node After' WHERE id = ?", changed);
+        jdbcTemplate.update("UPDATE customers SET name = 'Untouched Changed' WHERE id = ?", untouched);
+
+        invalidator.onEvents(List.of(
+                record(changed.toString()),
+                record("not-a-uuid"),
+                record(null)));
+
+        assertThat(name(baseUrl, changed)).isEqualTo("Other Node After");
+        assertThat(name(baseUrl, untouched)).isEqualTo("Untouched");
+    }
+
+    private static ConsumerRecord<String, byte[]> record(String key) {
+        // the invalidator only reads the key
+        return new ConsumerRecord<>("customer-events", 0, 0, key, new byte[0]);
+    }
+
+    private List<JsonNode> outboxEvents(UUID id) throws IOException {
+        List<JsonNode> events = new ArrayList<>();
+        for (var row : jdbcTemplate.queryForList(
+                "SELECT codec, payload FROM outbox_events WHERE aggregate_id = ? ORDER BY created_at", id)) {
+            byte[] json = codecs.forId((String) row.get("codec")).decode((byte[]) row.get("payload"));
+            events.add(objectMapper.readTree(json));
+        }
+        return events;
+    }
+
+    private String name(String baseUrl, UUID id) {
+        ResponseEntity<JsonNode> resp = rest.getForEntity(baseUrl + "/customers/" + id, JsonNode.class);
+        assertThat(resp.getStatusCode().value()).isEqualTo(200);
+        return resp.getBody().get("name").asText();
+    }
+
+    private UUID create(String baseUrl, String name, String email) {
+        ResponseEntity<JsonNode> resp = rest.postForEntity(baseUrl + "/customers",
+                new CustomerCreateRequest(name, email), JsonNode.class);
+        assertThat(resp.getStatusCode().value()).isEqualTo(201);
+        return UUID.fromString(resp.getBody().get("id").asText());
+    }
+}
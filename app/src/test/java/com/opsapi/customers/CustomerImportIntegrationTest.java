@@ -0,0 +1,153 @@
+package com.opsapi.customers;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.opsapi.customers.dto.CustomerCreateRequest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Testcontainers
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class CustomerImportIntegrationTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withDatabaseName("opsdb")
+            .withUsername("ops")
+            .withPassword("ops");
+
+    @DynamicPropertySource
+    static void datasourceProps(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+
+        registry.add("spring.flyway.enabled", () -> true);
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "validate");
+        registry.add("spring.jpa.open-in-view", () -> "false");
+    }
+
+    @LocalServerPort
+    int port;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    private final TestRestTemplate rest = new TestRestTemplate();
+
+    @Test
+    void ndjsonImport_insertsNewEmails_andReportsBadLinesAndConflicts() {
+        String baseUrl = "http://localhost:" + port;
+        rest.postForEntity(baseUrl + "/customers",
+                new CustomerCreateRequest("Existing", "import-existing@example.com"), String.class);
+        long eventsBefore = createdEvents();
+
+        String body = """
+                {"name":"Import A","email":" Import-A@Example.com "}
+                {"name":"Import B","email":"import-b@example.com"}
+
+                {"name":"Import A again","email":"import-a@example.com"}
+                {"name":"Existing again","email":"import-existing@example.com"}
+                {"name":"","email":"not-an-email"}
+                not json
+                """;
+        ResponseEntity<JsonNode> resp = post(baseUrl, body, MediaType.APPLICATION_NDJSON);
+
+        assertThat(resp.getStatusCode().value()).isEqualTo(200);
+        JsonNode result = resp.getBody();
+        assertThat(result).isNotNull();
+        assertThat(result.get("received").asLong()).isEqualTo(6);
+        assertThat(result.get("imported").asLong()).isEqualTo(2);
+        assertThat(result.get("invalid").asLong()).isEqualTo(2);
+        assertThat(result.get("conflicts").asLong()).isEqualTo(2);
+        assertThat(problems(result)).containsExactly(
+                "4:DUPLICATE_IN_FILE", "5:EMAIL_EXISTS", "6:INVALID", "7:INVALID");
+
+        // normalized like POST /customers, and visible through the normal API
+        JsonNode list = rest.getForEntity(baseUrl + "/customers?limit=100", JsonNode.class).getBody();
+        assertThat(list).isNotNull();
+        List<String> emails = new ArrayList<>();
+        list.get("items").forEach(c -> emails.add(c.get("email").asText()));
+        assertThat(emails).contains("import-a@example.com", "import-b@example.com");
+
+        // one CUSTOMER_CREATED per imported customer; conflicting and invalid lines enqueue nothing
+        assertThat(createdEvents() - eventsBefore).isEqualTo(2);
+        assertThat(outboxEventTypes(customerId("import-a@example.com"))).containsExactly("CUSTOMER_CREATED");
+        assertThat(outboxEventTypes(customerId("import-b@example.com"))).containsExactly("CUSTOMER_CREATED");
+        assertThat(outboxEventTypes(customerId("import-existing@example.com"))).containsExactly("CUSTOMER_CREATED");
+    }
+
+    @Test
+    void csvImport_readsTheHeader_andQuotedFields() {
+        String baseUrl = "http://localhost:" + port;
+
+        String body = """
+                email,name
+                import-csv-1@example.com,"Smith, ""Jo\"""
+                import-csv-2@example.com,Plain
+                """;
+        ResponseEntity<JsonNode> resp = post(baseUrl, body, MediaType.parseMediaType("text/csv"));
+
+        assertThat(resp.getStatusCode().value()).isEqualTo(200);
+        assertThat(resp.getBody().get("imported").asLong()).isEqualTo(2);
+
+        assertThat(outboxEventTypes(customerId("import-csv-1@example.com"))).containsExactly("CUSTOMER_CREATED");
+        assertThat(outboxEventTypes(customerId("import-csv-2@example.com"))).containsExactly("CUSTOMER_CREATED");
+        long eventsBefore = createdEvents();
+
+        ResponseEntity<JsonNode> again = post(baseUrl, body, MediaType.parseMediaType("text/csv"));
+        assertThat(again.getBody().get("imported").asLong()).isZero();
+        assertThat(again.getBody().get("conflicts").asLong()).isEqualTo(2);
+        assertThat(createdEvents()).isEqualTo(eventsBefore);
+    }
+
+    @Test
+    void csvWithoutHeader_is400() {
+        ResponseEntity<JsonNode> resp = post("http://localhost:" + port, "a,b\n1,2\n", MediaType.parseMediaType("text/csv"));
+        assertThat(resp.getStatusCode().value()).isEqualTo(400);
+    }
+
+    private ResponseEntity<JsonNode> post(String baseUrl, String body, MediaType type) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(type);
+        return rest.postForEntity(baseUrl + "/customers/import", new HttpEntity<>(body, headers), JsonNode.class);
+    }
+
+    private long createdEvents() {
+        return jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM outbox_events WHERE event_type = 'CUSTOMER_CREATED'", Long.class);
+    }
+
+    private List<String> outboxEventTypes(UUID customerId) {
+        return jdbcTemplate.queryForList(
+                "SELECT event_type FROM outbox_events WHERE aggregate_id = ? ORDER BY created_at", String.class, customerId);
+    }
+
+    private UUID customerId(String email) {
+        return jdbcTemplate.queryForObject("SELECT id FROM customers WHERE email = ?", UUID.class, email);
+    }
+
+    private static List<String> problems(JsonNode result) {
+        List<String> out = new ArrayList<>();
+        result.get("problems").forEach(p -> out.add(p.get("line").asLong() + ":" + p.get("reason").asText()));
+        return out;
+    }
+}
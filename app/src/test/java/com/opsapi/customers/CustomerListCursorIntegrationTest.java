@@ -0,0 +1,90 @@
+package com.opsapi.customers;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.opsapi.customers.dto.CustomerCreateRequest;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Testcontainers
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class CustomerListCursorIntegrationTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withDatabaseName("opsdb")
+            .withUsername("ops")
+            .withPassword("ops");
+
+    @DynamicPropertySource
+    static void datasourceProps(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+
+        registry.add("spring.flyway.enabled", () -> true);
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "validate");
+        registry.add("spring.jpa.open-in-view", () -> "false");
+    }
+
+    @LocalServerPort
+    int port;
+
+    private final TestRestTemplate rest = new TestRestTemplate();
+
+    @Test
+    void cursorPages_walkTheSameOrderAsOffsetPages_withoutGapsOrRepeats() {
+        String baseUrl = "http://localhost:" + port;
+        for (int i = 0; i < 5; i++) {
+            rest.postForEntity(baseUrl + "/customers",
+                    new CustomerCreateRequest("Cursor " + i, "cursor-" + i + "@example.com"), String.class);
+        }
+
+        List<String> byOffset = names(rest.getForEntity(baseUrl + "/customers?limit=100", JsonNode.class).getBody());
+
+        List<String> byCursor = new ArrayList<>();
+        String url = baseUrl + "/customers?limit=2";
+        int pages = 0;
+        while (url != null) {
+            JsonNode page = rest.getForEntity(url, JsonNode.class).getBody();
+            assertThat(page).isNotNull();
+            byCursor.addAll(names(page));
+            pages++;
+            JsonNode next = page.get("nextCursor");
+            url = next == null || next.isNull() ? null : baseUrl + "/customers?limit=2&cursor=" + next.asText();
+        }
+
+        assertThat(byCursor).containsExactlyElementsOf(byOffset);
+        assertThat(byCursor).contains("Cursor 0", "Cursor 4");
+        assertThat(pages).isEqualTo((byOffset.size() + 1) / 2);
+    }
+
+    @Test
+    void badCursor_orCursorWithOffset_is400() {
+        String baseUrl = "http://localhost:" + port;
+
+        ResponseEntity<String> garbage = rest.getForEntity(baseUrl + "/customers?cursor=not-a-cursor", String.class);
+        assertThat(garbage.getStatusCode().value()).isEqualTo(400);
+
+        ResponseEntity<String> both = rest.getForEntity(baseUrl + "/customers?cursor=abc&offset=2", String.class);
+        assertThat(both.getStatusCode().value()).isEqualTo(400);
+    }
+
+    private static List<String> names(JsonNode page) {
+        List<String> names = new ArrayList<>();
+        page.get("items").forEach(item -> names.add(item.get("name").asText()));
+        return names;
+    }
+}
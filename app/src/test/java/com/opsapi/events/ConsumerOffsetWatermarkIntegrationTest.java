@@ -0,0 +1,193 @@
+package com.opsapi.events;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.listener.ConsumerSeekAware;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Offset-watermark dedup against a real Postgres; records are handed to the listener method directly
+ * (no broker), each test on partitions of its own.
+ */
+@Testcontainers
+@SpringBootTest
+class ConsumerOffsetWatermarkIntegrationTest {
+
+    private static final String GROUP = "ops-api-watermark-test";
+    private static final String TOPIC = "customer-events";
+    private static final AtomicInteger partitions = new AtomicInteger(100);
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withDatabaseName("opsdb")
+            .withUsername("ops")
+            .withPassword("ops");
+
+    @DynamicPropertySource
+    static void datasourceProps(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+
+        registry.add("spring.flyway.enabled", () -> true);
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "validate");
+        registry.add("spring.jpa.open-in-view", () -> "false");
+
+        registry.add("spring.kafka.consumer.group-id", () -> GROUP);
+        registry.add("ops.events.dedup.strategy", () -> "offset-watermark");
+    }
+
+    @Autowired
+    CustomerEventsConsumer consumer;
+
+    @Autowired
+    ConsumerOffsetStore offsetStore;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    void recordsBelowTheStoredOffset_areSkipped_andTheOffsetMovesPastTheBatch() {
+        TopicPartition tp = nextPartition();
+        offsetStore.advance(GROUP, Map.of(tp, 5L));
+
+        List<UUID> customers = new ArrayList<>();
+        List<ConsumerRecord<String, byte[]>> records = new ArrayList<>();
+        for (long offset = 3; offset <= 6; offset++) {
+            UUID id = UUID.randomUUID();
+            customers.add(id);
+            records.add(created(tp, offset, id));
+        }
+
+        consumer.onBatch(records);
+
+        // offsets 3, 4 were applied already -> not handled again; 5, 6 are new
+        assertThat(inProjection(customers.get(0))).isFalse();
+        assertThat(inProjection(customers.get(1))).isFalse();
+        assertThat(inProjection(customers.get(2))).isTrue();
+        assertThat(inProjection(customers.get(3))).isTrue();
+        assertThat(stored(tp)).isEqualTo(7L);
+
+        // the whole batch again (redelivery after a lost Kafka commit) -> nothing handled
+        UUID late = UUID.randomUUID();
+        consumer.onBatch(List.of(created(tp, 6, late)));
+        assertThat(inProjection(late)).isFalse();
+        assertThat(stored(tp)).isEqualTo(7L);
+    }
+
+    @Test
+    void advance_neverMovesBackwards() {
+        TopicPartition tp = nextPartition();
+
+        offsetStore.advance(GROUP, Map.of(tp, 10L));
+        offsetStore.advance(GROUP, Map.of(tp, 4L));
+        assertThat(stored(tp)).isEqualTo(10L);
+
+        offsetStore.advance(GROUP, Map.of(tp, 10L));
+        assertThat(stored(tp)).isEqualTo(10L);
+
+        offsetStore.advance(GROUP, Map.of(tp, 12L));
+        assertThat(stored(tp)).isEqualTo(12L);
+    }
+
+    @Test
+    void assignment_seeksOnlyForward_andSeedsNewPartitions() {
+        TopicPartition ahead = nextPartition();
+        TopicPartition behind = nextPartition();
+        TopicPartition fresh = nextPartition();
+        offsetStore.advance(GROUP, Map.of(ahead, 20L, behind, 5L));
+
+        RecordingSeeks seeks = new RecordingSeeks();
+        consumer.onPartitionsAssigned(Map.of(ahead, 15L, behind, 15L, fresh, 8L), seeks);
+
+        // only the partition whose stored offset is ahead of Kafka's position moves
+        assertThat(seeks.seeks).containsExactly(Map.entry(ahead, 20L));
+        assertThat(stored(behind)).isEqualTo(5L);
+        assertThat(stored(fresh)).isEqualTo(8L);
+    }
+
+    private static TopicPartition nextPartition() {
+        return new TopicPartition(TOPIC, partitions.getAndIncrement());
+    }
+
+    private static ConsumerRecord<String, byte[]> created(TopicPartition tp, long offset, UUID customerId) {
+        String json = """
+                {"eventId":"%s","type":"CUSTOMER_CREATED","ts":"%s","customerId":"%s","name":"Offset %d",
+                 "email":"offset-%s@example.com","correlationId":"watermark-test","schemaVersion":2,"source":"test"}
+                """.formatted(UUID.randomUUID(), Instant.now(), customerId, offset, customerId);
+        return new ConsumerRecord<>(tp.topic(), tp.partition(), offset, customerId.toString(),
+                json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private boolean inProjection(UUID customerId) {
+        return jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM customer_projection WHERE customer_id = ?", Long.class, customerId) > 0;
+    }
+
+    private Long stored(TopicPartition tp) {
+        return jdbcTemplate.queryForObject(
+                "SELECT next_offset FROM consumer_offsets WHERE group_id = ? AND topic = ? AND partition_id = ?",
+                Long.class, GROUP, tp.topic(), tp.partition());
+    }
+
+    /** Only absolute seeks are expected; anything else fails the test. */
+    private static class RecordingSeeks implements ConsumerSeekAware.ConsumerSeekCallback {
+        final Map<TopicPartition, Long> seeks = new HashMap<>();
+
+        @Override
+        public void seek(String topic, int partition, long offset) {
+            seeks.put(new TopicPartition(topic, partition), offset);
+        }
+
+        @Override
+        public void seek(String topic, int partition, Function<Long, Long> offsetComputeFunction) {
+            throw new AssertionError("unexpected seek");
+        }
+
+        @Override
+        public void seekToBeginning(String topic, int partition) {
+            throw new AssertionError("unexpected seekToBeginning");
+        }
+
+        @Override
+        public void seekToEnd(String topic, int partition) {
+            throw new AssertionError("unexpected seekToEnd");
+        }
+
+        @Override
+        public void seekRelative(String topic, int partition, long offset, boolean toCurrent) {
+            throw new AssertionError("unexpected seekRelative");
+        }
+
+        @Override
+        public void seekToTimestamp(String topic, int partition, long timestamp) {
+            throw new AssertionError("unexpected seekToTimestamp");
+        }
+
+        @Override
+        public void seekToTimestamp(Collection<TopicPartition> topicPartitions, long timestamp) {
+            throw new AssertionError("unexpected seekToTimestamp");
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.opsapi.events;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CustomerEventBinaryCodecTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final CustomerEventBinaryCodec codec = new CustomerEventBinaryCodec(objectMapper);
+
+    @Test
+    void roundTrip_givesBackTheSameJson_inFarFewerBytes() throws Exception {
+        byte[] json = bytes("""
+                {"eventId":"%s","type":"CUSTOMER_CREATED","ts":"2026-10-18T12:34:56.123456Z","customerId":"%s",
+                 "name":"Grace Hopper","email":"grace@example.com","correlationId":"%s","schemaVersion":2,"source":"ops-api"}
+                """.formatted(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID()));
+
+        byte[] encoded = codec.encode(json);
+        byte[] decoded = codec.decode(encoded);
+
+        assertThat(encoded.length).isLessThan(json.length / 2);
+        assertThat(objectMapper.readTree(decoded)).isEqualTo(objectMapper.readTree(json));
+        // same field order as the publisher wrote
+        assertThat(new String(decoded, StandardCharsets.UTF_8)).startsWith("{\"eventId\":");
+    }
+
+    @Test
+    void nullAndMissingFields_stayNullAndMissing() throws Exception {
+        byte[] json = bytes("""
+                {"eventId":"%s","type":"CUSTOMER_DELETED","ts":"2026-10-18T12:34:56Z","customerId":"%s",
+                 "correlationId":null,"schemaVersion":2,"source":"ops-api"}
+                """.formatted(UUID.randomUUID(), UUID.randomUUID()));
+
+        byte[] decoded = codec.decode(codec.encode(json));
+
+        assertThat(objectMapper.readTree(decoded)).isEqualTo(objectMapper.readTree(json));
+        assertThat(objectMapper.readTree(decoded).has("name")).isFalse();
+        assertThat(objectMapper.readTree(decoded).get("correlationId").isNull()).isTrue();
+    }
+
+    @Test
+    void fieldsAndTypesOutsideTheSchemas_travelByName_notRefused() throws Exception {
+        // what a newer publisher could send before this codec gives its field a number
+        byte[] unknownField = bytes("""
+                {"eventId":"%s","type":"CUSTOMER_CREATED","vip":true,"tags":["a",{"b":1}],"score":1.5}
+                """.formatted(UUID.randomUUID()));
+        byte[] unknownType = bytes("""
+                {"eventId":"not-a-uuid","type":"ORDER_PLACED","ts":"2026-10-18T12:34:56+02:00"}
+                """);
+
+        assertThat(objectMapper.readTree(codec.decode(codec.encode(unknownField))))
+                .isEqualTo(objectMapper.readTree(unknownField));
+        assertThat(objectMapper.readTree(codec.decode(codec.encode(unknownType))))
+                .isEqualTo(objectMapper.readTree(unknownType));
+    }
+
+    @Test
+    void fieldNumbersThisBuildDoesNotKnow_areSkipped() throws Exception {
+        byte[] json = bytes("""
+                {"eventId":"%s","type":"CUSTOMER_DELETED","customerId":"%s","schemaVersion":2}
+                """.formatted(UUID.randomUUID(), UUID.randomUUID()));
+        // a newer producer's field 15 (text "abc") and field 14 (varint 300) behind the known ones
+        byte[] encoded = codec.encode(json);
+        byte[] newer = Arrays.copyOf(encoded, encoded.length + 8);
+        System.arraycopy(new byte[]{(byte) (15 << 3 | 2), 3, 'a', 'b', 'c', (byte) (14 << 3), (byte) 0xD8, 0x04},
+                0, newer, encoded.length, 8);
+
+        assertThat(objectMapper.readTree(codec.decode(newer))).isEqualTo(objectMapper.readTree(json));
+    }
+
+    @Test
+    void truncatedPayload_isRefused() {
+        byte[] encoded = codec.encode(bytes("""
+                {"eventId":"%s","type":"CUSTOMER_UPDATED","name":"Ada"}
+                """.formatted(UUID.randomUUID())));
+
+        assertThatThrownBy(() -> codec.decode(Arrays.copyOf(encoded, encoded.length - 2)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("truncated");
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+}
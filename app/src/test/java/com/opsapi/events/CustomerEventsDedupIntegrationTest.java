@@ -0,0 +1,151 @@
+package com.opsapi.events;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Event-row dedup (processed_events + the recent-id cache) against a real Postgres; records are handed
+ * to the listener method directly (no broker). A redelivered copy carries a later ts and another name,
+ * so the projection shows whether it was handled.
+ */
+@Testcontainers
+@SpringBootTest
+class CustomerEventsDedupIntegrationTest {
+
+    private static final String TOPIC = "customer-events";
+    private static final AtomicLong offsets = new AtomicLong();
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withDatabaseName("opsdb")
+            .withUsername("ops")
+            .withPassword("ops");
+
+    @DynamicPropertySource
+    static void datasourceProps(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+
+        registry.add("spring.flyway.enabled", () -> true);
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "validate");
+        registry.add("spring.jpa.open-in-view", () -> "false");
+
+        registry.add("ops.events.consumer.mode", () -> "off");
+        registry.add("ops.events.retry.enabled", () -> false);
+        registry.add("ops.events.dedup.strategy", () -> "event-rows");
+    }
+
+    @Autowired
+    CustomerEventsConsumer consumer;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    MeterRegistry meters;
+
+    @Test
+    void duplicateInsideABatch_andAcrossBatches_isHandledOnce() {
+        UUID a = UUID.randomUUID();
+        UUID b = UUID.randomUUID();
+        String eventA = UUID.randomUUID().toString();
+        String eventB = UUID.randomUUID().toString();
+
+        // same poll: the second copy of A is skipped by the one dedup insert
+        double duplicatesBefore = counter("ops.events.outcome", "duplicate");
+        double processedBefore = counter("ops.events.outcome", "processed");
+        consumer.onBatch(List.of(created(eventA, a, "First"), redelivered(eventA, a), created(eventB, b, "Other")));
+
+        assertThat(name(a)).isEqualTo("First");
+        assertThat(name(b)).isEqualTo("Other");
+        assertThat(processedRows(eventA, eventB)).isEqualTo(2);
+        assertThat(counter("ops.events.outcome", "processed") - processedBefore).isEqualTo(2);
+        assertThat(counter("ops.events.outcome", "duplicate") - duplicatesBefore).isEqualTo(1);
+
+        // next poll: A again (answered by the recent-id cache), plus a new event
+        UUID c = UUID.randomUUID();
+        String eventC = UUID.randomUUID().toString();
+        double cacheHitsBefore = counter("ops.events.dedup.cache.hits", null);
+        consumer.onBatch(List.of(redelivered(eventA, a), created(eventC, c, "New")));
+
+        assertThat(name(a)).isEqualTo("First");
+        assertThat(name(c)).isEqualTo("New");
+        assertThat(processedRows(eventA, eventB, eventC)).isEqualTo(3);
+        assertThat(counter("ops.events.dedup.cache.hits", null) - cacheHitsBefore).isEqualTo(1);
+        assertThat(counter("ops.events.outcome", "duplicate") - duplicatesBefore).isEqualTo(2);
+    }
+
+    @Test
+    void eventRecordedElsewhere_isSkippedByTheDedupInsert() {
+        // processed by another instance: in processed_events, but never in this instance's cache
+        UUID d = UUID.randomUUID();
+        String eventD = UUID.randomUUID().toString();
+        jdbcTemplate.update("INSERT INTO processed_events (event_id, event_type) VALUES (?, 'CUSTOMER_CREATED')", eventD);
+
+        double duplicatesBefore = counter("ops.events.outcome", "duplicate");
+        consumer.onBatch(List.of(created(eventD, d, "Elsewhere")));
+
+        assertThat(inProjection(d)).isFalse();
+        assertThat(processedRows(eventD)).isEqualTo(1);
+        assertThat(counter("ops.events.outcome", "duplicate") - duplicatesBefore).isEqualTo(1);
+    }
+
+    // ---- helpers ----
+
+    private static ConsumerRecord<String, byte[]> created(String eventId, UUID customerId, String name) {
+        return created(eventId, customerId, name, Instant.now());
+    }
+
+    /** A copy that would win the projection upsert (later ts) if it were handled. */
+    private static ConsumerRecord<String, byte[]> redelivered(String eventId, UUID customerId) {
+        return created(eventId, customerId, "Redelivered", Instant.now().plusSeconds(60));
+    }
+
+    private static ConsumerRecord<String, byte[]> created(String eventId, UUID customerId, String name, Instant ts) {
+        String json = """
+                {"eventId":"%s","type":"CUSTOMER_CREATED","ts":"%s","customerId":"%s","name":"%s",
+                 "email":"dedup-%s@example.com","correlationId":"dedup-test","schemaVersion":2,"source":"test"}
+                """.formatted(eventId, ts, customerId, name, customerId);
+        return new ConsumerRecord<>(TOPIC, 0, offsets.getAndIncrement(), customerId.toString(),
+                json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String name(UUID customerId) {
+        return jdbcTemplate.queryForObject(
+                "SELECT name FROM customer_projection WHERE customer_id = ?", String.class, customerId);
+    }
+
+    private boolean inProjection(UUID customerId) {
+        return jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM customer_projection WHERE customer_id = ?", Long.class, customerId) > 0;
+    }
+
+    private long processedRows(String... eventIds) {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM processed_events WHERE event_id = ANY(?)",
+                Long.class, (Object) eventIds);
+    }
+
+    private double counter(String name, String outcome) {
+        var search = meters.find(name);
+        if (outcome != null) search = search.tag("outcome", outcome);
+        return search.counters().stream().mapToDouble(c -> c.count()).sum();
+    }
+}
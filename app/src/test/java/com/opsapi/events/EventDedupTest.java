@@ -0,0 +1,219 @@
+package com.opsapi.events;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.opsapi.common.OpsMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EventDedupTest {
+
+    /** processed_events in memory; counts the round trips. */
+    static final class InMemoryRows extends ProcessedEventWriter {
+        final Set<String> rows = new HashSet<>();
+        int inserts;
+        int reads;
+
+        InMemoryRows() {
+            super(null);
+        }
+
+        @Override
+        public Set<String> insertNew(List<Row> batch) {
+            inserts++;
+            Set<String> inserted = new HashSet<>();
+            for (Row r : batch) {
+                if (rows.add(r.eventId())) inserted.add(r.eventId());
+            }
+            return inserted;
+        }
+
+        @Override
+        public Set<String> findExisting(Collection<String> eventIds) {
+            reads++;
+            Set<String> existing = new HashSet<>(eventIds);
+            existing.retainAll(rows);
+            return existing;
+        }
+
+        @Override
+        public int delete(Collection<String> eventIds) {
+            int n = 0;
+            for (String id : eventIds) if (rows.remove(id)) n++;
+            return n;
+        }
+    }
+
+    /** consumer_offsets in memory. */
+    static final class InMemoryOffsets extends ConsumerOffsetStore {
+        final Map<TopicPartition, Long> stored = new HashMap<>();
+
+        InMemoryOffsets() {
+            super(null);
+        }
+
+        @Override
+        public Map<TopicPartition, Long> lock(String groupId, Collection<TopicPartition> partitions) {
+            Map<TopicPartition, Long> out = new HashMap<>();
+            partitions.forEach(tp -> { if (stored.containsKey(tp)) out.put(tp, stored.get(tp)); });
+            return out;
+        }
+
+        @Override
+        public void advance(String groupId, Map<TopicPartition, Long> nextOffsets) {
+            nextOffsets.forEach((tp, next) -> stored.merge(tp, next, Math::max));
+        }
+    }
+
+    private static final EventEnvelopeReader READER = new EventEnvelopeReader(new ObjectMapper());
+
+    private final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+    private final InMemoryRows rows = new InMemoryRows();
+    private final InMemoryOffsets offsets = new InMemoryOffsets();
+    private final RecentEventIdCache cache = new RecentEventIdCache(null, true, 16, 60_000);
+
+    private EventDedup dedup(String strategy, int verifyEvery) {
+        return new EventDedup(rows, cache, offsets, new OpsMetrics(meters), strategy, "test", verifyEvery);
+    }
+
+    private static ParsedEvent event(String eventId, int index) {
+        return parsedEvent(eventId, "k" + index, index, index);
+    }
+
+    private static ParsedEvent event(String eventId, int index, long offset) {
+        return parsedEvent(eventId, "k" + index, index, offset);
+    }
+
+    /** A CUSTOMER_CREATED v2 event at this position of the poll (partition 0 of customer-events). */
+    static ParsedEvent parsedEvent(String eventId, String key, int index, long offset) {
+        byte[] json = """
+                {"eventId":"%s","type":"CUSTOMER_CREATED","schemaVersion":2,"ts":"%s","customerId":"%s"}
+                """.formatted(eventId, Instant.now(), UUID.randomUUID()).getBytes(StandardCharsets.UTF_8);
+        try {
+            return new ParsedEvent(READER.read(json), new ConsumerRecord<>("customer-events", 0, offset, key, json), index);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static List<String> ids(List<ParsedEvent> events) {
+        return events.stream().map(ParsedEvent::eventId).toList();
+    }
+
+    @Test
+    void strategy_isParsedLeniently_andGarbageIsRefused() {
+        assertThat(EventDedupStrategy.of(" Offset-Watermark ")).isEqualTo(EventDedupStrategy.OFFSET_WATERMARK);
+        assertThat(EventDedupStrategy.BOTH.eventRows()).isTrue();
+        assertThat(EventDedupStrategy.BOTH.watermark()).isTrue();
+        assertThatThrownBy(() -> dedup("rows", 100)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void eventRows_oneInsertPerPoll_repeatsAndKnownOnesAreDuplicates() {
+        String a = UUID.randomUUID().toString();
+        String b = UUID.randomUUID().toString();
+        String known = UUID.randomUUID().toString();
+        rows.rows.add(known);
+
+        EventDedup.Claim claim = dedup("event-rows", 100)
+                .claim(List.of(event(a, 0), event(known, 1), event(a, 2), event(b, 3)), false);
+
+        assertThat(ids(claim.fresh())).containsExactly(a, b);
+        assertThat(ids(claim.duplicates())).containsExactly(known, a);
+        assertThat(rows.inserts).isEqualTo(1);
+        assertThat(rows.rows).contains(a, b);
+    }
+
+    @Test
+    void cacheHits_neverReachTheDb_butASampledFalsePositiveIsHandledAnyway() {
+        String cached = UUID.randomUUID().toString();
+        String falsePositive = UUID.randomUUID().toString();
+        String fresh = UUID.randomUUID().toString();
+        cache.addAll(List.of(cached, falsePositive));
+        rows.rows.add(cached);
+
+        EventDedup every = dedup("event-rows", 1);
+        EventDedup.Claim claim = every.claim(List.of(event(falsePositive, 0), event(fresh, 1), event(cached, 2)), false);
+
+        // the verified hit that isn't in processed_events goes back in, at its place in the poll
+        assertThat(ids(claim.fresh())).containsExactly(falsePositive, fresh);
+        assertThat(ids(claim.duplicates())).containsExactly(cached);
+        assertThat(meters.get("ops.events.dedup.cache.false_positives").counter().count()).isEqualTo(1);
+        assertThat(meters.get("ops.events.dedup.cache.hits").counter().count()).isEqualTo(2);
+
+        rows.reads = 0;
+        EventDedup sampled = dedup("event-rows", 1_000);
+        assertThat(ids(sampled.claim(List.of(event(cached, 0)), false).duplicates())).containsExactly(cached);
+        assertThat(rows.reads).isZero();
+    }
+
+    @Test
+    void rowsPerHandler_claimOnlyReads_eachHandlerRecordsItsOwnRow() {
+        String a = UUID.randomUUID().toString();
+        String known = UUID.randomUUID().toString();
+        rows.rows.add(known);
+        EventDedup dedup = dedup("event-rows", 100);
+
+        EventDedup.Claim claim = dedup.claim(List.of(event(a, 0), event(known, 1)), true);
+
+        assertThat(ids(claim.fresh())).containsExactly(a);
+        assertThat(rows.inserts).isZero();
+        assertThat(dedup.record(claim.fresh().get(0))).isTrue();
+        assertThat(dedup.record(claim.fresh().get(0))).as("recorded meanwhile").isFalse();
+
+        // a failed handler's row rolled back with its own transaction: nothing to delete
+        dedup.forget(List.of(a), true);
+        assertThat(rows.rows).contains(a);
+        dedup.forget(List.of(a), false);
+        assertThat(rows.rows).doesNotContain(a);
+    }
+
+    @Test
+    void watermarkOnly_noRowsAtAll_recordsBelowTheStoredOffsetAreApplied() {
+        TopicPartition tp = new TopicPartition("customer-events", 0);
+        offsets.stored.put(tp, 5L);
+        EventDedup dedup = dedup("offset-watermark", 100);
+        List<ParsedEvent> poll = List.of(event(UUID.randomUUID().toString(), 0, 4), event(UUID.randomUUID().toString(), 1, 7));
+        List<ConsumerRecord<String, byte[]>> records = new ArrayList<>();
+        poll.forEach(e -> records.add(e.record()));
+
+        Map<TopicPartition, Long> applied = dedup.lockWatermarks(records);
+        assertThat(EventDedup.isApplied(records.get(0), applied)).isTrue();
+        assertThat(EventDedup.isApplied(records.get(1), applied)).isFalse();
+
+        assertThat(dedup.claim(poll, false).fresh()).isEqualTo(poll);
+        assertThat(dedup.record(poll.get(1))).isTrue();
+        assertThat(rows.inserts + rows.reads).isZero();
+
+        dedup.advanceWatermarks(records);
+        assertThat(offsets.stored).containsEntry(tp, 8L);
+    }
+
+    @Test
+    void eventRowsOnly_neverTouchesTheWatermark() {
+        EventDedup dedup = dedup("event-rows", 100);
+        List<ConsumerRecord<String, byte[]>> records = List.of(event(UUID.randomUUID().toString(), 0).record());
+
+        assertThat(dedup.lockWatermarks(records)).isEmpty();
+        dedup.advanceWatermarks(records);
+        assertThat(offsets.stored).isEmpty();
+        assertThat(dedup.storedOffsetsAhead(Map.of(new TopicPartition("customer-events", 0), 0L))).isEmpty();
+    }
+}
@@ -0,0 +1,85 @@
+package com.opsapi.events;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-message cost of getting eventId/type/schemaVersion/... out of an event.
+ *
+ * - treeParse     = what the consumer used to do: String copy + readTree + field lookups
+ * - envelopeRead  = EventEnvelopeReader: one streaming pass over the byte[], body left as bytes
+ *
+ * Run: ./mvnw -Pbenchmark test-compile exec:exec -Djmh.includes=EventEnvelopeReaderBenchmark
+ * Look at gc.alloc.rate.norm (= bytes allocated per message) next to the score.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class EventEnvelopeReaderBenchmark {
+
+    private ObjectMapper objectMapper;
+    private EventEnvelopeReader reader;
+    private byte[] json;
+
+    @Setup
+    public void setUp() throws IOException {
+        objectMapper = new ObjectMapper();
+        reader = new EventEnvelopeReader(objectMapper);
+
+        // same shape as CustomerEventPublisher's v2 events
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("eventId", UUID.randomUUID().toString());
+        event.put("type", "CUSTOMER_CREATED");
+        event.put("ts", "2026-01-01T00:00:00Z");
+        event.put("customerId", UUID.randomUUID().toString());
+        event.put("name", "Grace Hopper");
+        event.put("email", "grace@example.com");
+        event.put("correlationId", UUID.randomUUID().toString());
+        event.put("schemaVersion", 2);
+        event.put("source", "ops-api");
+        json = objectMapper.writeValueAsBytes(event);
+    }
+
+    @Benchmark
+    public void treeParse(Blackhole bh) throws IOException {
+        String payload = new String(json, StandardCharsets.UTF_8);
+        JsonNode root = objectMapper.readTree(payload);
+        bh.consume(root.get("eventId").asText());
+        bh.consume(root.get("type").asText());
+        bh.consume(root.get("correlationId").asText());
+        bh.consume(root.get("schemaVersion").asInt());
+        bh.consume(root.get("source").asText());
+        bh.consume(payload);
+    }
+
+    @Benchmark
+    public void envelopeRead(Blackhole bh) throws IOException {
+        EventEnvelope e = reader.read(json);
+        bh.consume(e.eventId());
+        bh.consume(e.type());
+        bh.consume(e.correlationId());
+        bh.consume(e.schemaVersion());
+        bh.consume(e.source());
+    }
+}
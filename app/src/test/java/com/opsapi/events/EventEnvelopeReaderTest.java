@@ -0,0 +1,60 @@
+package com.opsapi.events;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EventEnvelopeReaderTest {
+
+    private final EventEnvelopeReader reader = new EventEnvelopeReader(new ObjectMapper());
+
+    @Test
+    void readsEnvelopeFields_andSkipsNestedBody() throws Exception {
+        EventEnvelope e = reader.read(bytes("""
+                {"eventId":"e-1","customer":{"name":"x","tags":["a",{"b":1}]},"type":"CUSTOMER_CREATED",
+                 "schemaVersion":"3","correlationId":null,"source":"ops-api","email":"x@y.z",
+                 "ts":"2026-01-02T03:04:05Z"}
+                """));
+
+        assertThat(e.eventId()).isEqualTo("e-1");
+        assertThat(e.type()).isEqualTo("CUSTOMER_CREATED");
+        assertThat(e.schemaVersion()).isEqualTo(3);
+        assertThat(e.correlationId()).isNull();
+        assertThat(e.source()).isEqualTo("ops-api");
+        assertThat(e.ts()).isEqualTo(Instant.parse("2026-01-02T03:04:05Z"));
+        // body is still all there when a handler needs it
+        assertThat(e.body().get("customer").get("tags").get(1).get("b").asInt()).isEqualTo(1);
+    }
+
+    @Test
+    void missingSchemaVersion_meansV1() throws Exception {
+        EventEnvelope e = reader.read(bytes("{\"eventId\":\"e-2\",\"type\":\"T\",\"ts\":\"2026-01-02T03:04:05Z\"}"));
+
+        assertThat(e.schemaVersion()).isEqualTo(1);
+        assertThat(e.source()).isNull();
+    }
+
+    @Test
+    void missingOrMalformedTs_isUnprocessable() {
+        assertThatThrownBy(() -> reader.read(bytes("{\"eventId\":\"e-3\",\"type\":\"T\"}")))
+                .isInstanceOf(UnprocessableEventException.class)
+                .hasMessageContaining("no ts");
+        assertThatThrownBy(() -> reader.read(bytes("{\"eventId\":\"e-4\",\"type\":\"T\",\"ts\":\"yesterday\"}")))
+                .isInstanceOf(UnprocessableEventException.class)
+                .hasMessageContaining("yesterday");
+    }
+
+    @Test
+    void rejectsNonObjects() {
+        assertThatThrownBy(() -> reader.read(bytes("[1,2]"))).isInstanceOf(java.io.IOException.class);
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,127 @@
+package com.opsapi.events;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.opsapi.common.OpsMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EventHandlerRegistryTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+    private final EventEnvelopeReader reader = new EventEnvelopeReader(objectMapper);
+
+    record Created(UUID customerId, String name) {}
+
+    static class Recording implements EventHandler<Created> {
+        final List<Created> seen = new ArrayList<>();
+        private final Set<Integer> versions;
+
+        Recording(Integer... versions) {
+            this.versions = Set.of(versions);
+        }
+
+        @Override public String type() { return "CUSTOMER_CREATED"; }
+        @Override public Set<Integer> schemaVersions() { return versions; }
+        @Override public Class<Created> payloadType() { return Created.class; }
+        @Override public void handle(EventEnvelope envelope, Created event) { seen.add(event); }
+    }
+
+    @Test
+    void dispatchesByTypeAndVersion_withTypedPayload() throws Exception {
+        Recording v1 = new Recording(1);
+        Recording v2 = new Recording(2, 3);
+        EventHandlerRegistry registry = new EventHandlerRegistry(List.of(v1, v2), objectMapper, new OpsMetrics(meters));
+        UUID id = UUID.randomUUID();
+
+        assertThat(registry.dispatch(envelope("CUSTOMER_CREATED", 3, id))).isTrue();
+
+        assertThat(v1.seen).isEmpty();
+        assertThat(v2.seen).containsExactly(new Created(id, "Ada"));
+        assertThat(meters.get("ops.events.handler").tag("schema_version", "3").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    void unknownVersion_isCountedNotDispatched() throws Exception {
+        Recording v1 = new Recording(1);
+        EventHandlerRegistry registry = new EventHandlerRegistry(List.of(v1), objectMapper, new OpsMetrics(meters));
+
+        assertThat(registry.dispatch(envelope("CUSTOMER_CREATED", 9, UUID.randomUUID()))).isFalse();
+        assertThat(registry.dispatch(envelope("SOMETHING_ELSE", 1, UUID.randomUUID()))).isFalse();
+
+        assertThat(v1.seen).isEmpty();
+        assertThat(meters.get("ops.events.unhandled").counters()).hasSize(2);
+    }
+
+    @Test
+    void unknownTypesAndVersions_areTaggedOther() throws Exception {
+        EventHandlerRegistry registry = new EventHandlerRegistry(List.of(new Recording(1, 2)), objectMapper, new OpsMetrics(meters));
+
+        for (int i = 0; i < 5; i++) {
+            registry.dispatch(envelope("GARBAGE_" + i, 1, UUID.randomUUID()));
+            registry.dispatch(envelope("CUSTOMER_CREATED", 100 + i, UUID.randomUUID()));
+        }
+
+        assertThat(meters.get("ops.events.unhandled").counters()).hasSize(2);
+        assertThat(meters.get("ops.events.unhandled").tags("type", "other", "schema_version", "1").counter().count())
+                .isEqualTo(5);
+        assertThat(meters.get("ops.events.unhandled").tags("type", "CUSTOMER_CREATED", "schema_version", "other")
+                .counter().count()).isEqualTo(5);
+        assertThat(registry.versionTag("2")).isEqualTo("2");
+        assertThat(registry.versionTag("v2")).isEqualTo("other");
+        assertThat(registry.versionTag((String) null)).isEqualTo("other");
+    }
+
+    @Test
+    void dispatchBatch_groupsByHandler_andFallsBackPerEventWhenTheBatchFails() throws Exception {
+        Recording v1 = new Recording(1);
+        Recording failing = new Recording(2) {
+            @Override
+            public void handle(EventEnvelope envelope, Created event) {
+                if (event.name().equals("Ada")) throw new IllegalStateException("bad row");
+                super.handle(envelope, event);
+            }
+        };
+        EventHandlerRegistry registry = new EventHandlerRegistry(List.of(v1, failing), objectMapper, new OpsMetrics(meters));
+
+        EventHandlerRegistry.BatchResult result = registry.dispatchBatch(List.of(
+                envelope("CUSTOMER_CREATED", 1, UUID.randomUUID()),
+                envelope("CUSTOMER_CREATED", 1, UUID.randomUUID()),
+                envelope("CUSTOMER_CREATED", 2, UUID.randomUUID()),
+                envelope("CUSTOMER_CREATED", 2, UUID.randomUUID(), "Grace"),
+                envelope("SOMETHING_ELSE", 1, UUID.randomUUID())));
+
+        assertThat(v1.seen).hasSize(2);
+        assertThat(failing.seen).extracting(Created::name).containsExactly("Grace");
+        assertThat(result).isEqualTo(new EventHandlerRegistry.BatchResult(3, 1, 0, 1));
+    }
+
+    @Test
+    void twoHandlersForTheSamePair_failAtStartup() {
+        assertThatThrownBy(() -> new EventHandlerRegistry(
+                List.of(new Recording(1, 2), new Recording(2)), objectMapper, new OpsMetrics(meters)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("v2");
+    }
+
+    private EventEnvelope envelope(String type, int version, UUID customerId) throws Exception {
+        return envelope(type, version, customerId, "Ada");
+    }
+
+    private EventEnvelope envelope(String type, int version, UUID customerId, String name) throws Exception {
+        String json = """
+                {"eventId":"%s","type":"%s","ts":"%s","schemaVersion":%d,"customerId":"%s","name":"%s","extra":true}
+                """.formatted(UUID.randomUUID(), type, Instant.now(), version, customerId, name);
+        return reader.read(json.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,34 @@
+package com.opsapi.events;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EventProcessingModeTest {
+
+    @Test
+    void concurrent_needsEventRows() {
+        assertThatThrownBy(() -> EventProcessingMode.CONCURRENT.requireCompatible(EventDedupStrategy.OFFSET_WATERMARK))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("offset-watermark");
+        assertThatCode(() -> EventProcessingMode.CONCURRENT.requireCompatible(EventDedupStrategy.EVENT_ROWS))
+                .doesNotThrowAnyException();
+        assertThatCode(() -> EventProcessingMode.CONCURRENT.requireCompatible(EventDedupStrategy.BOTH))
+                .doesNotThrowAnyException();
+    }
+
+    @Test
+    void serial_goesWithEveryStrategy() {
+        for (EventDedupStrategy strategy : EventDedupStrategy.values()) {
+            assertThatCode(() -> EventProcessingMode.SERIAL.requireCompatible(strategy)).doesNotThrowAnyException();
+        }
+    }
+
+    @Test
+    void unknownMode_isRefused_notTakenForSerial() {
+        assertThat(EventProcessingMode.of(" Concurrent")).isEqualTo(EventProcessingMode.CONCURRENT);
+        assertThatThrownBy(() -> EventProcessingMode.of("parallel")).isInstanceOf(IllegalArgumentException.class);
+    }
+}
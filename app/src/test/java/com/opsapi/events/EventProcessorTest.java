@@ -0,0 +1,108 @@
+package com.opsapi.events;
+
+import com.opsapi.common.OpsMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+import javax.sql.DataSource;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static com.opsapi.events.EventDedupTest.parsedEvent;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EventProcessorTest {
+
+    /** Counts commits and rollbacks; no resources behind it. */
+    static final class CountingTransactions extends AbstractPlatformTransactionManager {
+        final AtomicInteger commits = new AtomicInteger();
+        final AtomicInteger rollbacks = new AtomicInteger();
+
+        @Override protected Object doGetTransaction() { return new Object(); }
+        @Override protected void doBegin(Object transaction, TransactionDefinition definition) {}
+        @Override protected void doCommit(DefaultTransactionStatus status) { commits.incrementAndGet(); }
+        @Override protected void doRollback(DefaultTransactionStatus status) { rollbacks.incrementAndGet(); }
+    }
+
+    private final KeyOrderedDispatcher dispatcher = new KeyOrderedDispatcher(4, 10);
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.shutdown();
+    }
+
+    /** a0 fails -> a1 skipped behind it; b2 runs. */
+    private static List<ParsedEvent> poll() {
+        return List.of(parsedEvent("a0", "a", 0, 0), parsedEvent("a1", "a", 1, 1), parsedEvent("b2", "b", 2, 2));
+    }
+
+    private static Consumer<ParsedEvent> failing(String eventId, List<String> ran) {
+        return e -> {
+            ran.add(e.eventId());
+            if (e.eventId().equals(eventId)) throw new IllegalStateException("boom " + eventId);
+        };
+    }
+
+    @Test
+    void serial_rollsBackTheFailedHandlersSavepointOnly_andSkipsTheRestOfItsKey() {
+        List<String> calls = new ArrayList<>();
+        Connection con = (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    calls.add(method.getName());
+                    if (method.getName().equals("setSavepoint")) {
+                        return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Savepoint.class}, (p, m, a) -> null);
+                    }
+                    return null;
+                });
+        DataSource dataSource = (DataSource) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{DataSource.class},
+                (proxy, method, args) -> method.getName().equals("getConnection") ? con : null);
+        List<String> ran = new ArrayList<>();
+
+        SerialEventProcessor serial = new SerialEventProcessor(dataSource);
+        List<FailedEvent> failed = serial.process(poll(), failing("a0", ran), Set.of());
+
+        assertThat(ran).containsExactly("a0", "b2");
+        assertThat(failed).extracting(f -> f.event().eventId()).containsExactly("a0", "a1");
+        assertThat(failed).extracting(FailedEvent::skipped).containsExactly(false, true);
+        assertThat(failed.get(1).error()).isSameAs(failed.get(0).error());
+        assertThat(calls).containsExactly("setSavepoint", "rollback", "setSavepoint", "releaseSavepoint");
+        assertThat(serial.rowsPerHandler()).isFalse();
+    }
+
+    @Test
+    void concurrent_oneTransactionPerHandler_withItsRow_andRecordedOnesAreNotRun() {
+        EventDedupTest.InMemoryRows rows = new EventDedupTest.InMemoryRows();
+        rows.rows.add("b2"); // another delivery got there first
+        EventDedup dedup = new EventDedup(rows, new RecentEventIdCache(null, false, 16, 60_000),
+                new EventDedupTest.InMemoryOffsets(), new OpsMetrics(new SimpleMeterRegistry()), "event-rows", "test", 100);
+        CountingTransactions tx = new CountingTransactions();
+        List<String> ran = Collections.synchronizedList(new ArrayList<>());
+        Set<ParsedEvent> recordedMeanwhile = ConcurrentHashMap.newKeySet();
+
+        ConcurrentEventProcessor concurrent = new ConcurrentEventProcessor(dispatcher, dedup, tx, 5_000);
+        List<FailedEvent> failed = concurrent.process(poll(), failing("a0", ran), recordedMeanwhile);
+
+        assertThat(ran).containsExactly("a0");
+        assertThat(failed).extracting(f -> f.event().eventId()).containsExactly("a0", "a1");
+        assertThat(failed).extracting(FailedEvent::skipped).containsExactly(false, true);
+        assertThat(recordedMeanwhile).extracting(ParsedEvent::eventId).containsExactly("b2");
+        // a0: row + handler in one transaction, rolled back together; b2's found the row and ran nothing
+        assertThat(rows.rows).contains("a0");
+        assertThat(tx.rollbacks.get()).isEqualTo(1);
+        assertThat(tx.commits.get()).isEqualTo(1);
+        assertThat(concurrent.rowsPerHandler()).isTrue();
+    }
+}
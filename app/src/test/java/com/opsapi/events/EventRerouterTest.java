@@ -0,0 +1,56 @@
+package com.opsapi.events;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.opsapi.common.OpsMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static com.opsapi.events.EventDedupTest.parsedEvent;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EventRerouterTest {
+
+    private final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+    private final OpsMetrics metrics = new OpsMetrics(meters);
+    private final EventRetryRouterTest.CapturingTemplate template = new EventRetryRouterTest.CapturingTemplate();
+    private final EventRerouter rerouter = new EventRerouter(
+            new EventRetryRouter(template, metrics, new long[]{1000, 10000}),
+            new EventHandlerRegistry(List.of(), new ObjectMapper(), metrics),
+            metrics);
+
+    @Test
+    void failedEvents_goToTheFirstTier_inPollOrder_andCountAsFailed() {
+        ParsedEvent first = parsedEvent("e0", "a", 0, 10);
+        ParsedEvent skipped = parsedEvent("e1", "a", 1, 11);
+        ParsedEvent other = parsedEvent("e2", "b", 2, 12);
+        IllegalStateException boom = new IllegalStateException("boom");
+
+        // the concurrent processor reports them by key, not by offset
+        rerouter.reroute(List.of(new FailedEvent(other, boom, false), new FailedEvent(skipped, boom, true),
+                new FailedEvent(first, boom, false)));
+
+        assertThat(template.sent).extracting(ProducerRecord::topic).containsOnly("customer-events.retry-1");
+        assertThat(template.sent).extracting(ProducerRecord::key).containsExactly("a", "a", "b");
+        assertThat(meters.get("ops.events.handler.failed").counter().count()).isEqualTo(3);
+        assertThat(meters.get("ops.events.outcome").tag("outcome", "failed").counter().count()).isEqualTo(3);
+    }
+
+    @Test
+    void aFailureThatIsNoException_isStillRoutedWithItsMessage() {
+        rerouter.reroute(List.of(new FailedEvent(parsedEvent("e0", "a", 0, 10), new AssertionError("stuck"), false)));
+
+        assertThat(template.sent).hasSize(1);
+        assertThat(new String(template.sent.get(0).headers().lastHeader("kafka_dlt-exception-message").value()))
+                .contains("stuck");
+    }
+
+    @Test
+    void unprocessable_goesStraightToTheDlt() {
+        rerouter.unprocessable(parsedEvent("e0", "a", 0, 10).record(), new UnprocessableEventException("event has no ts"));
+
+        assertThat(template.sent).extracting(ProducerRecord::topic).containsExactly("customer-events.dlt");
+    }
+}
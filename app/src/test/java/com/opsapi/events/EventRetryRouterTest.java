@@ -0,0 +1,113 @@
+package com.opsapi.events;
+
+import com.opsapi.common.OpsMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EventRetryRouterTest {
+
+    /** Captures what the recoverer would publish; never talks to a broker. */
+    static final class CapturingTemplate extends KafkaTemplate<String, byte[]> {
+        final List<ProducerRecord<String, byte[]>> sent = new ArrayList<>();
+
+        CapturingTemplate() {
+            super(new DefaultKafkaProducerFactory<>(Map.of(
+                    ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, "localhost:1",
+                    ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class,
+                    ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, ByteArraySerializer.class)));
+        }
+
+        @Override
+        public CompletableFuture<SendResult<String, byte[]>> send(ProducerRecord<String, byte[]> record) {
+            sent.add(record);
+            return CompletableFuture.completedFuture(new SendResult<>(record, null));
+        }
+    }
+
+    private final CapturingTemplate template = new CapturingTemplate();
+    private final EventRetryRouter router =
+            new EventRetryRouter(template, new OpsMetrics(new SimpleMeterRegistry()), new long[]{1000, 10000});
+
+    private static ConsumerRecord<String, byte[]> record(String topic, String key) {
+        ConsumerRecord<String, byte[]> r =
+                new ConsumerRecord<>(topic, 0, 42L, key, "{\"eventId\":\"e1\"}".getBytes(StandardCharsets.UTF_8));
+        r.headers().add("ops-codec", "json".getBytes(StandardCharsets.UTF_8));
+        return r;
+    }
+
+    private static ConsumerRecord<String, byte[]> asConsumed(ProducerRecord<String, byte[]> sent) {
+        ConsumerRecord<String, byte[]> r = new ConsumerRecord<>(sent.topic(), 0, 7L, sent.key(), sent.value());
+        sent.headers().forEach(h -> r.headers().add(h));
+        return r;
+    }
+
+    private static String header(ProducerRecord<?, ?> r, String name) {
+        return new String(r.headers().lastHeader(name).value(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void failedEvent_goesToFirstTier_withDueTime_andOriginalHeaders() {
+        long before = System.currentTimeMillis();
+
+        router.route(record("customer-events", "cust-1"), new IllegalStateException("db down"));
+
+        assertThat(template.sent).hasSize(1);
+        ProducerRecord<String, byte[]> out = template.sent.get(0);
+        assertThat(out.topic()).isEqualTo("customer-events.retry-1");
+        assertThat(out.partition()).isNull(); // key decides
+        assertThat(out.key()).isEqualTo("cust-1");
+        assertThat(header(out, "ops-codec")).isEqualTo("json");
+        assertThat(header(out, EventRetryRouter.HEADER_ATTEMPT)).isEqualTo("1");
+        assertThat(Long.parseLong(header(out, EventRetryRouter.HEADER_DUE_AT))).isBetween(before + 1000, System.currentTimeMillis() + 1000);
+        assertThat(header(out, "kafka_dlt-exception-message")).isEqualTo("db down");
+        assertThat(header(out, "kafka_dlt-original-topic")).isEqualTo("customer-events");
+    }
+
+    @Test
+    void afterTheLastTier_itLandsInTheDlt_keepingTheFirstOrigin() {
+        router.route(record("customer-events", "cust-1"), new IllegalStateException("1"));
+        router.route(asConsumed(template.sent.get(0)), new IllegalStateException("2"));
+        router.route(asConsumed(template.sent.get(1)), new IllegalStateException("3"));
+
+        assertThat(template.sent).extracting(ProducerRecord::topic)
+                .containsExactly("customer-events.retry-1", "customer-events.retry-2", "customer-events.dlt");
+        ProducerRecord<String, byte[]> dead = template.sent.get(2);
+        assertThat(header(dead, "kafka_dlt-original-topic")).isEqualTo("customer-events");
+        assertThat(header(dead, "kafka_dlt-exception-message")).isEqualTo("3");
+        assertThat(dead.headers().lastHeader(EventRetryRouter.HEADER_ATTEMPT)).isNotNull();
+    }
+
+    @Test
+    void poison_skipsTheTiers() {
+        router.route(record("customer-events", "cust-1"), new UnprocessableEventException("cannot parse event"));
+
+        assertThat(template.sent).extracting(ProducerRecord::topic).containsExactly("customer-events.dlt");
+        assertThat(template.sent.get(0).headers().lastHeader(EventRetryRouter.HEADER_DUE_AT)).isNull();
+    }
+
+    @Test
+    void attemptAndDueAt_defaultWhenAbsentOrGarbage() {
+        ConsumerRecord<String, byte[]> r = record("customer-events", "k");
+        assertThat(EventRetryRouter.attemptOf(r)).isZero();
+        assertThat(EventRetryRouter.dueAtOf(r)).isEqualTo(-1);
+
+        r.headers().add(EventRetryRouter.HEADER_ATTEMPT, "x".getBytes(StandardCharsets.UTF_8));
+        assertThat(EventRetryRouter.attemptOf(r)).isZero();
+    }
+}
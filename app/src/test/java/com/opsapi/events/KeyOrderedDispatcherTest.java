@@ -0,0 +1,176 @@
+package com.opsapi.events;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class KeyOrderedDispatcherTest {
+
+    private final KeyOrderedDispatcher dispatcher = new KeyOrderedDispatcher(4, 10);
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.shutdown();
+    }
+
+    record Item(String key, int seq) {}
+
+    @Test
+    void keepsOrderPerKey() {
+        List<Item> items = new ArrayList<>();
+        for (int i = 0; i < 200; i++) items.add(new Item("k" + (i % 7), i));
+        Map<String, List<Integer>> seen = new ConcurrentHashMap<>();
+
+        List<KeyOrderedDispatcher.Outcome> outcomes = dispatcher.run(items, Item::key,
+                it -> seen.computeIfAbsent(it.key(), k -> Collections.synchronizedList(new ArrayList<>())).add(it.seq()),
+                5_000, 5_000);
+
+        assertThat(outcomes).allMatch(KeyOrderedDispatcher.Outcome::ok);
+        seen.values().forEach(seqs -> assertThat(seqs).isSorted());
+        assertThat(seen.values().stream().mapToInt(List::size).sum()).isEqualTo(200);
+    }
+
+    @Test
+    void differentKeysOverlap() {
+        // two keys that each wait for the other: only completes if they really run at the same time
+        CountDownLatch both = new CountDownLatch(2);
+        List<Item> items = List.of(new Item("a", 0), new Item("b", 1));
+
+        List<KeyOrderedDispatcher.Outcome> outcomes = dispatcher.run(items, Item::key, it -> {
+            both.countDown();
+            try {
+                if (!both.await(2, TimeUnit.SECONDS)) throw new IllegalStateException("ran serially");
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        }, 5_000, 5_000);
+
+        assertThat(outcomes).allMatch(KeyOrderedDispatcher.Outcome::ok);
+    }
+
+    @Test
+    void failureSkipsTheRestOfItsKeyOnly() {
+        List<Item> items = List.of(new Item("a", 0), new Item("a", 1), new Item("a", 2), new Item("b", 3));
+
+        List<KeyOrderedDispatcher.Outcome> outcomes = dispatcher.run(items, Item::key, it -> {
+            if (it.seq() == 1) throw new IllegalStateException("boom");
+        }, 5_000, 5_000);
+
+        assertThat(outcomes.get(0).ok()).isTrue();
+        assertThat(outcomes.get(1).ok()).isFalse();
+        assertThat(outcomes.get(1).skipped()).isFalse();
+        assertThat(outcomes.get(2).skipped()).isTrue();
+        assertThat(outcomes.get(3).ok()).isTrue();
+    }
+
+    @Test
+    void neverRunsMoreHandlersThanMaxConcurrency() {
+        KeyOrderedDispatcher capped = new KeyOrderedDispatcher(2, 10);
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        List<Item> items = new ArrayList<>();
+        for (int i = 0; i < 40; i++) items.add(new Item("k" + i, i));
+
+        try {
+            List<KeyOrderedDispatcher.Outcome> outcomes = capped.run(items, Item::key, it -> {
+                peak.accumulateAndGet(active.incrementAndGet(), Math::max);
+                sleep(5);
+                active.decrementAndGet();
+            }, 5_000, 5_000);
+
+            assertThat(outcomes).allMatch(KeyOrderedDispatcher.Outcome::ok);
+            assertThat(peak.get()).isEqualTo(2);
+        } finally {
+            capped.shutdown();
+        }
+    }
+
+    @Test
+    void maxConcurrencyStaysBelowThePoolSize() {
+        KeyOrderedDispatcher capped = new KeyOrderedDispatcher(50, 4);
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        List<Item> items = new ArrayList<>();
+        for (int i = 0; i < 20; i++) items.add(new Item("k" + i, i));
+
+        try {
+            capped.run(items, Item::key, it -> {
+                peak.accumulateAndGet(active.incrementAndGet(), Math::max);
+                sleep(5);
+                active.decrementAndGet();
+            }, 5_000, 5_000);
+
+            assertThat(peak.get()).isLessThanOrEqualTo(2);
+        } finally {
+            capped.shutdown();
+        }
+    }
+
+    @Test
+    void timeout_waitsForRunningHandlersWithinTheGrace_andStartsNothingNew() {
+        KeyOrderedDispatcher single = new KeyOrderedDispatcher(1, 10);
+        List<Item> items = List.of(new Item("a", 0), new Item("a", 1), new Item("b", 2));
+        List<Integer> ran = Collections.synchronizedList(new ArrayList<>());
+
+        try {
+            List<KeyOrderedDispatcher.Outcome> outcomes = single.run(items, Item::key, it -> {
+                ran.add(it.seq());
+                if (it.seq() == 0) sleep(300);
+            }, 100, 1_000);
+
+            // the slow handler finished within the grace (and counts as done); nothing started after the deadline
+            assertThat(ran).containsExactly(0);
+            assertThat(outcomes.get(0).ok()).isTrue();
+            assertThat(outcomes.get(1).ok()).isFalse();
+            assertThat(outcomes.get(2).ok()).isFalse();
+            assertThat(outcomes.get(2).error()).isInstanceOf(TimeoutException.class);
+        } finally {
+            single.shutdown();
+        }
+    }
+
+    @Test
+    void handlerStillRunningAfterTheGrace_isInterruptedAndAbandoned() {
+        CountDownLatch never = new CountDownLatch(1);
+        AtomicInteger interrupted = new AtomicInteger();
+        List<Item> items = List.of(new Item("a", 0), new Item("b", 1));
+
+        long started = System.nanoTime();
+        List<KeyOrderedDispatcher.Outcome> outcomes = dispatcher.run(items, Item::key, it -> {
+            if (it.seq() != 0) return;
+            try {
+                never.await();
+            } catch (InterruptedException e) {
+                interrupted.incrementAndGet();
+                sleep(2_000); // ignores the interrupt for a while: run() must not wait for it
+            }
+        }, 100, 100);
+
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started)).isLessThan(1_500);
+        assertThat(outcomes.get(0).ok()).isFalse();
+        assertThat(outcomes.get(0).error()).isInstanceOf(TimeoutException.class).hasMessageContaining("abandoned");
+        assertThat(outcomes.get(1).ok()).isTrue();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (interrupted.get() == 0 && System.nanoTime() < deadline) Thread.onSpinWait();
+        assertThat(interrupted.get()).isEqualTo(1);
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.opsapi.events;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * processed_events pruning against a real Postgres, chunk size 3 so a handful of rows takes several chunks.
+ * The test runs prune() itself; the scheduled run is out of reach.
+ */
+@Testcontainers
+@SpringBootTest
+class ProcessedEventsRetentionIntegrationTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withDatabaseName("opsdb")
+            .withUsername("ops")
+            .withPassword("ops");
+
+    @DynamicPropertySource
+    static void datasourceProps(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+
+        registry.add("spring.flyway.enabled", () -> true);
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "validate");
+        registry.add("spring.jpa.open-in-view", () -> "false");
+
+        registry.add("ops.events.processed.retention.days", () -> 2);
+        registry.add("ops.events.processed.retention.chunk-size", () -> 3);
+        registry.add("ops.events.processed.retention.pause-ms", () -> 0);
+        registry.add("ops.events.processed.retention.initial-delay-ms", () -> 3_600_000);
+    }
+
+    @Autowired
+    ProcessedEventsRetention retention;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    MeterRegistry meters;
+
+    @Test
+    void oldRowsGoInChunks_recentOnesStay_aLockedOneIsSkippedNotWaitedFor() throws Exception {
+        List<String> old = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            old.add(insert("3 days"));
+        }
+        String recent = insert("1 day");
+        String locked = old.get(0);
+
+        // a consumer transaction still holding one of the old rows
+        CountDownLatch holding = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> holder = CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(tx -> {
+            jdbcTemplate.queryForList("SELECT event_id FROM processed_events WHERE event_id = ? FOR UPDATE", locked);
+            holding.countDown();
+            try {
+                release.await(30, TimeUnit.SECONDS);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        assertThat(holding.await(10, TimeUnit.SECONDS)).isTrue();
+
+        double prunedBefore = pruned();
+        try {
+            CompletableFuture.runAsync(retention::prune).get(10, TimeUnit.SECONDS);
+        } finally {
+            release.countDown();
+            holder.get(10, TimeUnit.SECONDS);
+        }
+
+        // 7 unlocked old rows = 3 chunks of up to 3
+        assertThat(existing(old)).containsExactly(locked);
+        assertThat(existing(List.of(recent))).containsExactly(recent);
+        assertThat(pruned() - prunedBefore).isEqualTo(7);
+
+        // the next run picks it up
+        retention.prune();
+        assertThat(existing(old)).isEmpty();
+        assertThat(existing(List.of(recent))).containsExactly(recent);
+    }
+
+    // ---- helpers ----
+
+    private String insert(String age) {
+        String eventId = UUID.randomUUID().toString();
+        jdbcTemplate.update("""
+                INSERT INTO processed_events (event_id, event_type, processed_at)
+                VALUES (?, 'CUSTOMER_CREATED', now() - ?::interval)
+                """, eventId, age);
+        return eventId;
+    }
+
+    private List<String> existing(List<String> eventIds) {
+        return jdbcTemplate.queryForList("SELECT event_id FROM processed_events WHERE event_id = ANY(?)",
+                String.class, (Object) eventIds.toArray(String[]::new));
+    }
+
+    private double pruned() {
+        return meters.find("ops.events.processed.pruned").counters().stream().mapToDouble(c -> c.count()).sum();
+    }
+}
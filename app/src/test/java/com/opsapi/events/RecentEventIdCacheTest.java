@@ -0,0 +1,64 @@
+package com.opsapi.events;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RecentEventIdCacheTest {
+
+    @Test
+    void remembersAddedIds_andNothingElse() {
+        RecentEventIdCache cache = new RecentEventIdCache(null, true, 1000, 600_000);
+        List<String> seen = randomIds(500);
+        cache.addAll(seen);
+
+        assertThat(seen).allMatch(cache::contains);
+        assertThat(randomIds(5000)).noneMatch(cache::contains);
+    }
+
+    @Test
+    void keepsTwoGenerations_thenForgetsTheOldest() {
+        RecentEventIdCache cache = new RecentEventIdCache(null, true, 100, 600_000);
+        List<String> first = randomIds(100);
+        List<String> second = randomIds(100);
+        List<String> third = randomIds(100);
+
+        cache.addAll(first);
+        cache.addAll(second); // first -> previous generation
+        assertThat(first).allMatch(cache::contains);
+        assertThat(second).allMatch(cache::contains);
+
+        cache.addAll(third); // first rotated out
+        assertThat(first).noneMatch(cache::contains);
+        assertThat(second).allMatch(cache::contains);
+        assertThat(third).allMatch(cache::contains);
+    }
+
+    @Test
+    void nonUuidIds_areNeverCached() {
+        RecentEventIdCache cache = new RecentEventIdCache(null, true, 100, 600_000);
+        cache.addAll(List.of("legacy-123", ""));
+
+        assertThat(cache.contains("legacy-123")).isFalse();
+        assertThat(cache.contains(null)).isFalse();
+    }
+
+    @Test
+    void withoutTransaction_addAfterCommitAddsRightAway() {
+        RecentEventIdCache cache = new RecentEventIdCache(null, true, 100, 600_000);
+        String id = UUID.randomUUID().toString();
+        cache.addAfterCommit(List.of(id));
+
+        assertThat(cache.contains(id)).isTrue();
+    }
+
+    private static List<String> randomIds(int n) {
+        List<String> ids = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) ids.add(UUID.randomUUID().toString());
+        return ids;
+    }
+}
@@ -0,0 +1,105 @@
+package com.opsapi.export;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.opsapi.customers.dto.CustomerCreateRequest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Testcontainers
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class ExportIntegrationTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withDatabaseName("opsdb")
+            .withUsername("ops")
+            .withPassword("ops");
+
+    @DynamicPropertySource
+    static void datasourceProps(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+
+        registry.add("spring.flyway.enabled", () -> true);
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "validate");
+        registry.add("spring.jpa.open-in-view", () -> "false");
+    }
+
+    @LocalServerPort
+    int port;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    private final TestRestTemplate rest = new TestRestTemplate();
+
+    @Test
+    void customersExport_isOneJsonObjectPerLine_inChangeOrder_andSinceKeepsOnlyNewerRows() throws IOException {
+        String baseUrl = "http://localhost:" + port;
+        rest.postForEntity(baseUrl + "/customers", new CustomerCreateRequest("Export Old", "export-old@example.com"), String.class);
+        Instant between = Instant.now();
+        rest.postForEntity(baseUrl + "/customers", new CustomerCreateRequest("Export New", "export-new@example.com"), String.class);
+
+        ResponseEntity<byte[]> all = rest.getForEntity(baseUrl + "/export/customers", byte[].class);
+        assertThat(all.getStatusCode().value()).isEqualTo(200);
+        assertThat(all.getHeaders().getContentType().toString()).startsWith("application/x-ndjson");
+        List<JsonNode> rows = lines(all.getBody());
+        List<String> emails = rows.stream().map(r -> r.get("email").asText()).toList();
+        assertThat(emails).containsSubsequence("export-old@example.com", "export-new@example.com");
+        assertThat(rows.get(0).has("updatedAt")).isTrue();
+
+        ResponseEntity<byte[]> since = rest.getForEntity(baseUrl + "/export/customers?since=" + between, byte[].class);
+        assertThat(lines(since.getBody())).extracting(r -> r.get("email").asText())
+                .contains("export-new@example.com")
+                .doesNotContain("export-old@example.com");
+    }
+
+    @Test
+    void gzipExport_isContentEncodedGzip() throws IOException {
+        String baseUrl = "http://localhost:" + port;
+        rest.postForEntity(baseUrl + "/customers", new CustomerCreateRequest("Export Gz", "export-gz@example.com"), String.class);
+
+        ResponseEntity<byte[]> resp = rest.getForEntity(baseUrl + "/export/customers?gzip=true", byte[].class);
+
+        assertThat(resp.getHeaders().getFirst("Content-Encoding")).isEqualTo("gzip");
+        byte[] plain = new GZIPInputStream(new ByteArrayInputStream(resp.getBody())).readAllBytes();
+        assertThat(lines(plain)).extracting(r -> r.get("email").asText()).contains("export-gz@example.com");
+    }
+
+    @Test
+    void unknownDataset_orBadSince_is400() {
+        String baseUrl = "http://localhost:" + port;
+        assertThat(rest.getForEntity(baseUrl + "/export/invoices", String.class).getStatusCode().value()).isEqualTo(400);
+        assertThat(rest.getForEntity(baseUrl + "/export/tasks?since=yesterday", String.class).getStatusCode().value()).isEqualTo(400);
+    }
+
+    private List<JsonNode> lines(byte[] body) throws IOException {
+        List<JsonNode> rows = new ArrayList<>();
+        if (body == null) return rows;
+        for (String line : new String(body, StandardCharsets.UTF_8).split("\n")) {
+            if (!line.isBlank()) rows.add(objectMapper.readTree(line));
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,123 @@
+package com.opsapi.outbox;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How events/sec of the lane dispatcher scales with the lane count, next to the pipelined relay.
+ *
+ * The "broker" acks every send after a fixed delay (ack-latency-us), like a real round trip.
+ * Batches look like what claimUnsentBatch returns: events-per-aggregate rows for each aggregate,
+ * in created_at order, aggregates interleaved. Lanes keep up to lane-max-in-flight sends open each;
+ * pipelined is the relay's default mode (one thread, max-in-flight open sends, no per-aggregate FIFO).
+ *
+ * Run: ./mvnw -Pbenchmark test-compile exec:exec -Djmh.includes=OutboxLaneDispatcherBenchmark
+ * Score = events/sec (ops = events).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class OutboxLaneDispatcherBenchmark {
+
+    private static final int BATCH_SIZE = 500;
+    private static final int MAX_IN_FLIGHT = 100;
+
+    @Param({"1", "2", "4", "8", "16"})
+    int lanes;
+
+    @Param({"32"})
+    int laneMaxInFlight;
+
+    @Param({"500"})
+    int ackLatencyUs;
+
+    @Param({"1", "5"})
+    int eventsPerAggregate;
+
+    private OutboxLaneDispatcher dispatcher;
+    private ScheduledExecutorService broker;
+    private List<OutboxEventEntity> batch;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dispatcher = new OutboxLaneDispatcher(lanes, BATCH_SIZE, laneMaxInFlight, 10_000);
+        broker = Executors.newScheduledThreadPool(4);
+
+        // one slot per row, shuffled: the order in which the aggregates' rows were created
+        List<UUID> slots = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE / eventsPerAggregate; i++) {
+            UUID aggregate = UUID.randomUUID();
+            for (int n = 0; n < eventsPerAggregate; n++) {
+                slots.add(aggregate);
+            }
+        }
+        Collections.shuffle(slots, new Random(42));
+
+        batch = new ArrayList<>(slots.size());
+        for (UUID aggregate : slots) {
+            batch.add(new OutboxEventEntity(
+                    UUID.randomUUID(), "CUSTOMER", aggregate,
+                    "CUSTOMER_UPDATED", 2, "json", "{}".getBytes(), null));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        dispatcher.shutdown();
+        broker.shutdownNow();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void laneDispatch() {
+        List<CompletableFuture<?>> results = dispatcher.dispatch(batch, this::ackLater);
+        CompletableFuture.allOf(results.toArray(CompletableFuture[]::new)).join();
+    }
+
+    /** Baseline: what OutboxRelay does without lanes (does not depend on the lanes param). */
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void pipelined() throws InterruptedException {
+        Semaphore inFlight = new Semaphore(MAX_IN_FLIGHT);
+        List<CompletableFuture<?>> results = new ArrayList<>(batch.size());
+        for (OutboxEventEntity e : batch) {
+            inFlight.acquire();
+            CompletableFuture<?> ack = ackLater(e);
+            ack.whenComplete((r, ex) -> inFlight.release());
+            results.add(ack);
+        }
+        CompletableFuture.allOf(results.toArray(CompletableFuture[]::new)).join();
+    }
+
+    private CompletableFuture<?> ackLater(OutboxEventEntity e) {
+        CompletableFuture<Void> ack = new CompletableFuture<>();
+        broker.schedule(() -> ack.complete(null), ackLatencyUs, TimeUnit.MICROSECONDS);
+        return ack;
+    }
+}
@@ -0,0 +1,84 @@
+package com.opsapi.outbox;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OutboxLaneDispatcherTest {
+
+    private final OutboxLaneDispatcher dispatcher = new OutboxLaneDispatcher(2, 64, 8, 5_000);
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.shutdown();
+    }
+
+    @Test
+    void sendsWithoutWaitingForAcks_inOrderPerAggregate() {
+        UUID a = UUID.randomUUID();
+        UUID b = UUID.randomUUID();
+        List<OutboxEventEntity> batch = List.of(event(a), event(b), event(a), event(a), event(b));
+        Map<UUID, List<UUID>> sent = new ConcurrentHashMap<>();
+        List<CompletableFuture<Void>> acks = new ArrayList<>();
+
+        // nothing is acked until every send went out: a lane that waited per ack would stall after one send
+        List<CompletableFuture<?>> results = dispatcher.dispatch(batch, e -> {
+            sent.computeIfAbsent(e.getAggregateId(), k -> new ArrayList<>()).add(e.getId());
+            CompletableFuture<Void> ack = new CompletableFuture<>();
+            synchronized (acks) {
+                acks.add(ack);
+            }
+            return ack;
+        });
+        awaitSends(acks, batch.size());
+        synchronized (acks) {
+            acks.forEach(ack -> ack.complete(null));
+        }
+
+        CompletableFuture.allOf(results.toArray(CompletableFuture[]::new)).join();
+        assertThat(sent.get(a)).containsExactly(batch.get(0).getId(), batch.get(2).getId(), batch.get(3).getId());
+        assertThat(sent.get(b)).containsExactly(batch.get(1).getId(), batch.get(4).getId());
+    }
+
+    @Test
+    void rejectedSend_skipsTheRestOfItsAggregateOnly() {
+        UUID a = UUID.randomUUID();
+        UUID b = UUID.randomUUID();
+        OutboxEventEntity poison = event(a);
+        List<OutboxEventEntity> batch = List.of(poison, event(a), event(b));
+
+        List<CompletableFuture<?>> results = dispatcher.dispatch(batch, e -> e == poison
+                ? CompletableFuture.failedFuture(new IllegalStateException("too large"))
+                : CompletableFuture.completedFuture(null));
+
+        assertThat(results.get(0)).failsWithin(5, TimeUnit.SECONDS);
+        assertThat(results.get(1)).failsWithin(5, TimeUnit.SECONDS)
+                .withThrowableThat().withMessageContaining("skipped");
+        assertThat(results.get(2)).succeedsWithin(5, TimeUnit.SECONDS);
+    }
+
+    private static void awaitSends(List<CompletableFuture<Void>> acks, int expected) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            synchronized (acks) {
+                if (acks.size() == expected) return;
+            }
+            Thread.onSpinWait();
+        }
+        throw new AssertionError("lanes did not send ahead of the acks");
+    }
+
+    private static OutboxEventEntity event(UUID aggregateId) {
+        return new OutboxEventEntity(UUID.randomUUID(), "CUSTOMER", aggregateId,
+                "CUSTOMER_UPDATED", 2, "json", "{}".getBytes(), null);
+    }
+}
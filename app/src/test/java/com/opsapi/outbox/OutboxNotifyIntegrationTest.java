@@ -0,0 +1,124 @@
+package com.opsapi.outbox;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.kafka.KafkaContainer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * LISTEN/NOTIFY wakeup with the fallback poll pushed out of reach (1h): anything sent within
+ * the test's few seconds was sent because a notification woke the relay.
+ */
+@Testcontainers
+@SpringBootTest
+class OutboxNotifyIntegrationTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withDatabaseName("opsdb")
+            .withUsername("ops")
+            .withPassword("ops");
+
+    @Container
+    static KafkaContainer kafka = new KafkaContainer("apache/kafka:3.9.1");
+
+    @DynamicPropertySource
+    static void datasourceProps(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+
+        registry.add("spring.flyway.enabled", () -> true);
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "validate");
+        registry.add("spring.jpa.open-in-view", () -> "false");
+
+        registry.add("spring.kafka.bootstrap-servers", kafka::getBootstrapServers);
+        registry.add("ops.outbox.notify.enabled", () -> true);
+        registry.add("ops.outbox.poller.delay-ms", () -> 3_600_000);
+    }
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Test
+    void notifyCommittedWithTheInsert_wakesTheRelay_aQuietInsertWaits() throws InterruptedException {
+        awaitListening();
+
+        // no NOTIFY: nothing polls, so it just sits there
+        UUID quiet = enqueue(UUID.randomUUID());
+        Thread.sleep(2_000);
+        assertThat(sentAt(quiet)).isNull();
+
+        // insert + NOTIFY in one transaction, like CustomerEventPublisher: delivered on commit
+        UUID notified = transactionTemplate.execute(tx -> {
+            UUID id = enqueue(UUID.randomUUID());
+            jdbcTemplate.execute("NOTIFY " + OutboxNotificationListener.CHANNEL);
+            return id;
+        });
+
+        // the woken drain takes everything that is due, the quiet row too
+        assertThat(awaitSent(notified, Duration.ofSeconds(10))).isTrue();
+        assertThat(sentAt(quiet)).isNotNull();
+    }
+
+    // ---- helpers ----
+
+    /** The listener connection has run LISTEN and is blocked waiting (plus a moment for its start-up drain). */
+    private void awaitListening() throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(15).toNanos();
+        while (System.nanoTime() < deadline) {
+            Long listening = jdbcTemplate.queryForObject(
+                    "SELECT count(*) FROM pg_stat_activity WHERE query = ? AND state = 'idle'",
+                    Long.class, "LISTEN " + OutboxNotificationListener.CHANNEL);
+            if (listening != null && listening > 0) {
+                Thread.sleep(1_000);
+                return;
+            }
+            Thread.sleep(100);
+        }
+        throw new AssertionError("outbox listener never started listening");
+    }
+
+    private UUID enqueue(UUID customerId) {
+        UUID id = UUID.randomUUID();
+        String json = """
+                {"eventId":"%s","type":"CUSTOMER_CREATED","ts":"%s","customerId":"%s","name":"Notify Test",
+                 "email":"notify-%s@example.com","correlationId":"notify-test","schemaVersion":2,"source":"test"}
+                """.formatted(UUID.randomUUID(), Instant.now(), customerId, customerId);
+        jdbcTemplate.update("""
+                INSERT INTO outbox_events (id, aggregate_type, aggregate_id, event_type, schema_version, payload)
+                VALUES (?, 'CUSTOMER', ?, 'CUSTOMER_CREATED', 2, ?)
+                """, id, customerId, json.getBytes(StandardCharsets.UTF_8));
+        return id;
+    }
+
+    private Object sentAt(UUID id) {
+        return jdbcTemplate.queryForObject("SELECT sent_at FROM outbox_events WHERE id = ?", Object.class, id);
+    }
+
+    private boolean awaitSent(UUID id, Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (sentAt(id) != null) return true;
+            Thread.sleep(50);
+        }
+        return false;
+    }
+}
@@ -0,0 +1,161 @@
+package com.opsapi.outbox;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Daily outbox_events partitions: created ahead, retired (archived, dropped) once old and fully sent,
+ * and pruned by created_at-bounded reads. Each test runs maintain() itself; the scheduled run is out of reach.
+ */
+@Testcontainers
+@SpringBootTest
+class OutboxPartitionMaintenanceIntegrationTest {
+
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyyMMdd");
+    private static final Path ARCHIVE_DIR = tempDir();
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withDatabaseName("opsdb")
+            .withUsername("ops")
+            .withPassword("ops");
+
+    @DynamicPropertySource
+    static void datasourceProps(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+
+        registry.add("spring.flyway.enabled", () -> true);
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "validate");
+        registry.add("spring.jpa.open-in-view", () -> "false");
+
+        registry.add("ops.outbox.notify.enabled", () -> false);
+        registry.add("ops.outbox.poller.delay-ms", () -> 3_600_000);
+        registry.add("ops.outbox.partitions.initial-delay-ms", () -> 3_600_000);
+        // V8 creates today + 7 days; anything further out is maintain()'s work
+        registry.add("ops.outbox.partitions.precreate-days", () -> 10);
+        registry.add("ops.outbox.retention.days", () -> 2);
+        registry.add("ops.outbox.retention.archive-dir", ARCHIVE_DIR::toString);
+    }
+
+    @Autowired
+    OutboxPartitionMaintenance maintenance;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    void maintain_createsTheDailyPartitionsAhead() {
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        assertThat(partitions()).doesNotContain(partition(today.plusDays(10)));
+
+        maintenance.maintain();
+
+        for (int i = 0; i <= 10; i++) {
+            assertThat(partitions()).contains(partition(today.plusDays(i)));
+        }
+    }
+
+    @Test
+    void oldPartition_allSent_isArchivedAndDropped_oneWithAnUnsentRowIsKept() throws IOException {
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        // fresh database: the legacy partition (everything before V8) is empty and covers every past day,
+        // so old days need it out of the way to get partitions of their own
+        jdbcTemplate.execute("DROP TABLE outbox_events_p_legacy");
+        LocalDate sentDay = today.minusDays(5);
+        LocalDate unsentDay = today.minusDays(4);
+        createPartition(sentDay);
+        createPartition(unsentDay);
+        UUID sent = insert(sentDay, true);
+        insert(unsentDay, false);
+
+        maintenance.maintain();
+
+        assertThat(partitions()).doesNotContain(partition(sentDay));
+        assertThat(partitions()).contains(partition(unsentDay));
+
+        Path archive = ARCHIVE_DIR.resolve(partition(sentDay) + ".csv.gz");
+        assertThat(archive).exists();
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(archive))) {
+            assertThat(new String(in.readAllBytes(), StandardCharsets.UTF_8)).contains(sent.toString());
+        }
+    }
+
+    @Test
+    void createdAtBoundedRead_scansOnlyThatDaysPartition() {
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        List<String> plan = jdbcTemplate.queryForList(
+                "EXPLAIN SELECT count(*) FROM outbox_events WHERE created_at >= ? AND created_at < ?",
+                String.class, utc(today), utc(today.plusDays(1)));
+
+        String text = String.join("\n", plan);
+        assertThat(text).contains(partition(today));
+        assertThat(text).doesNotContain(partition(today.plusDays(1)), "outbox_events_p_default");
+    }
+
+    // ---- helpers ----
+
+    private List<String> partitions() {
+        return jdbcTemplate.queryForList("""
+                SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid
+                WHERE i.inhparent = 'outbox_events'::regclass
+                """, String.class);
+    }
+
+    private static String partition(LocalDate day) {
+        return "outbox_events_p" + day.format(SUFFIX);
+    }
+
+    private void createPartition(LocalDate day) {
+        jdbcTemplate.execute("CREATE TABLE " + partition(day) + " PARTITION OF outbox_events FOR VALUES FROM ('"
+                + utc(day).toInstant() + "') TO ('" + utc(day.plusDays(1)).toInstant() + "')");
+    }
+
+    private UUID insert(LocalDate day, boolean sent) {
+        UUID id = UUID.randomUUID();
+        Timestamp createdAt = Timestamp.from(utc(day).toInstant().plusSeconds(3_600));
+        jdbcTemplate.update("""
+                INSERT INTO outbox_events (id, aggregate_type, aggregate_id, event_type, schema_version, payload,
+                                           created_at, next_attempt_at, sent_at)
+                VALUES (?, 'CUSTOMER', ?, 'CUSTOMER_CREATED', 2, ?, ?, ?, ?)
+                """, id, UUID.randomUUID(), "{}".getBytes(StandardCharsets.UTF_8), createdAt, createdAt,
+                sent ? createdAt : null);
+        return id;
+    }
+
+    private static Timestamp utc(LocalDate day) {
+        return Timestamp.from(day.atStartOfDay(ZoneOffset.UTC).toInstant());
+    }
+
+    private static Path tempDir() {
+        try {
+            return Files.createTempDirectory("outbox-archive");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.opsapi.outbox;
+
+import com.opsapi.events.CustomerEventsConsumer;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Header;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.kafka.KafkaContainer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The transactional relay's one duplicate window, injected with ops.outbox.simulate-crash-after-send-once:
+ * the first batch fails after the Kafka commit, before the DB commit.
+ *
+ * The app's own listeners are off (consumer mode "off", no retry tiers): the test hands the
+ * committed copies to the consumer itself, so it knows exactly what was delivered.
+ */
+@Testcontainers
+@SpringBootTest
+class OutboxRelayCrashIntegrationTest {
+
+    private static final String TOPIC = "customer-events";
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withDatabaseName("opsdb")
+            .withUsername("ops")
+            .withPassword("ops");
+
+    @Container
+    static KafkaContainer kafka = new KafkaContainer("apache/kafka:3.9.1");
+
+    @DynamicPropertySource
+    static void datasourceProps(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+
+        registry.add("spring.flyway.enabled", () -> true);
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "validate");
+        registry.add("spring.jpa.open-in-view", () -> "false");
+
+        registry.add("spring.kafka.bootstrap-servers", kafka::getBootstrapServers);
+        registry.add("ops.outbox.notify.enabled", () -> false);
+        registry.add("ops.outbox.poller.delay-ms", () -> 3_600_000);
+        registry.add("ops.outbox.publish.transactional", () -> true);
+        registry.add("ops.outbox.simulate-crash-after-send-once", () -> true);
+        registry.add("ops.events.consumer.mode", () -> "off");
+        registry.add("ops.events.retry.enabled", () -> false);
+    }
+
+    @Autowired
+    OutboxPoller poller;
+
+    @Autowired
+    OutboxRelayState relayState;
+
+    @Autowired
+    CustomerEventsConsumer consumer;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    ConsumerFactory<String, byte[]> consumerFactory;
+
+    @Autowired
+    MeterRegistry meters;
+
+    @Test
+    void crashBetweenKafkaAndDbCommit_sendsTwice_andTheConsumerAppliesItOnce() {
+        UUID customer = UUID.randomUUID();
+        String eventId = UUID.randomUUID().toString();
+        UUID outboxId = enqueue(customer, eventId);
+
+        // 1st batch: Kafka commits, then the "crash" rolls the DB back -> still unsent, no attempt counted
+        poller.drain("test");
+        assertThat(sentAt(outboxId)).isNull();
+        assertThat(attempts(outboxId)).isZero();
+
+        // 2nd batch: the same row again
+        poller.drain("test");
+        assertThat(sentAt(outboxId)).isNotNull();
+
+        // both copies were committed: same outbox id, same epoch + seq (the first batch's seq rolled back too)
+        List<ConsumerRecord<String, byte[]>> copies = committedRecords(customer, 2);
+        assertThat(copies).hasSize(2);
+        assertThat(copies).extracting(r -> header(r, OutboxRelay.HEADER_OUTBOX_ID)).containsOnly(outboxId.toString());
+        assertThat(copies).extracting(r -> header(r, OutboxRelay.HEADER_RELAY_EPOCH)).containsOnly(
+                header(copies.get(0), OutboxRelay.HEADER_RELAY_EPOCH));
+        assertThat(copies).extracting(r -> header(r, OutboxRelay.HEADER_RELAY_SEQ)).containsOnly(
+                header(copies.get(0), OutboxRelay.HEADER_RELAY_SEQ));
+
+        double processedBefore = outcome("processed");
+        double duplicatesBefore = outcome("duplicate");
+
+        // delivered in one poll, then the second copy once more in a later poll (redelivery)
+        consumer.onBatch(copies);
+        consumer.onBatch(List.of(copies.get(1)));
+
+        assertThat(outcome("processed") - processedBefore).isEqualTo(1);
+        assertThat(outcome("duplicate") - duplicatesBefore).isEqualTo(2);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM processed_events WHERE event_id = ?", Long.class, eventId)).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM customer_projection WHERE customer_id = ?", Long.class, customer)).isEqualTo(1);
+    }
+
+    @Test
+    void relayWhoseEpochWasTakenOver_isFenced_andSendsNothing() {
+        String relayId = relayState.getRelayId();
+        jdbcTemplate.update("UPDATE outbox_relay_state SET producer_epoch = producer_epoch + 1 WHERE relay_id = ?", relayId);
+        try {
+            UUID customer = UUID.randomUUID();
+            UUID outboxId = enqueue(customer, UUID.randomUUID().toString());
+
+            poller.drain("test");
+
+            // nextSeq() refused before anything was sent
+            assertThat(sentAt(outboxId)).isNull();
+            assertThat(committedRecords(customer, 1)).isEmpty();
+        } finally {
+            jdbcTemplate.update("UPDATE outbox_relay_state SET producer_epoch = producer_epoch - 1 WHERE relay_id = ?", relayId);
+        }
+    }
+
+    // ---- helpers ----
+
+    private UUID enqueue(UUID customerId, String eventId) {
+        UUID id = UUID.randomUUID();
+        String json = """
+                {"eventId":"%s","type":"CUSTOMER_CREATED","ts":"%s","customerId":"%s","name":"Crash Test",
+                 "email":"crash-%s@example.com","correlationId":"crash-test","schemaVersion":2,"source":"test"}
+                """.formatted(eventId, Instant.now(), customerId, customerId);
+        jdbcTemplate.update("""
+                INSERT INTO outbox_events (id, aggregate_type, aggregate_id, event_type, schema_version, payload)
+                VALUES (?, 'CUSTOMER', ?, 'CUSTOMER_CREATED', 2, ?)
+                """, id, customerId, json.getBytes(StandardCharsets.UTF_8));
+        return id;
+    }
+
+    private Object sentAt(UUID id) {
+        return jdbcTemplate.queryForObject("SELECT sent_at FROM outbox_events WHERE id = ?", Object.class, id);
+    }
+
+    private int attempts(UUID id) {
+        return jdbcTemplate.queryForObject("SELECT attempts FROM outbox_events WHERE id = ?", Integer.class, id);
+    }
+
+    private double outcome(String outcome) {
+        return meters.find("ops.events.outcome").tag("outcome", outcome).counters().stream()
+                .mapToDouble(c -> c.count()).sum();
+    }
+
+    private static String header(ConsumerRecord<String, byte[]> r, String name) {
+        Header h = r.headers().lastHeader(name);
+        return h == null ? null : new String(h.value(), StandardCharsets.UTF_8);
+    }
+
+    /** Committed records with this key (read_committed, like the app's consumer); waits up to 10s for {@code expected}. */
+    private List<ConsumerRecord<String, byte[]>> committedRecords(UUID key, int expected) {
+        Properties overrides = new Properties();
+        overrides.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed");
+        overrides.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        List<ConsumerRecord<String, byte[]>> found = new ArrayList<>();
+        try (Consumer<String, byte[]> c = consumerFactory.createConsumer(null, "crash-test", null, overrides)) {
+            List<TopicPartition> partitions = c.partitionsFor(TOPIC).stream()
+                    .map(p -> new TopicPartition(p.topic(), p.partition()))
+                    .toList();
+            c.assign(partitions);
+            c.seekToBeginning(partitions);
+            long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+            while (found.size() < expected && System.nanoTime() < deadline) {
+                for (ConsumerRecord<String, byte[]> r : c.poll(Duration.ofMillis(200))) {
+                    if (key.toString().equals(r.key())) found.add(r);
+                }
+            }
+        }
+        return found;
+    }
+}
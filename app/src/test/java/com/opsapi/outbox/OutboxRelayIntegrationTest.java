@@ -0,0 +1,440 @@
+package com.opsapi.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.kafka.KafkaContainer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * The relay against a real Postgres and a real broker. No LISTEN and no scheduled poll in between:
+ * each test triggers the drain itself, so "one wakeup" is exactly one drain() call.
+ */
+@Testcontainers
+@SpringBootTest
+class OutboxRelayIntegrationTest {
+
+    private static final String TOPIC = "customer-events";
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withDatabaseName("opsdb")
+            .withUsername("ops")
+            .withPassword("ops");
+
+    @Container
+    static KafkaContainer kafka = new KafkaContainer("apache/kafka:3.9.1");
+
+    @DynamicPropertySource
+    static void datasourceProps(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+
+        registry.add("spring.flyway.enabled", () -> true);
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "validate");
+        registry.add("spring.jpa.open-in-view", () -> "false");
+
+        registry.add("spring.kafka.bootstrap-servers", kafka::getBootstrapServers);
+        registry.add("ops.outbox.notify.enabled", () -> false);
+        registry.add("ops.outbox.poller.delay-ms", () -> 3_600_000);
+    }
+
+    @Autowired
+    OutboxPoller poller;
+
+    @Autowired
+    OutboxRelay relay;
+
+    @Autowired
+    OutboxEventRepository outboxRepo;
+
+    @Autowired
+    OutboxStateWriter stateWriter;
+
+    @Autowired
+    OutboxBacklogMonitor backlogMonitor;
+
+    @Autowired
+    MeterRegistry meters;
+
+    @Autowired
+    TransactionTemplate transactionTemplate;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    ConsumerFactory<String, byte[]> consumerFactory;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Test
+    void eventsOfOneAggregate_allGoOutInOneBatch_inOrder() throws IOException {
+        UUID customer = UUID.randomUUID();
+        enqueue(customer, "CUSTOMER_CREATED");
+        enqueue(customer, "CUSTOMER_UPDATED");
+        enqueue(customer, "CUSTOMER_DELETED");
+
+        // the claim takes the head and the rows queued behind it: no round per event
+        assertThat(relay.relayBatch()).isGreaterThanOrEqualTo(3);
+
+        assertThat(unsent(customer)).isZero();
+        assertThat(types(records(customer, 3)))
+                .containsExactly("CUSTOMER_CREATED", "CUSTOMER_UPDATED", "CUSTOMER_DELETED");
+    }
+
+    @Test
+    void failedRow_holdsBackTheRowsQueuedBehindIt_untilItRetries() {
+        UUID customer = UUID.randomUUID();
+        // over the producer's max.request.size (1 MB): never acked
+        UUID poison = enqueue(customer, "CUSTOMER_CREATED", new byte[1_100_000]);
+        UUID updated = enqueue(customer, "CUSTOMER_UPDATED");
+        UUID deleted = enqueue(customer, "CUSTOMER_DELETED");
+
+        poller.drain("test");
+
+        Map<String, Object> p = state(poison);
+        assertThat(p.get("attempts")).isEqualTo(1);
+        for (UUID held : List.of(updated, deleted)) {
+            // not sent, not its own failure: comes due together with the poison row
+            Map<String, Object> h = state(held);
+            assertThat(h.get("sent_at")).isNull();
+            assertThat(h.get("attempts")).isEqualTo(0);
+            assertThat(h.get("next_attempt_at")).isEqualTo(p.get("next_attempt_at"));
+        }
+        assertThat(records(customer, 1)).isEmpty();
+
+        // still backing off: the next claim must not take the rows behind it either
+        transactionTemplate.executeWithoutResult(tx -> assertThat(outboxRepo.claimUnsentBatch(500))
+                .extracting(OutboxEventEntity::getAggregateId)
+                .doesNotContain(customer));
+
+        jdbcTemplate.update("DELETE FROM outbox_events WHERE id IN (?, ?, ?)", poison, updated, deleted);
+    }
+
+    @Test
+    void rowsWrittenInOneTransaction_shareCreatedAt_andStillGoOutOneAfterTheOther() {
+        UUID customer = UUID.randomUUID();
+        // one transaction, one now(): both rows get the same created_at, id breaks the tie
+        transactionTemplate.executeWithoutResult(tx -> {
+            for (String type : List.of("CUSTOMER_CREATED", "CUSTOMER_UPDATED")) {
+                jdbcTemplate.update("""
+                        INSERT INTO outbox_events (id, aggregate_type, aggregate_id, event_type, schema_version, payload,
+                                                   created_at, next_attempt_at)
+                        VALUES (?, 'CUSTOMER', ?, ?, 2, ?, now(), now())
+                        """, UUID.randomUUID(), customer, type, event(customer, type));
+            }
+        });
+        UUID first = jdbcTemplate.queryForObject(
+                "SELECT id FROM outbox_events WHERE aggregate_id = ? ORDER BY created_at, id LIMIT 1", UUID.class, customer);
+        jdbcTemplate.update("UPDATE outbox_events SET next_attempt_at = now() + interval '1 hour' WHERE id = ?", first);
+
+        // the first row backs off: the one tied with it is not a head of its own
+        transactionTemplate.executeWithoutResult(tx -> assertThat(outboxRepo.claimUnsentBatch(500))
+                .extracting(OutboxEventEntity::getAggregateId)
+                .doesNotContain(customer));
+
+        jdbcTemplate.update("UPDATE outbox_events SET next_attempt_at = now() WHERE id = ?", first);
+        transactionTemplate.executeWithoutResult(tx -> assertThat(outboxRepo.claimUnsentBatch(500))
+                .filteredOn(e -> e.getAggregateId().equals(customer))
+                .extracting(OutboxEventEntity::getId)
+                .hasSize(2)
+                .first().isEqualTo(first));
+
+        jdbcTemplate.update("DELETE FROM outbox_events WHERE aggregate_id = ?", customer);
+    }
+
+    @Test
+    void rowsClaimedByAnotherRelay_areSkipped_notWaitedFor_norSentTwice() throws Exception {
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            ids.add(enqueue(UUID.randomUUID(), "CUSTOMER_CREATED"));
+        }
+
+        // relay A: claims two rows and sits on them, as if its sends were still in flight
+        List<UUID> heldByA = new CopyOnWriteArrayList<>();
+        CountDownLatch claimed = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> relayA = CompletableFuture.runAsync(() -> transactionTemplate.executeWithoutResult(tx -> {
+            outboxRepo.claimUnsentBatch(2).forEach(e -> heldByA.add(e.getId()));
+            claimed.countDown();
+            try {
+                release.await(30, TimeUnit.SECONDS);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        assertThat(claimed.await(10, TimeUnit.SECONDS)).isTrue();
+
+        try {
+            // relay B: a whole batch while A holds its locks -> must not block on them (SKIP LOCKED)
+            CompletableFuture.supplyAsync(relay::relayBatch).get(10, TimeUnit.SECONDS);
+
+            for (UUID id : ids) {
+                assertThat(sentAt(id)).as("row %s, held by A: %s", id, heldByA.contains(id))
+                        .matches(sent -> (sent == null) == heldByA.contains(id));
+            }
+        } finally {
+            release.countDown();
+            relayA.get(10, TimeUnit.SECONDS);
+        }
+
+        // A let go without sending: its rows are claimable again
+        poller.drain("test");
+        for (UUID id : ids) {
+            assertThat(sentAt(id)).isNotNull();
+        }
+    }
+
+    @Test
+    void failedSend_staysUnsent_whileTheAckedRowsOfItsBatchAreMarkedSent() {
+        UUID customer = UUID.randomUUID();
+        // over the producer's max.request.size (1 MB): never acked
+        UUID poison = enqueue(UUID.randomUUID(), "CUSTOMER_CREATED", new byte[1_100_000]);
+        UUID created = enqueue(customer, "CUSTOMER_CREATED");
+        UUID other = enqueue(UUID.randomUUID(), "CUSTOMER_CREATED");
+        Timestamp beforeDrain = jdbcTemplate.queryForObject("SELECT clock_timestamp()", Timestamp.class);
+
+        poller.drain("test");
+
+        assertThat(sentAt(created)).isNotNull();
+        assertThat(sentAt(other)).isNotNull();
+        assertThat(records(customer, 1)).hasSize(1);
+
+        Map<String, Object> p = jdbcTemplate.queryForMap("""
+                SELECT sent_at, attempts, last_error, next_attempt_at > ? AS rescheduled
+                FROM outbox_events WHERE id = ?
+                """, beforeDrain, poison);
+        assertThat(p.get("sent_at")).isNull();
+        assertThat(p.get("attempts")).isEqualTo(1);
+        assertThat((String) p.get("last_error")).isNotBlank();
+        assertThat(p.get("rescheduled")).isEqualTo(true);
+
+        // it would come due again in the other tests' drains
+        jdbcTemplate.update("DELETE FROM outbox_events WHERE id = ?", poison);
+    }
+
+    @Test
+    void batchResults_areRecordedWithOneStatementForTheSent_andOneForTheFailed() {
+        UUID sent1 = enqueue(UUID.randomUUID(), "CUSTOMER_CREATED");
+        UUID sent2 = enqueue(UUID.randomUUID(), "CUSTOMER_CREATED");
+        UUID retry = enqueue(UUID.randomUUID(), "CUSTOMER_CREATED");
+        UUID park = enqueue(UUID.randomUUID(), "CUSTOMER_CREATED");
+        UUID held = enqueue(UUID.randomUUID(), "CUSTOMER_CREATED");
+
+        OutboxStateWriter.Failure retryFailure = new OutboxStateWriter.Failure(retry, "boom", 60_000, false);
+        assertThat(stateWriter.markSent(List.of(sent1, sent2))).isEqualTo(2);
+        assertThat(stateWriter.markFailed(List.of(
+                retryFailure,
+                new OutboxStateWriter.Failure(park, "boom again", 60_000, true),
+                OutboxStateWriter.Failure.heldBehind(held, retryFailure)))).isEqualTo(3);
+
+        assertThat(sentAt(sent1)).isNotNull();
+        assertThat(sentAt(sent2)).isNotNull();
+
+        Map<String, Object> r = state(retry);
+        assertThat(r.get("sent_at")).isNull();
+        assertThat(r.get("attempts")).isEqualTo(1);
+        assertThat(r.get("last_error")).isEqualTo("boom");
+        assertThat(r.get("parked")).isEqualTo(false);
+        assertThat(r.get("backing_off")).isEqualTo(true);
+
+        Map<String, Object> p = state(park);
+        assertThat(p.get("attempts")).isEqualTo(1);
+        assertThat(p.get("parked")).isEqualTo(true);
+
+        // not its own failure: no attempt counted, retries with the row it was held behind
+        Map<String, Object> h = state(held);
+        assertThat(h.get("attempts")).isEqualTo(0);
+        assertThat(h.get("parked")).isEqualTo(false);
+        assertThat(h.get("next_attempt_at")).isEqualTo(r.get("next_attempt_at"));
+
+        // none of them should come due in the other tests' drains
+        jdbcTemplate.update("DELETE FROM outbox_events WHERE id IN (?, ?, ?)", retry, park, held);
+    }
+
+    @Test
+    void backlogGauges_trackTheUnsentRows_andEverySendIsTimedOrCounted() {
+        UUID created = enqueue(UUID.randomUUID(), "CUSTOMER_CREATED");
+        UUID updated = enqueue(UUID.randomUUID(), "CUSTOMER_UPDATED");
+        UUID poison = enqueue(UUID.randomUUID(), "CUSTOMER_CREATED", new byte[1_100_000]);
+        jdbcTemplate.update("UPDATE outbox_events SET created_at = created_at - interval '1 minute' WHERE id = ?", created);
+
+        refreshBacklog();
+        assertThat(gauge("ops.outbox.backlog.unsent")).isEqualTo(pending());
+        assertThat(gauge("ops.outbox.backlog.unsent")).isGreaterThanOrEqualTo(3);
+        assertThat(gauge("ops.outbox.backlog.oldest.age")).isGreaterThanOrEqualTo(60);
+        assertThat(gauge("ops.outbox.backlog.oldest.age")).isCloseTo(oldestPendingAge(), within(5.0));
+
+        long latencyBefore = latencyCount("CUSTOMER_UPDATED");
+        double tooLargeBefore = counter("ops.outbox.failures", "exception", "RecordTooLargeException");
+        long batchesBefore = meters.find("ops.outbox.batch.size").summaries().stream().mapToLong(s -> s.count()).sum();
+
+        poller.drain("test");
+
+        assertThat(latencyCount("CUSTOMER_UPDATED") - latencyBefore).isEqualTo(1);
+        assertThat(latencyCount("CUSTOMER_CREATED")).isGreaterThanOrEqualTo(1);
+        // by the client's exception class, not Spring's "Send failed" wrapper
+        assertThat(counter("ops.outbox.failures", "exception", "RecordTooLargeException") - tooLargeBefore).isEqualTo(1);
+        assertThat(meters.find("ops.outbox.batch.size").summaries().stream().mapToLong(s -> s.count()).sum())
+                .isGreaterThan(batchesBefore);
+
+        // the backing-off poison row is still pending; the age follows whatever is oldest now
+        refreshBacklog();
+        assertThat(sentAt(created)).isNotNull();
+        assertThat(sentAt(updated)).isNotNull();
+        assertThat(gauge("ops.outbox.backlog.unsent")).isEqualTo(pending());
+        assertThat(gauge("ops.outbox.backlog.oldest.age")).isCloseTo(oldestPendingAge(), within(5.0));
+
+        jdbcTemplate.update("DELETE FROM outbox_events WHERE id = ?", poison);
+    }
+
+    @Test
+    void backlogGauges_areMeasuredOncePerInterval_notOnEveryRefresh() {
+        refreshBacklog();
+        double before = gauge("ops.outbox.backlog.unsent");
+        UUID late = enqueue(UUID.randomUUID(), "CUSTOMER_CREATED");
+        jdbcTemplate.update("UPDATE outbox_events SET next_attempt_at = now() + interval '1 hour' WHERE id = ?", late);
+
+        // the row is fresh (another node may just have measured): read it, don't count again
+        backlogMonitor.refresh();
+        assertThat(gauge("ops.outbox.backlog.unsent")).isEqualTo(before);
+
+        refreshBacklog();
+        assertThat(gauge("ops.outbox.backlog.unsent")).isEqualTo(pending());
+
+        jdbcTemplate.update("DELETE FROM outbox_events WHERE id = ?", late);
+    }
+
+    // ---- helpers ----
+
+    UUID enqueue(UUID aggregateId, String type) {
+        return enqueue(aggregateId, type, event(aggregateId, type));
+    }
+
+    UUID enqueue(UUID aggregateId, String type, byte[] payload) {
+        UUID id = UUID.randomUUID();
+        // clock_timestamp(): rows inserted back to back still get distinct, increasing created_at
+        jdbcTemplate.update("""
+                INSERT INTO outbox_events (id, aggregate_type, aggregate_id, event_type, schema_version, payload,
+                                           created_at, next_attempt_at)
+                VALUES (?, 'CUSTOMER', ?, ?, 2, ?, clock_timestamp(), now())
+                """, id, aggregateId, type, payload);
+        return id;
+    }
+
+    static byte[] event(UUID customerId, String type) {
+        String json = """
+                {"eventId":"%s","type":"%s","ts":"%s","customerId":"%s","name":"Relay Test","email":"relay-%s@example.com",
+                 "correlationId":"relay-test","schemaVersion":2,"source":"test"}
+                """.formatted(UUID.randomUUID(), type, Instant.now(), customerId, customerId);
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+
+    Object sentAt(UUID id) {
+        return jdbcTemplate.queryForObject("SELECT sent_at FROM outbox_events WHERE id = ?", Object.class, id);
+    }
+
+    Map<String, Object> state(UUID id) {
+        return jdbcTemplate.queryForMap("""
+                SELECT sent_at, attempts, last_error, next_attempt_at,
+                       next_attempt_at > now() + interval '30 seconds' AS backing_off, parked_at IS NOT NULL AS parked
+                FROM outbox_events WHERE id = ?
+                """, id);
+    }
+
+    /** Refresh as if the last measurement were an interval old (the scheduler's own refreshes included). */
+    void refreshBacklog() {
+        jdbcTemplate.update("UPDATE outbox_backlog_stats SET refreshed_at = '-infinity'");
+        backlogMonitor.refresh();
+    }
+
+    /** What ops.outbox.backlog.unsent should say. */
+    double pending() {
+        return jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM outbox_events WHERE sent_at IS NULL AND parked_at IS NULL", Long.class);
+    }
+
+    double oldestPendingAge() {
+        return jdbcTemplate.queryForObject("""
+                SELECT coalesce(extract(epoch FROM now() - min(created_at)), 0)::float8
+                FROM outbox_events WHERE sent_at IS NULL AND parked_at IS NULL
+                """, Double.class);
+    }
+
+    double gauge(String name) {
+        return meters.get(name).gauge().value();
+    }
+
+    double counter(String name, String... tags) {
+        return meters.find(name).tags(tags).counters().stream().mapToDouble(c -> c.count()).sum();
+    }
+
+    long latencyCount(String eventType) {
+        return meters.find("ops.outbox.publish.latency").tag("event_type", eventType).timers().stream()
+                .mapToLong(t -> t.count()).sum();
+    }
+
+    long unsent(UUID aggregateId) {
+        return jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM outbox_events WHERE aggregate_id = ? AND sent_at IS NULL", Long.class, aggregateId);
+    }
+
+    /** Every record with this key, from the start of the topic; waits until {@code expected} have arrived. */
+    List<ConsumerRecord<String, byte[]>> records(UUID key, int expected) {
+        List<ConsumerRecord<String, byte[]>> found = new ArrayList<>();
+        try (Consumer<String, byte[]> c = consumerFactory.createConsumer("outbox-relay-test-" + UUID.randomUUID(), null)) {
+            List<TopicPartition> partitions = c.partitionsFor(TOPIC).stream()
+                    .map(p -> new TopicPartition(p.topic(), p.partition()))
+                    .toList();
+            c.assign(partitions);
+            c.seekToBeginning(partitions);
+            long deadline = System.nanoTime() + Duration.ofSeconds(15).toNanos();
+            while (found.size() < expected && System.nanoTime() < deadline) {
+                for (ConsumerRecord<String, byte[]> r : c.poll(Duration.ofMillis(200))) {
+                    if (key.toString().equals(r.key())) found.add(r);
+                }
+            }
+        }
+        return found;
+    }
+
+    List<String> types(List<ConsumerRecord<String, byte[]>> records) throws IOException {
+        List<String> types = new ArrayList<>(records.size());
+        for (ConsumerRecord<String, byte[]> r : records) {
+            types.add(objectMapper.readTree(r.value()).get("type").asText());
+        }
+        return types;
+    }
+}
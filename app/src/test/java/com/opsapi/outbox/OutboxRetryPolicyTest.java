@@ -0,0 +1,60 @@
+package com.opsapi.outbox;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OutboxRetryPolicyTest {
+
+    private final OutboxRetryPolicy policy = new OutboxRetryPolicy(1_000, 300_000, 10);
+
+    @Test
+    void delayDoubles_withEqualJitterInTheUpperHalf() {
+        long delay = 1_000;
+        for (int attempts = 1; attempts <= 8; attempts++, delay *= 2) {
+            for (int i = 0; i < 1_000; i++) {
+                assertThat(policy.nextDelayMs(attempts)).isBetween(delay / 2, delay);
+            }
+        }
+    }
+
+    @Test
+    void delayIsCappedAtMaxDelay() {
+        for (int attempts : new int[]{10, 20, 31, 64, Integer.MAX_VALUE}) {
+            for (int i = 0; i < 1_000; i++) {
+                assertThat(policy.nextDelayMs(attempts)).isBetween(150_000L, 300_000L);
+            }
+        }
+    }
+
+    @Test
+    void jitterSpreadsRowsThatFailedTogether() {
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        for (int i = 0; i < 1_000; i++) {
+            long d = policy.nextDelayMs(5);
+            min = Math.min(min, d);
+            max = Math.max(max, d);
+        }
+        // 16s delay -> 8s..16s; 1000 draws cover most of that range
+        assertThat(max - min).isGreaterThan(6_000);
+    }
+
+    @Test
+    void firstAttemptAndBadInputStayAtTheBaseDelay() {
+        assertThat(policy.nextDelayMs(0)).isBetween(500L, 1_000L);
+        assertThat(policy.nextDelayMs(-3)).isBetween(500L, 1_000L);
+
+        OutboxRetryPolicy clamped = new OutboxRetryPolicy(0, 0, 0);
+        assertThat(clamped.nextDelayMs(1)).isBetween(0L, 1L);
+        assertThat(clamped.nextDelayMs(40)).isBetween(0L, 1L);
+        assertThat(clamped.shouldPark(1)).isTrue();
+    }
+
+    @Test
+    void parksAtMaxAttempts() {
+        assertThat(policy.shouldPark(9)).isFalse();
+        assertThat(policy.shouldPark(10)).isTrue();
+        assertThat(policy.shouldPark(11)).isTrue();
+    }
+}
@@ -0,0 +1,111 @@
+package com.opsapi.outbox;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.kafka.KafkaContainer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * ops.outbox.publish.transactional=true against a real Postgres and a real broker; each test triggers
+ * the drain itself (no LISTEN, no scheduled poll).
+ */
+@Testcontainers
+@SpringBootTest
+class OutboxTransactionalRelayIntegrationTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withDatabaseName("opsdb")
+            .withUsername("ops")
+            .withPassword("ops");
+
+    @Container
+    static KafkaContainer kafka = new KafkaContainer("apache/kafka:3.9.1");
+
+    @DynamicPropertySource
+    static void datasourceProps(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+
+        registry.add("spring.flyway.enabled", () -> true);
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "validate");
+        registry.add("spring.jpa.open-in-view", () -> "false");
+
+        registry.add("spring.kafka.bootstrap-servers", kafka::getBootstrapServers);
+        registry.add("ops.outbox.notify.enabled", () -> false);
+        registry.add("ops.outbox.poller.delay-ms", () -> 3_600_000);
+        registry.add("ops.outbox.publish.transactional", () -> true);
+        // the first failure parks a row: anything charged for someone else's failure would show right away
+        registry.add("ops.outbox.retry.max-attempts", () -> 1);
+    }
+
+    @Autowired
+    OutboxPoller poller;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    void poisonRecord_abortsItsBatch_butOnlyItIsCharged() {
+        // over the producer's max.request.size (1 MB): the send fails, the Kafka transaction aborts
+        UUID poison = enqueue(UUID.randomUUID(), new byte[1_100_000]);
+        UUID healthy1 = enqueue(UUID.randomUUID(), null);
+        UUID healthy2 = enqueue(UUID.randomUUID(), null);
+
+        poller.drain("test");
+
+        Map<String, Object> p = row(poison);
+        assertThat(p.get("attempts")).isEqualTo(1);
+        assertThat(p.get("parked_at")).isNotNull();
+        assertThat(p.get("sent_at")).isNull();
+
+        // aborted with it, released uncounted and sent by the drain's next batch
+        for (UUID id : new UUID[]{healthy1, healthy2}) {
+            Map<String, Object> h = row(id);
+            assertThat(h.get("attempts")).isEqualTo(0);
+            assertThat(h.get("parked_at")).isNull();
+            assertThat(h.get("sent_at")).isNotNull();
+        }
+    }
+
+    // ---- helpers ----
+
+    private UUID enqueue(UUID customerId, byte[] payload) {
+        UUID id = UUID.randomUUID();
+        byte[] bytes = payload != null ? payload : event(customerId);
+        // clock_timestamp(): rows inserted back to back still get distinct, increasing created_at
+        jdbcTemplate.update("""
+                INSERT INTO outbox_events (id, aggregate_type, aggregate_id, event_type, schema_version, payload,
+                                           created_at, next_attempt_at)
+                VALUES (?, 'CUSTOMER', ?, 'CUSTOMER_CREATED', 2, ?, clock_timestamp(), clock_timestamp())
+                """, id, customerId, bytes);
+        return id;
+    }
+
+    private static byte[] event(UUID customerId) {
+        String json = """
+                {"eventId":"%s","type":"CUSTOMER_CREATED","ts":"%s","customerId":"%s","name":"Tx Relay",
+                 "email":"tx-relay-%s@example.com","correlationId":"tx-relay-test","schemaVersion":2,"source":"test"}
+                """.formatted(UUID.randomUUID(), Instant.now(), customerId, customerId);
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private Map<String, Object> row(UUID id) {
+        return jdbcTemplate.queryForMap(
+                "SELECT attempts, sent_at, parked_at, last_error FROM outbox_events WHERE id = ?", id);
+    }
+}
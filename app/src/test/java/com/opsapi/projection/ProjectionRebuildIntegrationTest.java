@@ -0,0 +1,242 @@
+package com.opsapi.projection;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.opsapi.customers.dto.CustomerCreateRequest;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Testcontainers
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class ProjectionRebuildIntegrationTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16-alpine")
+            .withDatabaseName("opsdb")
+            .withUsername("ops")
+            .withPassword("ops");
+
+    @DynamicPropertySource
+    static void datasourceProps(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+
+        registry.add("spring.flyway.enabled", () -> true);
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "validate");
+        registry.add("spring.jpa.open-in-view", () -> "false");
+    }
+
+    @LocalServerPort
+    int port;
+
+    @Autowired
+    CustomerProjectionWriter writer;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    private final TestRestTemplate rest = new TestRestTemplate();
+
+    private static final Instant T0 = Instant.parse("2026-01-01T00:00:00Z");
+
+    @Test
+    void upsert_newestTsThenEventIdWins_inAnyOrder() {
+        UUID id = UUID.randomUUID();
+
+        assertThat(writer.upsert(List.of(row(id, "v2", "e2", T0.plusSeconds(2))))).isEqualTo(1);
+
+        // older event arrives late -> no write
+        assertThat(writer.upsert(List.of(row(id, "v1", "e1", T0.plusSeconds(1))))).isZero();
+        // the same event again -> no write
+        assertThat(writer.upsert(List.of(row(id, "v2 again", "e2", T0.plusSeconds(2))))).isZero();
+        assertThat(projection(id).get("name")).isEqualTo("v2");
+
+        // same ts: the bigger eventId wins
+        assertThat(writer.upsert(List.of(row(id, "v0", "e0", T0.plusSeconds(2))))).isZero();
+        assertThat(writer.upsert(List.of(row(id, "v3", "e3", T0.plusSeconds(2))))).isEqualTo(1);
+        assertThat(projection(id).get("name")).isEqualTo("v3");
+
+        // several events of one customer in one batch -> the newest, wherever it sits in the batch
+        assertThat(writer.upsert(List.of(
+                row(id, "v5", "e5", T0.plusSeconds(5)),
+                row(id, "v4", "e4", T0.plusSeconds(4))))).isEqualTo(1);
+        Map<String, Object> row = projection(id);
+        assertThat(row.get("name")).isEqualTo("v5");
+        assertThat(row.get("last_event_id")).isEqualTo("e5");
+    }
+
+    @Test
+    void upsert_tombstoneKeepsLastKnownValues_andOlderUpdatesDontReviveIt() {
+        UUID id = UUID.randomUUID();
+        writer.upsert(List.of(row(id, "alive", "e1", T0.plusSeconds(1))));
+
+        assertThat(writer.upsert(List.of(CustomerProjectionWriter.Row.deleted(id, "e3", T0.plusSeconds(3))))).isEqualTo(1);
+        assertThat(writer.upsert(List.of(row(id, "late update", "e2", T0.plusSeconds(2))))).isZero();
+
+        Map<String, Object> row = projection(id);
+        assertThat(row.get("name")).isEqualTo("alive");
+        assertThat(row.get("deleted_at")).isNotNull();
+    }
+
+    @Test
+    void outboxRebuild_withReset_recreatesTheProjectionFromHistory() {
+        String baseUrl = "http://localhost:" + port;
+        UUID kept = create(baseUrl, "Rebuild Kept", "rebuild-kept@example.com");
+        UUID deleted = create(baseUrl, "Rebuild Deleted", "rebuild-deleted@example.com");
+        rest.delete(baseUrl + "/customers/" + deleted);
+
+        // wrong on purpose: the rebuild must replace it
+        jdbcTemplate.update("UPDATE customer_projection SET name = 'stale' WHERE customer_id = ?", kept);
+        // no history at all: a reset drops it
+        UUID orphan = UUID.randomUUID();
+        jdbcTemplate.update("""
+                INSERT INTO customer_projection (customer_id, name, email, last_event_id, last_event_at, projected_at)
+                VALUES (?, 'Orphan', 'orphan@example.com', 'e-orphan', now(), now() - interval '1 hour')
+                """, orphan);
+
+        JsonNode status = rebuild(baseUrl, "source=outbox&reset=true");
+        assertThat(status.get("state").asText()).isEqualTo("DONE");
+        assertThat(status.get("coveredFrom").isNull()).isTrue();
+        assertThat(status.get("read").asLong()).isGreaterThanOrEqualTo(3);
+
+        assertThat(projection(kept).get("name")).isEqualTo("Rebuild Kept");
+        assertThat(projection(kept).get("deleted_at")).isNull();
+        assertThat(projection(deleted).get("deleted_at")).isNotNull();
+        assertThat(jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM customer_projection WHERE customer_id = ?", Long.class, orphan)).isZero();
+        // swapped in, not left behind
+        assertThat(jdbcTemplate.queryForObject("SELECT to_regclass('customer_projection_rebuild')", String.class)).isNull();
+    }
+
+    @Test
+    void outboxRebuild_withReset_keepsTheLiveProjection_whenAHandlerFails() {
+        String baseUrl = "http://localhost:" + port;
+        create(baseUrl, "Rebuild Failing", "rebuild-failing@example.com");
+        // only in the live projection: a swap would drop it
+        UUID kept = UUID.randomUUID();
+        jdbcTemplate.update("""
+                INSERT INTO customer_projection (customer_id, name, email, last_event_id, last_event_at, projected_at)
+                VALUES (?, 'live', 'live@example.com', 'e-live', now(), now() - interval '1 hour')
+                """, kept);
+
+        // binds fine, but its name does not fit the column: the upsert fails (a stand-in for a DB error)
+        UUID poisonId = UUID.randomUUID();
+        String json = """
+                {"eventId":"%s","type":"CUSTOMER_CREATED","ts":"%s","customerId":"%s","name":"%s",
+                 "email":"too-long@example.com","correlationId":"rebuild-test","schemaVersion":2,"source":"test"}
+                """.formatted(UUID.randomUUID(), Instant.now(), UUID.randomUUID(), "x".repeat(300));
+        jdbcTemplate.update("""
+                INSERT INTO outbox_events (id, aggregate_type, aggregate_id, event_type, schema_version, payload)
+                VALUES (?, 'CUSTOMER', ?, 'CUSTOMER_CREATED', 2, ?)
+                """, poisonId, UUID.randomUUID(), json.getBytes(StandardCharsets.UTF_8));
+        try {
+            JsonNode status = rebuild(baseUrl, "source=outbox&reset=true");
+
+            assertThat(status.get("state").asText()).isEqualTo("FAILED");
+            assertThat(status.get("failed").asLong()).isEqualTo(1);
+            assertThat(status.get("error").asText()).contains("staging dropped");
+            // nothing swapped: the live row is untouched, staging is gone
+            assertThat(projection(kept).get("name")).isEqualTo("live");
+            assertThat(jdbcTemplate.queryForObject("SELECT to_regclass('customer_projection_rebuild')", String.class)).isNull();
+        } finally {
+            jdbcTemplate.update("DELETE FROM outbox_events WHERE id = ?", poisonId);
+        }
+    }
+
+    @Test
+    void reset_withARange_isRefused() {
+        String baseUrl = "http://localhost:" + port;
+
+        ResponseEntity<JsonNode> refused = rest.postForEntity(
+                baseUrl + "/admin/projections/rebuild?source=outbox&reset=true&from=2026-01-01T00:00:00Z", null, JsonNode.class);
+
+        assertThat(refused.getStatusCode().value()).isEqualTo(400);
+        assertThat(refused.getBody().get("message").asText()).contains("whole history");
+    }
+
+    @Test
+    void outboxRebuild_withReset_isRefused_onceOldPartitionsWereRetired() {
+        String baseUrl = "http://localhost:" + port;
+        UUID id = create(baseUrl, "Rebuild Partial", "rebuild-partial@example.com");
+
+        // what retention does to the oldest partition (detach; the drop is the same for the catalog)
+        String bound = jdbcTemplate.queryForObject(
+                "SELECT pg_get_expr(relpartbound, oid) FROM pg_class WHERE relname = 'outbox_events_p_legacy'", String.class);
+        jdbcTemplate.execute("ALTER TABLE outbox_events DETACH PARTITION outbox_events_p_legacy");
+        try {
+            long before = jdbcTemplate.queryForObject("SELECT count(*) FROM customer_projection", Long.class);
+
+            ResponseEntity<JsonNode> refused = rest.postForEntity(
+                    baseUrl + "/admin/projections/rebuild?source=outbox&reset=true", null, JsonNode.class);
+            assertThat(refused.getStatusCode().value()).isEqualTo(409);
+            assertThat(refused.getBody().get("message").asText()).contains("retired");
+            assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM customer_projection", Long.class))
+                    .isEqualTo(before);
+
+            // without reset it still runs (upserts only), and says what it covered
+            JsonNode status = rebuild(baseUrl, "source=outbox");
+            assertThat(status.get("state").asText()).isEqualTo("DONE");
+            assertThat(status.get("coveredFrom").isNull()).isFalse();
+            assertThat(projection(id).get("name")).isEqualTo("Rebuild Partial");
+        } finally {
+            jdbcTemplate.execute("ALTER TABLE outbox_events ATTACH PARTITION outbox_events_p_legacy " + bound);
+        }
+    }
+
+    private static CustomerProjectionWriter.Row row(UUID id, String name, String eventId, Instant at) {
+        return new CustomerProjectionWriter.Row(id, name, name.replace(' ', '-') + "@example.com", "test", eventId, at);
+    }
+
+    private Map<String, Object> projection(UUID id) {
+        return jdbcTemplate.queryForMap(
+                "SELECT name, last_event_id, deleted_at FROM customer_projection WHERE customer_id = ?", id);
+    }
+
+    private UUID create(String baseUrl, String name, String email) {
+        ResponseEntity<JsonNode> resp = rest.postForEntity(baseUrl + "/customers",
+                new CustomerCreateRequest(name, email), JsonNode.class);
+        assertThat(resp.getStatusCode().value()).isEqualTo(201);
+        return UUID.fromString(resp.getBody().get("id").asText());
+    }
+
+    /** Starts a rebuild and waits for it to end; returns the final status. */
+    private JsonNode rebuild(String baseUrl, String query) {
+        ResponseEntity<JsonNode> started = rest.postForEntity(
+                baseUrl + "/admin/projections/rebuild?" + query, null, JsonNode.class);
+        assertThat(started.getStatusCode().value()).isEqualTo(202);
+
+        long deadline = System.currentTimeMillis() + 30_000;
+        JsonNode status = started.getBody();
+        while (status.get("state").asText().equals("RUNNING") && System.currentTimeMillis() < deadline) {
+            sleep(100);
+            status = rest.getForEntity(baseUrl + "/admin/projections/rebuild", JsonNode.class).getBody();
+        }
+        return status;
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}